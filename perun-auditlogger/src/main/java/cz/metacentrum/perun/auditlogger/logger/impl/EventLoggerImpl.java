@@ -5,6 +5,7 @@ import cz.metacentrum.perun.auditlogger.logger.EventLogger;
 import cz.metacentrum.perun.auditlogger.service.AuditLoggerManager;
 import cz.metacentrum.perun.auditparser.AuditParser;
 import cz.metacentrum.perun.core.api.AuditMessage;
+import cz.metacentrum.perun.core.api.BeansUtils;
 import cz.metacentrum.perun.core.api.Perun;
 import cz.metacentrum.perun.core.api.PerunSession;
 import cz.metacentrum.perun.core.api.exceptions.InternalErrorException;
@@ -70,6 +71,7 @@ public class EventLoggerImpl implements EventLogger, Runnable {
 		try {
 			perunSession = auditLoggerManager.getPerunSession();
 			perun = auditLoggerManager.getPerunBl();
+			int batchSize = BeansUtils.getCoreConfig().getAuditerConsumerBatchSize();
 			
 			if (lastProcessedIdNumber == 0) {
 				loadLastProcessedId();
@@ -81,11 +83,13 @@ public class EventLoggerImpl implements EventLogger, Runnable {
 			while (running) {
 
 				int sleepTime = 1000;
+				boolean fullBatch = false;
 				//Waiting for new messages. If consumer failed in some internal case, waiting until it will be repaired (waiting time is increases by each attempt)
 				while(messages == null) {
 					try {
 						//IMPORTANT STEP1: Get new bulk of messages
-						messages = ((PerunBl)perun).getAuditMessagesManagerBl().pollConsumerMessages(perunSession, auditLoggerManager.getConsumerName(), lastProcessedIdNumber);
+						messages = ((PerunBl)perun).getAuditMessagesManagerBl().pollConsumerMessagesBatch(perunSession, auditLoggerManager.getConsumerName(), lastProcessedIdNumber, batchSize);
+						fullBatch = messages.size() == batchSize;
 						log.debug("Read {} new audit messages starting from {}", messages.size(), lastProcessedIdNumber);
 					} catch (InternalErrorException ex) {
 						log.error("Consumer failed due to {}. Sleeping for {} ms.", ex, sleepTime);
@@ -124,7 +128,8 @@ public class EventLoggerImpl implements EventLogger, Runnable {
 					running = false;
 				} else {
 					saveLastProcessedId();
-					Thread.sleep(5000);
+					//If we got full batch, there are probably more messages waiting, so don't sleep
+					if (!fullBatch) Thread.sleep(5000);
 				}
 			}
 			//If auditlogger is interrupted
@@ -194,5 +199,12 @@ public class EventLoggerImpl implements EventLogger, Runnable {
 		} catch (IOException e) {
 			log.error("Error writing last processed message id to file {}", auditLoggerManager.getStateFile(), e);
 		}
+		// position stored in Perun holds back dropping of old audit log partitions
+		try {
+			((PerunBl) auditLoggerManager.getPerunBl()).getAuditMessagesManagerBl().storeConsumerPosition(auditLoggerManager.getPerunSession(),
+					auditLoggerManager.getConsumerName(), lastProcessedIdNumber);
+		} catch (InternalErrorException e) {
+			log.error("Error storing last processed message id {} to Perun.", lastProcessedIdNumber, e);
+		}
 	}
 }
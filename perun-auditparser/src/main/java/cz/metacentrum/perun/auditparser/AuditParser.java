@@ -544,6 +544,7 @@ public class AuditParser {
 			else if (status.equals("DONE")) st = TaskResultStatus.DONE;
 			else if (status.equals("ERROR")) st = TaskResultStatus.ERROR;
 			else if (status.equals("WARNING")) st = TaskResultStatus.WARNING;
+			else if (status.equals("SKIPPED")) st = TaskResultStatus.SKIPPED;
 			else st = null;
 		}
 		taskResult.setStatus(st);
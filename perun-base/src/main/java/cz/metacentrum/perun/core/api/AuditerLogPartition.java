@@ -0,0 +1,76 @@
+package cz.metacentrum.perun.core.api;
+
+import java.util.Objects;
+
+/**
+ * Object for representation of one partition of the range partitioned auditer_log table.
+ * Partition contains messages with IDs from idFrom (inclusive) to idTo (exclusive).
+ * Unbounded side of the range is represented by null. Default partition has both bounds null.
+ */
+public class AuditerLogPartition implements Comparable<AuditerLogPartition> {
+
+	private final String name;
+	private final Long idFrom;
+	private final Long idTo;
+	private final boolean defaultPartition;
+
+	public AuditerLogPartition(String name, Long idFrom, Long idTo, boolean defaultPartition) {
+		this.name = name;
+		this.idFrom = idFrom;
+		this.idTo = idTo;
+		this.defaultPartition = defaultPartition;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return lowest ID of message in partition (inclusive) or null if unbounded
+	 */
+	public Long getIdFrom() {
+		return idFrom;
+	}
+
+	/**
+	 * @return upper bound of IDs in partition (exclusive) or null if unbounded
+	 */
+	public Long getIdTo() {
+		return idTo;
+	}
+
+	public boolean isDefaultPartition() {
+		return defaultPartition;
+	}
+
+	/**
+	 * Partitions are ordered by their ranges, default partition is the last one.
+	 */
+	@Override
+	public int compareTo(AuditerLogPartition o) {
+		if (defaultPartition != o.defaultPartition) return defaultPartition ? 1 : -1;
+		if (Objects.equals(idFrom, o.idFrom)) return 0;
+		if (idFrom == null) return -1;
+		if (o.idFrom == null) return 1;
+		return idFrom.compareTo(o.idFrom);
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + ":[name='" + name + "', idFrom='" + idFrom + "', idTo='" + idTo +
+				"', defaultPartition='" + defaultPartition + "']";
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+		AuditerLogPartition that = (AuditerLogPartition) o;
+		return Objects.equals(name, that.name);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(name);
+	}
+}
@@ -1,5 +1,9 @@
 package cz.metacentrum.perun.core.api;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import cz.metacentrum.perun.core.api.exceptions.ConsistencyErrorException;
@@ -8,6 +12,7 @@ import java.io.BufferedInputStream;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.StringWriter;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -98,13 +103,41 @@ public class BeansUtils {
 	 */
 	public static String eraseEscaping(String text) {
 		if(text == null || text.equals("\\0")) return null;
-		//change \0 to null if zero is escaped
-		text = text.replaceAll("((^|[^\\\\])(\\\\\\\\)*)(\\\\0)", "$1null");
-		text = text.replace("\\>", ">");
-		text = text.replace("\\<", "<");
-		text = text.replace("\\\\", "\\");
-		return text;
+		if(text.indexOf('\\') == -1) return text;
+
+		StringBuilder sb = new StringBuilder(text.length() + 8);
+		int length = text.length();
+		// index of zero in the last escaped \0 changed to null, char consumed by it can't start another one
+		int lastNullEnd = -2;
+		int i = 0;
+		while(i < length) {
+			char c = text.charAt(i);
+			if(c != '\\') {
+				sb.append(c);
+				i++;
+				continue;
+			}
+			int runStart = i;
+			while(i < length && text.charAt(i) == '\\') i++;
+			int run = i - runStart;
+			char next = i < length ? text.charAt(i) : 0;
+			if(next == '0' && run % 2 == 1 && runStart - 1 != lastNullEnd) {
+				//change \0 to null if zero is escaped
+				appendBackslashes(sb, run / 2);
+				sb.append("null");
+				lastNullEnd = i;
+				i++;
+			} else if(next == '<' || next == '>') {
+				appendBackslashes(sb, run / 2);
+				sb.append(next);
+				i++;
+			} else {
+				appendBackslashes(sb, (run + 1) / 2);
+			}
+		}
+		return sb.toString();
 	}
+
 	/**
 	 * This method take text and for every chars in "<>\" create escaping
 	 * Escaping char is \.
@@ -115,10 +148,29 @@ public class BeansUtils {
 	 */
 	public static String createEscaping(String text) {
 		if(text == null) return "\\0";
-		text = text.replace("\\", "\\\\");
-		text = text.replace(">", "\\>");
-		text = text.replace("<", "\\<");
-		return text;
+		int length = text.length();
+		int i = 0;
+		while(i < length && !isPointyBracketOrBackslash(text.charAt(i))) i++;
+		if(i == length) return text;
+
+		StringBuilder sb = new StringBuilder(length + 8);
+		sb.append(text, 0, i);
+		for(; i < length; i++) {
+			char c = text.charAt(i);
+			if(isPointyBracketOrBackslash(c)) sb.append('\\');
+			sb.append(c);
+		}
+		return sb.toString();
+	}
+
+	private static boolean isPointyBracketOrBackslash(char c) {
+		return c == '\\' || c == '<' || c == '>';
+	}
+
+	private static void appendBackslashes(StringBuilder sb, int count) {
+		for(int i = 0; i < count; i++) {
+			sb.append('\\');
+		}
 	}
 
 	/**
@@ -242,48 +294,66 @@ public class BeansUtils {
 		} else if(Objects.equals(attributeType, Boolean.class.getName())) {
 			return Boolean.toString((Boolean) attribute.getValue());
 		} else if(Objects.equals(attributeType, ArrayList.class.getName())) {
-			StringBuilder sb = new StringBuilder();
-			for(String item : (List<String>) attribute.getValue()) {
-				if(item == null) {
-					item = "\\0";
-				} else {
-					item = item.replace("\\", "\\\\");   //escape char '\'
-					item = item.replace(Character.toString(LIST_DELIMITER), "\\" + LIST_DELIMITER); //escape LIST_DELIMITER
-				}
-				sb.append(item);
+			List<String> list = (List<String>) attribute.getValue();
+			int length = 0;
+			for(String item : list) {
+				length += escapedLengthEstimate(item) + 1;
+			}
+			StringBuilder sb = new StringBuilder(length);
+			for(String item : list) {
+				appendEscaped(sb, item, false);
 				sb.append(LIST_DELIMITER);
 			}
 			return sb.toString();
 		} else if(Objects.equals(attributeType, LinkedHashMap.class.getName())) {
-			StringBuilder sb = new StringBuilder();
-			for(Map.Entry<String, String> entry : ((Map<String, String>) attribute.getValue()).entrySet()) {
-				String key = entry.getKey();
-				if(key == null) {
-					key = "\\0";
-				} else {
-					key = key.replace("\\", "\\\\");   //escape char '\'
-					key = key.replace(Character.toString(LIST_DELIMITER), "\\" + LIST_DELIMITER); //escape LIST_DELIMITER
-					key = key.replace(Character.toString(KEY_VALUE_DELIMITER), "\\" + KEY_VALUE_DELIMITER); //escape KEY_VALUE_DELIMITER
-				}
-
-				String value = entry.getValue();
-				if(value == null) {
-					value = "\\0";
-				} else {
-					value = value.replace("\\", "\\\\");   //escape char '\'
-					value = value.replace(Character.toString(LIST_DELIMITER), "\\" + LIST_DELIMITER); //escape LIST_DELIMITER
-					value = value.replace(Character.toString(KEY_VALUE_DELIMITER), "\\" + KEY_VALUE_DELIMITER); //escape KEY_VALUE_DELIMITER
-				}
-
-				sb.append(key);
+			Map<String, String> map = (Map<String, String>) attribute.getValue();
+			int length = 0;
+			for(Map.Entry<String, String> entry : map.entrySet()) {
+				length += escapedLengthEstimate(entry.getKey()) + escapedLengthEstimate(entry.getValue()) + 2;
+			}
+			StringBuilder sb = new StringBuilder(length);
+			for(Map.Entry<String, String> entry : map.entrySet()) {
+				appendEscaped(sb, entry.getKey(), true);
 				sb.append(KEY_VALUE_DELIMITER);
-				sb.append(value);
+				appendEscaped(sb, entry.getValue(), true);
 				sb.append(LIST_DELIMITER);
 			}
 			return sb.toString();
 		} else throw new InternalErrorException("Unknown java type of attribute's value.");
 	}
 
+	/**
+	 * Length of escaped item with some reserve for escaping chars, so the builder doesn't have to grow.
+	 */
+	private static int escapedLengthEstimate(String item) {
+		return item == null ? 2 : item.length() + (item.length() >> 4) + 1;
+	}
+
+	/**
+	 * Append item of list or map value to the builder. Null is written as \0, char '\' and LIST_DELIMITER
+	 * (and KEY_VALUE_DELIMITER for items of map) are escaped by '\'.
+	 *
+	 * @param sb builder of whole value
+	 * @param item item to append
+	 * @param escapeKeyValueDelimiter true if KEY_VALUE_DELIMITER should be escaped too
+	 */
+	private static void appendEscaped(StringBuilder sb, String item, boolean escapeKeyValueDelimiter) {
+		if(item == null) {
+			sb.append("\\0");
+			return;
+		}
+		int length = item.length();
+		int start = 0;
+		for(int i = 0; i < length; i++) {
+			char c = item.charAt(i);
+			if(c == '\\' || c == LIST_DELIMITER || (escapeKeyValueDelimiter && c == KEY_VALUE_DELIMITER)) {
+				sb.append(item, start, i).append('\\');
+				start = i;
+			}
+		}
+		sb.append(item, start, length);
+	}
+
 	/**
 	 * This method get map created by example : {<key1>=<value1>, <key2>=<value2>}
 	 * Keys and values are escaped for "\", "<" and ">"
@@ -353,28 +423,123 @@ public class BeansUtils {
 	 * @return list of parsed values
 	 */
 	public static List<String> parseEscapedListValue(String value) {
-		String[] array = value.split(Character.toString(LIST_DELIMITER), -1);
-		List<String> listValue =  new ArrayList<String>();
-		//join items which was splited on escaped LIST_DELIMITER
-		for(int i = 0; i < array.length -1; i++) { //itarate to lenght -1  ... last array item is always empty
-			String item = array[i];
-			while(item.matches("^(.*[^\\\\])?(\\\\\\\\)*\\\\$")) { //item last char is '\' . Next item start with ',', so we need to concat this items.
-				item = item.substring(0, item.length()-1);  //cut off last char ('\')
-				try {
-					item = item.concat(Character.toString(LIST_DELIMITER)).concat(array[i+1]);
+		List<String> listValue = new ArrayList<>(countDelimiters(value));
+		int end = decodeItems(value, (from, to) -> listValue.add(unescapeItem(value, from, to, false)));
+		//unterminated item is used only if it was joined with the previous one on the escaped LIST_DELIMITER
+		if(end < value.length() && value.indexOf(LIST_DELIMITER, end) != -1) {
+			listValue.add(unescapeItem(value, end, value.length(), false));
+		}
+		return listValue;
+	}
+
+	/**
+	 * Parses map value created by attributeValueToString(). Each entry is terminated by the LIST_DELIMITER
+	 * and its key is separated from the value by the first non-escaped KEY_VALUE_DELIMITER.
+	 *
+	 * @param value value to be parsed
+	 * @return map of parsed keys and values in the original order
+	 */
+	private static LinkedHashMap<String, String> parseEscapedMapValue(String value) {
+		LinkedHashMap<String, String> mapValue = new LinkedHashMap<>(countDelimiters(value) * 4 / 3 + 1);
+		int end = decodeItems(value, (from, to) -> putMapEntry(mapValue, value, from, to));
+		if(end < value.length() && value.indexOf(LIST_DELIMITER, end) != -1) {
+			putMapEntry(mapValue, value, end, value.length());
+		}
+		return mapValue;
+	}
+
+	/**
+	 * Callback receiving bounds of each item found by decodeItems().
+	 */
+	@FunctionalInterface
+	private interface ItemConsumer {
+		void accept(int from, int to);
+	}
+
+	/**
+	 * Finds all items of list or map value terminated by non-escaped LIST_DELIMITER in a single pass.
+	 *
+	 * @param value escaped value
+	 * @param consumer receives bounds of each item (without the delimiter)
+	 * @return start of the unterminated rest of the value (length of the value, if there is no rest)
+	 * @throws ConsistencyErrorException if the rest of the value contains escaped LIST_DELIMITER and ends with escaping char
+	 */
+	private static int decodeItems(String value, ItemConsumer consumer) {
+		int length = value.length();
+		int start = 0;
+		int backslashes = 0;
+		for(int i = 0; i < length; i++) {
+			char c = value.charAt(i);
+			if(c == '\\') {
+				backslashes++;
+				continue;
+			}
+			if(c == LIST_DELIMITER && backslashes % 2 == 0) {
+				consumer.accept(start, i);
+				start = i + 1;
+			}
+			backslashes = 0;
+		}
+		if(backslashes % 2 == 1 && value.indexOf(LIST_DELIMITER, start) != -1) {
+			throw new ConsistencyErrorException("Bad format in attribute value");
+		}
+		return start;
+	}
+
+	private static void putMapEntry(Map<String, String> map, String value, int from, int to) {
+		int delimiterIndex = -1;
+		int backslashes = 0;
+		for(int i = from; i < to; i++) {
+			char c = value.charAt(i);
+			if(c == '\\') {
+				backslashes++;
+				continue;
+			}
+			if(c == KEY_VALUE_DELIMITER && backslashes % 2 == 0) {
+				delimiterIndex = i;
+				break;
+			}
+			backslashes = 0;
+		}
+		if(delimiterIndex == -1) {
+			//entry is reported as it was after joining of items split on escaped LIST_DELIMITER
+			String processedEntry = value.substring(from, to).replace("\\" + LIST_DELIMITER, Character.toString(LIST_DELIMITER));
+			throw new ConsistencyErrorException("Bad format in attribute value. KEY_VALUE_DELIMITER not found. Attribute value='" + value + "', processed entry='" + processedEntry + "'");
+		}
+		map.put(unescapeItem(value, from, delimiterIndex, true), unescapeItem(value, delimiterIndex + 1, to, true));
+	}
+
+	/**
+	 * Unescape item of list or map value. Escaped '\' and LIST_DELIMITER (and KEY_VALUE_DELIMITER for items of map)
+	 * are replaced by the char itself, other escaping chars are kept. Item \0 means null.
+	 */
+	private static String unescapeItem(String value, int from, int to, boolean unescapeKeyValueDelimiter) {
+		int backslash = value.indexOf('\\', from);
+		if(backslash == -1 || backslash >= to) return value.substring(from, to);
+
+		StringBuilder sb = new StringBuilder(to - from);
+		sb.append(value, from, backslash);
+		for(int i = backslash; i < to; i++) {
+			char c = value.charAt(i);
+			if(c == '\\' && i + 1 < to) {
+				char next = value.charAt(i + 1);
+				if(next == '\\' || next == LIST_DELIMITER || (unescapeKeyValueDelimiter && next == KEY_VALUE_DELIMITER)) {
+					c = next;
 					i++;
-				} catch(ArrayIndexOutOfBoundsException ex) {
-					throw new ConsistencyErrorException("Bad format in attribute value", ex);
 				}
 			}
-			//unescape
-			item = item.replaceAll("\\\\([\\\\" + Character.toString(LIST_DELIMITER) + "])", "$1");
-			if(item.equals("\\0")) item = null;
+			sb.append(c);
+		}
+		if(sb.length() == 2 && sb.charAt(0) == '\\' && sb.charAt(1) == '0') return null;
+		return sb.toString();
+	}
 
-			//return updated item back to list
-			listValue.add(item);
+	private static int countDelimiters(String value) {
+		int count = 0;
+		for(int i = value.indexOf(LIST_DELIMITER); i != -1; i = value.indexOf(LIST_DELIMITER, i + 1)) {
+			count++;
 		}
-		return listValue;
+		return count;
 	}
 
 	/**
@@ -389,6 +554,19 @@ public class BeansUtils {
 	public static Object stringToAttributeValue(String stringValue, String type) {
 		if(stringValue == null || stringValue.isEmpty()) return null;
 
+		// known types are compared by name, so the class doesn't have to be looked up for each value
+		if(String.class.getName().equals(type)) {
+			return stringValue;
+		} else if(Integer.class.getName().equals(type)) {
+			return Integer.parseInt(stringValue);
+		} else if(Boolean.class.getName().equals(type)) {
+			return Boolean.parseBoolean(stringValue);
+		} else if(ArrayList.class.getName().equals(type)) {
+			return parseEscapedListValue(stringValue);
+		} else if(LinkedHashMap.class.getName().equals(type)) {
+			return parseEscapedMapValue(stringValue);
+		}
+
 		Class<?> attributeClass;
 		try {
 			attributeClass = Class.forName(type);
@@ -397,74 +575,105 @@ public class BeansUtils {
 		} catch (NoClassDefFoundError e) {
 			throw new InternalErrorException("Unknown attribute def type", e);
 		}
+		throw new InternalErrorException("Unknown attribute type. ("+ attributeClass.toString() + ")");
+	}
 
-		if(attributeClass.equals(String.class)) {
-			return stringValue;
-		} else if(attributeClass.equals(Integer.class)) {
-			return Integer.parseInt(stringValue);
-		} else if(attributeClass.equals(Boolean.class)) {
-			return Boolean.parseBoolean(stringValue);
-		} else if(attributeClass.equals(ArrayList.class)) {
-			return parseEscapedListValue(stringValue);
-		} else if(attributeClass.equals(LinkedHashMap.class)) {
-			String[] array = stringValue.split(Character.toString(LIST_DELIMITER), -1);
-			Map<String, String> attributeValue = new LinkedHashMap<String, String>();
-
-			//join items which was splited on escaped LIST_DELIMITER
-			for(int i = 0; i < array.length -1; i++) {  //itarate to lenght -1  ... last array item is always empty
-				String mapEntry = array[i];
-
-				while(mapEntry.matches("^(.*[^\\\\])?(\\\\\\\\)*\\\\$")) { //mapEntry last char is '\' . Next mapEntry start with ',', so we need to concat this mapEntries.
-					mapEntry = mapEntry.substring(0, mapEntry.length()-1);  //cut off last char ('\')
-					try {
-						mapEntry = mapEntry.concat(Character.toString(LIST_DELIMITER)).concat(array[i+1]);
-						i++;
-					} catch(ArrayIndexOutOfBoundsException ex) {
-						throw new ConsistencyErrorException("Bad format in attribute value", ex);
-					}
+	/**
+	 * Converts list or map attribute value to JSON (for storing into DB next to its string representation).
+	 * List is converted to JSON array of strings, map to JSON array of [key, value] pairs, because jsonb
+	 * doesn't keep order of keys in JSON objects.
+	 *
+	 * @param attribute attribute with the value
+	 * @return JSON representation of the value or null, when the value is null, empty or it is not a list or a map
+	 *
+	 * @throws InternalErrorException when the value can't be converted
+	 */
+	@SuppressWarnings("unchecked")
+	public static String attributeValueToJson(Attribute attribute) {
+		if (attribute == null) throw new InternalErrorException(new NullPointerException("attribute is null"));
+		Object value = attribute.getValue();
+		if (value == null) return null;
+
+		boolean isList = Objects.equals(attribute.getType(), ArrayList.class.getName());
+		boolean isMap = Objects.equals(attribute.getType(), LinkedHashMap.class.getName());
+		// empty values are stored as empty strings, which are read as null
+		if (!isList && !isMap || isList && ((List<?>) value).isEmpty() || isMap && ((Map<?, ?>) value).isEmpty()) return null;
+
+		StringWriter writer = new StringWriter();
+		try (JsonGenerator generator = objectMapper.getFactory().createGenerator(writer)) {
+			generator.writeStartArray();
+			if (isList) {
+				for (String item : (List<String>) value) {
+					generator.writeString(item);
 				}
-
-				boolean delimiterFound = false;
-				int delimiterIndex = -1;
-
-
-				while(!delimiterFound) {
-					delimiterIndex++; //start searching at next char then last time
-					delimiterIndex = mapEntry.indexOf(Character.toString(KEY_VALUE_DELIMITER), delimiterIndex);
-					if(delimiterIndex == -1) throw new ConsistencyErrorException("Bad format in attribute value. KEY_VALUE_DELIMITER not found. Attribute value='" + stringValue + "', processed entry='" + mapEntry + "'");
-
-					//check if this delimiter is not escaped
-					boolean isEscaped = false;  //is delimiter escaped
-					boolean stop = false;
-					int processedIndex = delimiterIndex - 1;
-					while(!stop && processedIndex >= 0) {
-						if(mapEntry.charAt(processedIndex) == '\\') {
-							isEscaped = !isEscaped;
-						} else {
-							stop = true;
-						}
-						processedIndex--;
-					}
-					if(!isEscaped) delimiterFound = true;
+			} else {
+				for (Map.Entry<String, String> entry : ((Map<String, String>) value).entrySet()) {
+					generator.writeStartArray();
+					generator.writeString(entry.getKey());
+					generator.writeString(entry.getValue());
+					generator.writeEndArray();
 				}
+			}
+			generator.writeEndArray();
+		} catch (IOException | ClassCastException e) {
+			throw new InternalErrorException("Unable to convert value of " + attribute + " to JSON.", e);
+		}
+		return writer.toString();
+	}
 
-				String key = mapEntry.substring(0, delimiterIndex);
-				String value = mapEntry.substring(delimiterIndex+1);
-
-				//unescape
-				key = key.replaceAll("\\\\([\\\\" + Character.toString(LIST_DELIMITER) + Character.toString(KEY_VALUE_DELIMITER) + "])", "$1");
-				value = value.replaceAll("\\\\([\\\\" + Character.toString(LIST_DELIMITER) + Character.toString(KEY_VALUE_DELIMITER) + "])", "$1");
-
-				if(key.equals("\\0")) key = null;
-				if(value.equals("\\0")) value = null;
+	/**
+	 * Converts JSON representation of list or map attribute value created by {@link #attributeValueToJson(Attribute)}
+	 * to correct java object.
+	 *
+	 * @param jsonValue JSON representation of the attribute value
+	 * @param type type of the value (java.util.ArrayList or java.util.LinkedHashMap)
+	 * @return value of the attribute or null
+	 *
+	 * @throws ConsistencyErrorException when JSON doesn't represent value of the type
+	 */
+	public static Object jsonToAttributeValue(String jsonValue, String type) {
+		if (jsonValue == null) return null;
+		boolean isMap = Objects.equals(type, LinkedHashMap.class.getName());
+		if (!isMap && !Objects.equals(type, ArrayList.class.getName())) {
+			throw new InternalErrorException("Values of type " + type + " are not stored as JSON.");
+		}
 
-				//return updated item back to list
-				attributeValue.put(key, value);
+		try (JsonParser parser = objectMapper.getFactory().createParser(jsonValue)) {
+			expectToken(parser, JsonToken.START_ARRAY);
+			if (isMap) {
+				LinkedHashMap<String, String> map = new LinkedHashMap<>();
+				while (parser.nextToken() == JsonToken.START_ARRAY) {
+					parser.nextToken();
+					String key = parser.getValueAsString();
+					parser.nextToken();
+					String value = parser.getValueAsString();
+					expectToken(parser, JsonToken.END_ARRAY);
+					map.put(key, value);
+				}
+				checkToken(parser, JsonToken.END_ARRAY);
+				return map;
+			} else {
+				ArrayList<String> list = new ArrayList<>();
+				JsonToken token;
+				while ((token = parser.nextToken()) == JsonToken.VALUE_STRING || token == JsonToken.VALUE_NULL) {
+					list.add(parser.getValueAsString());
+				}
+				checkToken(parser, JsonToken.END_ARRAY);
+				return list;
 			}
+		} catch (IOException e) {
+			throw new ConsistencyErrorException("Bad format in JSON attribute value '" + jsonValue + "'", e);
+		}
+	}
 
-			return attributeValue;
-		} else {
-			throw new InternalErrorException("Unknown attribute type. ("+ attributeClass.toString() + ")");
+	private static void expectToken(JsonParser parser, JsonToken expected) throws IOException {
+		parser.nextToken();
+		checkToken(parser, expected);
+	}
+
+	private static void checkToken(JsonParser parser, JsonToken expected) throws IOException {
+		if (parser.currentToken() != expected) {
+			throw new JsonParseException(parser, "Expected " + expected + " but found " + parser.currentToken());
 		}
 	}
 
@@ -33,6 +33,9 @@ public class CoreConfig {
 	private boolean readOnlyPerun;
 	private int groupSynchronizationInterval;
 	private int groupSynchronizationTimeout;
+	private int groupFullSynchronizationInterval;
+	private int groupSynchronizationBatchSize;
+	private int groupSynchronizationMemberThreads;
 	private int groupMaxConcurentGroupsToSynchronize;
 	private int groupStructureSynchronizationInterval;
 	private int groupStructureSynchronizationTimeout;
@@ -41,6 +44,16 @@ public class CoreConfig {
 	private int pwdresetValidationWindow;
 	private int accountActivationValidationWindow;
 	private int queryTimeout;
+	private int auditerLogWriterBatchSize;
+	private int auditerConsumerBatchSize;
+	private int auditerConsumerFetchSize;
+	private int auditerLogPartitionSize;
+	private int auditerLogPartitionsAhead;
+	private int auditerLogRetentionDays;
+	private int auditerLogRetentionConsumerIdleDays;
+	private int genDataCacheSize;
+	private int genDataCacheTimeToLive;
+	private String auditerLogArchiveDir;
 	private List<String> admins;
 	private List<String> enginePrincipals;
 	private List<String> generatedLoginNamespaces;
@@ -152,6 +165,46 @@ public class CoreConfig {
 		this.groupSynchronizationTimeout = groupSynchronizationTimeout;
 	}
 
+	public int getGroupFullSynchronizationInterval() {
+		return groupFullSynchronizationInterval;
+	}
+
+	public void setGroupFullSynchronizationInterval(int groupFullSynchronizationInterval) {
+		this.groupFullSynchronizationInterval = groupFullSynchronizationInterval;
+	}
+
+	public int getGroupSynchronizationBatchSize() {
+		return groupSynchronizationBatchSize;
+	}
+
+	public void setGroupSynchronizationBatchSize(int groupSynchronizationBatchSize) {
+		this.groupSynchronizationBatchSize = groupSynchronizationBatchSize;
+	}
+
+	public int getGroupSynchronizationMemberThreads() {
+		return groupSynchronizationMemberThreads;
+	}
+
+	public void setGroupSynchronizationMemberThreads(int groupSynchronizationMemberThreads) {
+		this.groupSynchronizationMemberThreads = groupSynchronizationMemberThreads;
+	}
+
+	public int getGenDataCacheSize() {
+		return genDataCacheSize;
+	}
+
+	public void setGenDataCacheSize(int genDataCacheSize) {
+		this.genDataCacheSize = genDataCacheSize;
+	}
+
+	public int getGenDataCacheTimeToLive() {
+		return genDataCacheTimeToLive;
+	}
+
+	public void setGenDataCacheTimeToLive(int genDataCacheTimeToLive) {
+		this.genDataCacheTimeToLive = genDataCacheTimeToLive;
+	}
+
 	public int getMailchangeValidationWindow() {
 		return mailchangeValidationWindow;
 	}
@@ -647,6 +700,70 @@ public class CoreConfig {
 		this.queryTimeout = queryTimeout;
 	}
 
+	public int getAuditerLogWriterBatchSize() {
+		return auditerLogWriterBatchSize;
+	}
+
+	public void setAuditerLogWriterBatchSize(int auditerLogWriterBatchSize) {
+		this.auditerLogWriterBatchSize = auditerLogWriterBatchSize;
+	}
+
+	public int getAuditerConsumerBatchSize() {
+		return auditerConsumerBatchSize;
+	}
+
+	public void setAuditerConsumerBatchSize(int auditerConsumerBatchSize) {
+		this.auditerConsumerBatchSize = auditerConsumerBatchSize;
+	}
+
+	public int getAuditerConsumerFetchSize() {
+		return auditerConsumerFetchSize;
+	}
+
+	public void setAuditerConsumerFetchSize(int auditerConsumerFetchSize) {
+		this.auditerConsumerFetchSize = auditerConsumerFetchSize;
+	}
+
+	public int getAuditerLogPartitionSize() {
+		return auditerLogPartitionSize;
+	}
+
+	public void setAuditerLogPartitionSize(int auditerLogPartitionSize) {
+		this.auditerLogPartitionSize = auditerLogPartitionSize;
+	}
+
+	public int getAuditerLogPartitionsAhead() {
+		return auditerLogPartitionsAhead;
+	}
+
+	public void setAuditerLogPartitionsAhead(int auditerLogPartitionsAhead) {
+		this.auditerLogPartitionsAhead = auditerLogPartitionsAhead;
+	}
+
+	public int getAuditerLogRetentionDays() {
+		return auditerLogRetentionDays;
+	}
+
+	public void setAuditerLogRetentionDays(int auditerLogRetentionDays) {
+		this.auditerLogRetentionDays = auditerLogRetentionDays;
+	}
+
+	public int getAuditerLogRetentionConsumerIdleDays() {
+		return auditerLogRetentionConsumerIdleDays;
+	}
+
+	public void setAuditerLogRetentionConsumerIdleDays(int auditerLogRetentionConsumerIdleDays) {
+		this.auditerLogRetentionConsumerIdleDays = auditerLogRetentionConsumerIdleDays;
+	}
+
+	public String getAuditerLogArchiveDir() {
+		return auditerLogArchiveDir;
+	}
+
+	public void setAuditerLogArchiveDir(String auditerLogArchiveDir) {
+		this.auditerLogArchiveDir = auditerLogArchiveDir;
+	}
+
 	public void setDefaultLoaIdP(String defaultLoaIdP) {
 		this.defaultLoaIdP = defaultLoaIdP;
 	}
@@ -3,13 +3,13 @@ package cz.metacentrum.perun.core.api;
 import cz.metacentrum.perun.core.api.exceptions.InternalErrorException;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.Semaphore;
-import java.util.concurrent.locks.Lock;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
@@ -23,6 +23,13 @@ import java.util.concurrent.locks.ReentrantLock;
  * in list of waiting jobs or in set of running jobs.
  * New waiting job can skip order and be putted as first in the list of waiting jobs.
  *
+ * Waiting jobs have two priorities. Forced jobs are always taken before scheduled ones,
+ * in FIFO order within the same priority (unless they skip the order).
+ *
+ * Waiting jobs are kept in doubly linked queues indexed by a hash map, so adding, moving, taking
+ * and removing of any job takes constant time. Running jobs are kept in a concurrent set, so finishing
+ * of jobs doesn't compete with planning of new ones.
+ *
  * Note: this class doesn't run any task scheduler, it just provides structures and functionality to manipulate
  * with these structures used for processing job from the pool of waiting jobs.
  *
@@ -30,24 +37,29 @@ import java.util.concurrent.locks.ReentrantLock;
  */
 public class PerunBeanProcessingPool<T extends PerunBean> {
 
-	//List of waiting jobs (they should be process as soon as possible), there is FIFO order
-	private final LinkedList<T> waitingJobs = new LinkedList<>();
+	//Index of waiting jobs to their position in queues of waiting jobs
+	private final Map<T, Node<T>> waitingJobs = new HashMap<>();
+	//Queue of waiting forced jobs (they are processed before scheduled jobs), there is FIFO order
+	private final JobQueue<T> forcedJobs = new JobQueue<>();
+	//Queue of waiting scheduled jobs, there is FIFO order
+	private final JobQueue<T> scheduledJobs = new JobQueue<>();
 	//Set of already running jobs (we need to track them until they are finished)
-	private final HashSet<T> runningJobs = new HashSet<>();
-	//Semaphore which takes care about emptiness of list of waiting jobs (threads will wait for another job)
-	//Counter in this semaphore counts number of waiting jobs in the pool (0 means no jobs are waiting to be processed)
-	private final Semaphore notEmptyPoolSemaphore = new Semaphore(0, true);
-	//Access lock to create concurrent access by any operation to any structure of this processing pool
-	private final Lock jobsAccessLock = new ReentrantLock(true);
+	private final Set<T> runningJobs = ConcurrentHashMap.newKeySet();
+	//Access lock for structures of waiting jobs
+	private final ReentrantLock waitingJobsLock = new ReentrantLock();
+	//Condition signalled when new waiting job is added (threads will wait for another job)
+	private final Condition notEmpty = waitingJobsLock.newCondition();
 
 	/**
 	 * Put new unique job to the list of waiting jobs.
 	 *
 	 * If job is already running, return false because there would be no change.
-	 * If job is already waiting, check if asFirst is true. If yes, move it (remove and add) to
+	 * If job is already waiting, check if asFirst is true. If yes, move it to
 	 * the first place and return true. If not, return false.
 	 * If there is no such job, add it and return true.
 	 *
+	 * Job placed as first is considered forced, so it stays before all jobs added later without skipping the order.
+	 *
 	 * Uniqueness of the job in pool is mandatory and it is no difference between waiting and running status of job in
 	 * this case.
 	 *
@@ -60,72 +72,101 @@ public class PerunBeanProcessingPool<T extends PerunBean> {
 	 * @throws InternalErrorException if job in parameter is null
 	 */
 	public boolean putJobIfAbsent(T job, boolean asFirst) {
+		return putJobIfAbsent(job, asFirst, asFirst);
+	}
+
+	/**
+	 * Put new unique job to the list of waiting jobs with given priority.
+	 *
+	 * If job is already running, return false because there would be no change.
+	 * If job is already waiting, it is moved to the first place of its priority if asFirst is true,
+	 * or to the end of forced jobs if it was scheduled and is now forced. Otherwise return false.
+	 * Priority of waiting job is never lowered.
+	 * If there is no such job, add it and return true.
+	 *
+	 * @param job perunBean object which defines job
+	 * @param asFirst true if job will skip order and will be placed as first among jobs with the same priority (LIFO)
+	 * @param forced true if job should be processed before all scheduled jobs
+	 *
+	 * @return true if job was added or moved in the list of waiting jobs, false otherwise
+	 *
+	 * @throws InternalErrorException if job in parameter is null
+	 */
+	public boolean putJobIfAbsent(T job, boolean asFirst, boolean forced) {
 		if(job == null) throw new InternalErrorException("Can't put null job to list of waiting jobs.");
 
+		waitingJobsLock.lock();
 		try {
-			//get lock for any operation with structures of jobs
-			jobsAccessLock.lock();
-
 			//put only jobs which are not running yet
 			if (runningJobs.contains(job)) return false;
 
-			//If the job is already in waiting queue, we don't have to plan it again unless we want to move it
-			// to the begging of the queue which is indicated by asFirst variable.
-			if (waitingJobs.contains(job)) {
-				if (!asFirst) {
-					return false;
-				} else {
-					//remove it from the waiting queue before putting it back as first waiting job
-					waitingJobs.remove(job);
-				}
+			Node<T> node = waitingJobs.get(job);
+			if (node != null) {
+				//If the job is already in waiting queue, we don't have to plan it again unless we want to move it
+				// to the beginning of the queue or raise its priority.
+				if (!asFirst && (node.forced || !forced)) return false;
+				queueOf(node).unlink(node);
+				node.forced = node.forced || forced;
+			} else {
+				node = new Node<>(job, forced);
+				waitingJobs.put(job, node);
 			}
 
 			//add it as first or at last defined by parameter of method
 			if (asFirst) {
-				waitingJobs.addFirst(job);
+				queueOf(node).addFirst(node);
 			} else {
-				waitingJobs.addLast(job);
+				queueOf(node).addLast(node);
 			}
 
-			//increase number of waiting jobs by one
-			notEmptyPoolSemaphore.release();
-
+			notEmpty.signal();
 		} finally {
-			//unlock access lock
-			jobsAccessLock.unlock();
+			waitingJobsLock.unlock();
 		}
 
-		//return true (new waiting job in list of waiting jobs)
+		//return true (new or moved waiting job in list of waiting jobs)
 		return true;
 	}
 
 	/**
 	 * Take job from list of waiting jobs and add it to the list of running jobs.
+	 * If there is no waiting job, wait for one.
 	 *
 	 * @return first waiting job from the list of waiting jobs
 	 *
-	 * @throws InterruptedException if acquiring of permit on semaphore was interrupted
+	 * @throws InterruptedException if waiting for a job was interrupted
 	 */
 	public T takeJob() throws InterruptedException {
-		//I can take only if there is not empty list of waiting jobs
-		notEmptyPoolSemaphore.acquire();
-
-		T job;
+		waitingJobsLock.lockInterruptibly();
 		try {
-			//If there is at least one job in the list of waiting jobs, get access to manipulate with it
-			jobsAccessLock.lock();
+			while (waitingJobs.isEmpty()) {
+				notEmpty.await();
+			}
+			Node<T> node = forcedJobs.head != null ? forcedJobs.head : scheduledJobs.head;
+			return moveToRunning(node);
+		} finally {
+			waitingJobsLock.unlock();
+		}
+	}
 
-			//We should always get not null job, because semaphore pool was not empty
-			job = waitingJobs.pollFirst();
+	/**
+	 * Take specific job from list of waiting jobs and add it to the list of running jobs.
+	 *
+	 * @param job perunBean object which defines job
+	 *
+	 * @return taken job or null if the job is not waiting
+	 */
+	public T takeJob(T job) {
+		if (job == null) return null;
 
-			runningJobs.add(job);
+		waitingJobsLock.lock();
+		try {
+			Node<T> node = waitingJobs.get(job);
+			if (node == null) return null;
+			return moveToRunning(node);
 		} finally {
-			//unlock access lock
-			jobsAccessLock.unlock();
-
+			waitingJobsLock.unlock();
 		}
-
-		return job;
 	}
 
 	/**
@@ -139,19 +180,8 @@ public class PerunBeanProcessingPool<T extends PerunBean> {
 		//Can't remove null job
 		if (job == null) return false;
 
-		boolean removedSuccessfully;
-		try {
-			//get lock for any operation with structures of jobs
-			jobsAccessLock.lock();
-
-			//try to remove running job (because it should be done)
-			removedSuccessfully = runningJobs.remove(job);
-		} finally {
-			//in any case unlock access lock
-			jobsAccessLock.unlock();
-		}
-
-		return removedSuccessfully;
+		//try to remove running job (because it should be done)
+		return runningJobs.remove(job);
 	}
 
 	/**
@@ -160,38 +190,103 @@ public class PerunBeanProcessingPool<T extends PerunBean> {
 	 * @return set of running jobs at this moment
 	 */
 	public Set<T> getRunningJobs() {
-		Set<T> runningJobs;
-		try {
-			//get lock for any operation with structures of jobs
-			jobsAccessLock.lock();
-
-			runningJobs = new HashSet<>(this.runningJobs);
-
-		} finally {
-			//in any case unlock access lock
-			jobsAccessLock.unlock();
-		}
-
-		return runningJobs;
+		return new HashSet<>(runningJobs);
 	}
 
 	/**
-	 * Get ordered list of waiting jobs at this moment.
+	 * Get ordered list of waiting jobs at this moment. Forced jobs are first.
 	 *
 	 * @return ordered list of waiting jobs at this moment
 	 */
 	public List<T> getWaitingJobs() {
-		List<T> waitingJobs;
+		waitingJobsLock.lock();
 		try {
-			//get lock for any operation with structures of jobs
-			jobsAccessLock.lock();
+			List<T> jobs = new ArrayList<>(waitingJobs.size());
+			forcedJobs.addTo(jobs);
+			scheduledJobs.addTo(jobs);
+			return jobs;
+		} finally {
+			waitingJobsLock.unlock();
+		}
+	}
 
-			waitingJobs = new ArrayList<>(this.waitingJobs);
+	/**
+	 * Get number of waiting jobs at this moment.
+	 *
+	 * @return number of waiting jobs
+	 */
+	public int getWaitingJobsCount() {
+		waitingJobsLock.lock();
+		try {
+			return waitingJobs.size();
 		} finally {
-			//in any case unlock access lock
-			jobsAccessLock.unlock();
+			waitingJobsLock.unlock();
 		}
+	}
+
+	private T moveToRunning(Node<T> node) {
+		queueOf(node).unlink(node);
+		waitingJobs.remove(node.job);
+		runningJobs.add(node.job);
+		return node.job;
+	}
+
+	private JobQueue<T> queueOf(Node<T> node) {
+		return node.forced ? forcedJobs : scheduledJobs;
+	}
 
-		return waitingJobs;
+	/**
+	 * Waiting job with links to its neighbours in the queue.
+	 */
+	private static class Node<T> {
+		private final T job;
+		private boolean forced;
+		private Node<T> prev;
+		private Node<T> next;
+
+		Node(T job, boolean forced) {
+			this.job = job;
+			this.forced = forced;
+		}
+	}
+
+	/**
+	 * Doubly linked queue of waiting jobs, which can unlink any of its nodes in constant time.
+	 * It is not thread-safe, access is guarded by the lock of the pool.
+	 */
+	private static class JobQueue<T> {
+		private Node<T> head;
+		private Node<T> tail;
+
+		void addFirst(Node<T> node) {
+			node.prev = null;
+			node.next = head;
+			if (head != null) head.prev = node;
+			else tail = node;
+			head = node;
+		}
+
+		void addLast(Node<T> node) {
+			node.next = null;
+			node.prev = tail;
+			if (tail != null) tail.next = node;
+			else head = node;
+			tail = node;
+		}
+
+		void unlink(Node<T> node) {
+			if (node.prev != null) node.prev.next = node.next;
+			else head = node.next;
+			if (node.next != null) node.next.prev = node.prev;
+			else tail = node.prev;
+			node.prev = null;
+			node.next = null;
+		}
+
+		void addTo(List<T> jobs) {
+			for (Node<T> node = head; node != null; node = node.next) {
+				jobs.add(node.job);
+			}
+		}
 	}
-}
\ No newline at end of file
+}
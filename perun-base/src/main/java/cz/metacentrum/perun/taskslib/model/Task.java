@@ -22,6 +22,13 @@ public class Task implements Serializable {
 		WAITING, PLANNED, GENERATING, GENERROR, GENERATED, SENDING, DONE, SENDERROR, ERROR, WARNING
 	}
 
+	/**
+	 * Listener notified about every change of the Task status, e.g. by the TaskStore which indexes Tasks by status.
+	 */
+	public interface StatusListener {
+		void statusChanged(Task task, TaskStatus oldStatus, TaskStatus newStatus);
+	}
+
 	private int id;
 	private int delay;
 	private int recurrence;
@@ -39,6 +46,7 @@ public class Task implements Serializable {
 	private TaskStatus status;
 	private boolean sourceUpdated;
 	private boolean propagationForced;
+	private transient StatusListener statusListener;
 
 	@Override
 	public int hashCode() {
@@ -296,7 +304,20 @@ public class Task implements Serializable {
 	}
 
 	public synchronized void setStatus(TaskStatus status) {
+		TaskStatus oldStatus = this.status;
 		this.status = status;
+		if (statusListener != null && oldStatus != status) {
+			statusListener.statusChanged(this, oldStatus, status);
+		}
+	}
+
+	/**
+	 * Set listener notified about changes of the Task status. Only one listener is supported, null removes it.
+	 *
+	 * @param statusListener listener or null
+	 */
+	public synchronized void setStatusListener(StatusListener statusListener) {
+		this.statusListener = statusListener;
 	}
 
 	public String getBeanName(){
@@ -21,8 +21,11 @@ public class TaskResult extends PerunBean implements Serializable {
 	 */
 	private static final long serialVersionUID = 5656828750714418582L;
 
+	/**
+	 * SKIPPED means that sending was skipped, because the same data were already successfully sent to the destination.
+	 */
 	public static enum TaskResultStatus {
-		DONE, ERROR, DENIED, WARNING
+		DONE, ERROR, DENIED, WARNING, SKIPPED
 	}
 
 	private int taskId;
@@ -0,0 +1,154 @@
+package cz.metacentrum.perun.core.api;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares attribute value codec of BeansUtils with the former regex based implementation on generated values.
+ *
+ * @see LegacyAttributeValueCodec
+ */
+public class AttributeValueCodecTest {
+
+	// chars with special meaning for the codec and some ordinary ones
+	private static final char[] ALPHABET = {'a', '\\', ',', ':', '0', '<', '>', '\n', 'b'};
+	private static final int ITERATIONS = 20000;
+
+	private Random random;
+
+	@Before
+	public void setUp() {
+		random = new Random(42);
+	}
+
+	@Test
+	public void eraseEscapingMatchesLegacy() throws Exception {
+		System.out.println("AttributeValueCodecTest.eraseEscapingMatchesLegacy");
+
+		for (int i = 0; i < ITERATIONS; i++) {
+			String text = randomText();
+			assertEquals("Input: " + text, outcome(() -> LegacyAttributeValueCodec.eraseEscaping(text)), outcome(() -> BeansUtils.eraseEscaping(text)));
+		}
+	}
+
+	@Test
+	public void createEscapingMatchesLegacy() throws Exception {
+		System.out.println("AttributeValueCodecTest.createEscapingMatchesLegacy");
+
+		for (int i = 0; i < ITERATIONS; i++) {
+			String text = randomText();
+			assertEquals("Input: " + text, LegacyAttributeValueCodec.createEscaping(text), BeansUtils.createEscaping(text));
+		}
+		assertEquals(LegacyAttributeValueCodec.createEscaping(null), BeansUtils.createEscaping(null));
+	}
+
+	@Test
+	public void attributeValueToStringMatchesLegacy() throws Exception {
+		System.out.println("AttributeValueCodecTest.attributeValueToStringMatchesLegacy");
+
+		for (int i = 0; i < ITERATIONS; i++) {
+			Attribute list = randomListAttribute();
+			assertEquals("Value: " + list.getValue(), LegacyAttributeValueCodec.attributeValueToString(list), BeansUtils.attributeValueToString(list));
+			Attribute map = randomMapAttribute();
+			assertEquals("Value: " + map.getValue(), LegacyAttributeValueCodec.attributeValueToString(map), BeansUtils.attributeValueToString(map));
+		}
+	}
+
+	@Test
+	public void stringToAttributeValueMatchesLegacy() throws Exception {
+		System.out.println("AttributeValueCodecTest.stringToAttributeValueMatchesLegacy");
+
+		for (int i = 0; i < ITERATIONS; i++) {
+			String text = randomText();
+			// regex of the legacy implementation doesn't match items with new line
+			if (text.indexOf('\n') >= 0) continue;
+			for (String type : new String[] {ArrayList.class.getName(), LinkedHashMap.class.getName()}) {
+				assertEquals("Input: " + text + ", type: " + type,
+						outcome(() -> LegacyAttributeValueCodec.stringToAttributeValue(text, type)),
+						outcome(() -> BeansUtils.stringToAttributeValue(text, type)));
+			}
+		}
+	}
+
+	@Test
+	public void encodedValueIsDecodedBack() throws Exception {
+		System.out.println("AttributeValueCodecTest.encodedValueIsDecodedBack");
+
+		for (int i = 0; i < ITERATIONS; i++) {
+			for (Attribute attribute : new Attribute[] {randomListAttribute(), randomMapAttribute()}) {
+				// text "\0" is decoded as null by both implementations
+				if (containsNullMark(attribute.getValue())) continue;
+				String text = BeansUtils.attributeValueToString(attribute);
+				Object expected = text.isEmpty() ? null : attribute.getValue();
+				assertEquals("Input: " + text, expected, BeansUtils.stringToAttributeValue(text, attribute.getType()));
+				if (text.indexOf('\n') < 0) {
+					assertEquals("Input: " + text, expected, LegacyAttributeValueCodec.stringToAttributeValue(text, attribute.getType()));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the result of the call or description of thrown exception. Error ids in messages differ for each exception.
+	 */
+	private static Object outcome(Supplier<Object> call) {
+		try {
+			return call.get();
+		} catch (RuntimeException e) {
+			return e.getClass().getName() + ": " + String.valueOf(e.getMessage()).replaceAll("Error [0-9a-f]+", "Error");
+		}
+	}
+
+	private static boolean containsNullMark(Object value) {
+		if (value instanceof LinkedHashMap) {
+			LinkedHashMap<?, ?> map = (LinkedHashMap<?, ?>) value;
+			return map.containsKey("\\0") || map.containsValue("\\0");
+		}
+		return ((ArrayList<?>) value).contains("\\0");
+	}
+
+	private String randomText() {
+		int length = random.nextInt(9);
+		StringBuilder sb = new StringBuilder(length);
+		for (int i = 0; i < length; i++) {
+			sb.append(ALPHABET[random.nextInt(ALPHABET.length)]);
+		}
+		return sb.toString();
+	}
+
+	private String randomItem() {
+		return random.nextInt(8) == 0 ? null : randomText();
+	}
+
+	private Attribute randomListAttribute() {
+		ArrayList<String> value = new ArrayList<>();
+		int size = random.nextInt(5);
+		for (int i = 0; i < size; i++) {
+			value.add(randomItem());
+		}
+		Attribute attribute = new Attribute();
+		attribute.setType(ArrayList.class.getName());
+		attribute.setValue(value);
+		return attribute;
+	}
+
+	private Attribute randomMapAttribute() {
+		LinkedHashMap<String, String> value = new LinkedHashMap<>();
+		int size = random.nextInt(5);
+		for (int i = 0; i < size; i++) {
+			value.put(randomItem(), randomItem());
+		}
+		Attribute attribute = new Attribute();
+		attribute.setType(LinkedHashMap.class.getName());
+		attribute.setValue(value);
+		return attribute;
+	}
+
+}
@@ -0,0 +1,82 @@
+package cz.metacentrum.perun.core.api;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PerunBeanProcessingPoolTest {
+
+	private PerunBeanProcessingPool<Facility> pool;
+	private final Facility first = new Facility(1, "first");
+	private final Facility second = new Facility(2, "second");
+	private final Facility third = new Facility(3, "third");
+
+	@Before
+	public void setUp() {
+		pool = new PerunBeanProcessingPool<>();
+	}
+
+	@Test
+	public void putJobIfAbsentKeepsFifoOrder() throws Exception {
+		System.out.println("PerunBeanProcessingPoolTest.putJobIfAbsentKeepsFifoOrder");
+
+		assertTrue(pool.putJobIfAbsent(first, false));
+		assertTrue(pool.putJobIfAbsent(second, false));
+		assertFalse("Waiting job can't be added twice.", pool.putJobIfAbsent(first, false));
+
+		assertEquals(List.of(first, second), pool.getWaitingJobs());
+		assertEquals(first, pool.takeJob());
+		assertEquals(second, pool.takeJob());
+		assertEquals(0, pool.getWaitingJobsCount());
+	}
+
+	@Test
+	public void putJobIfAbsentAsFirstMovesJobToFront() throws Exception {
+		System.out.println("PerunBeanProcessingPoolTest.putJobIfAbsentAsFirstMovesJobToFront");
+
+		pool.putJobIfAbsent(first, false);
+		pool.putJobIfAbsent(second, false);
+		assertTrue(pool.putJobIfAbsent(second, true));
+		pool.putJobIfAbsent(third, false);
+
+		assertEquals(List.of(second, first, third), pool.getWaitingJobs());
+		assertEquals(second, pool.takeJob());
+	}
+
+	@Test
+	public void forcedJobsAreTakenBeforeScheduled() throws Exception {
+		System.out.println("PerunBeanProcessingPoolTest.forcedJobsAreTakenBeforeScheduled");
+
+		pool.putJobIfAbsent(first, false, false);
+		pool.putJobIfAbsent(second, false, true);
+		pool.putJobIfAbsent(third, false, true);
+		assertFalse("Priority of waiting job can't be lowered.", pool.putJobIfAbsent(second, false, false));
+
+		assertEquals(List.of(second, third, first), pool.getWaitingJobs());
+		assertTrue("Scheduled job can be raised to forced.", pool.putJobIfAbsent(first, false, true));
+		assertEquals(List.of(second, third, first), pool.getWaitingJobs());
+	}
+
+	@Test
+	public void runningJobCantBeAdded() throws Exception {
+		System.out.println("PerunBeanProcessingPoolTest.runningJobCantBeAdded");
+
+		pool.putJobIfAbsent(first, false);
+		pool.putJobIfAbsent(second, false);
+		assertEquals(second, pool.takeJob(second));
+		assertNull("Job is not waiting anymore.", pool.takeJob(second));
+
+		assertFalse(pool.putJobIfAbsent(second, true));
+		assertTrue(pool.getRunningJobs().contains(second));
+		assertTrue(pool.removeJob(second));
+		assertFalse(pool.removeJob(second));
+		assertTrue(pool.putJobIfAbsent(second, false));
+		assertEquals(List.of(first, second), pool.getWaitingJobs());
+	}
+}
@@ -0,0 +1,29 @@
+package cz.metacentrum.perun.core.api;
+
+/**
+ * Subscription of one consumer to new messages in the audit log.
+ * Any new message stored after the subscription was created and not yet awaited is remembered,
+ * so a message stored between polling the audit log and calling {@link #awaitNewMessages(long)} is not missed.
+ *
+ * Subscription must be closed when the consumer stops.
+ *
+ * @see cz.metacentrum.perun.core.bl.AuditMessagesManagerBl#subscribeToNewMessages(PerunSession)
+ */
+public interface AuditMessagesSubscription extends AutoCloseable {
+
+	/**
+	 * Blocks until new messages are signalled or timeout elapses.
+	 *
+	 * @param timeout max time to wait in milliseconds
+	 * @return true if new messages were signalled, false on timeout
+	 * @throws InterruptedException when waiting thread is interrupted
+	 */
+	boolean awaitNewMessages(long timeout) throws InterruptedException;
+
+	/**
+	 * Cancels the subscription.
+	 */
+	@Override
+	void close();
+
+}
@@ -0,0 +1,179 @@
+package cz.metacentrum.perun.core.api;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Opt-in memoization of lookups for the lifetime of one bulk read operation (e.g. generating provisioning data
+ * or loading attributes of all members of a VO), where virtual attribute modules repeatedly ask for the same
+ * resources, VOs, members or attributes.
+ *
+ * Context is opened by {@link PerunSession#openComputationContext()} and is visible only to the thread, which opened it.
+ * Values are kept in named regions and are shared by all callers until the context is closed, so they must not be
+ * modified and the context must not be used around operations, which change the memoized data.
+ * Exceptions thrown by loaders are not memoized.
+ *
+ * Usage:
+ * <pre>
+ * try (ComputationContext ignored = sess.openComputationContext()) {
+ *     // bulk operation
+ * }
+ * </pre>
+ *
+ * Lookups should use {@link #memoize(PerunSession, String, Object, Loader)}, which calls the loader directly,
+ * when no context is open.
+ */
+public class ComputationContext implements AutoCloseable {
+
+	private final static Logger log = LoggerFactory.getLogger(ComputationContext.class);
+
+	private static final Object NULL_VALUE = new Object();
+
+	private final PerunSession session;
+	private final Map<String, Map<Object, Object>> regions = new HashMap<>();
+	private final Map<String, Statistics> statistics = new HashMap<>();
+	private int depth = 1;
+
+	/**
+	 * Loads value, which is not memoized yet.
+	 *
+	 * @param <V> type of value
+	 * @param <E> type of checked exception thrown by loader
+	 */
+	@FunctionalInterface
+	public interface Loader<V, E extends Exception> {
+		V load() throws E;
+	}
+
+	ComputationContext(PerunSession session) {
+		this.session = session;
+	}
+
+	/**
+	 * Get memoized value from the computation context of the session or load it,
+	 * when the session has no open context in the current thread.
+	 *
+	 * @param sess session
+	 * @param region name of region, e.g. type of looked up value
+	 * @param key key of value in region, must implement equals() and hashCode()
+	 * @param loader loads the value
+	 * @param <V> type of value
+	 * @param <E> type of checked exception thrown by loader
+	 * @return memoized or loaded value
+	 * @throws E when loader fails
+	 */
+	public static <V, E extends Exception> V memoize(PerunSession sess, String region, Object key, Loader<V, E> loader) throws E {
+		ComputationContext context = sess.getComputationContext();
+		return context == null ? loader.load() : context.get(region, key, loader);
+	}
+
+	/**
+	 * Get memoized value or load and memoize it.
+	 *
+	 * @param region name of region, e.g. type of looked up value
+	 * @param key key of value in region, must implement equals() and hashCode()
+	 * @param loader loads the value
+	 * @param <V> type of value
+	 * @param <E> type of checked exception thrown by loader
+	 * @return memoized or loaded value
+	 * @throws E when loader fails
+	 */
+	@SuppressWarnings("unchecked")
+	public <V, E extends Exception> V get(String region, Object key, Loader<V, E> loader) throws E {
+		Map<Object, Object> values = regions.computeIfAbsent(region, name -> new HashMap<>());
+		Statistics regionStatistics = statistics.computeIfAbsent(region, name -> new Statistics());
+		Object value = values.get(key);
+		if (value != null) {
+			regionStatistics.hits++;
+			return value == NULL_VALUE ? null : (V) value;
+		}
+		regionStatistics.misses++;
+		// loader can use the context too, so the region can't be locked by computeIfAbsent()
+		V loaded = loader.load();
+		values.put(key, loaded == null ? NULL_VALUE : loaded);
+		return loaded;
+	}
+
+	/**
+	 * Forget all values memoized in the region.
+	 *
+	 * @param region name of region
+	 */
+	public void invalidate(String region) {
+		regions.remove(region);
+	}
+
+	/**
+	 * Forget all memoized values.
+	 */
+	public void invalidateAll() {
+		regions.clear();
+	}
+
+	/**
+	 * Get hit/miss statistics of all used regions.
+	 *
+	 * @return statistics by region name
+	 */
+	public Map<String, Statistics> getStatistics() {
+		Map<String, Statistics> copy = new TreeMap<>();
+		statistics.forEach((region, regionStatistics) -> copy.put(region, new Statistics(regionStatistics)));
+		return Collections.unmodifiableMap(copy);
+	}
+
+	/**
+	 * Reuse already open context by nested bulk operation.
+	 */
+	void enter() {
+		depth++;
+	}
+
+	/**
+	 * Close the context. Context opened by nested bulk operation is only released, outermost close
+	 * detaches the context from the session and drops all memoized values.
+	 */
+	@Override
+	public void close() {
+		if (--depth > 0) return;
+		session.closeComputationContext(this);
+		regions.clear();
+		log.debug("Computation context of {} closed with statistics {}.", session.getPerunPrincipal(), getStatistics());
+	}
+
+	/**
+	 * Number of hits and misses of one region.
+	 */
+	public static class Statistics {
+
+		private long hits;
+		private long misses;
+
+		private Statistics() {
+		}
+
+		private Statistics(Statistics statistics) {
+			this.hits = statistics.hits;
+			this.misses = statistics.misses;
+		}
+
+		public long getHits() {
+			return hits;
+		}
+
+		public long getMisses() {
+			return misses;
+		}
+
+		@Override
+		public String toString() {
+			return "[hits=" + hits + ", misses=" + misses + "]";
+		}
+
+	}
+
+}
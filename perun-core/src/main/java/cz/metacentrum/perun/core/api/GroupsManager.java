@@ -86,6 +86,10 @@ public interface GroupsManager {
 	String GROUP_START_OF_LAST_SUCCESSFUL_SYNC_ATTRNAME = AttributesManager.NS_GROUP_ATTR_DEF + ":startOfLastSuccessfulSynchronization";
 	// Defines timestamp with start of last synchronization
 	String GROUP_START_OF_LAST_SYNC_ATTRNAME = AttributesManager.NS_GROUP_ATTR_DEF + ":startOfLastSynchronization";
+	// Defines if we want to process only subjects changed in extSource since the last synchronization
+	String GROUP_INCREMENTAL_SYNCHRONIZATION_ATTRNAME = AttributesManager.NS_GROUP_ATTR_DEF + ":incrementalSynchronization";
+	// Contains watermark of extSource and time of last full synchronization used by incremental synchronization
+	String GROUP_SYNCHRO_WATERMARK_ATTRNAME = AttributesManager.NS_GROUP_ATTR_DEF + ":synchronizationWatermark";
 
 	String GROUP_SHORT_NAME_REGEXP = "^[-a-zA-Z.0-9_ ]+$";
 	String GROUP_FULL_NAME_REGEXP = "^[-a-zA-Z.0-9_ ]+([:][-a-zA-Z.0-9_ ]+)*";
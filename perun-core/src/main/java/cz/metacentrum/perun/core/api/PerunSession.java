@@ -14,6 +14,7 @@ public abstract class PerunSession {
 	private PerunPrincipal principal;
 	private PerunClient client;
 	private Perun perun;
+	private final ThreadLocal<ComputationContext> computationContext = new ThreadLocal<>();
 	final static Logger log = LoggerFactory.getLogger(PerunSessionImpl.class);
 
 	/**
@@ -45,6 +46,37 @@ public abstract class PerunSession {
 		return perun;
 	}
 
+	/**
+	 * Open computation context, which memoizes lookups of the current thread until it's closed.
+	 * When the context is already open, it's reused and it stays open until the outermost caller closes it.
+	 *
+	 * @return open context, which must be closed by the caller
+	 * @see ComputationContext
+	 */
+	public ComputationContext openComputationContext() {
+		ComputationContext context = computationContext.get();
+		if (context == null) {
+			context = new ComputationContext(this);
+			computationContext.set(context);
+		} else {
+			context.enter();
+		}
+		return context;
+	}
+
+	/**
+	 * Get computation context open in the current thread.
+	 *
+	 * @return open context or null
+	 */
+	public ComputationContext getComputationContext() {
+		return computationContext.get();
+	}
+
+	void closeComputationContext(ComputationContext context) {
+		if (computationContext.get() == context) computationContext.remove();
+	}
+
 	public void destroy() {
 		perun = null;
 		principal = null;
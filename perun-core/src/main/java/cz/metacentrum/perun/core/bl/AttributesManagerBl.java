@@ -367,6 +367,19 @@ public interface AttributesManagerBl {
 	 */
 	List<Attribute> getAttributes(PerunSession sess, Member member, List<String> attrNames);
 
+	/**
+	 * Get attributes associated with each member in list of members which have name in list attrNames (empty and virtual too).
+	 * Attributes of all members are loaded at once.
+	 *
+	 * @param sess perun session
+	 * @param members to get the attributes from
+	 * @param attrNames list of attributes' names
+	 * @return map of member and his list of attributes
+	 *
+	 * @throws InternalErrorException if an exception raise in concrete implementation, the exception is wrapped in InternalErrorException
+	 */
+	HashMap<Member, List<Attribute>> getMembersAttributes(PerunSession sess, List<Member> members, List<String> attrNames);
+
     /**
 	 * Get all attributes associated with the group which have name in list attrNames (empty too).
 	 * Virtual attribute too.
@@ -417,6 +430,19 @@ public interface AttributesManagerBl {
 	 */
 	List<Attribute> getAttributes(PerunSession sess, User user, List<String> attrNames);
 
+	/**
+	 * Get attributes associated with each user in list of users which have name in list attrNames (empty and virtual too).
+	 * Attributes of all users are loaded at once.
+	 *
+	 * @param sess perun session
+	 * @param users to get the attributes from
+	 * @param attrNames list of attributes' names
+	 * @return map of user and his list of attributes
+	 *
+	 * @throws InternalErrorException if an exception raise in concrete implementation, the exception is wrapped in InternalErrorException
+	 */
+	HashMap<User, List<Attribute>> getUsersAttributes(PerunSession sess, List<User> users, List<String> attrNames);
+
 	/**
 	 * Get all attributes associated with the UserExtSource which have name in list attrNames (empty and virtual too).
 	 *
@@ -1772,6 +1798,24 @@ public interface AttributesManagerBl {
 	 */
 	void setAttributeInNestedTransaction(PerunSession sess, Member member, Attribute attribute) throws WrongAttributeValueException, WrongAttributeAssignmentException, WrongReferenceAttributeValueException;
 
+	/**
+	 * Store the attributes associated with member and user (which we get from this member) if workWithUserAttributes is true.
+	 * If an attribute is core attribute then the attribute isn't stored (It's skipped without any notification).
+	 *
+	 * This method creates nested transaction to prevent storing values to DB if it throws any exception.
+	 *
+	 * @param sess perun session
+	 * @param member member to set on
+	 * @param attributes attributes to set
+	 * @param workWithUserAttributes true/false If true, we can use user attributes (get from this member) too
+	 *
+	 * @throws InternalErrorException if an exception raise in concrete implementation, the exception is wrapped in InternalErrorException
+	 * @throws WrongAttributeValueException if the attribute value is illegal
+	 * @throws WrongAttributeAssignmentException if attribute is not member attribute or with workWithUserAttributes=true, if its not member or user attribute.
+	 * @throws WrongReferenceAttributeValueException
+	 */
+	void setAttributesInNestedTransaction(PerunSession sess, Member member, List<Attribute> attributes, boolean workWithUserAttributes) throws WrongAttributeValueException, WrongAttributeAssignmentException, WrongReferenceAttributeValueException;
+
 
 	/**
 	 * Store the attribute associated with the facility and user combination.  Core attributes can't be set this way.
@@ -4659,6 +4703,15 @@ public interface AttributesManagerBl {
 	 */
 	int convertAttributeToNonunique(PerunSession session, int attrId) throws AttributeNotExistsException, AttributeNotMarkedUniqueException;
 
+	/**
+	 * Converts all list and map attribute values, which are stored only as escaped strings, to JSON.
+	 * Values are converted in batches, so it can run while Perun is used.
+	 *
+	 * @param session perun session
+	 * @return number of converted values
+	 */
+	int convertAttributeValuesToJson(PerunSession session);
+
 	/**
 	 * Generates graph describing attribute modules dependencies.
 	 * Text output format can be specified by {@link GraphTextFormat} format.
@@ -1,6 +1,7 @@
 package cz.metacentrum.perun.core.bl;
 
 import cz.metacentrum.perun.core.api.AttributesManager;
+import cz.metacentrum.perun.core.api.AuditerLogPartition;
 import cz.metacentrum.perun.core.api.DBVersion;
 import cz.metacentrum.perun.core.api.PerunBean;
 import cz.metacentrum.perun.core.api.exceptions.InternalErrorException;
@@ -151,4 +152,27 @@ public interface DatabaseManagerBl {
 	 */
 	JdbcPerunTemplate getJdbcPerunTemplate();
 
+	/**
+	 * Return all partitions of the auditer_log table ordered by their id ranges, default partition is the last one.
+	 *
+	 * @return list of auditer_log partitions
+	 */
+	List<AuditerLogPartition> getAuditerLogPartitions();
+
+	/**
+	 * Maintain partitions of the auditer_log table.
+	 *
+	 * Creates partitions for ids which will be assigned in the near future (perun.auditer.log.partitionsAhead partitions
+	 * of perun.auditer.log.partitionSize ids). When perun.auditer.log.retentionDays is set, drops whole partitions,
+	 * which are full, were processed by all auditer consumers and whose newest message is older than the retention.
+	 * When perun.auditer.log.archiveDir is set, each partition is exported as gzipped CSV before it is dropped.
+	 *
+	 * All consumers registered in auditer_consumers count: consumers polling by their stored position (dispatcher,
+	 * notifications, RPC) and consumers keeping own position (LDAPc, auditlogger), which store it back
+	 * by AuditMessagesManager.storeConsumerPosition().
+	 * When perun.auditer.log.retention.consumerIdleDays is set, consumers behind the newest message, which didn't move
+	 * for that many days, are logged and ignored.
+	 */
+	void maintainAuditerLogPartitions();
+
 }
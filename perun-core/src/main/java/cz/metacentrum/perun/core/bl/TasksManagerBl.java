@@ -215,6 +215,15 @@ public interface TasksManagerBl {
 	 */
 	int insertNewTaskResult(PerunSession sess, TaskResult taskResult);
 
+	/**
+	 * Insert TaskResults into DB in batches.
+	 *
+	 * @param sess
+	 * @param taskResults
+	 * @return ids of the new task results in the same order
+	 */
+	List<Integer> insertNewTaskResults(PerunSession sess, List<TaskResult> taskResults);
+
 	/**
 	 * Insert Task into DB.
 	 * 
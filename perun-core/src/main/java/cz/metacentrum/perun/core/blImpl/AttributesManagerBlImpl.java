@@ -434,6 +434,13 @@ public class AttributesManagerBlImpl implements AttributesManagerBl {
 		return getAttributesManagerImpl().getAttributes(sess, member, attrNames);
 	}
 
+	@Override
+	public HashMap<Member, List<Attribute>> getMembersAttributes(PerunSession sess, List<Member> members, List<String> attrNames) {
+		if (members.isEmpty() || attrNames.isEmpty()) return new HashMap<>();
+
+		return getAttributesManagerImpl().getMembersAttributes(sess, members, attrNames);
+	}
+
 	@Override
 	public List<Attribute> getAttributes(PerunSession sess, Group group, List<String> attrNames) {
 		if (attrNames.isEmpty()) return new ArrayList<>();
@@ -635,6 +642,13 @@ public class AttributesManagerBlImpl implements AttributesManagerBl {
 		return getAttributesManagerImpl().getAttributes(sess, user, attrNames);
 	}
 
+	@Override
+	public HashMap<User, List<Attribute>> getUsersAttributes(PerunSession sess, List<User> users, List<String> attrNames) {
+		if (users.isEmpty() || attrNames.isEmpty()) return new HashMap<>();
+
+		return getAttributesManagerImpl().getUsersAttributes(sess, users, attrNames);
+	}
+
 	@Override
 	public List<Attribute> getAttributes(PerunSession sess, Host host) {
 		//get virtual attributes
@@ -2153,6 +2167,11 @@ public class AttributesManagerBlImpl implements AttributesManagerBl {
 		setAttribute(sess, member, attribute);
 	}
 
+	@Override
+	public void setAttributesInNestedTransaction(PerunSession sess, Member member, List<Attribute> attributes, boolean workWithUserAttributes) throws WrongAttributeValueException, WrongAttributeAssignmentException, WrongReferenceAttributeValueException {
+		setAttributes(sess, member, attributes, workWithUserAttributes);
+	}
+
 	@Override
 	public boolean setAttributeWithoutCheck(PerunSession sess, Member member, Attribute attribute) throws WrongAttributeAssignmentException, WrongAttributeValueException, WrongReferenceAttributeValueException {
 		getAttributesManagerImpl().checkNamespace(sess, attribute, AttributesManager.NS_MEMBER_ATTR);
@@ -7466,6 +7485,31 @@ public class AttributesManagerBlImpl implements AttributesManagerBl {
 		rights.add(new AttributeRights(-1, Role.GROUPADMIN, Collections.singletonList(ActionType.READ)));
 		attributes.put(attr, rights);
 
+		//urn:perun:group:attribute-def:def:incrementalSynchronization
+		attr = new AttributeDefinition();
+		attr.setNamespace(AttributesManager.NS_GROUP_ATTR_DEF);
+		attr.setType(Boolean.class.getName());
+		attr.setFriendlyName("incrementalSynchronization");
+		attr.setDisplayName("Incremental synchronization");
+		attr.setDescription("If true, only members changed in external source since last synchronization are processed. Full synchronization is still done periodically.");
+		//set attribute rights (with dummy id of attribute - not known yet)
+		rights = new ArrayList<>();
+		rights.add(new AttributeRights(-1, Role.VOADMIN, Arrays.asList(ActionType.READ, ActionType.WRITE)));
+		rights.add(new AttributeRights(-1, Role.GROUPADMIN, Collections.singletonList(ActionType.READ)));
+		attributes.put(attr, rights);
+
+		//urn:perun:group:attribute-def:def:synchronizationWatermark
+		attr = new AttributeDefinition();
+		attr.setNamespace(AttributesManager.NS_GROUP_ATTR_DEF);
+		attr.setType(LinkedHashMap.class.getName());
+		attr.setFriendlyName("synchronizationWatermark");
+		attr.setDisplayName("Synchronization watermark");
+		attr.setDescription("State of external source at the start of last synchronization and start of last full synchronization. Used by incremental synchronization.");
+		//set attribute rights (with dummy id of attribute - not known yet)
+		rights = new ArrayList<>();
+		rights.add(new AttributeRights(-1, Role.VOADMIN, Collections.singletonList(ActionType.READ)));
+		attributes.put(attr, rights);
+
 		//urn:perun:group:attribute-def:def:groupStructureSynchronizationEnabled
 		attr = new AttributeDefinition();
 		attr.setNamespace(AttributesManager.NS_GROUP_ATTR_DEF);
@@ -8278,6 +8322,11 @@ public class AttributesManagerBlImpl implements AttributesManagerBl {
 		return attributesManagerImpl.convertAttributeValuesToNonunique(session, attrDef);
 	}
 
+	@Override
+	public int convertAttributeValuesToJson(PerunSession session) {
+		return attributesManagerImpl.convertAttributeValuesToJson(session);
+	}
+
 	@Override
 	public String getAttributeModulesDependenciesGraphAsString(PerunSession session, GraphTextFormat format) {
 		Graph graph = getAttributeModulesDependenciesGraph(session);
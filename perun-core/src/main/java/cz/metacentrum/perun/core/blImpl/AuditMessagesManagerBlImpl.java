@@ -3,6 +3,7 @@ package cz.metacentrum.perun.core.blImpl;
 import cz.metacentrum.perun.audit.events.AuditEvent;
 import cz.metacentrum.perun.audit.events.StringMessageEvent;
 import cz.metacentrum.perun.core.api.AuditMessage;
+import cz.metacentrum.perun.core.api.AuditMessagesSubscription;
 import cz.metacentrum.perun.core.api.PerunSession;
 import cz.metacentrum.perun.core.api.exceptions.InternalErrorException;
 import cz.metacentrum.perun.core.bl.AuditMessagesManagerBl;
@@ -78,6 +79,26 @@ public class AuditMessagesManagerBlImpl implements AuditMessagesManagerBl {
 		return getAuditMessagesManagerImpl().pollConsumerEvents(perunSession, consumerName, lastProcessedId);
 	}
 
+	@Override
+	public List<AuditMessage> pollConsumerMessagesBatch(PerunSession perunSession, String consumerName, int lastProcessedId, int maxCount) {
+		return getAuditMessagesManagerImpl().pollConsumerMessagesBatch(perunSession, consumerName, lastProcessedId, maxCount);
+	}
+
+	@Override
+	public void storeConsumerPosition(PerunSession perunSession, String consumerName, int lastProcessedId) {
+		getAuditMessagesManagerImpl().storeConsumerPosition(perunSession, consumerName, lastProcessedId);
+	}
+
+	@Override
+	public List<AuditEvent> pollConsumerEventsBatch(PerunSession perunSession, String consumerName, int maxCount) {
+		return getAuditMessagesManagerImpl().pollConsumerEventsBatch(perunSession, consumerName, maxCount);
+	}
+
+	@Override
+	public AuditMessagesSubscription subscribeToNewMessages(PerunSession perunSession) {
+		return perunBl.getAuditer().getNotifier().subscribe();
+	}
+
 	@Override
 	public void createAuditerConsumer(PerunSession perunSession, String consumerName) {
 		getAuditMessagesManagerImpl().createAuditerConsumer(perunSession, consumerName);
@@ -108,4 +129,9 @@ public class AuditMessagesManagerBlImpl implements AuditMessagesManagerBl {
 		return getAuditMessagesManagerImpl().getAuditerMessagesCount(perunSession);
 	}
 
+	@Override
+	public int getAuditerMessagesCountApproximate(PerunSession perunSession) {
+		return getAuditMessagesManagerImpl().getAuditerMessagesCountApproximate(perunSession);
+	}
+
 }
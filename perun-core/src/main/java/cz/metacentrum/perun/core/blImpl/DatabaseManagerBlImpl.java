@@ -1,6 +1,8 @@
 package cz.metacentrum.perun.core.blImpl;
 
+import cz.metacentrum.perun.core.api.AuditerLogPartition;
 import cz.metacentrum.perun.core.api.BeansUtils;
+import cz.metacentrum.perun.core.api.CoreConfig;
 import cz.metacentrum.perun.core.api.DBVersion;
 import cz.metacentrum.perun.core.api.exceptions.InternalErrorException;
 import cz.metacentrum.perun.core.bl.DatabaseManagerBl;
@@ -11,7 +13,15 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.jdbc.core.JdbcPerunTemplate;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Database manager can work with database version and upgraded state of perun DB.
@@ -73,6 +83,112 @@ public class DatabaseManagerBlImpl implements DatabaseManagerBl {
 		return this.databaseManagerImpl.getJdbcPerunTemplate();
 	}
 
+	@Override
+	public List<AuditerLogPartition> getAuditerLogPartitions() {
+		return this.databaseManagerImpl.getAuditerLogPartitions();
+	}
+
+	@Override
+	public void maintainAuditerLogPartitions() {
+		CoreConfig config = BeansUtils.getCoreConfig();
+		int partitionSize = config.getAuditerLogPartitionSize();
+		if (partitionSize <= 0) {
+			log.debug("Maintenance of auditer_log partitions is disabled.");
+			return;
+		}
+
+		List<AuditerLogPartition> partitions = getAuditerLogPartitions();
+		if (partitions.isEmpty()) {
+			log.warn("Table auditer_log is not partitioned, skipping maintenance of its partitions.");
+			return;
+		}
+		long lastId = this.databaseManagerImpl.getAuditerLogLastId();
+
+		createAuditerLogPartitions(partitions, lastId, partitionSize, config.getAuditerLogPartitionsAhead());
+		if (config.getAuditerLogRetentionDays() > 0) {
+			dropExpiredAuditerLogPartitions(partitions, lastId, config.getAuditerLogRetentionDays(),
+					config.getAuditerLogRetentionConsumerIdleDays(), config.getAuditerLogArchiveDir());
+		}
+	}
+
+	/**
+	 * Creates partitions following the highest existing one, until there are partitionsAhead partitions for ids not yet assigned.
+	 */
+	private void createAuditerLogPartitions(List<AuditerLogPartition> partitions, long lastId, long partitionSize, int partitionsAhead) {
+		Long highestBound = null;
+		for (AuditerLogPartition partition : partitions) {
+			if (partition.isDefaultPartition()) continue;
+			// partition up to MAXVALUE, there is nothing to create
+			if (partition.getIdTo() == null) return;
+			if (highestBound == null || partition.getIdTo() > highestBound) highestBound = partition.getIdTo();
+		}
+		if (highestBound == null) highestBound = 0L;
+
+		long target = (lastId / partitionSize + 1 + Math.max(0, partitionsAhead)) * partitionSize;
+		while (highestBound < target) {
+			long idTo = (highestBound / partitionSize + 1) * partitionSize;
+			try {
+				AuditerLogPartition created = this.databaseManagerImpl.createAuditerLogPartition(highestBound, idTo);
+				log.info("Created auditer_log partition {}.", created);
+			} catch (InternalErrorException e) {
+				log.error("Unable to create auditer_log partition from {} to {}. Check content of the default partition.", highestBound, idTo, e);
+				return;
+			}
+			highestBound = idTo;
+		}
+	}
+
+	/**
+	 * Drops the oldest partitions, which are full, processed by all consumers and older than retention.
+	 * Partitions are dropped strictly from the oldest one, so there are no holes in the audit log.
+	 *
+	 * Every consumer in auditer_consumers holds back the drop, including LDAPc and auditlogger, which keep their own
+	 * position and report it back on each poll. Consumers, which are behind and didn't move for consumerIdleDays
+	 * (if positive), are skipped, so abandoned consumers don't block the retention forever.
+	 */
+	private void dropExpiredAuditerLogPartitions(List<AuditerLogPartition> partitions, long lastId, int retentionDays, int consumerIdleDays, String archiveDir) {
+		LocalDateTime idleSince = null;
+		if (consumerIdleDays > 0) {
+			idleSince = LocalDateTime.now().minusDays(consumerIdleDays);
+			List<String> idleConsumers = this.databaseManagerImpl.getIdleAuditerConsumers(lastId, idleSince);
+			if (!idleConsumers.isEmpty()) {
+				log.warn("Auditer consumers {} didn't process any message for {} days, they are ignored when dropping auditer_log partitions.", idleConsumers, consumerIdleDays);
+			}
+		}
+		Integer minProcessedId = this.databaseManagerImpl.getAuditerConsumersMinLastProcessedId(lastId, idleSince);
+		LocalDateTime retentionLimit = LocalDateTime.now().minusDays(retentionDays);
+
+		for (AuditerLogPartition partition : partitions) {
+			if (partition.isDefaultPartition() || partition.getIdTo() == null) break;
+			// partition is still being filled
+			if (partition.getIdTo() > lastId) break;
+			// some consumer didn't process all messages from the partition yet
+			if (minProcessedId != null && partition.getIdTo() > minProcessedId + 1L) break;
+			LocalDateTime lastMessageTime = this.databaseManagerImpl.getAuditerLogPartitionLastMessageTime(partition);
+			if (lastMessageTime != null && lastMessageTime.isAfter(retentionLimit)) break;
+
+			if (archiveDir != null && !archiveDir.isBlank()) {
+				try {
+					archiveAuditerLogPartition(partition, Paths.get(archiveDir));
+				} catch (IOException | InternalErrorException e) {
+					log.error("Unable to archive auditer_log partition {}, it will not be dropped.", partition, e);
+					return;
+				}
+			}
+			this.databaseManagerImpl.dropAuditerLogPartition(partition);
+			log.info("Dropped auditer_log partition {}.", partition);
+		}
+	}
+
+	private void archiveAuditerLogPartition(AuditerLogPartition partition, Path archiveDir) throws IOException {
+		Files.createDirectories(archiveDir);
+		Path file = archiveDir.resolve(partition.getName() + "-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss")) + ".csv.gz");
+		try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file))) {
+			long count = this.databaseManagerImpl.exportAuditerLogPartition(partition, out);
+			log.info("Exported {} messages from auditer_log partition {} to {}.", count, partition.getName(), file);
+		}
+	}
+
 	protected void initialize() {
 		log.debug("Initialize manager starts!");
 
@@ -125,6 +241,14 @@ public class DatabaseManagerBlImpl implements DatabaseManagerBl {
 				throw new InternalErrorException("DB version is NOT up to date, automatic update through initializer is disabled. Please do manual changes!");
 			}
 		}
+		if(!readOnly) {
+			// make sure there are partitions for new audit messages before the first scheduled maintenance
+			try {
+				maintainAuditerLogPartitions();
+			} catch (Exception e) {
+				log.error("Maintenance of auditer_log partitions failed.", e);
+			}
+		}
 		log.debug("Initialize manager ends!");
 	}
 
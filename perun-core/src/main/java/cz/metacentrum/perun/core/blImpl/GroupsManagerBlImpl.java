@@ -1,6 +1,8 @@
 package cz.metacentrum.perun.core.blImpl;
 
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
 import cz.metacentrum.perun.audit.events.GroupManagerEvents.DirectMemberAddedToGroup;
 import cz.metacentrum.perun.audit.events.GroupManagerEvents.DirectMemberRemovedFromGroup;
 import cz.metacentrum.perun.audit.events.GroupManagerEvents.GroupCreatedAsSubgroup;
@@ -111,6 +113,8 @@ import cz.metacentrum.perun.core.impl.PerunSessionImpl;
 import cz.metacentrum.perun.core.impl.SynchronizationPool;
 import cz.metacentrum.perun.core.impl.Utils;
 import cz.metacentrum.perun.core.implApi.ExtSourceApi;
+import cz.metacentrum.perun.core.implApi.ExtSourceIncrementalApi;
+import cz.metacentrum.perun.core.implApi.ExtSourceStreamingApi;
 import cz.metacentrum.perun.core.implApi.ExtSourceSimpleApi;
 import cz.metacentrum.perun.core.implApi.GroupsManagerImplApi;
 import cz.metacentrum.perun.core.implApi.modules.attributes.AbstractMembershipExpirationRulesModule;
@@ -142,9 +146,15 @@ import java.util.Queue;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static cz.metacentrum.perun.core.impl.PerunLocksUtils.lockGroupMembership;
 import static java.util.Collections.reverseOrder;
@@ -173,10 +183,15 @@ public class GroupsManagerBlImpl implements GroupsManagerBl {
 	private static final String A_G_D_GROUP_STRUCTURE_RESOURCES = AttributesManager.NS_GROUP_ATTR_DEF + ":groupStructureResources";
 	private static final String A_MG_D_MEMBERSHIP_EXPIRATION = AttributesManager.NS_MEMBER_GROUP_ATTR_DEF + ":groupMembershipExpiration";
 	private static final String A_U_V_LOA = AttributesManager.NS_USER_ATTR_VIRT + ":loa";
+	//keys of the value of group:synchronizationWatermark attribute
+	private static final String WATERMARK_VALUE = "watermark";
+	private static final String WATERMARK_LAST_FULL_SYNC = "lastFullSynchronization";
 	private static final List<Status> statusesAffectedBySynchronization = Arrays.asList(Status.DISABLED, Status.EXPIRED, Status.INVALID);
 
 	private final Integer maxConcurrentGroupsStructuresToSynchronize;
 	private final SynchronizationPool poolOfSynchronizations;
+	//Shared threads for processing batches of members during group synchronizations, null if batches are processed by the synchronizing thread
+	private final ExecutorService memberSynchronizationExecutor;
 
 	public static final String GROUP_LOGIN = "login";
 	public static final String PARENT_GROUP_LOGIN = "parentGroupLogin";
@@ -202,6 +217,12 @@ public class GroupsManagerBlImpl implements GroupsManagerBl {
 		//set maximum concurrent groups to synchronize by property
 		this.maxConcurentGroupsToSynchronize = BeansUtils.getCoreConfig().getGroupMaxConcurentGroupsToSynchronize();
 		this.maxConcurrentGroupsStructuresToSynchronize = BeansUtils.getCoreConfig().getGroupMaxConcurrentGroupsStructuresToSynchronize();
+		int memberSynchronizationThreads = BeansUtils.getCoreConfig().getGroupSynchronizationMemberThreads();
+		this.memberSynchronizationExecutor = memberSynchronizationThreads > 1 ? Executors.newFixedThreadPool(memberSynchronizationThreads, runnable -> {
+			Thread thread = new Thread(runnable, "GroupMemberSynchronizer");
+			thread.setDaemon(true);
+			return thread;
+		}) : null;
 	}
 
 	@Override
@@ -246,6 +267,7 @@ public class GroupsManagerBlImpl implements GroupsManagerBl {
 		}
 
 		getPerunBl().getAuditer().log(sess, new GroupCreatedAsSubgroup(group, vo, parentGroup));
+		poolOfSynchronizations.groupsTreeChanged(parentGroup);
 
 		return group;
 	}
@@ -490,6 +512,7 @@ public class GroupsManagerBlImpl implements GroupsManagerBl {
 		logTotallyRemovedMembers(sess, group.getParentGroupId(), membersFromDeletedGroup);
 
 		getPerunBl().getAuditer().log(sess, new GroupDeleted(group));
+		poolOfSynchronizations.groupsTreeChanged(group);
 	}
 
 	/**
@@ -793,6 +816,7 @@ public class GroupsManagerBlImpl implements GroupsManagerBl {
 		}
 
 		getPerunBl().getAuditer().log(sess, new GroupMoved(movingGroup));
+		poolOfSynchronizations.groupsTreeChanged(movingGroup, destinationGroup);
 	}
 
 	@Override
@@ -1665,8 +1689,8 @@ public class GroupsManagerBlImpl implements GroupsManagerBl {
 
 	@Override
 	public List<String> synchronizeGroup(PerunSession sess, Group group) throws AttributeNotExistsException, WrongAttributeAssignmentException, ExtSourceNotExistsException, GroupNotExistsException {
-		//needed variables for whole method
-		List<String> skippedMembers = new ArrayList<>();
+		//needed variables for whole method (members can be processed in parallel)
+		List<String> skippedMembers = Collections.synchronizedList(new ArrayList<>());
 		ExtSource source = null;
 		ExtSource membersSource = null;
 
@@ -1698,11 +1722,37 @@ public class GroupsManagerBlImpl implements GroupsManagerBl {
 			Map<Candidate, RichMember> membersToUpdate = new HashMap<>();
 			List<RichMember> membersToRemove = new ArrayList<>();
 
+			//Get subjects changed since the last synchronization if incremental synchronization is possible
+			//watermark of extSource must be taken before reading any subjects
+			String newWatermark = null;
+			List<Map<String, String>> changedSubjects = null;
+			if (!lightweightSynchronization && source instanceof ExtSourceIncrementalApi && isThisIncrementalSynchronization(sess, group)) {
+				Map<String, String> groupAttributesMap = getGroupAttributesForExtSource(sess, group);
+				try {
+					newWatermark = ((ExtSourceIncrementalApi) source).getGroupSubjectsWatermark(groupAttributesMap);
+					String lastWatermark = getLastWatermarkForIncrementalSynchronization(sess, group);
+					if (lastWatermark != null) {
+						changedSubjects = ((ExtSourceIncrementalApi) source).getGroupSubjectsChangedSince(groupAttributesMap, lastWatermark);
+						log.debug("Group synchronization {}: {} members changed in external group since {}.", group, changedSubjects.size(), lastWatermark);
+					}
+				} catch (ExtSourceUnsupportedOperationException e) {
+					log.debug("Group synchronization {}: incremental synchronization is not possible, full synchronization will be done: {}", group, e.getMessage());
+				}
+			}
+
 			//get all direct members of synchronized group (only direct, because we want to set direct membership with this group by synchronization)
 			List<RichMember> actualGroupMembers = getPerunBl().getGroupsManagerBl().getGroupDirectRichMembers(sess, group);
 
 			if(lightweightSynchronization) {
 				categorizeMembersForLightweightSynchronization(sess, group, source, membersSource, actualGroupMembers, candidatesToAdd, membersToRemove, skippedMembers);
+			} else if (changedSubjects != null) {
+				//Convert only changed subjects to candidates
+				List<Candidate> candidates = convertSubjectsToCandidates(sess, changedSubjects, membersSource, source, actualGroupMembers, skippedMembers);
+				//Members not reported by extSource were not changed, they are removed only by full synchronization
+				categorizeMembersForSynchronization(sess, actualGroupMembers, candidates, candidatesToAdd, membersToUpdate, new ArrayList<>());
+			} else if (source instanceof ExtSourceStreamingApi) {
+				//Update and add members in batches while reading subjects from extSource, former members are removed at the end
+				synchronizeSubjectsInBatches(sess, group, source, membersSource, actualGroupMembers, overwriteUserAttributesList, mergeMemberAttributesList, membersToRemove, skippedMembers);
 			} else {
 				//Get subjects from extSource
 				List<Map<String, String>> subjects = getSubjectsFromExtSource(sess, source, group);
@@ -1715,25 +1765,20 @@ public class GroupsManagerBlImpl implements GroupsManagerBl {
 			// Remove members from group who are not present in synchronized ExtSource
 			boolean isAuthoritative = isAuthoritative(sess, group);
 			Collections.sort(membersToRemove);
-			for (RichMember memberToRemove : membersToRemove) {
-				removeFormerMemberWhileSynchronization(sess, group, memberToRemove, isAuthoritative);
-			}
+			processInBatchesWhileSynchronization(group, membersToRemove, batch -> {
+				for (RichMember memberToRemove : batch) {
+					removeFormerMemberWhileSynchronization(sess, group, memberToRemove, isAuthoritative);
+				}
+			});
 
-			List<AttributeDefinition> attrDefs = new ArrayList<>();
 			//Update members already presented in group
-			for (Candidate candidate : membersToUpdate.keySet()) {
-				RichMember memberToUpdate = membersToUpdate.get(candidate);
-				//Load attrDefinitions just once for first candidate
-				if (!candidate.getAttributes().isEmpty() && attrDefs.isEmpty()) {
-					attrDefs = getAttributesToSynchronizeFromCandidates(sess, group, candidate);
-				}
-				updateExistingMemberWhileSynchronization(sess, group, candidate, memberToUpdate, overwriteUserAttributesList, mergeMemberAttributesList, attrDefs);
-			}
+			updateExistingMembersWhileSynchronization(sess, group, membersToUpdate, overwriteUserAttributesList, mergeMemberAttributesList, skippedMembers);
 
 			//Add not presented candidates to group
-			Collections.sort(candidatesToAdd);
-			for (Candidate candidateToAdd : candidatesToAdd) {
-				addMissingMemberWhileSynchronization(sess, group, candidateToAdd, overwriteUserAttributesList, mergeMemberAttributesList, skippedMembers);
+			addMissingMembersWhileSynchronization(sess, group, candidatesToAdd, overwriteUserAttributesList, mergeMemberAttributesList, skippedMembers);
+
+			if (newWatermark != null) {
+				saveWatermarkForIncrementalSynchronization(sess, group, newWatermark, changedSubjects == null, skippedMembers.isEmpty());
 			}
 
 			long endTime = System.nanoTime();
@@ -2146,7 +2191,7 @@ public class GroupsManagerBlImpl implements GroupsManagerBl {
 
 	@Override
 	public void forceGroupStructureSynchronization(PerunSession sess, Group group) throws GroupStructureSynchronizationAlreadyRunningException {
-		//Adds the group on the first place to the queue of groups waiting for group structure synchronization.
+		//Adds the group before all scheduled groups to the queue of groups waiting for group structure synchronization.
 		if (poolOfSynchronizations.putGroupStructureToPoolOfWaitingGroupsStructures(group, true)) {
 			log.info("Scheduling synchronization for the group structure {} by force!", group);
 		} else {
@@ -3036,24 +3081,45 @@ public class GroupsManagerBlImpl implements GroupsManagerBl {
 	 *
 	 */
 	private void categorizeMembersForSynchronization(PerunSession sess, List<RichMember> groupMembers, List<Candidate> candidates, List<Candidate> candidatesToAdd, Map<Candidate, RichMember> membersToUpdate, List<RichMember> membersToRemove) {
-		candidatesToAdd.addAll(candidates);
-		membersToRemove.addAll(groupMembers);
 		//mapping structure for more efficient searching
 		Map<UserExtSource, RichMember> mappingStructure = this.createMappingStructure(groupMembers);
 
+		Set<Integer> presentMembersIds = categorizeCandidatesForSynchronization(candidates, mappingStructure, candidatesToAdd, membersToUpdate);
+
+		for (RichMember groupMember : groupMembers) {
+			if (!presentMembersIds.contains(groupMember.getId())) membersToRemove.add(groupMember);
+		}
+	}
+
+	/**
+	 * Split candidates to those who are already members of the group (membersToUpdate) and new ones (candidatesToAdd).
+	 *
+	 * @param candidates to be synchronized from extSource
+	 * @param mappingStructure current group members mapped by their userExtSources
+	 * @param candidatesToAdd new candidates are added here
+	 * @param membersToUpdate existing members with their candidates are added here
+	 *
+	 * @return ids of group members who were found between candidates
+	 */
+	private Set<Integer> categorizeCandidatesForSynchronization(List<Candidate> candidates, Map<UserExtSource, RichMember> mappingStructure, List<Candidate> candidatesToAdd, Map<Candidate, RichMember> membersToUpdate) {
+		Set<Integer> presentMembersIds = new HashSet<>();
+
 		//try to find already existing candidates between members in group
 		for(Candidate candidate: candidates) {
-			List<UserExtSource> candidateExtSources = candidate.getUserExtSources();
-			for(UserExtSource key: candidateExtSources) {
+			RichMember existingMember = null;
+			for(UserExtSource key: candidate.getUserExtSources()) {
+				existingMember = mappingStructure.get(key);
+				if (existingMember != null) break;
+			}
+			if (existingMember != null) {
 				//candidate exists, will be updated
-				if(mappingStructure.containsKey(key)) {
-					membersToUpdate.put(candidate, mappingStructure.get(key));
-					candidatesToAdd.remove(candidate);
-					membersToRemove.remove(mappingStructure.get(key));
-					break;
-				}
+				membersToUpdate.put(candidate, existingMember);
+				presentMembersIds.add(existingMember.getId());
+			} else {
+				candidatesToAdd.add(candidate);
 			}
 		}
+		return presentMembersIds;
 	}
 
 	/**
@@ -3271,19 +3337,100 @@ public class GroupsManagerBlImpl implements GroupsManagerBl {
 	}
 
 	/**
-	 * Return List of subjects, where subject is map of attribute names and attribute values.
-	 * Every subject is structure for creating Candidate from ExtSource.
+	 * Return true if attribute group:incrementalSynchronization is set to true.
 	 *
 	 * @param sess
-	 * @param source to get subjects from
 	 * @param group to be synchronized
 	 *
-	 * @return list of subjects
+	 * @return true if only changed subjects should be synchronized, false if not
 	 *
-	 * @throws InternalErrorException if internal error occurs
+	 * @throws InternalErrorException if something happens while getting incrementalSynchronization attribute
+	 * @throws WrongAttributeAssignmentException if bad assignment of incrementalSynchronization attribute
+	 * @throws AttributeNotExistsException if incrementalSynchronization attribute not exists in perun Database
 	 */
-	private List<Map<String, String>> getSubjectsFromExtSource(PerunSession sess, ExtSource source, Group group) {
-		//Get all group attributes and store tham to map (info like query, time interval etc.)
+	private boolean isThisIncrementalSynchronization(PerunSession sess, Group group) throws WrongAttributeAssignmentException, AttributeNotExistsException {
+		Attribute incrementalSynchronizationAttr = getPerunBl().getAttributesManagerBl().getAttribute(sess, group, GroupsManager.GROUP_INCREMENTAL_SYNCHRONIZATION_ATTRNAME);
+		return incrementalSynchronizationAttr.getValue() != null && (Boolean) incrementalSynchronizationAttr.getValue();
+	}
+
+	/**
+	 * Return watermark of extSource saved by the last synchronization of the group.
+	 * Return null if there is no watermark or if the full synchronization should be done,
+	 * because the last one is older than perun.group.synchronization.fullInterval hours.
+	 *
+	 * @param sess
+	 * @param group to be synchronized
+	 *
+	 * @return watermark or null if full synchronization should be done
+	 *
+	 * @throws WrongAttributeAssignmentException if bad assignment of synchronizationWatermark attribute
+	 * @throws AttributeNotExistsException if synchronizationWatermark attribute not exists in perun Database
+	 */
+	private String getLastWatermarkForIncrementalSynchronization(PerunSession sess, Group group) throws WrongAttributeAssignmentException, AttributeNotExistsException {
+		Attribute watermarkAttr = getPerunBl().getAttributesManagerBl().getAttribute(sess, group, GroupsManager.GROUP_SYNCHRO_WATERMARK_ATTRNAME);
+		if (watermarkAttr.getValue() == null) return null;
+		LinkedHashMap<String, String> value = watermarkAttr.valueAsMap();
+
+		int fullInterval = BeansUtils.getCoreConfig().getGroupFullSynchronizationInterval();
+		if (fullInterval > 0) {
+			try {
+				Date lastFullSynchronization = BeansUtils.getDateFormatter().parse(value.get(WATERMARK_LAST_FULL_SYNC));
+				if (System.currentTimeMillis() - lastFullSynchronization.getTime() > TimeUnit.HOURS.toMillis(fullInterval)) {
+					return null;
+				}
+			} catch (ParseException | NullPointerException e) {
+				log.warn("Group synchronization {}: invalid time of last full synchronization in {}.", group, value);
+				return null;
+			}
+		}
+		return value.get(WATERMARK_VALUE);
+	}
+
+	/**
+	 * Save watermark of extSource taken at the start of the synchronization, so the next synchronization
+	 * can process only subjects changed since this one. If some members were skipped, the watermark is removed
+	 * and the next synchronization will be the full one.
+	 *
+	 * @param sess
+	 * @param group synchronized group
+	 * @param watermark watermark of extSource taken before reading subjects
+	 * @param fullSynchronization true if this synchronization processed all subjects
+	 * @param successful true if no member was skipped
+	 *
+	 * @throws WrongAttributeAssignmentException if bad assignment of synchronizationWatermark attribute
+	 * @throws AttributeNotExistsException if synchronizationWatermark attribute not exists in perun Database
+	 */
+	private void saveWatermarkForIncrementalSynchronization(PerunSession sess, Group group, String watermark, boolean fullSynchronization, boolean successful) throws WrongAttributeAssignmentException, AttributeNotExistsException {
+		Attribute watermarkAttr = getPerunBl().getAttributesManagerBl().getAttribute(sess, group, GroupsManager.GROUP_SYNCHRO_WATERMARK_ATTRNAME);
+		try {
+			if (!successful) {
+				getPerunBl().getAttributesManagerBl().removeAttribute(sess, group, watermarkAttr);
+				return;
+			}
+			LinkedHashMap<String, String> value = new LinkedHashMap<>();
+			value.put(WATERMARK_VALUE, watermark);
+			if (fullSynchronization || watermarkAttr.getValue() == null) {
+				value.put(WATERMARK_LAST_FULL_SYNC, BeansUtils.getDateFormatter().format(new Date()));
+			} else {
+				value.put(WATERMARK_LAST_FULL_SYNC, watermarkAttr.valueAsMap().get(WATERMARK_LAST_FULL_SYNC));
+			}
+			watermarkAttr.setValue(value);
+			getPerunBl().getAttributesManagerBl().setAttribute(sess, group, watermarkAttr);
+		} catch (WrongAttributeValueException | WrongReferenceAttributeValueException e) {
+			throw new InternalErrorException("Can't save watermark of synchronization for " + group, e);
+		}
+	}
+
+	/**
+	 * Get all attributes of the group in form of map of attribute names and values,
+	 * which is used by extSources for querying the external group (query, filter etc.)
+	 *
+	 * @param sess
+	 * @param group to be synchronized
+	 *
+	 * @return map of group attribute names and values
+	 */
+	private Map<String, String> getGroupAttributesForExtSource(PerunSession sess, Group group) {
 		List<Attribute> groupAttributes = getPerunBl().getAttributesManagerBl().getAttributes(sess, group);
 		Map<String, String> groupAttributesMap = new HashMap<>();
 		for (Attribute attr: groupAttributes) {
@@ -3291,6 +3438,24 @@ public class GroupsManagerBlImpl implements GroupsManagerBl {
 			String name = attr.getName();
 			groupAttributesMap.put(name, value);
 		}
+		return groupAttributesMap;
+	}
+
+	/**
+	 * Return List of subjects, where subject is map of attribute names and attribute values.
+	 * Every subject is structure for creating Candidate from ExtSource.
+	 *
+	 * @param sess
+	 * @param source to get subjects from
+	 * @param group to be synchronized
+	 *
+	 * @return list of subjects
+	 *
+	 * @throws InternalErrorException if internal error occurs
+	 */
+	private List<Map<String, String>> getSubjectsFromExtSource(PerunSession sess, ExtSource source, Group group) {
+		//Get all group attributes and store tham to map (info like query, time interval etc.)
+		Map<String, String> groupAttributesMap = getGroupAttributesForExtSource(sess, group);
 		//-- Get Subjects in form of map where left string is name of attribute and right string is value of attribute, every subject is one map
 		List<Map<String, String>> subjects;
 		try {
@@ -3324,10 +3489,26 @@ public class GroupsManagerBlImpl implements GroupsManagerBl {
 	 * @throws InternalErrorException if some internal error occurs
 	 */
 	private List<Candidate> convertSubjectsToCandidates(PerunSession sess, List<Map<String, String>> subjects, ExtSource membersSource, ExtSource source, List<RichMember> actualGroupMembers, List<String> skippedMembers) {
-		List<Candidate> candidates = new ArrayList<>();
-
 		//mapping structure for more efficient searching of actual group members
-		Map<UserExtSource, RichMember> mappingStructure = this.createMappingStructure(actualGroupMembers);
+		return convertSubjectsToCandidates(sess, subjects, membersSource, source, this.createMappingStructure(actualGroupMembers), skippedMembers);
+	}
+
+	/**
+	 * Convert List of subjects to list of Candidates.
+	 *
+	 * @see #convertSubjectsToCandidates(PerunSession, List, ExtSource, ExtSource, List, List)
+	 *
+	 * @param sess
+	 * @param subjects list of subjects from ExtSource (at least login should be here)
+	 * @param membersSource optional member ExtSource (if members attributes are from other source then their logins)
+	 * @param source default group ExtSource
+	 * @param mappingStructure actual members of synchronized group mapped by their userExtSources
+	 * @param skippedMembers not successfully synchronized members are skipped and information about it should be added here
+	 *
+	 * @return list of successfully created candidates from subjects
+	 */
+	private List<Candidate> convertSubjectsToCandidates(PerunSession sess, List<Map<String, String>> subjects, ExtSource membersSource, ExtSource source, Map<UserExtSource, RichMember> mappingStructure, List<String> skippedMembers) {
+		List<Candidate> candidates = new ArrayList<>();
 
 		for (Map<String, String> subject: subjects) {
 			String login = subject.get("login");
@@ -3422,21 +3603,236 @@ public class GroupsManagerBlImpl implements GroupsManagerBl {
 		//get RichMember with attributes
 		memberToUpdate = getPerunBl().getMembersManagerBl().convertMembersToRichMembersWithAttributes(sess, Collections.singletonList(memberToUpdate), attrDefs).get(0);
 
+		updateLoadedMemberWhileSynchronization(sess, group, candidate, memberToUpdate, overwriteUserAttributesList, mergeMemberAttributesList, attrDefs);
+	}
+
+	/**
+	 * Split the list of members or candidates to batches of perun.group.synchronization.batchSize size and process them.
+	 * If there are threads for member synchronization, batches are processed in parallel and this method waits until
+	 * all of them are processed. Processing of the batch must take care of skipped members itself, any exception thrown
+	 * by it stops the synchronization of the group and is rethrown by this method.
+	 *
+	 * @param group to be synchronized
+	 * @param items members or candidates to process
+	 * @param batchProcessor processing of one batch
+	 * @param <T> type of processed items
+	 * @param <E> checked exception thrown by the processing of a batch
+	 * @throws E if the processing of some batch failed
+	 */
+	@SuppressWarnings("unchecked")
+	private <T, E extends Exception> void processInBatchesWhileSynchronization(Group group, List<T> items, BatchProcessor<T, E> batchProcessor) throws E {
+		if (items.isEmpty()) return;
+		List<List<T>> batches = Lists.partition(items, Math.max(1, BeansUtils.getCoreConfig().getGroupSynchronizationBatchSize()));
+		if (memberSynchronizationExecutor == null || batches.size() == 1) {
+			for (List<T> batch : batches) {
+				batchProcessor.process(batch);
+			}
+			return;
+		}
+
+		//Logging context of the synchronization must be set also in threads processing batches
+		String logFileName = MDC.get(MDC_LOG_FILE_NAME);
+		List<Future<?>> futures = new ArrayList<>();
+		for (List<T> batch : batches) {
+			futures.add(memberSynchronizationExecutor.submit(() -> {
+				if (logFileName != null) MDC.put(MDC_LOG_FILE_NAME, logFileName);
+				try {
+					batchProcessor.process(batch);
+					return null;
+				} finally {
+					MDC.remove(MDC_LOG_FILE_NAME);
+				}
+			}));
+		}
+
+		try {
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			futures.forEach(future -> future.cancel(true));
+			Thread.currentThread().interrupt();
+			throw new InternalErrorException("Group synchronization " + group + " was interrupted while processing members.", e);
+		} catch (ExecutionException e) {
+			futures.forEach(future -> future.cancel(true));
+			if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+			if (e.getCause() instanceof Error) throw (Error) e.getCause();
+			//batch processor can throw only E as checked exception
+			throw (E) e.getCause();
+		}
+	}
+
+	/**
+	 * Processing of one batch of members or candidates during the group synchronization.
+	 *
+	 * @param <T> type of processed items
+	 * @param <E> checked exception thrown by the processing
+	 */
+	@FunctionalInterface
+	private interface BatchProcessor<T, E extends Exception> {
+		void process(List<T> batch) throws E;
+	}
+
+	/**
+	 * Read subjects of the external group by streaming extSource and synchronize them in batches of
+	 * perun.group.synchronization.batchSize, so only one batch of subjects and candidates is in memory at once.
+	 * Members of the batch are updated or added immediately. Subjects with login already seen in previous batches
+	 * are skipped. Group members who were not found between subjects are added to membersToRemove at the end.
+	 *
+	 * Unlike the full synchronization, members are removed after updates and additions, because they are known
+	 * only when the whole external group was read. Removed members can't collide with added ones, since candidates
+	 * matching a current member by userExtSource are always updated. If reading of subjects fails in the middle,
+	 * exception is thrown before any member is removed, so already processed batches stay updated and added,
+	 * but no member is removed because of incomplete data.
+	 *
+	 * @param sess perun session
+	 * @param group to be synchronized
+	 * @param source default group ExtSource, must be instance of ExtSourceStreamingApi
+	 * @param membersSource optional member ExtSource (if members attributes are from other source then their logins)
+	 * @param actualGroupMembers actual members of synchronized group
+	 * @param overwriteUserAttributesList list of user attributes to be updated instead of merged
+	 * @param mergeMemberAttributesList list of member attributes to be merged instead of updated
+	 * @param membersToRemove former members who are not in synchronized ExtSource are added here
+	 * @param skippedMembers list of not successfully synchronized members
+	 */
+	private void synchronizeSubjectsInBatches(PerunSession sess, Group group, ExtSource source, ExtSource membersSource, List<RichMember> actualGroupMembers, List<String> overwriteUserAttributesList, List<String> mergeMemberAttributesList, List<RichMember> membersToRemove, List<String> skippedMembers) {
+		Map<String, String> groupAttributesMap = getGroupAttributesForExtSource(sess, group);
+		//mapping structure for more efficient searching of actual group members
+		Map<UserExtSource, RichMember> mappingStructure = this.createMappingStructure(actualGroupMembers);
+		Set<Integer> presentMembersIds = new HashSet<>();
+		Set<String> processedLogins = new HashSet<>();
+		int batchSize = Math.max(1, BeansUtils.getCoreConfig().getGroupSynchronizationBatchSize());
+		int subjectsCount = 0;
+
+		try (Stream<Map<String, String>> subjects = ((ExtSourceStreamingApi) source).getGroupSubjectsStream(groupAttributesMap)) {
+			Iterator<List<Map<String, String>>> batches = Iterators.partition(subjects.iterator(), batchSize);
+			while (batches.hasNext()) {
+				List<Map<String, String>> batch = new ArrayList<>();
+				for (Map<String, String> subject : batches.next()) {
+					String login = subject.get("login");
+					//extSource can return the same subject more than once, it would be added twice otherwise
+					if (login != null && !processedLogins.add(login)) {
+						log.debug("Group synchronization {}: subject with login {} was already processed, skipping.", group, login);
+						continue;
+					}
+					batch.add(subject);
+				}
+				subjectsCount += batch.size();
+
+				List<Candidate> candidates = convertSubjectsToCandidates(sess, batch, membersSource, source, mappingStructure, skippedMembers);
+				List<Candidate> candidatesToAdd = new ArrayList<>();
+				Map<Candidate, RichMember> membersToUpdate = new HashMap<>();
+				presentMembersIds.addAll(categorizeCandidatesForSynchronization(candidates, mappingStructure, candidatesToAdd, membersToUpdate));
+
+				updateExistingMembersWhileSynchronization(sess, group, membersToUpdate, overwriteUserAttributesList, mergeMemberAttributesList, skippedMembers);
+				addMissingMembersWhileSynchronization(sess, group, candidatesToAdd, overwriteUserAttributesList, mergeMemberAttributesList, skippedMembers);
+			}
+		} catch (ExtSourceUnsupportedOperationException e) {
+			throw new InternalErrorException("ExtSource " + source.getName() + " doesn't support getGroupSubjectsStream", e);
+		}
+		log.debug("Group synchronization {}: external group contains {} members.", group, subjectsCount);
+
+		for (RichMember groupMember : actualGroupMembers) {
+			if (!presentMembersIds.contains(groupMember.getId())) membersToRemove.add(groupMember);
+		}
+	}
+
+	/**
+	 * Add candidates to the group in batches, see addMissingMemberWhileSynchronization.
+	 *
+	 * @param sess perun session
+	 * @param group to be synchronized
+	 * @param candidatesToAdd new members (candidates)
+	 * @param overwriteUserAttributesList list of attributes to be updated for user if found
+	 * @param mergeMemberAttributesList list of attributes to be merged for member if found
+	 * @param skippedMembers list of not successfully synchronized members
+	 */
+	private void addMissingMembersWhileSynchronization(PerunSession sess, Group group, List<Candidate> candidatesToAdd, List<String> overwriteUserAttributesList, List<String> mergeMemberAttributesList, List<String> skippedMembers) {
+		Collections.sort(candidatesToAdd);
+		processInBatchesWhileSynchronization(group, candidatesToAdd, batch -> {
+			for (Candidate candidateToAdd : batch) {
+				addMissingMemberWhileSynchronization(sess, group, candidateToAdd, overwriteUserAttributesList, mergeMemberAttributesList, skippedMembers);
+			}
+		});
+	}
+
+	/**
+	 * Update existing members of the group from candidates in batches.
+	 *
+	 * Attributes of all members in a batch are loaded at once and batches can be processed in parallel
+	 * (see perun.group.synchronization.batchSize and perun.group.synchronization.memberThreads).
+	 * If some member can't be updated, he is skipped and this information is added to skippedMembers list.
+	 *
+	 * @param sess perun session
+	 * @param group to be synchronized
+	 * @param membersToUpdate candidates with corresponding members in Perun
+	 * @param overwriteUserAttributesList list of user attributes to be updated instead of merged
+	 * @param mergeMemberAttributesList list of member attributes to be merged instead of updated
+	 * @param skippedMembers list of not successfully synchronized members
+	 */
+	private void updateExistingMembersWhileSynchronization(PerunSession sess, Group group, Map<Candidate, RichMember> membersToUpdate, List<String> overwriteUserAttributesList, List<String> mergeMemberAttributesList, List<String> skippedMembers) {
+		//Load attrDefinitions just once for first candidate
+		List<AttributeDefinition> attrDefs = membersToUpdate.keySet().stream()
+				.filter(candidate -> !candidate.getAttributes().isEmpty())
+				.findFirst()
+				.map(candidate -> getAttributesToSynchronizeFromCandidates(sess, group, candidate))
+				.orElseGet(ArrayList::new);
+
+		processInBatchesWhileSynchronization(group, new ArrayList<>(membersToUpdate.keySet()), batch -> {
+			//get RichMembers of the whole batch with attributes
+			List<RichMember> richMembers = batch.stream().map(membersToUpdate::get).collect(Collectors.toList());
+			getPerunBl().getMembersManagerBl().convertMembersToRichMembersWithAttributes(sess, richMembers, attrDefs);
+
+			for (Candidate candidate : batch) {
+				RichMember memberToUpdate = membersToUpdate.get(candidate);
+				try {
+					getPerunBl().getMembersManagerBl().checkMemberExists(sess, memberToUpdate);
+					updateLoadedMemberWhileSynchronization(sess, group, candidate, memberToUpdate, overwriteUserAttributesList, mergeMemberAttributesList, attrDefs);
+				} catch (MemberNotExistsException ex) {
+					//log it and skip this member
+					log.debug("Someone removed member {} from group {} before updating process. Skip him.", memberToUpdate, group);
+				} catch (WrongAttributeAssignmentException | AttributeNotExistsException e) {
+					log.warn("Can't update member {} from candidate {} due to exception {}.", memberToUpdate, candidate, e);
+					skippedMembers.add("MemberEntry:[" + candidate + "] was skipped because there was problem when updating member from candidate: Exception: " + e.getName() + " => '" + e.getMessage() + "'");
+				}
+			}
+		});
+	}
+
+	/**
+	 * Update member with already loaded attributes by candidate - his attributes, extSources and status.
+	 *
+	 * Changed attributes which are not merged are stored at once.
+	 *
+	 * @param sess perun session
+	 * @param group to be synchronized
+	 * @param candidate candidate to update by
+	 * @param memberToUpdate richMember with loaded attributes from attrDefs
+	 * @param overwriteUserAttributesList list of user attributes to be updated instead of merged
+	 * @param mergeMemberAttributesList list of member attributes to be merged instead of updated
+	 * @param attrDefs list of attribute definitions to update from candidate
+	 *
+	 * @throws AttributeNotExistsException if some attributes not exists and for this reason can't be updated
+	 * @throws WrongAttributeAssignmentException if some attribute is updated in bad way (bad assignment)
+	 */
+	private void updateLoadedMemberWhileSynchronization(PerunSession sess, Group group, Candidate candidate, RichMember memberToUpdate, List<String> overwriteUserAttributesList, List<String> mergeMemberAttributesList, List<AttributeDefinition> attrDefs) throws AttributeNotExistsException, WrongAttributeAssignmentException {
 		// try to find user core attributes and update user -> update name and titles
 		updateUserCoreAttributes(sess, candidate, memberToUpdate, overwriteUserAttributesList);
 
+		List<Attribute> attributesToSet = new ArrayList<>();
 		for (AttributeDefinition attributeDefinition : attrDefs) {
 			//update member attribute
 			if(attributeDefinition.getNamespace().startsWith(AttributesManager.NS_MEMBER_ATTR)) {
-				updateMemberAttribute(sess, group, candidate, memberToUpdate, attributeDefinition, mergeMemberAttributesList);
+				updateMemberAttribute(sess, group, candidate, memberToUpdate, attributeDefinition, mergeMemberAttributesList, attributesToSet);
 			//update user attribute
 			} else if(attributeDefinition.getNamespace().startsWith(AttributesManager.NS_USER_ATTR)) {
-				updateUserAttribute(sess, group, candidate, memberToUpdate, attributeDefinition, overwriteUserAttributesList);
+				updateUserAttribute(sess, group, candidate, memberToUpdate, attributeDefinition, overwriteUserAttributesList, attributesToSet);
 			} else {
 				//we are not supporting other attributes than member or user so skip it without error, but log it
 				log.warn("Attribute {} can't be set, because it is not member or user attribute.", attributeDefinition.getName());
 			}
 		}
+		setAttributesWhileSynchronization(sess, memberToUpdate, attributesToSet);
 
 		//Synchronize userExtSources (add not existing)
 		addUserExtSources(sess, candidate, memberToUpdate);
@@ -3521,8 +3917,9 @@ public class GroupsManagerBlImpl implements GroupsManagerBl {
 	 * @param memberToUpdate member to update
 	 * @param attributeDefinition attribute being updated
 	 * @param mergeMemberAttributesList list of member attributes to be merged and not overwritten
+	 * @param attributesToSet list of changed attributes to be overwritten, which will be stored at once later
 	 */
-	private void updateMemberAttribute(PerunSession sess, Group group, Candidate candidate, RichMember memberToUpdate, AttributeDefinition attributeDefinition, List<String> mergeMemberAttributesList) {
+	private void updateMemberAttribute(PerunSession sess, Group group, Candidate candidate, RichMember memberToUpdate, AttributeDefinition attributeDefinition, List<String> mergeMemberAttributesList, List<Attribute> attributesToSet) {
 		for (Attribute memberAttribute: memberToUpdate.getMemberAttributes()) {
 			if (memberAttribute.getName().equals(attributeDefinition.getName())) {
 				Object subjectAttributeValue = getPerunBl().getAttributesManagerBl().stringToAttributeValue(candidate.getAttributes().get(attributeDefinition.getName()), memberAttribute.getType());
@@ -3530,18 +3927,18 @@ public class GroupsManagerBlImpl implements GroupsManagerBl {
 					log.trace("Group synchronization {}: value of the attribute {} for memberId {} changed. Original value {}, new value {}.",
 						group, memberAttribute, memberToUpdate.getId(), memberAttribute.getValue(), subjectAttributeValue);
 					memberAttribute.setValue(subjectAttributeValue);
-					try {
-						//Choose set or merge by extSource attribute mergeMemberAttributes (if contains this one)
-						if (mergeMemberAttributesList != null && mergeMemberAttributesList.contains(memberAttribute.getName())) {
+					//Choose set or merge by extSource attribute mergeMemberAttributes (if contains this one)
+					if (mergeMemberAttributesList == null || !mergeMemberAttributesList.contains(memberAttribute.getName())) {
+						attributesToSet.add(memberAttribute);
+					} else {
+						try {
 							getPerunBl().getAttributesManagerBl().mergeAttributeValueInNestedTransaction(sess, memberToUpdate, memberAttribute);
-						} else {
-							getPerunBl().getAttributesManagerBl().setAttributeInNestedTransaction(sess, memberToUpdate, memberAttribute);
+						} catch (AttributeValueException e) {
+							// There is a problem with attribute value, so set INVALID status for the member
+							getPerunBl().getMembersManagerBl().invalidateMember(sess, memberToUpdate);
+						} catch (WrongAttributeAssignmentException e) {
+							throw new ConsistencyErrorException(e);
 						}
-					} catch (AttributeValueException e) {
-						// There is a problem with attribute value, so set INVALID status for the member
-						getPerunBl().getMembersManagerBl().invalidateMember(sess, memberToUpdate);
-					} catch	(WrongAttributeAssignmentException e) {
-						throw new ConsistencyErrorException(e);
 					}
 				}
 				//we found it, no need to continue in cycle
@@ -3559,8 +3956,9 @@ public class GroupsManagerBlImpl implements GroupsManagerBl {
 	 * @param memberToUpdate member to update
 	 * @param attributeDefinition attribute being updated
 	 * @param overwriteUserAttributesList list of user attributes to be overwritten and not merged
+	 * @param attributesToSet list of changed attributes to be overwritten, which will be stored at once later
 	 */
-	private void updateUserAttribute(PerunSession sess, Group group, Candidate candidate, RichMember memberToUpdate, AttributeDefinition attributeDefinition, List<String> overwriteUserAttributesList) {
+	private void updateUserAttribute(PerunSession sess, Group group, Candidate candidate, RichMember memberToUpdate, AttributeDefinition attributeDefinition, List<String> overwriteUserAttributesList, List<Attribute> attributesToSet) {
 		for (Attribute userAttribute: memberToUpdate.getUserAttributes()) {
 			if(userAttribute.getName().equals(attributeDefinition.getName())) {
 				Object subjectAttributeValue = getPerunBl().getAttributesManagerBl().stringToAttributeValue(candidate.getAttributes().get(attributeDefinition.getName()), userAttribute.getType());
@@ -3568,18 +3966,18 @@ public class GroupsManagerBlImpl implements GroupsManagerBl {
 					log.trace("Group synchronization {}: value of the attribute {} for memberId {} changed. Original value {}, new value {}.",
 						group, userAttribute, memberToUpdate.getId(), userAttribute.getValue(), subjectAttributeValue);
 					userAttribute.setValue(subjectAttributeValue);
-					try {
-						//Choose set or merge by extSource attribute overwriteUserAttributes (if contains this one)
-						if(overwriteUserAttributesList != null && overwriteUserAttributesList.contains(userAttribute.getName())) {
-							getPerunBl().getAttributesManagerBl().setAttributeInNestedTransaction(sess, memberToUpdate.getUser(), userAttribute);
-						} else {
+					//Choose set or merge by extSource attribute overwriteUserAttributes (if contains this one)
+					if(overwriteUserAttributesList != null && overwriteUserAttributesList.contains(userAttribute.getName())) {
+						attributesToSet.add(userAttribute);
+					} else {
+						try {
 							getPerunBl().getAttributesManagerBl().mergeAttributeValueInNestedTransaction(sess, memberToUpdate.getUser(), userAttribute);
+						} catch (AttributeValueException e) {
+							// There is a problem with attribute value, so set INVALID status for the member
+							getPerunBl().getMembersManagerBl().invalidateMember(sess, memberToUpdate);
+						} catch (WrongAttributeAssignmentException e) {
+							throw new ConsistencyErrorException(e);
 						}
-					} catch (AttributeValueException e) {
-						// There is a problem with attribute value, so set INVALID status for the member
-						getPerunBl().getMembersManagerBl().invalidateMember(sess, memberToUpdate);
-					} catch (WrongAttributeAssignmentException e) {
-						throw new ConsistencyErrorException(e);
 					}
 				}
 				//we found it, no need to continue in cycle
@@ -3588,6 +3986,41 @@ public class GroupsManagerBlImpl implements GroupsManagerBl {
 		}
 	}
 
+	/**
+	 * Store changed member and user attributes at once. If some of the values is wrong, store the attributes
+	 * one by one, so the correct ones are stored, and set INVALID status for the member.
+	 *
+	 * @param sess perun session
+	 * @param memberToUpdate member to update
+	 * @param attributesToSet changed member and user attributes to be overwritten
+	 */
+	private void setAttributesWhileSynchronization(PerunSession sess, RichMember memberToUpdate, List<Attribute> attributesToSet) {
+		if (attributesToSet.isEmpty()) return;
+		try {
+			getPerunBl().getAttributesManagerBl().setAttributesInNestedTransaction(sess, memberToUpdate, attributesToSet, true);
+			return;
+		} catch (AttributeValueException e) {
+			log.debug("Can't set attributes of member id {} at once, they will be set one by one: {}", memberToUpdate.getId(), e.getMessage());
+		} catch (WrongAttributeAssignmentException e) {
+			throw new ConsistencyErrorException(e);
+		}
+
+		for (Attribute attribute : attributesToSet) {
+			try {
+				if (attribute.getNamespace().startsWith(AttributesManager.NS_USER_ATTR)) {
+					getPerunBl().getAttributesManagerBl().setAttributeInNestedTransaction(sess, memberToUpdate.getUser(), attribute);
+				} else {
+					getPerunBl().getAttributesManagerBl().setAttributeInNestedTransaction(sess, memberToUpdate, attribute);
+				}
+			} catch (AttributeValueException e) {
+				// There is a problem with attribute value, so set INVALID status for the member
+				getPerunBl().getMembersManagerBl().invalidateMember(sess, memberToUpdate);
+			} catch (WrongAttributeAssignmentException e) {
+				throw new ConsistencyErrorException(e);
+			}
+		}
+	}
+
 	/**
 	 * Add userExtSources to member from candidate during synchronization.
 	 *
@@ -24,6 +24,7 @@ import cz.metacentrum.perun.core.api.BanOnResource;
 import cz.metacentrum.perun.core.api.BanOnVo;
 import cz.metacentrum.perun.core.api.BeansUtils;
 import cz.metacentrum.perun.core.api.Candidate;
+import cz.metacentrum.perun.core.api.ComputationContext;
 import cz.metacentrum.perun.core.api.ExtSource;
 import cz.metacentrum.perun.core.api.Facility;
 import cz.metacentrum.perun.core.api.Group;
@@ -126,6 +127,7 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 import static cz.metacentrum.perun.core.impl.modules.attributes.urn_perun_vo_attribute_def_def_membershipExpirationRules.VO_EXPIRATION_RULES_ATTR;
 import static cz.metacentrum.perun.core.impl.modules.attributes.urn_perun_vo_attribute_def_def_membershipExpirationRules.expireSponsoredMembers;
@@ -668,7 +670,8 @@ public class MembersManagerBlImpl implements MembersManagerBl {
 
 	@Override
 	public Member getMemberByUser(PerunSession sess, Vo vo, User user) throws MemberNotExistsException {
-		return getMembersManagerImpl().getMemberByUserId(sess, vo, user.getId());
+		return ComputationContext.memoize(sess, "memberByUser", List.of(vo.getId(), user.getId()),
+				() -> getMembersManagerImpl().getMemberByUserId(sess, vo, user.getId()));
 	}
 
 	@Override
@@ -957,12 +960,15 @@ public class MembersManagerBlImpl implements MembersManagerBl {
 	 */
 	@Override
 	public List<RichMember> convertMembersToRichMembersWithAttributes(PerunSession sess, List<RichMember> richMembers) {
-		for (RichMember richMember: richMembers) {
-			List<Attribute> userAttributes = getPerunBl().getAttributesManagerBl().getAttributes(sess, richMember.getUser());
-			List<Attribute> memberAttributes = getPerunBl().getAttributesManagerBl().getAttributes(sess, richMember);
+		// virtual attributes of members often look up the same entities
+		try (ComputationContext ignored = sess.openComputationContext()) {
+			for (RichMember richMember: richMembers) {
+				List<Attribute> userAttributes = getPerunBl().getAttributesManagerBl().getAttributes(sess, richMember.getUser());
+				List<Attribute> memberAttributes = getPerunBl().getAttributesManagerBl().getAttributes(sess, richMember);
 
-			richMember.setUserAttributes(userAttributes);
-			richMember.setMemberAttributes(memberAttributes);
+				richMember.setUserAttributes(userAttributes);
+				richMember.setMemberAttributes(memberAttributes);
+			}
 		}
 
 		return richMembers;
@@ -989,24 +995,26 @@ public class MembersManagerBlImpl implements MembersManagerBl {
 			attrNames.add(attributeDefinition.getName());
 		}
 
-		for (RichMember richMember: richMembers) {
-			List<Attribute> userAttributes = new ArrayList<>();
-			List<Attribute> memberAttributes = new ArrayList<>();
-
-			List<Attribute> attributes = getPerunBl().getAttributesManagerBl().getAttributes(sess, richMember, resource, attrNames, true);
-
-			for(Attribute attribute: attributes) {
-				if(attribute.getName().startsWith(AttributesManager.NS_USER_ATTR)) userAttributes.add(attribute);
-				else if(attribute.getName().startsWith(AttributesManager.NS_USER_FACILITY_ATTR)) userAttributes.add(attribute);
-				else if(attribute.getName().startsWith(AttributesManager.NS_MEMBER_ATTR)) memberAttributes.add(attribute);
-				else if(attribute.getName().startsWith(AttributesManager.NS_MEMBER_RESOURCE_ATTR)) memberAttributes.add(attribute);
-				else {
-					throw new InternalErrorException(attribute + " is not from user or member namespace (member-resource, user-facility included)!");
+		try (ComputationContext ignored = sess.openComputationContext()) {
+			for (RichMember richMember: richMembers) {
+				List<Attribute> userAttributes = new ArrayList<>();
+				List<Attribute> memberAttributes = new ArrayList<>();
+
+				List<Attribute> attributes = getPerunBl().getAttributesManagerBl().getAttributes(sess, richMember, resource, attrNames, true);
+
+				for(Attribute attribute: attributes) {
+					if(attribute.getName().startsWith(AttributesManager.NS_USER_ATTR)) userAttributes.add(attribute);
+					else if(attribute.getName().startsWith(AttributesManager.NS_USER_FACILITY_ATTR)) userAttributes.add(attribute);
+					else if(attribute.getName().startsWith(AttributesManager.NS_MEMBER_ATTR)) memberAttributes.add(attribute);
+					else if(attribute.getName().startsWith(AttributesManager.NS_MEMBER_RESOURCE_ATTR)) memberAttributes.add(attribute);
+					else {
+						throw new InternalErrorException(attribute + " is not from user or member namespace (member-resource, user-facility included)!");
+					}
 				}
-			}
 
-			richMember.setUserAttributes(userAttributes);
-			richMember.setMemberAttributes(memberAttributes);
+				richMember.setUserAttributes(userAttributes);
+				richMember.setMemberAttributes(memberAttributes);
+			}
 		}
 
 		return richMembers;
@@ -1034,25 +1042,27 @@ public class MembersManagerBlImpl implements MembersManagerBl {
 			attrNames.add(attributeDefinition.getName());
 		}
 
-		for (RichMember richMember: richMembers) {
-			List<Attribute> userAttributes = new ArrayList<>();
-			List<Attribute> memberAttributes = new ArrayList<>();
-
-			List<Attribute> attributes = getPerunBl().getAttributesManagerBl().getAttributes(sess, group, richMember, resource, attrNames, true);
-
-			for(Attribute attribute: attributes) {
-				if(attribute.getName().startsWith(AttributesManager.NS_USER_ATTR)) userAttributes.add(attribute);
-				else if(attribute.getName().startsWith(AttributesManager.NS_USER_FACILITY_ATTR)) userAttributes.add(attribute);
-				else if(attribute.getName().startsWith(AttributesManager.NS_MEMBER_ATTR)) memberAttributes.add(attribute);
-				else if(attribute.getName().startsWith(AttributesManager.NS_MEMBER_RESOURCE_ATTR)) memberAttributes.add(attribute);
-				else if(attribute.getName().startsWith(AttributesManager.NS_MEMBER_GROUP_ATTR)) memberAttributes.add(attribute);
-				else {
-					throw new InternalErrorException(attribute + " is not from user or member namespace (member-resource, user-facility, member-group included)!");
+		try (ComputationContext ignored = sess.openComputationContext()) {
+			for (RichMember richMember: richMembers) {
+				List<Attribute> userAttributes = new ArrayList<>();
+				List<Attribute> memberAttributes = new ArrayList<>();
+
+				List<Attribute> attributes = getPerunBl().getAttributesManagerBl().getAttributes(sess, group, richMember, resource, attrNames, true);
+
+				for(Attribute attribute: attributes) {
+					if(attribute.getName().startsWith(AttributesManager.NS_USER_ATTR)) userAttributes.add(attribute);
+					else if(attribute.getName().startsWith(AttributesManager.NS_USER_FACILITY_ATTR)) userAttributes.add(attribute);
+					else if(attribute.getName().startsWith(AttributesManager.NS_MEMBER_ATTR)) memberAttributes.add(attribute);
+					else if(attribute.getName().startsWith(AttributesManager.NS_MEMBER_RESOURCE_ATTR)) memberAttributes.add(attribute);
+					else if(attribute.getName().startsWith(AttributesManager.NS_MEMBER_GROUP_ATTR)) memberAttributes.add(attribute);
+					else {
+						throw new InternalErrorException(attribute + " is not from user or member namespace (member-resource, user-facility, member-group included)!");
+					}
 				}
-			}
 
-			richMember.setUserAttributes(userAttributes);
-			richMember.setMemberAttributes(memberAttributes);
+				richMember.setUserAttributes(userAttributes);
+				richMember.setMemberAttributes(memberAttributes);
+			}
 		}
 
 		return richMembers;
@@ -1079,22 +1089,23 @@ public class MembersManagerBlImpl implements MembersManagerBl {
 			else if(attrd.getName().startsWith(AttributesManager.NS_MEMBER_ATTR)) membersAttributesDef.add(attrd);
 		}
 
-		for (RichMember richMember: richMembers) {
-
-			List<String> userAttrNames = new ArrayList<>();
-			for(AttributeDefinition ad: usersAttributesDef) {
-				userAttrNames.add(ad.getName());
-			}
-			List<Attribute> userAttributes = new ArrayList<>(getPerunBl().getAttributesManagerBl().getAttributes(sess, richMember.getUser(), userAttrNames));
+		List<String> userAttrNames = new ArrayList<>();
+		for(AttributeDefinition ad: usersAttributesDef) {
+			userAttrNames.add(ad.getName());
+		}
+		List<String> memberAttrNames = new ArrayList<>();
+		for(AttributeDefinition ad: membersAttributesDef) {
+			memberAttrNames.add(ad.getName());
+		}
 
-			List<String> memberAttrNames = new ArrayList<>();
-			for(AttributeDefinition ad: membersAttributesDef) {
-				memberAttrNames.add(ad.getName());
-			}
-			List<Attribute> memberAttributes = new ArrayList<>(getPerunBl().getAttributesManagerBl().getAttributes(sess, richMember, memberAttrNames));
+		//load attributes of all members and users at once
+		List<User> users = richMembers.stream().map(RichMember::getUser).collect(Collectors.toList());
+		Map<User, List<Attribute>> usersAttributes = getPerunBl().getAttributesManagerBl().getUsersAttributes(sess, users, userAttrNames);
+		Map<Member, List<Attribute>> membersAttributes = getPerunBl().getAttributesManagerBl().getMembersAttributes(sess, new ArrayList<>(richMembers), memberAttrNames);
 
-			richMember.setUserAttributes(userAttributes);
-			richMember.setMemberAttributes(memberAttributes);
+		for (RichMember richMember: richMembers) {
+			richMember.setUserAttributes(new ArrayList<>(usersAttributes.getOrDefault(richMember.getUser(), Collections.emptyList())));
+			richMember.setMemberAttributes(new ArrayList<>(membersAttributes.getOrDefault(richMember, Collections.emptyList())));
 		}
 
 		return richMembers;
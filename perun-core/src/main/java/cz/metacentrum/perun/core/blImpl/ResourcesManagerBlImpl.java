@@ -17,6 +17,7 @@ import cz.metacentrum.perun.audit.events.ResourceManagerEvents.ServiceRemovedFro
 import cz.metacentrum.perun.core.api.Attribute;
 import cz.metacentrum.perun.core.api.AttributesManager;
 import cz.metacentrum.perun.core.api.BanOnResource;
+import cz.metacentrum.perun.core.api.ComputationContext;
 import cz.metacentrum.perun.core.api.EnrichedResource;
 import cz.metacentrum.perun.core.api.Facility;
 import cz.metacentrum.perun.core.api.Group;
@@ -668,7 +669,9 @@ public class ResourcesManagerBlImpl implements ResourcesManagerBl {
 
 	@Override
 	public List<Resource> getAllowedResources(PerunSession sess, Facility facility, User user) {
-		return getResourcesManagerImpl().getAllowedResources(sess, facility, user);
+		// memoized list is shared, so callers get its copy
+		return new ArrayList<>(ComputationContext.memoize(sess, "allowedResources", List.of(facility.getId(), user.getId()),
+				() -> getResourcesManagerImpl().getAllowedResources(sess, facility, user)));
 	}
 
 	@Override
@@ -43,6 +43,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import cz.metacentrum.perun.core.api.Attribute;
 import cz.metacentrum.perun.core.api.AttributeDefinition;
+import cz.metacentrum.perun.core.api.ComputationContext;
 import cz.metacentrum.perun.core.api.Destination;
 import cz.metacentrum.perun.core.api.Facility;
 import cz.metacentrum.perun.core.api.Group;
@@ -558,7 +559,10 @@ public class ServicesManagerBlImpl implements ServicesManagerBl {
 				.filterExpiredMembers(filterExpiredMembers)
 				.build();
 
-		return hashedDataGenerator.generateData();
+		// virtual attributes of members evaluated for all users of the facility often look up the same entities
+		try (ComputationContext ignored = sess.openComputationContext()) {
+			return hashedDataGenerator.generateData();
+		}
 	}
 
 	@Override
@@ -570,7 +574,10 @@ public class ServicesManagerBlImpl implements ServicesManagerBl {
 				.filterExpiredMembers(filterExpiredMembers)
 				.build();
 
-		return hashedDataGenerator.generateData();
+		// virtual attributes of members evaluated for all users of the facility often look up the same entities
+		try (ComputationContext ignored = sess.openComputationContext()) {
+			return hashedDataGenerator.generateData();
+		}
 	}
 
 	@Override
@@ -254,8 +254,9 @@ public class TasksManagerBlImpl implements TasksManagerBl {
 							state.getResults().put(destination, FacilityState.FacilityPropagationState.ERROR);
 							continue;
 						}
-						// if result ok and previous was not bad
-						if (TaskResult.TaskResultStatus.DONE.equals(result.getStatus())) {
+						// if result ok (or data were already sent) and previous was not bad
+						if (TaskResult.TaskResultStatus.DONE.equals(result.getStatus()) ||
+								TaskResult.TaskResultStatus.SKIPPED.equals(result.getStatus())) {
 							if (FacilityState.FacilityPropagationState.NOT_DETERMINED.equals(propState)) {
 								state.getResults().put(destination, FacilityState.FacilityPropagationState.OK);
 							}
@@ -341,6 +342,11 @@ public class TasksManagerBlImpl implements TasksManagerBl {
 		return getTasksManagerImpl().insertNewTaskResult(taskResult);
 	}
 
+	@Override
+	public List<Integer> insertNewTaskResults(PerunSession sess, List<TaskResult> taskResults) {
+		return getTasksManagerImpl().insertNewTaskResults(taskResults);
+	}
+
 	@Override
 	public int insertTask(PerunSession sess, Task task) {
 		return getTasksManagerImpl().insertTask(task);
@@ -7,6 +7,7 @@ import cz.metacentrum.perun.audit.events.VoManagerEvents.VoDeleted;
 import cz.metacentrum.perun.audit.events.VoManagerEvents.VoUpdated;
 import cz.metacentrum.perun.core.api.BanOnVo;
 import cz.metacentrum.perun.core.api.Candidate;
+import cz.metacentrum.perun.core.api.ComputationContext;
 import cz.metacentrum.perun.core.api.ExtSource;
 import cz.metacentrum.perun.core.api.Facility;
 import cz.metacentrum.perun.core.api.Group;
@@ -266,7 +267,7 @@ public class VosManagerBlImpl implements VosManagerBl {
 
 	@Override
 	public Vo getVoById(PerunSession sess, int id) throws VoNotExistsException {
-		return getVosManagerImpl().getVoById(sess, id);
+		return ComputationContext.memoize(sess, "vo", id, () -> getVosManagerImpl().getVoById(sess, id));
 	}
 
 	@Override
@@ -76,6 +76,30 @@ public class AuditMessagesManagerEntry implements AuditMessagesManager {
 		return getAuditMessagesManagerBl().pollConsumerEvents(perunSession, consumerName, lastProcessedId);
 	}
 
+	@Override
+	public List<AuditMessage> pollConsumerMessagesBatch(PerunSession perunSession, String consumerName, int lastProcessedId, int maxCount) throws PrivilegeException {
+		if (!AuthzResolver.authorizedInternal(perunSession, "pollConsumerMessagesBatch_String_int_int_policy")) {
+			throw new PrivilegeException(perunSession, "pollConsumerMessagesBatch");
+		}
+		return getAuditMessagesManagerBl().pollConsumerMessagesBatch(perunSession, consumerName, lastProcessedId, maxCount);
+	}
+
+	@Override
+	public void storeConsumerPosition(PerunSession perunSession, String consumerName, int lastProcessedId) throws PrivilegeException {
+		if (!AuthzResolver.authorizedInternal(perunSession, "storeConsumerPosition_String_int_policy")) {
+			throw new PrivilegeException(perunSession, "storeConsumerPosition");
+		}
+		getAuditMessagesManagerBl().storeConsumerPosition(perunSession, consumerName, lastProcessedId);
+	}
+
+	@Override
+	public List<AuditEvent> pollConsumerEventsBatch(PerunSession perunSession, String consumerName, int maxCount) throws PrivilegeException {
+		if (!AuthzResolver.authorizedInternal(perunSession, "pollConsumerEventsBatch_String_int_policy")) {
+			throw new PrivilegeException(perunSession, "pollConsumerEventsBatch");
+		}
+		return getAuditMessagesManagerBl().pollConsumerEventsBatch(perunSession, consumerName, maxCount);
+	}
+
 	@Override
 	public void createAuditerConsumer(PerunSession perunSession, String consumerName) throws PrivilegeException {
 		if (!AuthzResolver.authorizedInternal(perunSession, "createAuditerConsumer_String_policy")) {
@@ -117,6 +141,11 @@ public class AuditMessagesManagerEntry implements AuditMessagesManager {
 		return getAuditMessagesManagerBl().getAuditerMessagesCount(perunSession);
 	}
 
+	@Override
+	public int getAuditerMessagesCountApproximate(PerunSession perunSession) {
+		return getAuditMessagesManagerBl().getAuditerMessagesCountApproximate(perunSession);
+	}
+
 	/**
 	 * Gets the AuditMessagesManagerBl for this instance.
 	 *
@@ -0,0 +1,286 @@
+package cz.metacentrum.perun.core.impl;
+
+import cz.metacentrum.perun.core.api.AttributeDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcPerunTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide snapshot of all attribute definitions indexed by id, name and namespace,
+ * so AttributesManagerImpl doesn't have to read attr_names on each call.
+ *
+ * Snapshot is immutable and built lazily from the database. It is dropped when definitions are created, updated
+ * or deleted by this instance, and once more when such transaction is finished. Transaction, which modified definitions,
+ * doesn't use the snapshot at all, so it always sees its own changes. Changes made by other Perun instances are detected
+ * by reading attr_names_version, which runs when new audit messages are stored (they always accompany change of definition),
+ * or at least once per {@link #CHECK_INTERVAL}. The version is incremented by trigger on each change of attr_names and
+ * concurrent changes wait for each other on its row, so every commit made after the version was read increases it.
+ *
+ * All getters return copies of definitions, or null when the definition is not known (or the snapshot can't be used),
+ * so the caller should fall back to the database.
+ *
+ * @see AttributesManagerImpl
+ */
+public class AttributeDefinitionRegistry {
+
+	private final static Logger log = LoggerFactory.getLogger(AttributeDefinitionRegistry.class);
+
+	private static final long CHECK_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+	private static final long MIN_CHECK_DELAY = TimeUnit.SECONDS.toMillis(1);
+	private static final String VERSION_QUERY = "select version from attr_names_version";
+
+	private final JdbcPerunTemplate jdbc;
+	private final Supplier<List<AttributeDefinition>> loader;
+	private volatile Supplier<AuditerLogNotifier> notifierSupplier = () -> null;
+
+	private volatile Snapshot snapshot = null;
+	// incremented on each invalidation, so snapshot built from outdated data is not kept
+	private final AtomicInteger generation = new AtomicInteger();
+	private Thread watcherThread;
+	private volatile boolean closed = false;
+
+	/**
+	 * Create registry.
+	 *
+	 * @param jdbc jdbc template used to read version of attr_names
+	 * @param loader reads all attribute definitions from the database
+	 */
+	public AttributeDefinitionRegistry(JdbcPerunTemplate jdbc, Supplier<List<AttributeDefinition>> loader) {
+		this.jdbc = jdbc;
+		this.loader = loader;
+	}
+
+	/**
+	 * Set source of notifier of new audit messages, which triggers checking of changes made by other Perun instances.
+	 *
+	 * @param notifierSupplier supplier of notifier, may return null when audit log is not available
+	 */
+	public void setNotifierSupplier(Supplier<AuditerLogNotifier> notifierSupplier) {
+		this.notifierSupplier = notifierSupplier;
+	}
+
+	/**
+	 * Get attribute definition by id.
+	 *
+	 * @param id id of attribute definition
+	 * @return copy of definition or null
+	 */
+	public AttributeDefinition getById(int id) {
+		Snapshot current = getSnapshot();
+		return current == null ? null : copy(current.byId.get(id));
+	}
+
+	/**
+	 * Get attribute definition by full name.
+	 *
+	 * @param name full name of attribute definition
+	 * @return copy of definition or null
+	 */
+	public AttributeDefinition getByName(String name) {
+		Snapshot current = getSnapshot();
+		return current == null ? null : copy(current.byName.get(name));
+	}
+
+	/**
+	 * Get all attribute definitions.
+	 *
+	 * @return copies of definitions or null
+	 */
+	public List<AttributeDefinition> getAll() {
+		Snapshot current = getSnapshot();
+		return current == null ? null : copy(current.all);
+	}
+
+	/**
+	 * Get all attribute definitions in namespace.
+	 *
+	 * @param namespace namespace of definitions
+	 * @return copies of definitions (empty list for unknown namespace) or null
+	 */
+	public List<AttributeDefinition> getByNamespace(String namespace) {
+		Snapshot current = getSnapshot();
+		return current == null ? null : copy(current.byNamespace.getOrDefault(namespace, Collections.emptyList()));
+	}
+
+	/**
+	 * Drop the snapshot after definitions were modified. When called in transaction, the transaction stops using
+	 * the snapshot and the snapshot is dropped once more after the transaction is finished.
+	 */
+	public void definitionsModified() {
+		invalidate();
+		if (TransactionSynchronizationManager.isSynchronizationActive() && !isModifiedInCurrentTransaction()) {
+			TransactionSynchronizationManager.registerSynchronization(new ModificationSynchronization());
+		}
+	}
+
+	/**
+	 * Drop the snapshot, so it is built again on the next use.
+	 */
+	public void invalidate() {
+		generation.incrementAndGet();
+		snapshot = null;
+	}
+
+	private Snapshot getSnapshot() {
+		if (closed || isModifiedInCurrentTransaction()) return null;
+		Snapshot current = snapshot;
+		if (current == null) {
+			current = buildSnapshot();
+		}
+		return current;
+	}
+
+	private synchronized Snapshot buildSnapshot() {
+		if (snapshot != null) return snapshot;
+		int builtGeneration = generation.get();
+		// version is read before definitions, so changes committed in the meantime only cause extra rebuild
+		long version = readVersion();
+		Snapshot built = new Snapshot(loader.get(), version);
+		if (generation.get() == builtGeneration) snapshot = built;
+		log.debug("Snapshot of {} attribute definitions built.", built.all.size());
+		startWatching();
+		return built;
+	}
+
+	private boolean isModifiedInCurrentTransaction() {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) return false;
+		for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+			if (synchronization instanceof ModificationSynchronization) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Read committed version of attribute definitions, which is incremented whenever any definition is created,
+	 * updated or deleted.
+	 */
+	private long readVersion() {
+		Long version = jdbc.queryForObject(VERSION_QUERY, Long.class);
+		return version == null ? 0 : version;
+	}
+
+	/**
+	 * Stop the thread watching changes made by other Perun instances and close its subscription.
+	 * Snapshot is not used after closing, so callers fall back to the database. Called on shutdown of AttributesManagerImpl.
+	 */
+	public void close() {
+		Thread thread;
+		synchronized (this) {
+			closed = true;
+			thread = watcherThread;
+			watcherThread = null;
+		}
+		invalidate();
+		if (thread == null) return;
+		thread.interrupt();
+		try {
+			thread.join(MIN_CHECK_DELAY);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private synchronized void startWatching() {
+		if (closed || watcherThread != null) return;
+		watcherThread = new Thread(this::watch, "attribute-definitions-watcher");
+		watcherThread.setDaemon(true);
+		watcherThread.start();
+	}
+
+	/**
+	 * Drop the snapshot when attr_names were changed by other Perun instance. Check is triggered by new audit messages.
+	 */
+	private void watch() {
+		AuditerLogNotifier.Subscription subscription = null;
+		while (!closed && !Thread.currentThread().isInterrupted()) {
+			try {
+				if (subscription == null) {
+					AuditerLogNotifier notifier = notifierSupplier.get();
+					if (notifier != null) subscription = notifier.subscribe();
+				}
+				if (subscription != null) {
+					subscription.awaitNewMessages(CHECK_INTERVAL);
+				} else {
+					Thread.sleep(CHECK_INTERVAL);
+				}
+				Snapshot current = snapshot;
+				if (current != null && current.version != readVersion()) {
+					log.debug("Attribute definitions were changed, snapshot is dropped.");
+					invalidate();
+				}
+				// coalesce checks of frequent audit messages
+				Thread.sleep(MIN_CHECK_DELAY);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (RuntimeException e) {
+				log.warn("Unable to check changes of attribute definitions, snapshot is dropped: {}", e.getMessage());
+				invalidate();
+				try {
+					Thread.sleep(CHECK_INTERVAL);
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+		if (subscription != null) subscription.close();
+	}
+
+	private static AttributeDefinition copy(AttributeDefinition definition) {
+		return definition == null ? null : new AttributeDefinition(definition);
+	}
+
+	private static List<AttributeDefinition> copy(List<AttributeDefinition> definitions) {
+		List<AttributeDefinition> copies = new ArrayList<>(definitions.size());
+		for (AttributeDefinition definition : definitions) {
+			copies.add(new AttributeDefinition(definition));
+		}
+		return copies;
+	}
+
+	/**
+	 * Marks transaction which modified definitions and drops the snapshot when it's finished.
+	 */
+	private class ModificationSynchronization implements TransactionSynchronization {
+
+		@Override
+		public void afterCompletion(int status) {
+			invalidate();
+		}
+
+	}
+
+	/**
+	 * Immutable indexes of all attribute definitions.
+	 */
+	private static class Snapshot {
+
+		private final List<AttributeDefinition> all;
+		private final Map<Integer, AttributeDefinition> byId = new HashMap<>();
+		private final Map<String, AttributeDefinition> byName = new HashMap<>();
+		private final Map<String, List<AttributeDefinition>> byNamespace = new HashMap<>();
+		private final long version;
+
+		private Snapshot(List<AttributeDefinition> definitions, long version) {
+			this.all = Collections.unmodifiableList(new ArrayList<>(definitions));
+			this.version = version;
+			for (AttributeDefinition definition : definitions) {
+				byId.put(definition.getId(), definition);
+				byName.put(definition.getName(), definition);
+				byNamespace.computeIfAbsent(definition.getNamespace(), namespace -> new ArrayList<>()).add(definition);
+			}
+		}
+
+	}
+
+}
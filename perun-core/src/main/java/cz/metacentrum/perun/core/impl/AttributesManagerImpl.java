@@ -34,6 +34,7 @@ import cz.metacentrum.perun.core.api.exceptions.WrongAttributeValueException;
 import cz.metacentrum.perun.core.api.exceptions.WrongModuleTypeException;
 import cz.metacentrum.perun.core.api.exceptions.WrongReferenceAttributeValueException;
 import cz.metacentrum.perun.core.bl.DatabaseManagerBl;
+import cz.metacentrum.perun.core.bl.PerunBl;
 import cz.metacentrum.perun.core.implApi.AttributesManagerImplApi;
 import cz.metacentrum.perun.core.implApi.modules.attributes.AttributesModuleImplApi;
 import cz.metacentrum.perun.core.implApi.modules.attributes.EntitylessAttributesModuleImplApi;
@@ -122,6 +123,27 @@ public class AttributesManagerImpl implements AttributesManagerImplApi {
 	private static final String ATTRIBUTES_MODULES_PACKAGE = "cz.metacentrum.perun.core.impl.modules.attributes";
 	private static final int MERGE_TRY_CNT = 10;
 	private static final long MERGE_RAND_SLEEP_MAX = 100;  //max sleep time between SQL merge attempt in millisecond
+	private static final int JSON_CONVERSION_BATCH_SIZE = 1000;
+	// rows whose value can't be converted to JSON, so they are logged only once
+	private final Set<String> reportedJsonConversionFailures = ConcurrentHashMap.newKeySet();
+
+	// key columns of tables with attribute values (except attr_id) by name of the table
+	private static final Map<String, List<String>> ATTRIBUTE_VALUES_TABLES_KEYS = new LinkedHashMap<>();
+	static {
+		ATTRIBUTE_VALUES_TABLES_KEYS.put("entityless_attr_values", List.of("subject"));
+		ATTRIBUTE_VALUES_TABLES_KEYS.put("facility_attr_values", List.of("facility_id"));
+		ATTRIBUTE_VALUES_TABLES_KEYS.put("group_attr_values", List.of("group_id"));
+		ATTRIBUTE_VALUES_TABLES_KEYS.put("group_resource_attr_values", List.of("group_id", "resource_id"));
+		ATTRIBUTE_VALUES_TABLES_KEYS.put("host_attr_values", List.of("host_id"));
+		ATTRIBUTE_VALUES_TABLES_KEYS.put("member_attr_values", List.of("member_id"));
+		ATTRIBUTE_VALUES_TABLES_KEYS.put("member_group_attr_values", List.of("member_id", "group_id"));
+		ATTRIBUTE_VALUES_TABLES_KEYS.put("member_resource_attr_values", List.of("member_id", "resource_id"));
+		ATTRIBUTE_VALUES_TABLES_KEYS.put("resource_attr_values", List.of("resource_id"));
+		ATTRIBUTE_VALUES_TABLES_KEYS.put("user_attr_values", List.of("user_id"));
+		ATTRIBUTE_VALUES_TABLES_KEYS.put("user_ext_source_attr_values", List.of("user_ext_source_id"));
+		ATTRIBUTE_VALUES_TABLES_KEYS.put("user_facility_attr_values", List.of("user_id", "facility_id"));
+		ATTRIBUTE_VALUES_TABLES_KEYS.put("vo_attr_values", List.of("vo_id"));
+	}
 
 	private final static Logger log = LoggerFactory.getLogger(AttributesManagerImpl.class);
 
@@ -138,6 +160,9 @@ public class AttributesManagerImpl implements AttributesManagerImplApi {
 
 	private AttributesManagerImplApi self;
 
+	// snapshot of all attribute definitions
+	private final AttributeDefinitionRegistry attributeDefinitions;
+
 	// mapping of the perun bean names to the attribute namespaces
 	public static final Map<String, String> BEANS_TO_NAMESPACES_MAP = new LinkedHashMap<>();
 	private static final Map<String, String> ENTITIES_TO_BEANS_MAP = new HashMap<>();
@@ -187,6 +212,15 @@ public class AttributesManagerImpl implements AttributesManagerImplApi {
 		this.jdbc = new JdbcPerunTemplate(perunPool);
 		this.namedParameterJdbcTemplate.getJdbcTemplate().setQueryTimeout(BeansUtils.getCoreConfig().getQueryTimeout());
 		this.jdbc.setQueryTimeout(BeansUtils.getCoreConfig().getQueryTimeout());
+		this.attributeDefinitions = new AttributeDefinitionRegistry(jdbc, () ->
+				jdbc.query("SELECT " + attributeDefinitionMappingSelectQuery + ", NULL AS attr_value FROM attr_names", ATTRIBUTE_DEFINITION_MAPPER));
+	}
+
+	/**
+	 * Stops watching of attribute definitions changes. Called as destroy-method in perun-core.xml.
+	 */
+	public void destroy() {
+		attributeDefinitions.close();
 	}
 
 	protected final static String attributeDefinitionMappingSelectQuery =
@@ -211,6 +245,7 @@ public class AttributesManagerImpl implements AttributesManagerImplApi {
 
 	static String getAttributeMappingSelectQuery(String nameOfValueTable) {
 		return attributeDefinitionMappingSelectQuery + ", attr_value" +
+				", " + nameOfValueTable + ".attr_value_json as attr_value_json" +
 				", " + nameOfValueTable + ".created_at as attr_value_created_at" +
 				", " + nameOfValueTable + ".created_by as attr_value_created_by" +
 				", " + nameOfValueTable + ".modified_at as attr_value_modified_at" +
@@ -247,10 +282,8 @@ public class AttributesManagerImpl implements AttributesManagerImplApi {
 		attribute.setValueModifiedAt(rs.getString("attr_value_modified_at"));
 		attribute.setValueModifiedBy(rs.getString("attr_value_modified_by"));
 
-		String stringValue = rs.getString("attr_value");
-
 		try {
-			attribute.setValue(BeansUtils.stringToAttributeValue(stringValue, attribute.getType()));
+			attribute.setValue(readAttributeValue(rs, attribute.getType()));
 		} catch (InternalErrorException ex) {
 			throw new InternalErrorException(ex);
 		}
@@ -260,6 +293,20 @@ public class AttributesManagerImpl implements AttributesManagerImplApi {
 		return attribute;
 	};
 
+	/**
+	 * Read attribute value from the row. List and map values are decoded from attr_value_json, values without JSON
+	 * (not converted yet or of other types) are parsed from attr_value.
+	 *
+	 * @see #convertAttributeValuesToJson(PerunSession)
+	 */
+	public static Object readAttributeValue(ResultSet rs, String type) throws SQLException {
+		String jsonValue = rs.getString("attr_value_json");
+		if (jsonValue != null) {
+			return BeansUtils.jsonToAttributeValue(jsonValue, type);
+		}
+		return BeansUtils.stringToAttributeValue(rs.getString("attr_value"), type);
+	}
+
 	private static final RowMapper<String> ENTITYLESS_KEYS_MAPPER = (rs, i) -> rs.getString("subject");
 
 	private static final RowMapper<String> ATTRIBUTE_NAMES_MAPPER = (rs, i) -> rs.getString("attr_name");
@@ -327,7 +374,7 @@ public class AttributesManagerImpl implements AttributesManagerImplApi {
 			}
 
 			try {
-				attribute.setValue(BeansUtils.stringToAttributeValue(rs.getString("attr_value"), attribute.getType()));
+				attribute.setValue(readAttributeValue(rs, attribute.getType()));
 			} catch (InternalErrorException ex) {
 				throw new InternalErrorException(ex);
 			}
@@ -543,6 +590,34 @@ public class AttributesManagerImpl implements AttributesManagerImplApi {
 		}
 	}
 
+	/**
+	 * Computes values of virtual attribute for many holders at once. User, user-facility and member attributes are computed
+	 * by one call of their module, values of attributes from other namespaces are computed for each holder separately.
+	 *
+	 * @param sess perun session
+	 * @param attribute virtual attribute to compute values for
+	 * @param attributeHolders primary attribute holders (Users, Members...)
+	 * @param attributeHolder2 secondary attribute holder (Facility, Resource...) or null
+	 * @return attributes with computed values by primary holder
+	 */
+	@SuppressWarnings("unchecked")
+	private Map<? extends PerunBean, Attribute> getValuesForVirtualAttribute(PerunSession sess, AttributeDefinition attribute, List<? extends PerunBean> attributeHolders, PerunBean attributeHolder2) {
+		PerunBean first = attributeHolders.get(0);
+		if (isFromNamespace(attribute, AttributesManager.NS_USER_FACILITY_ATTR_VIRT) && first instanceof User && attributeHolder2 instanceof Facility) {
+			return getFacilityUserVirtualAttributeModule(sess, attribute).getAttributeValues((PerunSessionImpl) sess, (List<User>) attributeHolders, (Facility) attributeHolder2, attribute);
+		} else if (isFromNamespace(attribute, AttributesManager.NS_USER_ATTR_VIRT) && first instanceof User) {
+			return getUserVirtualAttributeModule(sess, attribute).getAttributeValues((PerunSessionImpl) sess, (List<User>) attributeHolders, attribute);
+		} else if (isFromNamespace(attribute, AttributesManager.NS_MEMBER_ATTR_VIRT) && first instanceof Member) {
+			return getMemberVirtualAttributeModule(sess, attribute).getAttributeValues((PerunSessionImpl) sess, (List<Member>) attributeHolders, attribute);
+		}
+
+		Map<PerunBean, Attribute> values = new HashMap<>();
+		for (PerunBean attributeHolder : attributeHolders) {
+			values.put(attributeHolder, setValueForVirtualAttribute(sess, this, new Attribute(attribute), attributeHolder, attributeHolder2));
+		}
+		return values;
+	}
+
 	/**
 	 * Sets values for core and virtual attributes. If it gets attributes that are not virtual or core, it returns them as they are.
 	 *
@@ -635,7 +710,7 @@ public class AttributesManagerImpl implements AttributesManagerImplApi {
 		@Override
 		public Object mapRow(ResultSet rs, int i) throws SQLException {
 			try {
-				return BeansUtils.stringToAttributeValue(rs.getString("attr_value"), attributeDefinition.getType());
+				return readAttributeValue(rs, attributeDefinition.getType());
 			} catch (InternalErrorException ex) {
 				throw new InternalErrorException(ex);
 			}
@@ -708,7 +783,7 @@ public class AttributesManagerImpl implements AttributesManagerImplApi {
 
 	private List<Attribute> getVirtualAttributes(RowMapper<Attribute> rowMapper, String namespace) {
 		try {
-			return jdbc.query("SELECT " + attributeDefinitionMappingSelectQuery + ", NULL AS attr_value FROM attr_names WHERE namespace=?", rowMapper, namespace);
+			return jdbc.query("SELECT " + attributeDefinitionMappingSelectQuery + ", NULL AS attr_value, NULL AS attr_value_json FROM attr_names WHERE namespace=?", rowMapper, namespace);
 		} catch (EmptyResultDataAccessException ex) {
 			log.debug("No virtual attribute for "+(namespace.split(":")[2])+" exists.");
 			return new ArrayList<>();
@@ -1079,6 +1154,27 @@ public class AttributesManagerImpl implements AttributesManagerImplApi {
 		}
 	}
 
+	@Override
+	public HashMap<Member, List<Attribute>> getMembersAttributes(PerunSession sess, List<Member> members, List<String> attrNames) {
+		try {
+			return jdbc.execute("SELECT " + getAttributeMappingSelectQuery("mem") + ", members.id FROM attr_names " +
+				"JOIN members ON members.id " + Compatibility.getStructureForInClause() +
+				"LEFT JOIN member_attr_values mem ON attr_names.id=mem.attr_id AND mem.member_id=members.id " +
+				"WHERE namespace IN (?,?,?,?) AND attr_names.attr_name " + Compatibility.getStructureForInClause(), (PreparedStatementCallback<HashMap<Member, List<Attribute>>>) preparedStatement -> {
+				preparedStatement.setArray(1, DatabaseManagerBl.prepareSQLArrayOfNumbers(members, preparedStatement));
+				preparedStatement.setString(2, AttributesManager.NS_MEMBER_ATTR_CORE);
+				preparedStatement.setString(3, AttributesManager.NS_MEMBER_ATTR_DEF);
+				preparedStatement.setString(4, AttributesManager.NS_MEMBER_ATTR_OPT);
+				preparedStatement.setString(5, AttributesManager.NS_MEMBER_ATTR_VIRT);
+				preparedStatement.setArray(6, DatabaseManagerBl.prepareSQLArrayOfStrings(attrNames, preparedStatement));
+				MemberAttributeExtractor memberAttributeExtractor = new MemberAttributeExtractor(sess, this, members);
+				return memberAttributeExtractor.extractData(preparedStatement.executeQuery());
+			});
+		} catch (RuntimeException ex) {
+			throw new InternalErrorException(ex);
+		}
+	}
+
 	@Override
 	public List<Attribute> getAttributes(PerunSession sess, Group group, List<String> attrNames) {
 		MapSqlParameterSource parameters = new MapSqlParameterSource();
@@ -1194,6 +1290,27 @@ public class AttributesManagerImpl implements AttributesManagerImplApi {
 		}
 	}
 
+	@Override
+	public HashMap<User, List<Attribute>> getUsersAttributes(PerunSession sess, List<User> users, List<String> attrNames) {
+		try {
+			return jdbc.execute("SELECT " + getAttributeMappingSelectQuery("usr") + ", users.id FROM attr_names " +
+				"JOIN users ON users.id " + Compatibility.getStructureForInClause() +
+				"LEFT JOIN user_attr_values usr ON attr_names.id=usr.attr_id AND usr.user_id=users.id " +
+				"WHERE namespace IN (?,?,?,?) AND attr_names.attr_name " + Compatibility.getStructureForInClause(), (PreparedStatementCallback<HashMap<User, List<Attribute>>>) preparedStatement -> {
+				preparedStatement.setArray(1, DatabaseManagerBl.prepareSQLArrayOfNumbers(users, preparedStatement));
+				preparedStatement.setString(2, AttributesManager.NS_USER_ATTR_CORE);
+				preparedStatement.setString(3, AttributesManager.NS_USER_ATTR_DEF);
+				preparedStatement.setString(4, AttributesManager.NS_USER_ATTR_OPT);
+				preparedStatement.setString(5, AttributesManager.NS_USER_ATTR_VIRT);
+				preparedStatement.setArray(6, DatabaseManagerBl.prepareSQLArrayOfStrings(attrNames, preparedStatement));
+				UserAttributeExtractor userAttributeExtractor = new UserAttributeExtractor(sess, this, users);
+				return userAttributeExtractor.extractData(preparedStatement.executeQuery());
+			});
+		} catch (RuntimeException ex) {
+			throw new InternalErrorException(ex);
+		}
+	}
+
 
 
 	@Override
@@ -1542,6 +1659,9 @@ public class AttributesManagerImpl implements AttributesManagerImplApi {
 
 	@Override
 	public AttributeDefinition getAttributeDefinition(PerunSession sess, String attributeName) throws AttributeNotExistsException {
+		AttributeDefinition attributeDefinition = attributeDefinitions.getByName(attributeName);
+		if (attributeDefinition != null) return attributeDefinition;
+		// not in snapshot, it may have been just created
 		try {
 			return jdbc.queryForObject("SELECT " + attributeDefinitionMappingSelectQuery + " FROM attr_names WHERE attr_name=?", ATTRIBUTE_DEFINITION_MAPPER, attributeName);
 		} catch (EmptyResultDataAccessException ex) {
@@ -1553,6 +1673,8 @@ public class AttributesManagerImpl implements AttributesManagerImplApi {
 
 	@Override
 	public List<AttributeDefinition> getAttributesDefinition(PerunSession sess) {
+		List<AttributeDefinition> definitions = attributeDefinitions.getAll();
+		if (definitions != null) return definitions;
 		try {
 			return jdbc.query("SELECT " + attributeDefinitionMappingSelectQuery + ", NULL AS attr_value FROM attr_names", ATTRIBUTE_DEFINITION_MAPPER);
 		} catch (EmptyResultDataAccessException ex) {
@@ -1565,6 +1687,8 @@ public class AttributesManagerImpl implements AttributesManagerImplApi {
 
 	@Override
 	public List<AttributeDefinition> getAttributesDefinitionByNamespace(PerunSession sess, String namespace) {
+		List<AttributeDefinition> definitions = attributeDefinitions.getByNamespace(namespace);
+		if (definitions != null) return definitions;
 		try {
 			return jdbc.query("SELECT " + attributeDefinitionMappingSelectQuery + ", NULL AS attr_value FROM attr_names WHERE namespace=?", ATTRIBUTE_DEFINITION_MAPPER, namespace);
 		} catch (EmptyResultDataAccessException ex) {
@@ -1577,6 +1701,9 @@ public class AttributesManagerImpl implements AttributesManagerImplApi {
 
 	@Override
 	public AttributeDefinition getAttributeDefinitionById(PerunSession sess, int id) throws AttributeNotExistsException {
+		AttributeDefinition attributeDefinition = attributeDefinitions.getById(id);
+		if (attributeDefinition != null) return attributeDefinition;
+		// not in snapshot, it may have been just created
 		try {
 			return jdbc.queryForObject("SELECT " + attributeDefinitionMappingSelectQuery + " FROM attr_names WHERE id=?", ATTRIBUTE_DEFINITION_MAPPER, id);
 		} catch (EmptyResultDataAccessException ex) {
@@ -1907,7 +2034,7 @@ public class AttributesManagerImpl implements AttributesManagerImplApi {
 
 			// if the DB value is the same as parameter, return
 			try {
-				Object value = BeansUtils.stringToAttributeValue(jdbc.queryForObject("select attr_value from " + tableName + " where " + buildParameters(columnNames, "=?", " and "), String.class, columnValues.toArray()), attribute.getType());
+				Object value = jdbc.queryForObject("select attr_value, attr_value_json from " + tableName + " where " + buildParameters(columnNames, "=?", " and "), new ValueRowMapper(attribute), columnValues.toArray());
 				if (attribute.getValue().equals(value)) {
 					return false;
 				}
@@ -1986,6 +2113,7 @@ public class AttributesManagerImpl implements AttributesManagerImplApi {
 		// add additional SQL values to the list
 		List<Object> values = new ArrayList<>(columnValues);
 		values.add(BeansUtils.attributeValueToString(attribute)); // valueColName
+		values.add(BeansUtils.attributeValueToJson(attribute)); // attr_value_json
 		values.add(sess.getPerunPrincipal().getActor()); // created_by
 		values.add(sess.getPerunPrincipal().getActor()); // modified_by
 		values.add(sess.getPerunPrincipal().getUserId()); // created_by_uid
@@ -1993,11 +2121,11 @@ public class AttributesManagerImpl implements AttributesManagerImplApi {
 		// prepare correct number of question marks
 		StringBuilder sb = new StringBuilder();
 		for (int i = 0; i < values.size(); i++) {
-			sb.append("?,");
+			sb.append(i == columnValues.size() + 1 ? "?" + Compatibility.castToJsonb() + "," : "?,");
 		}
 		String questionMarks = sb.toString();
 
-		int changed = jdbc.update("insert into " + tableName + " (" + buildParameters(columnNames, "", ", ") + ", attr_value, created_by, modified_by, created_by_uid, modified_by_uid, modified_at, created_at) "
+		int changed = jdbc.update("insert into " + tableName + " (" + buildParameters(columnNames, "", ", ") + ", attr_value, attr_value_json, created_by, modified_by, created_by_uid, modified_by_uid, modified_at, created_at) "
 				+ "values (" + questionMarks + Compatibility.getSysdate() + ", " + Compatibility.getSysdate() + " )", values.toArray());
 		return changed > 0;
 	}
@@ -2007,10 +2135,11 @@ public class AttributesManagerImpl implements AttributesManagerImplApi {
 		// add additional SQL values to the list
 		List<Object> values = new ArrayList<>();
 		values.add(BeansUtils.attributeValueToString(attribute)); // valueColName
+		values.add(BeansUtils.attributeValueToJson(attribute)); // attr_value_json
 		values.add(sess.getPerunPrincipal().getActor()); // modified_by
 		values.add(sess.getPerunPrincipal().getUserId()); // modified_by_uid
 		values.addAll(columnValues);
-		int changed = jdbc.update("update " + tableName + " set attr_value=?, modified_by=?, modified_by_uid=?, modified_at=" +
+		int changed = jdbc.update("update " + tableName + " set attr_value=?, attr_value_json=?" + Compatibility.castToJsonb() + ", modified_by=?, modified_by_uid=?, modified_at=" +
 				Compatibility.getSysdate() + " where " + buildParameters(columnNames, "=?", " and "), values.toArray());
 		return changed > 0;
 	}
@@ -2085,6 +2214,7 @@ public class AttributesManagerImpl implements AttributesManagerImplApi {
 					attributeId, attribute.getName(), attribute.getType(), attribute.getDescription(), attribute.getNamespace(), attribute.getFriendlyName(), attribute.getDisplayName(), attribute.isUnique(),
 					sess.getPerunPrincipal().getActor(), sess.getPerunPrincipal().getActor(), sess.getPerunPrincipal().getUserId(), sess.getPerunPrincipal().getUserId());
 			attribute.setId(attributeId);
+			attributeDefinitions.definitionsModified();
 			log.debug("Attribute created: {}.", attribute);
 
 			return attribute;
@@ -2113,6 +2243,7 @@ public class AttributesManagerImpl implements AttributesManagerImplApi {
 			// unique attributes get deleted by deletion from entity_attr_values
 			jdbc.update("DELETE FROM "+ attributeToTablePrefix(attribute)+"_attr_values WHERE attr_id=?", attribute.getId());
 			jdbc.update("DELETE FROM attr_names WHERE id=?", attribute.getId());
+			attributeDefinitions.definitionsModified();
 
 			log.debug("Attribute deleted: {}.", attribute);
 		} catch (RuntimeException e) {
@@ -2558,6 +2689,68 @@ public class AttributesManagerImpl implements AttributesManagerImplApi {
 
 
 
+	/**
+	 * Virtual attributes of many holders read by attribute extractors. Values are not computed row by row,
+	 * but for all holders of each attribute at once when all rows are read, so modules can compute them in bulk.
+	 * Computed attributes are put to the same positions in lists of holders' attributes as they were read.
+	 */
+	private static class VirtualAttributesBatch {
+		private final Map<Integer, AttributeDefinition> definitions = new LinkedHashMap<>();
+		private final Map<Integer, List<PerunBean>> holdersByAttribute = new HashMap<>();
+		private final List<Slot> slots = new ArrayList<>();
+
+		/**
+		 * Reserve position for value of virtual attribute in list of holder's attributes.
+		 *
+		 * @param attribute virtual attribute
+		 * @param attributeHolder primary holder of the attribute
+		 * @param attributes attributes of the holder
+		 */
+		void add(AttributeDefinition attribute, PerunBean attributeHolder, List<Attribute> attributes) {
+			definitions.putIfAbsent(attribute.getId(), attribute);
+			holdersByAttribute.computeIfAbsent(attribute.getId(), id -> new ArrayList<>()).add(attributeHolder);
+			slots.add(new Slot(attribute.getId(), attributeHolder, attributes, attributes.size()));
+			attributes.add(null);
+		}
+
+		/**
+		 * Compute values of all collected virtual attributes and put them to reserved positions.
+		 *
+		 * @param sess perun session
+		 * @param attributesManager attributes manager
+		 * @param attributeHolder2 secondary holder of attributes or null
+		 */
+		void computeValues(PerunSession sess, AttributesManagerImpl attributesManager, PerunBean attributeHolder2) {
+			Map<Integer, Map<? extends PerunBean, Attribute>> values = new HashMap<>();
+			for (AttributeDefinition attribute : definitions.values()) {
+				values.put(attribute.getId(), attributesManager.getValuesForVirtualAttribute(sess, attribute,
+						holdersByAttribute.get(attribute.getId()), attributeHolder2));
+			}
+			for (Slot slot : slots) {
+				Attribute value = values.get(slot.attributeId).get(slot.attributeHolder);
+				if (value == null) {
+					value = attributesManager.setValueForVirtualAttribute(sess, attributesManager,
+							new Attribute(definitions.get(slot.attributeId)), slot.attributeHolder, attributeHolder2);
+				}
+				slot.attributes.set(slot.index, value);
+			}
+		}
+
+		private static class Slot {
+			private final int attributeId;
+			private final PerunBean attributeHolder;
+			private final List<Attribute> attributes;
+			private final int index;
+
+			Slot(int attributeId, PerunBean attributeHolder, List<Attribute> attributes, int index) {
+				this.attributeId = attributeId;
+				this.attributeHolder = attributeHolder;
+				this.attributes = attributes;
+				this.index = index;
+			}
+		}
+	}
+
 	private static class GroupAttributeExtractor implements ResultSetExtractor<HashMap<Group, List<Attribute>>> {
 		private final PerunSession sess;
 		private final AttributesManagerImpl attributesManager;
@@ -2650,6 +2843,7 @@ public class AttributesManagerImpl implements AttributesManagerImplApi {
 				memberObjectMap.put(member.getId(), member);
 			}
 
+			VirtualAttributesBatch virtualAttributes = new VirtualAttributesBatch();
 			while (rs.next()) {
 				// fetch from map by ID
 				Integer id = rs.getInt("id");
@@ -2657,6 +2851,11 @@ public class AttributesManagerImpl implements AttributesManagerImplApi {
 
 				map.computeIfAbsent(mem, k -> new ArrayList<>());
 				// if not present, put in map
+				AttributeDefinition attributeDefinition = ATTRIBUTE_DEFINITION_MAPPER.mapRow(rs, rs.getRow());
+				if (attributesManager.isVirtAttribute(sess, attributeDefinition)) {
+					virtualAttributes.add(attributeDefinition, mem, map.get(mem));
+					continue;
+				}
 				AttributeRowMapper attributeRowMapper;
 				if (resource != null) {
 					attributeRowMapper = new MemberResourceAttributeRowMapper(sess, attributesManager, mem, resource);
@@ -2670,6 +2869,7 @@ public class AttributesManagerImpl implements AttributesManagerImplApi {
 					map.get(mem).add(attribute);
 				}
 			}
+			virtualAttributes.computeValues(sess, attributesManager, resource);
 			return map;
 		}
 	}
@@ -2759,6 +2959,7 @@ public class AttributesManagerImpl implements AttributesManagerImplApi {
 				userObjectMap.put(user.getId(), user);
 			}
 
+			VirtualAttributesBatch virtualAttributes = new VirtualAttributesBatch();
 			while (rs.next()) {
 				// fetch from map by ID
 				Integer id = rs.getInt("id");
@@ -2767,6 +2968,11 @@ public class AttributesManagerImpl implements AttributesManagerImplApi {
 				map.computeIfAbsent(user, k -> new ArrayList<>());
 				// if not preset, put in map
 
+				AttributeDefinition attributeDefinition = ATTRIBUTE_DEFINITION_MAPPER.mapRow(rs, rs.getRow());
+				if (attributesManager.isVirtAttribute(sess, attributeDefinition)) {
+					virtualAttributes.add(attributeDefinition, user, map.get(user));
+					continue;
+				}
 				AttributeRowMapper attributeRowMapper = new UserFacilityAttributeRowMapper(sess, attributesManager, user, facility);
 				Attribute attribute = attributeRowMapper.mapRow(rs, rs.getRow());
 
@@ -2775,6 +2981,7 @@ public class AttributesManagerImpl implements AttributesManagerImplApi {
 					map.get(user).add(attribute);
 				}
 			}
+			virtualAttributes.computeValues(sess, attributesManager, facility);
 			return map;
 		}
 	}
@@ -3960,7 +4167,7 @@ public class AttributesManagerImpl implements AttributesManagerImplApi {
 	@Override
 	public List<Object> getAllResourceValues(PerunSession sess, AttributeDefinition attributeDefinition) {
 		try {
-			return jdbc.query("SELECT attr_value FROM resource_attr_values WHERE attr_id=?", new ValueRowMapper(attributeDefinition), attributeDefinition.getId());
+			return jdbc.query("SELECT attr_value, attr_value_json FROM resource_attr_values WHERE attr_id=?", new ValueRowMapper(attributeDefinition), attributeDefinition.getId());
 		} catch (EmptyResultDataAccessException ex) {
 			return new ArrayList<>();
 		} catch (RuntimeException ex) {
@@ -3971,7 +4178,7 @@ public class AttributesManagerImpl implements AttributesManagerImplApi {
 	@Override
 	public List<Object> getAllGroupResourceValues(PerunSession sess, AttributeDefinition attributeDefinition) {
 		try {
-			return jdbc.query("SELECT attr_value FROM group_resource_attr_values WHERE attr_id=?", new ValueRowMapper(attributeDefinition), attributeDefinition.getId());
+			return jdbc.query("SELECT attr_value, attr_value_json FROM group_resource_attr_values WHERE attr_id=?", new ValueRowMapper(attributeDefinition), attributeDefinition.getId());
 		} catch (EmptyResultDataAccessException ex) {
 			return new ArrayList<>();
 		} catch (RuntimeException ex) {
@@ -3982,7 +4189,7 @@ public class AttributesManagerImpl implements AttributesManagerImplApi {
 	@Override
 	public List<Object> getAllGroupValues(PerunSession sess, AttributeDefinition attributeDefinition) {
 		try {
-			return jdbc.query("SELECT attr_value FROM group_attr_values WHERE attr_id=?", new ValueRowMapper(attributeDefinition), attributeDefinition.getId());
+			return jdbc.query("SELECT attr_value, attr_value_json FROM group_attr_values WHERE attr_id=?", new ValueRowMapper(attributeDefinition), attributeDefinition.getId());
 		} catch (EmptyResultDataAccessException ex) {
 			return new ArrayList<>();
 		} catch (RuntimeException ex) {
@@ -3993,7 +4200,7 @@ public class AttributesManagerImpl implements AttributesManagerImplApi {
 	@Override
 	public List<Object> getAllUserValues(PerunSession sess, AttributeDefinition attributeDefinition) {
 		try {
-			return jdbc.query("SELECT attr_value FROM user_attr_values WHERE attr_id=?", new ValueRowMapper(attributeDefinition), attributeDefinition.getId());
+			return jdbc.query("SELECT attr_value, attr_value_json FROM user_attr_values WHERE attr_id=?", new ValueRowMapper(attributeDefinition), attributeDefinition.getId());
 		} catch (EmptyResultDataAccessException ex) {
 			return new ArrayList<>();
 		} catch (RuntimeException ex) {
@@ -4712,6 +4919,92 @@ public class AttributesManagerImpl implements AttributesManagerImplApi {
 		}
 	}
 
+	@Override
+	public int convertAttributeValuesToJson(PerunSession sess) {
+		int converted = 0;
+		try {
+			for (Map.Entry<String, List<String>> table : ATTRIBUTE_VALUES_TABLES_KEYS.entrySet()) {
+				converted += convertAttributeValuesToJson(table.getKey(), table.getValue());
+			}
+		} catch (RuntimeException e) {
+			throw new InternalErrorException(e);
+		}
+		return converted;
+	}
+
+	/**
+	 * Converts list and map values in the table in batches, so no long running statement locks the table.
+	 * Value is updated only if it wasn't changed in the meantime, otherwise it is converted by the next batch.
+	 * Values, which can't be converted (or whose JSON would be null), are skipped and reported only once.
+	 */
+	private int convertAttributeValuesToJson(String tableName, List<String> keyColumns) {
+		String select = "select " + buildParameters(keyColumns, "", ", ") + ", attr_id, attr_value, attr_names.type as attr_type from " + tableName +
+				" join attr_names on attr_names.id=attr_id where attr_names.type in (?,?) and attr_value_json is null and attr_value is not null and attr_value<>''" +
+				" order by " + buildParameters(keyColumns, "", ", ") + ", attr_id limit " + JSON_CONVERSION_BATCH_SIZE + " offset ?";
+		String update = "update " + tableName + " set attr_value_json=?" + Compatibility.castToJsonb() +
+				" where " + buildParameters(keyColumns, "=?", " and ") + " and attr_id=? and attr_value=?";
+
+		int converted = 0;
+		// skipped rows stay unconverted, so following batches start after them
+		int skipped = 0;
+		while (true) {
+			List<Object[]> batch = new ArrayList<>();
+			List<Object[]> batchSkipped = new ArrayList<>();
+			int selected = jdbc.query(select, rs -> {
+				int rows = 0;
+				while (rs.next()) {
+					rows++;
+					List<Object> keys = new ArrayList<>();
+					for (String keyColumn : keyColumns) {
+						keys.add(rs.getObject(keyColumn));
+					}
+					Attribute attribute = new Attribute();
+					attribute.setType(rs.getString("attr_type"));
+					String json;
+					try {
+						attribute.setValue(BeansUtils.stringToAttributeValue(rs.getString("attr_value"), attribute.getType()));
+						json = BeansUtils.attributeValueToJson(attribute);
+					} catch (RuntimeException e) {
+						reportJsonConversionFailure(tableName, keys, rs.getInt("attr_id"), e.getMessage());
+						batchSkipped.add(keys.toArray());
+						continue;
+					}
+					if (json == null) {
+						reportJsonConversionFailure(tableName, keys, rs.getInt("attr_id"), "value is empty after parsing");
+						batchSkipped.add(keys.toArray());
+						continue;
+					}
+					List<Object> args = new ArrayList<>();
+					args.add(json);
+					args.addAll(keys);
+					args.add(rs.getInt("attr_id"));
+					args.add(rs.getString("attr_value"));
+					batch.add(args.toArray());
+				}
+				return rows;
+			}, ArrayList.class.getName(), LinkedHashMap.class.getName(), skipped);
+
+			int updated = 0;
+			if (!batch.isEmpty()) {
+				for (int count : jdbc.batchUpdate(update, batch)) {
+					if (count > 0) updated += count;
+				}
+			}
+			converted += updated;
+			skipped += batchSkipped.size();
+			// stop also when nothing of the batch was converted nor skipped (values were changed in the meantime)
+			if (selected < JSON_CONVERSION_BATCH_SIZE || (updated == 0 && batchSkipped.isEmpty())) break;
+		}
+		if (converted > 0) log.info("{} attribute values in {} converted to JSON.", converted, tableName);
+		return converted;
+	}
+
+	private void reportJsonConversionFailure(String tableName, List<Object> keys, int attributeId, String reason) {
+		if (reportedJsonConversionFailures.add(tableName + keys + ":" + attributeId)) {
+			log.warn("Value of attribute {} for {} in {} can't be converted to JSON: {}", attributeId, keys, tableName, reason);
+		}
+	}
+
 	public void setSelf(AttributesManagerImplApi self) {
 		this.self = self;
 	}
@@ -4742,6 +5035,7 @@ public class AttributesManagerImpl implements AttributesManagerImplApi {
 				jdbc.update("UPDATE attr_names SET is_unique=?, modified_by=?, modified_by_uid=?, modified_at="
 						+ Compatibility.getSysdate() + " WHERE id=?", attributeDefinition.isUnique(), perunSession.getPerunPrincipal().getActor(), perunSession.getPerunPrincipal().getUserId(), attributeDefinition.getId());
 			}
+			attributeDefinitions.definitionsModified();
 
 			return attributeDefinition;
 		} catch (EmptyResultDataAccessException ex) {
@@ -4904,5 +5198,11 @@ public class AttributesManagerImpl implements AttributesManagerImplApi {
 
 	public void setPerun(Perun perun) {
 		this.perun = perun;
+		// changes made by other instances are checked when new audit messages are stored
+		attributeDefinitions.setNotifierSupplier(() -> {
+			if (!(this.perun instanceof PerunBl)) return null;
+			Auditer auditer = ((PerunBl) this.perun).getAuditer();
+			return auditer == null ? null : auditer.getNotifier();
+		});
 	}
 }
@@ -16,6 +16,7 @@ import cz.metacentrum.perun.cabinet.model.ThanksForGUI;
 import cz.metacentrum.perun.core.api.Attribute;
 import cz.metacentrum.perun.core.api.AttributeDefinition;
 import cz.metacentrum.perun.core.api.AuditMessage;
+import cz.metacentrum.perun.core.api.BeansUtils;
 import cz.metacentrum.perun.core.api.Candidate;
 import cz.metacentrum.perun.core.api.Destination;
 import cz.metacentrum.perun.core.api.Group;
@@ -64,6 +65,8 @@ public class AuditMessagesManagerImpl implements AuditMessagesManagerImplApi {
 	private final static String auditMessageMappingSelectQuery = "id, msg, actor, created_at, created_by_uid";
 
 	private final JdbcPerunTemplate jdbc;
+	// used for reading of consumer batches, rows are fetched from DB in smaller chunks
+	private final JdbcPerunTemplate batchJdbc;
 
 	static {
 
@@ -149,6 +152,8 @@ public class AuditMessagesManagerImpl implements AuditMessagesManagerImplApi {
 
 	public AuditMessagesManagerImpl(DataSource perunPool) {
 		this.jdbc = new JdbcPerunTemplate(perunPool);
+		this.batchJdbc = new JdbcPerunTemplate(perunPool);
+		this.batchJdbc.setFetchSize(BeansUtils.getCoreConfig().getAuditerConsumerFetchSize());
 	}
 
 	@Override
@@ -201,6 +206,18 @@ public class AuditMessagesManagerImpl implements AuditMessagesManagerImplApi {
 		}
 	}
 
+	@Override
+	public int getAuditerMessagesCountApproximate(PerunSession perunSession) {
+		try {
+			// partitioned table itself has no tuples, they are counted in its partitions
+			long count = jdbc.queryForObject("select coalesce(sum(greatest(reltuples, 0)), 0)::bigint from pg_class " +
+					"where oid='auditer_log'::regclass or oid in (select inhrelid from pg_inherits where inhparent='auditer_log'::regclass)", Long.class);
+			return (int) Math.min(count, Integer.MAX_VALUE);
+		} catch (RuntimeException ex) {
+			throw new InternalErrorException(ex);
+		}
+	}
+
 	@Override
 	public void createAuditerConsumer(PerunSession perunSession, String consumerName) {
 		try {
@@ -305,6 +322,55 @@ public class AuditMessagesManagerImpl implements AuditMessagesManagerImplApi {
 
 	}
 
+	@Override
+	public List<AuditMessage> pollConsumerMessagesBatch(PerunSession perunSession, String consumerName, int lastProcessedId, int maxCount) {
+
+		checkAuditerConsumerExists(perunSession, consumerName);
+
+		try {
+			return getMessagesBatch(lastProcessedId, maxCount);
+		} catch (Exception ex) {
+			throw new InternalErrorException(ex);
+		}
+	}
+
+	@Override
+	public List<AuditEvent> pollConsumerEventsBatch(PerunSession perunSession, String consumerName, int maxCount) {
+
+		checkAuditerConsumerExists(perunSession, consumerName);
+
+		try {
+
+			int lastProcessedId = getLastProcessedId(consumerName);
+			List<AuditMessage> messages = getMessagesBatch(lastProcessedId, maxCount);
+			if (messages.isEmpty()) return new ArrayList<>();
+
+			List<AuditEvent> eventList = new ArrayList<>(messages.size());
+			for (AuditMessage message : messages) {
+				eventList.add(message.getEvent());
+			}
+			// update counter only to the last returned event
+			setLastProcessedId(perunSession, consumerName, messages.get(messages.size() - 1).getId());
+
+			return eventList;
+
+		} catch (Exception ex) {
+			throw new InternalErrorException(ex);
+		}
+
+	}
+
+	@Override
+	public void storeConsumerPosition(PerunSession perunSession, String consumerName, int lastProcessedId) {
+		// row is updated only when the position moved forward, so modified_at tells when the consumer processed anything last time
+		try {
+			jdbc.update("update auditer_consumers set last_processed_id=?, modified_at=" + Compatibility.getSysdate() +
+					" where name=? and (last_processed_id is null or last_processed_id < ?)", lastProcessedId, consumerName, lastProcessedId);
+		} catch (RuntimeException ex) {
+			throw new InternalErrorException(ex);
+		}
+	}
+
 	@Override
 	public Map<String, Integer> getAllAuditerConsumers(PerunSession sess) {
 		try {
@@ -324,6 +390,19 @@ public class AuditMessagesManagerImpl implements AuditMessagesManagerImplApi {
 		}
 	}
 
+	/**
+	 * Return at most maxCount messages with ID greater than lastProcessedId ordered by ID.
+	 * Uses keyset pagination, so it is cheap regardless of number of messages in audit log.
+	 *
+	 * @param lastProcessedId ID of the last already processed message
+	 * @param maxCount max number of returned messages
+	 * @return messages with ID greater than lastProcessedId
+	 */
+	private List<AuditMessage> getMessagesBatch(int lastProcessedId, int maxCount) {
+		if (maxCount <= 0) throw new InternalErrorException("Max count of polled messages must be positive, but was " + maxCount + ".");
+		return batchJdbc.query("select " + auditMessageMappingSelectQuery + " from auditer_log where id > ? order by id limit ?", AUDIT_MESSAGE_MAPPER, lastProcessedId, maxCount);
+	}
+
 	/**
 	 * Return last processed ID of audit message for specified consumer.
 	 *
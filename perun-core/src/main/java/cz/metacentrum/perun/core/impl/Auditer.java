@@ -10,27 +10,25 @@ import cz.metacentrum.perun.core.api.exceptions.InternalErrorException;
 import cz.metacentrum.perun.core.api.exceptions.WrongAttributeAssignmentException;
 import cz.metacentrum.perun.core.api.exceptions.WrongReferenceAttributeValueException;
 import cz.metacentrum.perun.core.implApi.modules.attributes.AttributesModuleImplApi;
+import cz.metacentrum.perun.core.provisioning.GenDataCache;
 import net.jcip.annotations.GuardedBy;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcPerunTemplate;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import javax.sql.DataSource;
 import java.io.IOException;
-import java.sql.PreparedStatement;
-import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
 
 /**
  * This class is responsible for runtime logging of audit events. It gets messages and assocaites them with current transaction.
@@ -57,6 +55,8 @@ public class Auditer {
 	private final static Logger log = LoggerFactory.getLogger(Auditer.class);
 	private final static Logger transactionLogger = LoggerFactory.getLogger("transactionLogger");
 	private JdbcPerunTemplate jdbc;
+	private AuditerLogWriter writer;
+	private AuditerLogNotifier notifier;
 
 	private int lastProcessedId;
 	private static final Map<Class<?>,Class<?>> mixinMap = new HashMap<>();
@@ -74,27 +74,20 @@ public class Auditer {
 		mapper.setMixIns(mixinMap);
 	}
 
-	private static final Object LOCK_DB_TABLE_AUDITER_LOG = new Object();
-
-	private static final Set<AttributesModuleImplApi> registeredAttributesModules = new HashSet<>();
+	// modules are registered rarely, but read by every storing transaction, so we don't want to lock on them
+	private static final Set<AttributesModuleImplApi> registeredAttributesModules = new CopyOnWriteArraySet<>();
 
 	public static void registerAttributeModule(AttributesModuleImplApi attributesModuleImplApi) {
-		synchronized (LOCK_DB_TABLE_AUDITER_LOG) {
-			log.trace("Auditer: Try to register module {}", (attributesModuleImplApi == null) ? null : attributesModuleImplApi.getClass().getName());
-			if(attributesModuleImplApi != null && !registeredAttributesModules.contains(attributesModuleImplApi)) {
-				registeredAttributesModules.add(attributesModuleImplApi);
-				log.debug("Auditer: Module {} was registered for audit message listening.", attributesModuleImplApi.getClass().getName());
-			}
+		log.trace("Auditer: Try to register module {}", (attributesModuleImplApi == null) ? null : attributesModuleImplApi.getClass().getName());
+		if(attributesModuleImplApi != null && registeredAttributesModules.add(attributesModuleImplApi)) {
+			log.debug("Auditer: Module {} was registered for audit message listening.", attributesModuleImplApi.getClass().getName());
 		}
 	}
 
 	public static void unregisterAttributeModule(AttributesModuleImplApi attributesModuleImplApi) {
-		synchronized (LOCK_DB_TABLE_AUDITER_LOG) {
-			log.trace("Auditer: Try to unregister module {}", (attributesModuleImplApi == null) ? null : attributesModuleImplApi.getClass().getName());
-			if (attributesModuleImplApi != null && registeredAttributesModules.contains(attributesModuleImplApi)) {
-				registeredAttributesModules.remove(attributesModuleImplApi);
-				log.debug("Auditer: Module {} was removed from audit message listening.", attributesModuleImplApi.getClass().getName());
-			}
+		log.trace("Auditer: Try to unregister module {}", (attributesModuleImplApi == null) ? null : attributesModuleImplApi.getClass().getName());
+		if (attributesModuleImplApi != null && registeredAttributesModules.remove(attributesModuleImplApi)) {
+			log.debug("Auditer: Module {} was removed from audit message listening.", attributesModuleImplApi.getClass().getName());
 		}
 	}
 
@@ -104,6 +97,25 @@ public class Auditer {
 	public void setPerunPool(DataSource perunPool) {
 		this.jdbc = new JdbcPerunTemplate(perunPool);
 		this.jdbc.setQueryTimeout(BeansUtils.getCoreConfig().getQueryTimeout());
+		if (this.notifier != null) this.notifier.stop();
+		this.notifier = new AuditerLogNotifier(perunPool, jdbc);
+		this.writer = new AuditerLogWriter(jdbc, notifier, BeansUtils.getCoreConfig().getAuditerLogWriterBatchSize());
+	}
+
+	/**
+	 * Stops the auditer log notifier. Called as destroy-method in perun-core.xml.
+	 */
+	public void destroy() {
+		if (this.notifier != null) this.notifier.stop();
+	}
+
+	/**
+	 * Get notifier which wakes up consumers of the auditer_log when new messages are stored.
+	 *
+	 * @return notifier of new audit messages
+	 */
+	public AuditerLogNotifier getNotifier() {
+		return notifier;
 	}
 
 	/**
@@ -147,6 +159,21 @@ public class Auditer {
 		storeMessageToDb(sess, event);
 	}
 
+	/**
+	 * Check if the current top-level transaction has logged any messages which are not flushed yet,
+	 * so it has changed data, which are not visible outside the transaction.
+	 *
+	 * @return true if there are not flushed messages in the current transaction
+	 */
+	public boolean hasUnflushedMessages() {
+		List<List<List<AuditerMessage>>> topLevelTransactions = (List<List<List<AuditerMessage>>>) TransactionSynchronizationManager.getResource(this);
+		if (topLevelTransactions == null || topLevelTransactions.isEmpty()) return false;
+		for (List<AuditerMessage> messages : topLevelTransactions.get(topLevelTransactions.size() - 1)) {
+			if (!messages.isEmpty()) return true;
+		}
+		return false;
+	}
+
 	/**
 	 * Initialize new lists for sotring Audit messages.
 	 *
@@ -216,6 +243,19 @@ public class Auditer {
 	 *
 	 */
 	public void flush() {
+		flush(false);
+	}
+
+	/**
+	 * Flushes stored message for last top-level transaction into the log after the transaction was committed.
+	 * Messages are committed on the connection of the transaction together with messages of other committing transactions.
+	 * Called by PerunTransactionManager.
+	 */
+	public void flushAfterCommit() {
+		flush(true);
+	}
+
+	private void flush(boolean transactionCommitted) {
 		List<List<List<AuditerMessage>>> topLevelTransactions = getTopLevelTransactions();
 		if (topLevelTransactions.isEmpty()) {
 			log.trace("No messages to flush");
@@ -238,9 +278,7 @@ public class Auditer {
 			TransactionSynchronizationManager.unbindResourceIfPossible(this);
 		}
 		log.trace("Audit messages was flushed for current transaction.");
-		synchronized (LOCK_DB_TABLE_AUDITER_LOG) {
-			storeMessagesToDb(messages);
-		}
+		storeMessagesToDb(messages, transactionCommitted);
 	}
 
 	/**
@@ -310,6 +348,16 @@ public class Auditer {
 	 * @param auditerMessages list of AuditerMessages
 	 */
 	public void storeMessagesToDb(final List<AuditerMessage> auditerMessages) {
+		storeMessagesToDb(auditerMessages, false);
+	}
+
+	/**
+	 * Stores the list of AuditerMessages to the DB in batch.
+	 *
+	 * @param auditerMessages list of AuditerMessages
+	 * @param transactionCommitted true if messages are stored after commit of the transaction, which logged them
+	 */
+	private void storeMessagesToDb(final List<AuditerMessage> auditerMessages, boolean transactionCommitted) {
 
 		//Avoid working with empty list of auditer-messages
 		if(auditerMessages == null || auditerMessages.isEmpty()) {
@@ -317,54 +365,49 @@ public class Auditer {
 			return;
 		}
 
-		synchronized (LOCK_DB_TABLE_AUDITER_LOG) {
+		// Resolve all additional message from attribute modules and add them to the bulk
+		try {
 
-			// Resolve all additional message from attribute modules and add them to the bulk
-			try {
+			//Get perun session from the first message (all sessions should be same from the same principal)
+			PerunSessionImpl session = (PerunSessionImpl) auditerMessages.get(0).getOriginatingSession();
 
-				//Get perun session from the first message (all sessions should be same from the same principal)
-				PerunSessionImpl session = (PerunSessionImpl) auditerMessages.get(0).getOriginatingSession();
+			//Check recursively all messages if they can create any resolving message
+			auditerMessages.addAll(checkRegisteredAttributesModules(session, auditerMessages, new LinkedHashSet<>()));
 
-				//Check recursively all messages if they can create any resolving message
-				auditerMessages.addAll(checkRegisteredAttributesModules(session, auditerMessages, new LinkedHashSet<>()));
+		} catch (Throwable ex) {
+			log.error("There is a problem with processing resolving messages! It will be forcibly skipped to prevent unexpected behavior of auditer log!", ex);
+		}
 
-			} catch (Throwable ex) {
-				log.error("There is a problem with processing resolving messages! It will be forcibly skipped to prevent unexpected behavior of auditer log!", ex);
+		//Drop cached provisioning data changed by the messages, they are already committed
+		try {
+			GenDataCache genDataCache = GenDataCache.getInstance();
+			for (AuditerMessage auditerMessage : auditerMessages) {
+				genDataCache.invalidate(auditerMessage.getEvent());
 			}
+		} catch (RuntimeException ex) {
+			log.error("Cached provisioning data can't be invalidated, they are dropped.", ex);
+			GenDataCache.getInstance().clear();
+		}
 
-			//Write all messages to the database
+		//Serialize messages in the calling thread, so the writer only stores prepared rows
+		List<AuditerLogWriter.AuditerLogRow> rows = new ArrayList<>(auditerMessages.size());
+		for (AuditerMessage auditerMessage : auditerMessages) {
+			final PerunSession session = auditerMessage.getOriginatingSession();
+			String jsonString = "";
 			try {
-				jdbc.batchUpdate("insert into auditer_log (id, msg, actor, created_at, created_by_uid) values ("+Compatibility.getSequenceNextval("auditer_log_id_seq")+",?,?," + Compatibility.getSysdate() + ",?)",
-						new BatchPreparedStatementSetter() {
-							@Override
-							public void setValues(PreparedStatement ps, int i) throws SQLException {
-
-								final AuditerMessage auditerMessage = auditerMessages.get(i);
-								final PerunSession session = auditerMessage.getOriginatingSession();
-								String jsonString = "";
-								try {
-									jsonString = mapper.writeValueAsString(auditerMessage.getEvent());
-								} catch (IOException e) {
-									log.error("Could not map event {} to JSON: {}", auditerMessage.getEvent().getClass().getSimpleName(), auditerMessage.getEvent().getMessage());
-								}
-								log.info("AUDIT_JSON: {}", jsonString);
-								ps.setString(1, jsonString);
-								ps.setString(2, session.getPerunPrincipal().getActor());
-								ps.setInt(3, session.getPerunPrincipal().getUserId());
-							}
-
-							@Override
-							public int getBatchSize() {
-								return auditerMessages.size();
-							}
-						});
-
-			} catch (InternalErrorException e) {
-				log.error("Could not get system date identifier for the DB", e);
-			} catch (RuntimeException e) {
-				log.error("Cannot store auditer log json message in batch for list ['{}'], exception: {}", auditerMessages, e);
+				jsonString = mapper.writeValueAsString(auditerMessage.getEvent());
+			} catch (IOException e) {
+				log.error("Could not map event {} to JSON: {}", auditerMessage.getEvent().getClass().getSimpleName(), auditerMessage.getEvent().getMessage());
 			}
+			log.info("AUDIT_JSON: {}", jsonString);
+			rows.add(new AuditerLogWriter.AuditerLogRow(jsonString, session.getPerunPrincipal().getActor(), session.getPerunPrincipal().getUserId()));
+		}
 
+		//Write all messages to the database, writer keeps order of messages and returns once they are stored
+		try {
+			writer.write(rows, transactionCommitted);
+		} catch (RuntimeException e) {
+			log.error("Cannot store auditer log json message in batch for list ['{}'], exception: {}", auditerMessages, e);
 		}
 
 	}
@@ -0,0 +1,167 @@
+package cz.metacentrum.perun.core.impl;
+
+import cz.metacentrum.perun.core.api.AuditMessagesSubscription;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcPerunTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wakes up consumers of the auditer_log when new messages are stored, so they don't have to poll in short intervals.
+ *
+ * Messages stored by this JVM are signalled to subscribers immediately. Messages stored by other Perun instances
+ * are received by Postgres LISTEN/NOTIFY on the {@link #CHANNEL} channel. Listening connection is opened lazily
+ * with the first subscription. Subscribers should still re-check the audit log after a timeout, since notifications
+ * are not delivered while the listening connection is broken.
+ *
+ * @see Auditer
+ * @see AuditerLogWriter
+ */
+public class AuditerLogNotifier {
+
+	private final static Logger log = LoggerFactory.getLogger(AuditerLogNotifier.class);
+
+	public static final String CHANNEL = "auditer_log";
+
+	private static final int LISTEN_TIMEOUT = 1000;
+	private static final long RECONNECT_DELAY = TimeUnit.SECONDS.toMillis(5);
+
+	private final DataSource dataSource;
+	private final JdbcPerunTemplate jdbc;
+	private final Set<Subscription> subscriptions = new CopyOnWriteArraySet<>();
+
+	private volatile boolean listening = false;
+	private Thread listenerThread;
+
+	public AuditerLogNotifier(DataSource dataSource, JdbcPerunTemplate jdbc) {
+		this.dataSource = dataSource;
+		this.jdbc = jdbc;
+	}
+
+	/**
+	 * Creates new subscription for new messages in auditer_log. Subscription must be closed when no longer used.
+	 *
+	 * @return subscription
+	 */
+	public Subscription subscribe() {
+		Subscription subscription = new Subscription();
+		subscriptions.add(subscription);
+		startListening();
+		return subscription;
+	}
+
+	/**
+	 * Signals new messages to all subscribers in this JVM and to other Perun instances through NOTIFY.
+	 * Called by AuditerLogWriter after rows were stored.
+	 */
+	public void notifyNewMessages() {
+		signalSubscribers();
+		try {
+			jdbc.execute("NOTIFY " + CHANNEL);
+		} catch (RuntimeException e) {
+			log.warn("Unable to send notification about new audit messages: {}", e.getMessage());
+		}
+	}
+
+	/**
+	 * Stops listening to notifications from other Perun instances.
+	 */
+	public synchronized void stop() {
+		listening = false;
+		if (listenerThread != null) {
+			try {
+				listenerThread.join(LISTEN_TIMEOUT * 2);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			listenerThread = null;
+		}
+	}
+
+	private void signalSubscribers() {
+		for (Subscription subscription : subscriptions) {
+			subscription.signal();
+		}
+	}
+
+	private synchronized void startListening() {
+		if (listening) return;
+		listening = true;
+		listenerThread = new Thread(this::listen, "auditer-log-listener");
+		listenerThread.setDaemon(true);
+		listenerThread.start();
+	}
+
+	private void listen() {
+		while (listening) {
+			try (Connection connection = dataSource.getConnection()) {
+				PGConnection pgConnection = connection.unwrap(PGConnection.class);
+				try (Statement statement = connection.createStatement()) {
+					statement.execute("LISTEN " + CHANNEL);
+				}
+				if (!connection.getAutoCommit()) connection.commit();
+				log.debug("Listening for notifications on channel {}.", CHANNEL);
+				// messages might have been stored while we were not listening
+				signalSubscribers();
+
+				while (listening) {
+					PGNotification[] notifications = pgConnection.getNotifications(LISTEN_TIMEOUT);
+					if (notifications != null && notifications.length > 0) {
+						signalSubscribers();
+					}
+				}
+			} catch (SQLException | RuntimeException e) {
+				log.warn("Listening for new audit messages failed, subscribers will fall back to polling: {}", e.getMessage());
+				signalSubscribers();
+				try {
+					Thread.sleep(RECONNECT_DELAY);
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+					listening = false;
+				}
+			}
+		}
+		log.debug("Stopped listening for notifications on channel {}.", CHANNEL);
+	}
+
+	/**
+	 * Subscription of one consumer, which is signalled by this notifier.
+	 */
+	public class Subscription implements AuditMessagesSubscription {
+
+		private boolean signalled = false;
+
+		private synchronized void signal() {
+			signalled = true;
+			notifyAll();
+		}
+
+		@Override
+		public synchronized boolean awaitNewMessages(long timeout) throws InterruptedException {
+			long deadline = System.currentTimeMillis() + timeout;
+			long remaining = timeout;
+			while (!signalled && remaining > 0) {
+				wait(remaining);
+				remaining = deadline - System.currentTimeMillis();
+			}
+			boolean result = signalled;
+			signalled = false;
+			return result;
+		}
+
+		@Override
+		public void close() {
+			subscriptions.remove(this);
+		}
+	}
+
+}
@@ -0,0 +1,223 @@
+package cz.metacentrum.perun.core.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcPerunTemplate;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Writer of the auditer_log table used by the Auditer, which groups rows of concurrently committed transactions
+ * into multi-row inserts (group commit).
+ *
+ * Each caller hands over its already serialized audit rows to a queue and waits for the writer lock. The lock holder
+ * is the leader: it drains the queue in order, stores rows of all waiting callers on its own connection and commits them.
+ * Waiting callers, whose rows were stored by the leader, just return once they get the lock. If the batch with their
+ * rows could not be stored, they get the failure of the leader instead. Since inserts are made only by the lock holder,
+ * ids from the auditer_log_id_seq are assigned in the order in which rows were handed over and messages of one
+ * transaction stay contiguous.
+ *
+ * Caller always uses only the connection it already holds (the one of its committed transaction) or a connection
+ * obtained before it starts waiting, so no thread ever waits for the lock and another pooled connection at the same time.
+ * Caller, whose connection is still in an uncommitted transaction, stores only its own rows, because the transaction
+ * might be rolled back.
+ *
+ * @see Auditer
+ */
+public class AuditerLogWriter {
+
+	private final static Logger log = LoggerFactory.getLogger(AuditerLogWriter.class);
+
+	/**
+	 * Postgres allows at most 32767 bind parameters in one statement, we use 3 per row.
+	 */
+	private static final int MAX_ROWS_PER_INSERT = 10000;
+
+	private static final String INSERT_PREFIX = "insert into auditer_log (id, msg, actor, created_at, created_by_uid) values ";
+	private static final String ROW_VALUES = "(" + Compatibility.getSequenceNextval("auditer_log_id_seq") + ",?,?," + Compatibility.getSysdate() + ",?)";
+
+	private final JdbcPerunTemplate jdbc;
+	private final AuditerLogNotifier notifier;
+	private final int batchSize;
+	private final Queue<PendingRows> queue = new ConcurrentLinkedQueue<>();
+	private final ReentrantLock leaderLock = new ReentrantLock(true);
+
+	/**
+	 * Creates new writer.
+	 *
+	 * @param jdbc template used to store rows
+	 * @param notifier notifier of consumers called after rows are stored, might be null
+	 * @param batchSize max number of rows written by one insert statement
+	 */
+	public AuditerLogWriter(JdbcPerunTemplate jdbc, AuditerLogNotifier notifier, int batchSize) {
+		this.jdbc = jdbc;
+		this.notifier = notifier;
+		this.batchSize = Math.max(1, Math.min(batchSize, MAX_ROWS_PER_INSERT));
+	}
+
+	/**
+	 * Stores rows to the auditer_log. Method returns once the rows are stored and committed
+	 * (or storing single rows failed and was logged). When the whole batch with the rows can't be stored,
+	 * the failure is thrown to the caller.
+	 *
+	 * @param rows rows to be stored in given order
+	 * @param transactionCommitted true if the caller's transaction is already committed, so rows can be committed
+	 *                             on its connection, false if the caller might still be in uncommitted transaction
+	 */
+	public void write(List<AuditerLogRow> rows, boolean transactionCommitted) {
+		if (rows == null || rows.isEmpty()) return;
+
+		jdbc.execute((ConnectionCallback<Void>) connection -> {
+			if (transactionCommitted || connection.getAutoCommit()) {
+				writeAsLeader(connection, new PendingRows(rows));
+			} else {
+				leaderLock.lock();
+				try {
+					insertRows(connection, rows, false);
+				} finally {
+					leaderLock.unlock();
+				}
+			}
+			return null;
+		});
+		if (notifier != null) notifier.notifyNewMessages();
+	}
+
+	/**
+	 * Hands over rows to the queue and stores queued rows of all callers until own rows are stored.
+	 */
+	private void writeAsLeader(Connection connection, PendingRows pending) throws SQLException {
+		queue.add(pending);
+		leaderLock.lock();
+		try {
+			// rows might have been already handled by the previous leader
+			while (!pending.done) {
+				List<PendingRows> batch = new ArrayList<>();
+				List<AuditerLogRow> rows = new ArrayList<>();
+				PendingRows next;
+				while (rows.size() < batchSize && (next = queue.poll()) != null) {
+					batch.add(next);
+					rows.addAll(next.rows);
+				}
+				Exception failure = null;
+				try {
+					insertRows(connection, rows, true);
+				} catch (SQLException | RuntimeException e) {
+					failure = e;
+				}
+				// failure is handed back to each caller whose rows were in the failed batch
+				for (PendingRows handled : batch) {
+					handled.failure = failure;
+					handled.done = true;
+				}
+			}
+		} finally {
+			leaderLock.unlock();
+		}
+		if (pending.failure instanceof SQLException) throw (SQLException) pending.failure;
+		if (pending.failure != null) throw (RuntimeException) pending.failure;
+	}
+
+	/**
+	 * Stores rows using multi-row inserts. If insert of a chunk fails in own transaction, its rows are stored one by one,
+	 * so single broken message doesn't cause loss of the others.
+	 *
+	 * @param connection connection used to store rows
+	 * @param rows rows to store
+	 * @param ownTransaction true if the connection is not in uncommitted transaction of the caller, so each chunk
+	 *                       can be committed (and failed one rolled back)
+	 */
+	private void insertRows(Connection connection, List<AuditerLogRow> rows, boolean ownTransaction) throws SQLException {
+		boolean commit = ownTransaction && !connection.getAutoCommit();
+		for (int from = 0; from < rows.size(); from += batchSize) {
+			List<AuditerLogRow> chunk = rows.subList(from, Math.min(from + batchSize, rows.size()));
+			try {
+				insertChunk(connection, chunk);
+				if (commit) connection.commit();
+			} catch (SQLException e) {
+				if (!ownTransaction) throw e;
+				if (commit) connection.rollback();
+				log.error("Cannot store auditer log json messages in batch, trying to store them one by one.", e);
+				for (AuditerLogRow row : chunk) {
+					try {
+						insertChunk(connection, List.of(row));
+						if (commit) connection.commit();
+					} catch (SQLException ex) {
+						if (commit) connection.rollback();
+						log.error("Cannot store auditer log json message '{}', exception: {}", row.getMsg(), ex);
+					}
+				}
+			}
+		}
+	}
+
+	private void insertChunk(Connection connection, List<AuditerLogRow> chunk) throws SQLException {
+		StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + chunk.size() * (ROW_VALUES.length() + 1));
+		sql.append(INSERT_PREFIX);
+		for (int i = 0; i < chunk.size(); i++) {
+			if (i > 0) sql.append(',');
+			sql.append(ROW_VALUES);
+		}
+		try (PreparedStatement statement = connection.prepareStatement(sql.toString())) {
+			if (jdbc.getQueryTimeout() > 0) statement.setQueryTimeout(jdbc.getQueryTimeout());
+			int i = 1;
+			for (AuditerLogRow row : chunk) {
+				statement.setString(i++, row.getMsg());
+				statement.setString(i++, row.getActor());
+				statement.setInt(i++, row.getUserId());
+			}
+			statement.executeUpdate();
+		}
+	}
+
+	/**
+	 * Rows of one transaction waiting to be stored by the leader.
+	 */
+	private static class PendingRows {
+		private final List<AuditerLogRow> rows;
+		// written and read only under the leader lock
+		private boolean done = false;
+		// set when storing of the rows failed
+		private Exception failure;
+
+		PendingRows(List<AuditerLogRow> rows) {
+			this.rows = rows;
+		}
+	}
+
+	/**
+	 * Single row of the auditer_log table, with audit event already serialized to JSON.
+	 */
+	public static class AuditerLogRow {
+		private final String msg;
+		private final String actor;
+		private final int userId;
+
+		public AuditerLogRow(String msg, String actor, int userId) {
+			this.msg = msg;
+			this.actor = actor;
+			this.userId = userId;
+		}
+
+		public String getMsg() {
+			return msg;
+		}
+
+		public String getActor() {
+			return actor;
+		}
+
+		public int getUserId() {
+			return userId;
+		}
+	}
+
+}
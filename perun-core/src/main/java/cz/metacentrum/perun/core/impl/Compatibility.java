@@ -45,6 +45,10 @@ public class Compatibility {
 		return "::integer";
 	}
 
+	static String castToJsonb() {
+		return "::jsonb";
+	}
+
 	static String getAsAlias(String aliasName) {
 		return "as " + aliasName;
 	}
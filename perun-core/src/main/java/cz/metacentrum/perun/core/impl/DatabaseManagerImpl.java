@@ -1,5 +1,6 @@
 package cz.metacentrum.perun.core.impl;
 
+import cz.metacentrum.perun.core.api.AuditerLogPartition;
 import cz.metacentrum.perun.core.api.BeansUtils;
 import cz.metacentrum.perun.core.api.DBVersion;
 import cz.metacentrum.perun.core.api.PerunSession;
@@ -11,17 +12,23 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
+import org.postgresql.PGConnection;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcPerunTemplate;
 
 import javax.sql.DataSource;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.sql.Connection;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
@@ -36,6 +43,10 @@ public class DatabaseManagerImpl implements DatabaseManagerImplApi {
 	public static final String VERSION_PROPERTY = "DATABASE VERSION";
 	public static final String PERFORMANCE_PROPERTY = "LAST PERFORMANCE TEST TIMESTAMP";
 
+	private static final String AUDITER_LOG_PARTITION_PREFIX = "auditer_log_p";
+	private static final Pattern PARTITION_NAME_PATTERN = Pattern.compile("^auditer_log_[a-z0-9_]+$");
+	private static final Pattern PARTITION_BOUND_PATTERN = Pattern.compile("FOR VALUES FROM \\('?([^)']+)'?\\) TO \\('?([^)']+)'?\\)");
+
 	public DatabaseManagerImpl(DataSource perunPool) {
 		jdbc = new JdbcPerunTemplate(perunPool);
 		jdbc.setQueryTimeout(BeansUtils.getCoreConfig().getQueryTimeout());
@@ -225,4 +236,126 @@ public class DatabaseManagerImpl implements DatabaseManagerImplApi {
 		return jdbc;
 	}
 
+	@Override
+	public List<AuditerLogPartition> getAuditerLogPartitions() {
+		try {
+			List<AuditerLogPartition> partitions = jdbc.query("select c.relname as name, pg_get_expr(c.relpartbound, c.oid) as bound " +
+					"from pg_inherits i join pg_class c on c.oid=i.inhrelid where i.inhparent='auditer_log'::regclass", (rs, i) -> {
+				String name = rs.getString("name");
+				String bound = rs.getString("bound");
+				if ("DEFAULT".equalsIgnoreCase(bound)) return new AuditerLogPartition(name, null, null, true);
+				Matcher matcher = PARTITION_BOUND_PATTERN.matcher(bound);
+				if (!matcher.find()) throw new ConsistencyErrorException("Unexpected bound of auditer_log partition " + name + ": " + bound);
+				return new AuditerLogPartition(name, parsePartitionBound(matcher.group(1)), parsePartitionBound(matcher.group(2)), false);
+			});
+			Collections.sort(partitions);
+			return partitions;
+		} catch (RuntimeException ex) {
+			throw new InternalErrorException(ex);
+		}
+	}
+
+	@Override
+	public AuditerLogPartition createAuditerLogPartition(long idFrom, long idTo) {
+		String name = AUDITER_LOG_PARTITION_PREFIX + idFrom;
+		try {
+			jdbc.execute("create table " + name + " partition of auditer_log for values from (" + idFrom + ") to (" + idTo + ")");
+		} catch (RuntimeException ex) {
+			throw new InternalErrorException("Unable to create auditer_log partition " + name, ex);
+		}
+		return new AuditerLogPartition(name, idFrom, idTo, false);
+	}
+
+	@Override
+	public long getAuditerLogLastId() {
+		try {
+			return jdbc.queryForObject("select last_value from auditer_log_id_seq", Long.class);
+		} catch (RuntimeException ex) {
+			throw new InternalErrorException(ex);
+		}
+	}
+
+	@Override
+	public Integer getAuditerConsumersMinLastProcessedId(long lastId, LocalDateTime idleSince) {
+		try {
+			if (idleSince == null) {
+				return jdbc.queryForObject("select min(last_processed_id) from auditer_consumers", Integer.class);
+			}
+			return jdbc.queryForObject("select min(last_processed_id) from auditer_consumers where last_processed_id>=? or modified_at>=?",
+					Integer.class, lastId, Timestamp.valueOf(idleSince));
+		} catch (RuntimeException ex) {
+			throw new InternalErrorException(ex);
+		}
+	}
+
+	@Override
+	public List<String> getIdleAuditerConsumers(long lastId, LocalDateTime idleSince) {
+		try {
+			return jdbc.queryForList("select name from auditer_consumers where last_processed_id<? and modified_at<? order by name",
+					String.class, lastId, Timestamp.valueOf(idleSince));
+		} catch (RuntimeException ex) {
+			throw new InternalErrorException(ex);
+		}
+	}
+
+	@Override
+	public LocalDateTime getAuditerLogPartitionLastMessageTime(AuditerLogPartition partition) {
+		try {
+			Timestamp time = jdbc.queryForObject("select created_at from " + checkPartitionName(partition) + " order by id desc limit 1", Timestamp.class);
+			return time == null ? null : time.toLocalDateTime();
+		} catch (EmptyResultDataAccessException ex) {
+			return null;
+		} catch (RuntimeException ex) {
+			throw new InternalErrorException(ex);
+		}
+	}
+
+	@Override
+	public long exportAuditerLogPartition(AuditerLogPartition partition, OutputStream outputStream) {
+		String sql = "COPY " + checkPartitionName(partition) + " TO STDOUT WITH (FORMAT csv, HEADER)";
+		try {
+			Long count = jdbc.execute((ConnectionCallback<Long>) con -> {
+				try {
+					return con.unwrap(PGConnection.class).getCopyAPI().copyOut(sql, outputStream);
+				} catch (IOException ex) {
+					throw new InternalErrorException("Unable to export auditer_log partition " + partition.getName(), ex);
+				}
+			});
+			return count == null ? 0 : count;
+		} catch (InternalErrorException ex) {
+			throw ex;
+		} catch (RuntimeException ex) {
+			throw new InternalErrorException(ex);
+		}
+	}
+
+	@Override
+	public void dropAuditerLogPartition(AuditerLogPartition partition) {
+		if (partition.isDefaultPartition()) {
+			throw new InternalErrorException("Default partition of auditer_log can't be dropped.");
+		}
+		String name = checkPartitionName(partition);
+		try {
+			jdbc.execute("alter table auditer_log detach partition " + name);
+			jdbc.execute("drop table " + name);
+		} catch (RuntimeException ex) {
+			throw new InternalErrorException("Unable to drop auditer_log partition " + name, ex);
+		}
+	}
+
+	private static Long parsePartitionBound(String bound) {
+		if ("MINVALUE".equalsIgnoreCase(bound) || "MAXVALUE".equalsIgnoreCase(bound)) return null;
+		return Long.parseLong(bound.trim());
+	}
+
+	/**
+	 * Partition names are used directly in SQL, so make sure they can't contain anything else.
+	 */
+	private static String checkPartitionName(AuditerLogPartition partition) {
+		if (partition == null || partition.getName() == null || !PARTITION_NAME_PATTERN.matcher(partition.getName()).matches()) {
+			throw new InternalErrorException("Invalid auditer_log partition: " + partition);
+		}
+		return partition.getName();
+	}
+
 }
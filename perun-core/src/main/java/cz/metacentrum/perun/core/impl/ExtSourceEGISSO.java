@@ -23,6 +23,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 /**
  * This extSource is just for use loading users from LDAP of EGI SSO
@@ -39,6 +40,16 @@ public class ExtSourceEGISSO extends ExtSourceLdap implements ExtSourceApi {
 		return getUsersOrGroupSubjects(query);
 	}
 
+	@Override
+	public Stream<Map<String, String>> getGroupSubjectsStream(Map<String, String> attributes) {
+		return getGroupSubjects(attributes).stream();
+	}
+
+	@Override
+	public List<Map<String, String>> getGroupSubjectsChangedSince(Map<String, String> attributes, String watermark) throws ExtSourceUnsupportedOperationException {
+		throw new ExtSourceUnsupportedOperationException();
+	}
+
 	@Override
 	public List<Map<String, String>> getSubjectGroups(Map<String, String> attributes) throws ExtSourceUnsupportedOperationException {
 		throw new ExtSourceUnsupportedOperationException();
@@ -47,7 +58,6 @@ public class ExtSourceEGISSO extends ExtSourceLdap implements ExtSourceApi {
 	@Override
 	protected List<Map<String, String>> querySource(String query, String base, int maxResults) {
 		List<Map<String, String>> subjects = new ArrayList<>();
-		NamingEnumeration<SearchResult> results = null;
 
 		if(base == null || base.isEmpty()) {
 			base = "ou=People,dc=egi,dc=eu";
@@ -61,25 +71,13 @@ public class ExtSourceEGISSO extends ExtSourceLdap implements ExtSourceApi {
 			if (maxResults > 0) {
 				controls.setCountLimit(maxResults);
 			}
-			results = getContext().search(base, query, controls);
-
-			while (results.hasMore()) {
-				SearchResult searchResult = results.next();
-				subjects.add(processResultToSubject(searchResult));
-			}
+			searchPaged(base, query, controls, maxResults, searchResult -> subjects.add(processResultToSubject(searchResult)));
 
 			log.trace("Returning [{}] subjects", subjects.size());
 
 		} catch (NamingException e) {
 			log.error("LDAP exception during running query '{}'", query);
 			throw new InternalErrorException("LDAP exception during running query: "+query+".", e);
-		} finally {
-			try {
-				if (results != null) { results.close(); }
-			} catch (Exception e) {
-				log.error("LDAP exception during closing result, while running query '{}'", query);
-				throw new InternalErrorException(e);
-			}
 		}
 
 		return subjects;
@@ -204,28 +202,16 @@ public class ExtSourceEGISSO extends ExtSourceLdap implements ExtSourceApi {
 
 	private List<Map<String, String>> getUsersOrGroupSubjects(String query) {
 		List<Map<String, String>> subjects = new ArrayList<>();
-		NamingEnumeration<SearchResult> results = null;
 
 		String base = "ou=People,dc=egi,dc=eu";
 
 		try {
 			SearchControls controls = new SearchControls();
 			controls.setTimeLimit(5000);
-			results = getContext().search(base, query, controls);
-			while(results.hasMore()) {
-				SearchResult searchResult = results.next();
-				subjects.add(processResultToSubject(searchResult));
-			}
+			searchPaged(base, query, controls, 0, searchResult -> subjects.add(processResultToSubject(searchResult)));
 		} catch (NamingException e) {
 			log.error("LDAP exception during query {}.", query);
 			throw new InternalErrorException("LDAP exception during running query " + query , e);
-		} finally {
-			try {
-				if (results != null) { results.close(); }
-			} catch (Exception e) {
-				log.error("LDAP exception during closing result, while running query '{}'", query);
-				throw new InternalErrorException(e);
-			}
 		}
 
 		return subjects;
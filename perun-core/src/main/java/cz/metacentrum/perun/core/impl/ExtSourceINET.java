@@ -3,7 +3,6 @@ package cz.metacentrum.perun.core.impl;
 import cz.metacentrum.perun.core.api.GroupsManager;
 import cz.metacentrum.perun.core.api.exceptions.InternalErrorException;
 
-import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -18,7 +17,7 @@ public class ExtSourceINET extends ExtSourceSqlComplex {
 	Pattern queryParametersPattern = Pattern.compile("^([1-9][0-9]+)[:]([A-Za-z0-9_-]+)$");
 
 	@Override
-	public List<Map<String, String>> getGroupSubjects(Map<String, String> attributes) {
+	protected String getGroupSubjectsQuery(Map<String, String> attributes) {
 		// Parameters of query in the combination "workspace:groupname"
 		String sqlParametersForQuery = attributes.get(GroupsManager.GROUPMEMBERSQUERY_ATTRNAME);
 		Matcher sqlParametersMatcher = queryParametersPattern.matcher(sqlParametersForQuery);
@@ -30,8 +29,6 @@ public class ExtSourceINET extends ExtSourceSqlComplex {
 		if(!queryTemplate.contains("?")) throw new InternalErrorException("There is missing first occurrence of '?' character to replace workplace number for!");
 		String query = queryTemplate.replaceFirst("[?]", numberOfWorkplace);
 		if(!query.contains("?")) throw new InternalErrorException("There is missing second occurrence of '?' character to replace group name for!");
-		query = query.replaceFirst("[?]", "'" + nameOfTheGroup + "'");
-
-		return this.querySource(query, null, 0);
+		return query.replaceFirst("[?]", "'" + nameOfTheGroup + "'");
 	}
 }
@@ -8,33 +8,62 @@ import cz.metacentrum.perun.core.api.exceptions.InternalErrorException;
 import cz.metacentrum.perun.core.api.exceptions.SubjectNotExistsException;
 import cz.metacentrum.perun.core.blImpl.PerunBlImpl;
 import cz.metacentrum.perun.core.implApi.ExtSourceApi;
+import cz.metacentrum.perun.core.implApi.ExtSourceIncrementalApi;
+import cz.metacentrum.perun.core.implApi.ExtSourceStreamingApi;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.naming.CommunicationException;
 import javax.naming.Context;
 import javax.naming.NamingEnumeration;
 import javax.naming.NamingException;
+import javax.naming.ServiceUnavailableException;
 import javax.naming.directory.Attribute;
 import javax.naming.directory.Attributes;
 import javax.naming.directory.DirContext;
-import javax.naming.directory.InitialDirContext;
 import javax.naming.directory.SearchControls;
 import javax.naming.directory.SearchResult;
+import javax.naming.ldap.Control;
+import javax.naming.ldap.InitialLdapContext;
+import javax.naming.ldap.LdapContext;
+import javax.naming.ldap.LdapName;
+import javax.naming.ldap.PagedResultsControl;
+import javax.naming.ldap.PagedResultsResponseControl;
+import java.io.IOException;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Ext source implementation for LDAP.
  *
+ * Searches are paged (RFC 2696) by "pageSize" ext source attribute (default 1000, 0 disables paging)
+ * and only LDAP attributes used in "ldapMapping" are requested. Connections are taken from the JNDI LDAP
+ * connection pool unless "connectionPool" ext source attribute is "false". Broken connection is detected
+ * on its first failure, then it is evicted from the pool and the operation is repeated on a new one.
+ *
  * @author Michal Prochazka michalp@ics.muni.cz
  * @author Pavel Zlámal <zlamal@cesnet.cz>
  */
-public class ExtSourceLdap extends ExtSource implements ExtSourceApi {
+public class ExtSourceLdap extends ExtSource implements ExtSourceApi, ExtSourceIncrementalApi, ExtSourceStreamingApi {
+
+	private static final DateTimeFormatter GENERALIZED_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMddHHmmss'Z'");
+	// used as watermark when LDAP doesn't provide contextCSN to cover differences between clocks
+	private static final long CLOCK_SKEW_SECONDS = 300;
+	private static final int DEFAULT_PAGE_SIZE = 1000;
+	private static final String DEFAULT_CONNECT_TIMEOUT = "10000";
+	private static final Pattern MAPPING_ATTRIBUTE_PATTERN = Pattern.compile("\\{([^}]*)}");
 
 	protected Map<String, String> mapping;
 
@@ -42,6 +71,7 @@ public class ExtSourceLdap extends ExtSource implements ExtSourceApi {
 
 	protected DirContext dirContext = null;
 	protected String filteredQuery = null;
+	private String[] mappedLdapAttributes = null;
 
 	protected DirContext getContext() {
 		if (dirContext == null) {
@@ -110,6 +140,16 @@ public class ExtSourceLdap extends ExtSource implements ExtSourceApi {
 
 	@Override
 	public List<Map<String, String>> getGroupSubjects(Map<String, String> attributes) {
+		try (Stream<Map<String, String>> subjects = getGroupSubjectsStream(attributes)) {
+			return subjects.collect(Collectors.toList());
+		}
+	}
+
+	/**
+	 * Only DNs of the group members are read at once, each member is searched for when the stream reaches him.
+	 */
+	@Override
+	public Stream<Map<String, String>> getGroupSubjectsStream(Map<String, String> attributes) {
 
 		List<String> ldapGroupSubjects = new ArrayList<>();
 
@@ -128,7 +168,7 @@ public class ExtSourceLdap extends ExtSource implements ExtSourceApi {
 			retAttrs.add(attrName);
 
 			String[] retAttrsArray = retAttrs.toArray(new String[0]);
-			Attributes attrs = getContext().getAttributes(ldapGroupName, retAttrsArray);
+			Attributes attrs = executeWithReconnect(() -> getContext().getAttributes(ldapGroupName, retAttrsArray));
 
 			Attribute ldapAttribute = null;
 			// Get the list of returned groups, should be only one
@@ -146,17 +186,12 @@ public class ExtSourceLdap extends ExtSource implements ExtSourceApi {
 				}
 			}
 
-			List<Map<String, String>> subjects = new ArrayList<>();
-
 			// If attribute filter not exists, use optional default filter from extSource definition
-			if(filter == null) filter = filteredQuery;
+			String subjectsFilter = filter == null ? filteredQuery : filter;
 
 			// Now query LDAP again and search for each subject
-			for (String ldapSubjectName : ldapGroupSubjects) {
-				subjects.addAll(this.querySource(filter, ldapSubjectName, 0));
-			}
-
-			return subjects;
+			return ldapGroupSubjects.stream()
+					.flatMap(ldapSubjectName -> this.querySource(subjectsFilter, ldapSubjectName, 0).stream());
 
 		} catch (NamingException e) {
 			log.error("LDAP exception during running query '{}'", ldapGroupName);
@@ -164,6 +199,90 @@ public class ExtSourceLdap extends ExtSource implements ExtSourceApi {
 		}
 	}
 
+	/**
+	 * Watermark is the newest contextCSN of the base entry converted to generalized time (format of modifyTimestamp).
+	 * If LDAP doesn't provide contextCSN, current time decreased by possible clock skew is used.
+	 */
+	@Override
+	public String getGroupSubjectsWatermark(Map<String, String> attributes) {
+		String base = getAttributes().get("base");
+		String newestCsn = null;
+		if (base != null) {
+			try {
+				Attribute contextCsn = getContext().getAttributes(base, new String[] {"contextCSN"}).get("contextCSN");
+				if (contextCsn != null) {
+					for (int i = 0; i < contextCsn.size(); i++) {
+						String csn = (String) contextCsn.get(i);
+						if (newestCsn == null || csn.compareTo(newestCsn) > 0) newestCsn = csn;
+					}
+				}
+			} catch (NamingException e) {
+				log.debug("LDAP External Source: unable to read contextCSN of '{}', local time is used as watermark.", base);
+			}
+		}
+		// CSN has format 20201017123456.123456Z#000000#000#000000
+		if (newestCsn != null && newestCsn.indexOf('.') == 14) {
+			return newestCsn.substring(0, 14) + "Z";
+		}
+		return ZonedDateTime.now(ZoneOffset.UTC).minusSeconds(CLOCK_SKEW_SECONDS).format(GENERALIZED_TIME_FORMAT);
+	}
+
+	/**
+	 * Changed subjects are found by one search for entries with modifyTimestamp newer than watermark,
+	 * which are members of the group. If the group entry itself was modified, membership might have changed
+	 * and full synchronization is required.
+	 */
+	@Override
+	public List<Map<String, String>> getGroupSubjectsChangedSince(Map<String, String> attributes, String watermark) throws ExtSourceUnsupportedOperationException {
+		String ldapGroupName = attributes.get(GroupsManager.GROUPMEMBERSQUERY_ATTRNAME);
+		String base = getAttributes().get("base");
+		if (watermark == null || base == null) {
+			throw new ExtSourceUnsupportedOperationException("Watermark and base are required for incremental synchronization.");
+		}
+		String filter = attributes.get(GroupsManager.GROUPMEMBERSFILTER_ATTRNAME);
+
+		try {
+			String attrName = getAttributes().getOrDefault("memberAttribute", "uniqueMember");
+			Attributes groupAttrs = executeWithReconnect(() -> getContext().getAttributes(ldapGroupName, new String[] {attrName, "modifyTimestamp"}));
+			Attribute groupModified = groupAttrs.get("modifyTimestamp");
+			if (groupModified == null || ((String) groupModified.get()).compareTo(watermark) >= 0) {
+				throw new ExtSourceUnsupportedOperationException("LDAP group '" + ldapGroupName + "' was modified since " + watermark + ".");
+			}
+
+			Set<LdapName> ldapGroupSubjects = new HashSet<>();
+			Attribute ldapAttribute = groupAttrs.get(attrName);
+			if (ldapAttribute != null) {
+				for (int i = 0; i < ldapAttribute.size(); i++) {
+					ldapGroupSubjects.add(new LdapName((String) ldapAttribute.get(i)));
+				}
+			}
+
+			// If attribute filter not exists, use optional default filter from extSource definition
+			if (filter == null) filter = filteredQuery;
+			if (filter == null) filter = "(objectClass=*)";
+			String query = "(&" + filter + "(modifyTimestamp>=" + Utils.escapeStringForLDAP(watermark) + "))";
+			log.trace("LDAP External Source: searching for changed group subjects [{}] in [{}]", query, base);
+
+			SearchControls controls = new SearchControls();
+			controls.setSearchScope(SearchControls.SUBTREE_SCOPE);
+			controls.setReturningAttributes(getMappedLdapAttributes());
+			return executeWithReconnect(() -> {
+				List<Map<String, String>> subjects = new ArrayList<>();
+				searchPaged(base, query, controls, 0, searchResult -> {
+					if (!ldapGroupSubjects.contains(new LdapName(searchResult.getNameInNamespace()))) return;
+					Map<String, String> subjectAttributes = this.getSubjectAttributes(searchResult.getAttributes());
+					if (!subjectAttributes.isEmpty()) {
+						subjects.add(subjectAttributes);
+					}
+				});
+				return subjects;
+			});
+		} catch (NamingException e) {
+			log.error("LDAP exception during searching for changed subjects of group '{}'", ldapGroupName);
+			throw new InternalErrorException("LDAP exception during searching for changed subjects of group '" + ldapGroupName + "'.", e);
+		}
+	}
+
 	@Override
 	public List<Map<String, String>> getUsersSubjects() {
 		// if usersQuery is null, there is no filter and method returns all users subjects
@@ -197,6 +316,9 @@ public class ExtSourceLdap extends ExtSource implements ExtSourceApi {
 		if (getAttributes().containsKey("password")) {
 			env.put(Context.SECURITY_CREDENTIALS, getAttributes().get("password"));
 		}
+		// Connections are shared between instances of the ext source with the same url and credentials
+		env.put("com.sun.jndi.ldap.connect.pool", String.valueOf(!"false".equals(getAttributes().get("connectionPool"))));
+		env.put("com.sun.jndi.ldap.connect.timeout", getAttributes().getOrDefault("connectTimeout", DEFAULT_CONNECT_TIMEOUT));
 
 		if (getAttributes().containsKey("filteredQuery")) {
 			filteredQuery = getAttributes().get("filteredQuery");
@@ -213,8 +335,9 @@ public class ExtSourceLdap extends ExtSource implements ExtSourceApi {
 				String[] values = entry.trim().split("=", 2);
 				mapping.put(values[0].trim(), values[1].trim());
 			}
+			mappedLdapAttributes = null;
 
-			this.dirContext = new InitialDirContext(env);
+			this.dirContext = new InitialLdapContext(env, null);
 		} catch (NamingException e) {
 			log.error("LDAP exception during creating the context.");
 			throw new InternalErrorException(e);
@@ -342,60 +465,168 @@ public class ExtSourceLdap extends ExtSource implements ExtSourceApi {
 	 * @throws InternalErrorException
 	 */
 	protected List<Map<String,String>> querySource(String query, String base, int maxResults) {
+		try {
+			List<Map<String, String>> subjects = executeWithReconnect(() -> querySourceOnce(query, base, maxResults));
+			log.trace("Returning [{}] subjects", subjects.size());
+			return subjects;
+		} catch (NamingException e) {
+			log.error("LDAP exception during running query '{}'", query);
+			throw new InternalErrorException("LDAP exception during running query: "+query+".", e);
+		}
+	}
 
-		NamingEnumeration<SearchResult> results = null;
+	private List<Map<String,String>> querySourceOnce(String query, String base, int maxResults) throws NamingException {
 		List<Map<String, String>> subjects = new ArrayList<>();
 
-		try {
-			// If query is null, then we are finding object by the base
-			if (query == null) {
-				log.trace("search base [{}]", base);
-				// TODO jmena atributu spise prijimiat pres vstupni parametr metody
-				Attributes ldapAttributes = getContext().getAttributes(base);
-				if (ldapAttributes.size() > 0) {
-					Map<String, String> attributes = this.getSubjectAttributes(ldapAttributes);
-					if (!attributes.isEmpty()) {
-						subjects.add(attributes);
-					}
+		// If query is null, then we are finding object by the base
+		if (query == null) {
+			log.trace("search base [{}]", base);
+			Attributes ldapAttributes = getContext().getAttributes(base, getMappedLdapAttributes());
+			if (ldapAttributes.size() > 0) {
+				Map<String, String> attributes = this.getSubjectAttributes(ldapAttributes);
+				if (!attributes.isEmpty()) {
+					subjects.add(attributes);
 				}
-			} else {
-				log.trace("search string [{}]", query);
-
-				SearchControls controls = new SearchControls();
-				controls.setSearchScope(SearchControls.SUBTREE_SCOPE);
-				// Set timeout to 5s
-				controls.setTimeLimit(5000);
-				if (maxResults > 0) {
-					controls.setCountLimit(maxResults);
+			}
+		} else {
+			log.trace("search string [{}]", query);
+
+			SearchControls controls = new SearchControls();
+			controls.setSearchScope(SearchControls.SUBTREE_SCOPE);
+			controls.setReturningAttributes(getMappedLdapAttributes());
+			// Set timeout to 5s
+			controls.setTimeLimit(5000);
+			if (maxResults > 0) {
+				controls.setCountLimit(maxResults);
+			}
+
+			searchPaged(base == null ? "" : base, query, controls, maxResults, searchResult -> {
+				Map<String,String> subjectAttributes = this.getSubjectAttributes(searchResult.getAttributes());
+				if (!subjectAttributes.isEmpty()) {
+					subjects.add(subjectAttributes);
 				}
+			});
+		}
 
-				if (base == null) base = "";
+		return subjects;
+	}
 
-				results = getContext().search(base, query, controls);
-				while (results.hasMore()) {
-					SearchResult searchResult = results.next();
-					Attributes attributes = searchResult.getAttributes();
-					Map<String,String> subjectAttributes = this.getSubjectAttributes(attributes);
-					if (!subjectAttributes.isEmpty()) {
-						subjects.add(subjectAttributes);
-					}
-				}
-			}
+	/**
+	 * Search LDAP and pass every result to the handler. If the context supports controls, results are read
+	 * in pages of "pageSize" entries, so the search is not limited by the size limit of the server
+	 * and the server doesn't have to send all results in one response.
+	 *
+	 * @param base base of the search
+	 * @param query search filter
+	 * @param controls search controls
+	 * @param maxResults maximum number of results or 0 for unlimited, paging is not used if it fits into one page
+	 * @param handler called for every search result
+	 * @throws NamingException
+	 */
+	protected void searchPaged(String base, String query, SearchControls controls, int maxResults, SearchResultHandler handler) throws NamingException {
+		DirContext context = getContext();
+		int pageSize = getPageSize();
+		if (!(context instanceof LdapContext) || pageSize <= 0 || (maxResults > 0 && maxResults <= pageSize)) {
+			handleSearchResults(context.search(base, query, controls), handler);
+			return;
+		}
 
-			log.trace("Returning [{}] subjects", subjects.size());
-			return subjects;
+		LdapContext ldapContext = (LdapContext) context;
+		byte[] cookie = null;
+		int pages = 0;
+		try {
+			do {
+				ldapContext.setRequestControls(new Control[] { new PagedResultsControl(pageSize, cookie, Control.NONCRITICAL) });
+				handleSearchResults(ldapContext.search(base, query, controls), handler);
+				cookie = getPagedResultsCookie(ldapContext.getResponseControls());
+				pages++;
+			} while (cookie != null && cookie.length > 0);
+			log.trace("LDAP External Source: query [{}] was read in {} pages.", query, pages);
+		} catch (IOException e) {
+			throw new InternalErrorException("Unable to create paged results control for query: " + query + ".", e);
+		} finally {
+			ldapContext.setRequestControls(null);
+		}
+	}
 
-		} catch (NamingException e) {
-			log.error("LDAP exception during running query '{}'", query);
-			throw new InternalErrorException("LDAP exception during running query: "+query+".", e);
+	private void handleSearchResults(NamingEnumeration<SearchResult> results, SearchResultHandler handler) throws NamingException {
+		try {
+			while (results.hasMore()) {
+				handler.handle(results.next());
+			}
 		} finally {
-			try {
-				if (results != null) { results.close(); }
-			} catch (Exception e) {
-				log.error("LDAP exception during closing result, while running query '{}'", query);
-				throw new InternalErrorException(e);
+			results.close();
+		}
+	}
+
+	private byte[] getPagedResultsCookie(Control[] responseControls) {
+		if (responseControls == null) return null;
+		for (Control control : responseControls) {
+			if (control instanceof PagedResultsResponseControl) {
+				return ((PagedResultsResponseControl) control).getCookie();
 			}
 		}
+		return null;
+	}
+
+	private int getPageSize() {
+		String pageSize = getAttributes().get("pageSize");
+		if (pageSize == null || pageSize.isEmpty()) return DEFAULT_PAGE_SIZE;
+		try {
+			return Integer.parseInt(pageSize);
+		} catch (NumberFormatException e) {
+			throw new InternalErrorException("pageSize attribute must be a number, but it is: " + pageSize, e);
+		}
+	}
+
+	/**
+	 * Get names of LDAP attributes used in the ldapMapping, so only them are requested from LDAP.
+	 *
+	 * @return names of mapped LDAP attributes
+	 */
+	protected String[] getMappedLdapAttributes() {
+		if (mappedLdapAttributes == null) {
+			// mapping is loaded together with the context
+			if (mapping == null) getContext();
+			Set<String> ldapAttributes = new HashSet<>();
+			for (String value : mapping.values()) {
+				Matcher matcher = MAPPING_ATTRIBUTE_PATTERN.matcher(value);
+				while (matcher.find()) {
+					// strip optional rule (name|rule) and value index (name[0])
+					String ldapAttributeName = matcher.group(1).split("\\|", 2)[0].replaceAll("\\[[0-9]+]$", "");
+					ldapAttributes.add(ldapAttributeName.trim());
+				}
+			}
+			mappedLdapAttributes = ldapAttributes.toArray(new String[0]);
+		}
+		return mappedLdapAttributes;
+	}
+
+	/**
+	 * Execute the operation on LDAP. If the connection is broken, it is closed (so it is evicted from the pool)
+	 * and the operation is executed once more on a new connection.
+	 *
+	 * @param operation to be executed
+	 * @return result of the operation
+	 * @throws NamingException if the operation fails
+	 */
+	protected <T> T executeWithReconnect(LdapOperation<T> operation) throws NamingException {
+		try {
+			return operation.execute();
+		} catch (CommunicationException | ServiceUnavailableException e) {
+			log.warn("LDAP External Source {}: connection failed, reconnecting.", getName(), e);
+			closeQuietly();
+			return operation.execute();
+		}
+	}
+
+	private void closeQuietly() {
+		try {
+			close();
+		} catch (InternalErrorException e) {
+			log.debug("LDAP External Source {}: unable to close broken connection.", getName(), e);
+			this.dirContext = null;
+		}
 	}
 
 	@Override
@@ -410,6 +641,22 @@ public class ExtSourceLdap extends ExtSource implements ExtSourceApi {
 		}
 	}
 
+	/**
+	 * Operation on LDAP, which can be repeated on a new connection.
+	 */
+	@FunctionalInterface
+	protected interface LdapOperation<T> {
+		T execute() throws NamingException;
+	}
+
+	/**
+	 * Handler of a single LDAP search result.
+	 */
+	@FunctionalInterface
+	protected interface SearchResultHandler {
+		void handle(SearchResult searchResult) throws NamingException;
+	}
+
 	@Override
 	public List<Map<String, String>> getSubjectGroups(Map<String, String> attributes) throws ExtSourceUnsupportedOperationException {
 		throw new ExtSourceUnsupportedOperationException();
@@ -20,6 +20,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Stream;
 
 /**
  * ExtSource class for REMS, filters subjects that does not have a corresponding user in Perun
@@ -78,6 +79,17 @@ public class ExtSourceREMS extends ExtSourceSqlComplex implements ExtSourceApi {
 		return filterNonExistingUsers(subjects);
 	}
 
+	@Override
+	public Stream<Map<String, String>> getGroupSubjectsStream(Map<String, String> attributes) {
+		return super.getGroupSubjectsStream(attributes).filter(this::isExistingUser);
+	}
+
+	@Override
+	public List<Map<String, String>> getGroupSubjectsChangedSince(Map<String, String> attributes, String watermark) throws ExtSourceUnsupportedOperationException {
+		List<Map<String, String>> subjects = super.getGroupSubjectsChangedSince(attributes, watermark);
+		return filterNonExistingUsers(subjects);
+	}
+
 	@Override
 	public List<Map<String, String>> getSubjectGroups(Map<String, String> attributes) throws ExtSourceUnsupportedOperationException {
 		throw new ExtSourceUnsupportedOperationException();
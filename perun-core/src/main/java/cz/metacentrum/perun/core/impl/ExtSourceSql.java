@@ -7,7 +7,8 @@ import cz.metacentrum.perun.core.api.exceptions.ExtSourceUnsupportedOperationExc
 import cz.metacentrum.perun.core.api.exceptions.InternalErrorException;
 import cz.metacentrum.perun.core.api.exceptions.SubjectNotExistsException;
 import cz.metacentrum.perun.core.blImpl.PerunBlImpl;
-import cz.metacentrum.perun.core.implApi.ExtSourceSimpleApi;
+import cz.metacentrum.perun.core.implApi.ExtSourceIncrementalApi;
+import cz.metacentrum.perun.core.implApi.ExtSourceStreamingApi;
 import org.apache.commons.codec.binary.Base64;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -21,12 +22,19 @@ import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Properties;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static cz.metacentrum.perun.core.blImpl.GroupsManagerBlImpl.GROUP_SYNC_DEFAULT_DATA;
 import static java.util.stream.Collectors.toMap;
@@ -34,10 +42,13 @@ import static java.util.stream.Collectors.toMap;
 /**
  * @author Michal Prochazka michalp@ics.muni.cz
  */
-public class ExtSourceSql extends ExtSource implements ExtSourceSimpleApi {
+public class ExtSourceSql extends ExtSource implements ExtSourceIncrementalApi, ExtSourceStreamingApi {
 
 	private final static Logger log = LoggerFactory.getLogger(ExtSourceSql.class);
 	private static final Map<String, String> attributeNameMapping = new HashMap<>();
+	private static final String UPDATED_SINCE_COLUMN = "updatedSinceColumn";
+	// number of rows fetched from the database at once when the subjects are streamed
+	private static final int DEFAULT_FETCH_SIZE = 1000;
 	private Connection con;
 	private boolean isOracle = false;
 	private boolean isSQLite = false;
@@ -105,10 +116,156 @@ public class ExtSourceSql extends ExtSource implements ExtSourceSimpleApi {
 
 	@Override
 	public List<Map<String, String>> getGroupSubjects(Map<String, String> attributes) {
-		// Get the sql query for the group subjects
-		String sqlQueryForGroup = attributes.get(GroupsManager.GROUPMEMBERSQUERY_ATTRNAME);
+		return this.querySource(getGroupSubjectsQuery(attributes), null, 0);
+	}
+
+	/**
+	 * Subjects are read by database cursor, which fetches rows by extSource attribute fetchSize (default 1000).
+	 * Connection is switched out of auto-commit mode while the stream is open, because some drivers (e.g. PostgreSQL)
+	 * use cursors only inside of transaction.
+	 */
+	@Override
+	public Stream<Map<String, String>> getGroupSubjectsStream(Map<String, String> attributes) {
+		String query = getGroupSubjectsQuery(attributes);
+		log.debug("Streaming group subjects from external source 'url:{}'", getAttributes().get("url"));
+
+		this.checkAndSetPrerequisites();
+
+		int fetchSize = DEFAULT_FETCH_SIZE;
+		if (getAttributes().get("fetchSize") != null) {
+			fetchSize = Integer.parseInt(getAttributes().get("fetchSize"));
+		}
+
+		PreparedStatement st = null;
+		ResultSet rs = null;
+		boolean autoCommit = true;
+		try {
+			autoCommit = this.con.getAutoCommit();
+			if (autoCommit) this.con.setAutoCommit(false);
+			st = getPreparedStatement(query, null, 0);
+			st.setFetchSize(fetchSize);
+			rs = st.executeQuery();
+		} catch (SQLException e) {
+			log.error("SQL exception during streaming of subjects '{}'", query);
+			closeStreamResources(rs, st, autoCommit);
+			throw new InternalErrorException(e);
+		}
+
+		PreparedStatement statement = st;
+		ResultSet resultSet = rs;
+		boolean restoreAutoCommit = autoCommit;
+		Iterator<Map<String, String>> subjects = new Iterator<Map<String, String>>() {
+			private Boolean hasNext = null;
+
+			@Override
+			public boolean hasNext() {
+				if (hasNext == null) {
+					try {
+						hasNext = resultSet.next();
+					} catch (SQLException e) {
+						log.error("SQL exception during streaming of subjects '{}'", query);
+						throw new InternalErrorException(e);
+					}
+				}
+				return hasNext;
+			}
+
+			@Override
+			public Map<String, String> next() {
+				if (!hasNext()) throw new NoSuchElementException();
+				hasNext = null;
+				try {
+					return readSubject(resultSet);
+				} catch (SQLException e) {
+					log.error("SQL exception during streaming of subjects '{}'", query);
+					throw new InternalErrorException(e);
+				}
+			}
+		};
+
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(subjects, Spliterator.ORDERED | Spliterator.NONNULL), false)
+				.onClose(() -> closeStreamResources(resultSet, statement, restoreAutoCommit));
+	}
+
+	/**
+	 * Close result set and statement used for streaming of subjects and return connection to auto-commit mode.
+	 *
+	 * @param rs result set or null
+	 * @param st statement or null
+	 * @param restoreAutoCommit true if connection was in auto-commit mode before streaming
+	 */
+	private void closeStreamResources(ResultSet rs, PreparedStatement st, boolean restoreAutoCommit) {
+		try {
+			if (rs != null) rs.close();
+			if (st != null) st.close();
+			if (restoreAutoCommit && this.con != null) {
+				this.con.commit();
+				this.con.setAutoCommit(true);
+			}
+		} catch (SQLException e) {
+			log.error("SQL exception during closing of subjects stream from external source {}", this);
+			throw new InternalErrorException(e);
+		}
+	}
+
+	/**
+	 * Get the sql query for the group subjects.
+	 *
+	 * @param attributes map of group attributes
+	 * @return sql query selecting subjects of the group
+	 */
+	protected String getGroupSubjectsQuery(Map<String, String> attributes) {
+		return attributes.get(GroupsManager.GROUPMEMBERSQUERY_ATTRNAME);
+	}
+
+	/**
+	 * Watermark is the current timestamp of the source database. Query returning it can be changed
+	 * by extSource attribute currentTimestampQuery. Incremental synchronization is supported only when
+	 * extSource attribute updatedSinceColumn with name of column with time of the last change of the subject is set.
+	 */
+	@Override
+	public String getGroupSubjectsWatermark(Map<String, String> attributes) throws ExtSourceUnsupportedOperationException {
+		if (getAttributes().get(UPDATED_SINCE_COLUMN) == null) {
+			throw new ExtSourceUnsupportedOperationException(UPDATED_SINCE_COLUMN + " attribute is required for incremental synchronization");
+		}
+		this.checkAndSetPrerequisites();
+
+		String query = getAttributes().get("currentTimestampQuery");
+		if (query == null) {
+			query = isOracle ? "select systimestamp from dual" : "select current_timestamp";
+		}
+		try (PreparedStatement st = this.con.prepareStatement(query); ResultSet rs = st.executeQuery()) {
+			if (!rs.next() || rs.getTimestamp(1) == null) {
+				throw new InternalErrorException("Query for current timestamp returned no result: " + query);
+			}
+			return rs.getTimestamp(1).toString();
+		} catch (SQLException e) {
+			log.error("SQL exception during getting current timestamp '{}'", query);
+			throw new InternalErrorException(e);
+		}
+	}
+
+	/**
+	 * Subjects returned by group members query are filtered by the column set in extSource attribute updatedSinceColumn.
+	 */
+	@Override
+	public List<Map<String, String>> getGroupSubjectsChangedSince(Map<String, String> attributes, String watermark) throws ExtSourceUnsupportedOperationException {
+		String column = getAttributes().get(UPDATED_SINCE_COLUMN);
+		if (column == null || watermark == null) {
+			throw new ExtSourceUnsupportedOperationException(UPDATED_SINCE_COLUMN + " attribute and watermark are required for incremental synchronization");
+		}
+		String query = "select * from (" + getGroupSubjectsQuery(attributes) + ") group_members where group_members." + column + " >= ?";
 
-		return this.querySource(sqlQueryForGroup, null, 0);
+		this.checkAndSetPrerequisites();
+		try (PreparedStatement st = this.con.prepareStatement(query)) {
+			st.setTimestamp(st.getParameterMetaData().getParameterCount(), Timestamp.valueOf(watermark));
+			return this.querySource(st, query, watermark);
+		} catch (IllegalArgumentException e) {
+			throw new InternalErrorException("Invalid watermark " + watermark, e);
+		} catch (SQLException e) {
+			log.error("SQL exception during searching for changed subjects '{}'", query);
+			throw new InternalErrorException(e);
+		}
 	}
 
 	@Override
@@ -128,104 +285,128 @@ public class ExtSourceSql extends ExtSource implements ExtSourceSimpleApi {
 		this.checkAndSetPrerequisites();
 
 		try (PreparedStatement st = getPreparedStatement(query, searchString, maxResults)) {
-			try (ResultSet rs = st.executeQuery()) {
-				List<Map<String, String>> subjects = new ArrayList<>();
+			return querySource(st, query, searchString);
+		} catch (SQLException e) {
+			log.error("SQL exception during searching for subject '{}'", query);
+			throw new InternalErrorException(e);
+		}
+	}
 
-				log.trace("Query {}", query);
+	/**
+	 * Execute prepared statement and convert its result to the list of subjects.
+	 *
+	 * @param st prepared statement with all parameters set
+	 * @param query query of the statement (for logging)
+	 * @param searchString search string (for logging)
+	 * @return list of subjects
+	 * @throws SQLException
+	 */
+	private List<Map<String,String>> querySource(PreparedStatement st, String query, String searchString) throws SQLException {
+		try (ResultSet rs = st.executeQuery()) {
+			List<Map<String, String>> subjects = new ArrayList<>();
 
-				while (rs.next()) {
-					Map<String, String> map = new HashMap<>();
+			log.trace("Query {}", query);
 
-					try {
-						map.put("firstName", rs.getString("firstName"));
-					} catch (SQLException e) {
-						// If the column doesn't exists, ignore it
-						map.put("firstName", null);
-					}
-					try {
-						map.put("lastName", rs.getString("lastName"));
-					} catch (SQLException e) {
-						// If the column doesn't exists, ignore it
-						map.put("lastName", null);
-					}
-					try {
-						map.put("middleName", rs.getString("middleName"));
-					} catch (SQLException e) {
-						// If the column doesn't exists, ignore it
-						map.put("middleName", null);
-					}
-					try {
-						map.put("titleBefore", rs.getString("titleBefore"));
-					} catch (SQLException e) {
-						// If the column doesn't exists, ignore it
-						map.put("titleBefore", null);
-					}
-					try {
-						map.put("titleAfter", rs.getString("titleAfter"));
-					} catch (SQLException e) {
-						// If the column doesn't exists, ignore it
-						map.put("titleAfter", null);
-					}
-					try {
-						map.put("login", rs.getString("login"));
-					} catch (SQLException e) {
-						// If the column doesn't exists, ignore it
-						map.put("login", null);
-					}
+			while (rs.next()) {
+				subjects.add(readSubject(rs));
+			}
+
+			log.debug("Returning {} subjects from external source {} for searchString {}", subjects.size(), this, searchString);
+			return subjects;
+		}
+	}
 
-					for (int i = 1; i <= rs.getMetaData().getColumnCount(); i++) {
-						String columnName = rs.getMetaData().getColumnLabel(i);
-						log.trace("Iterating through attribute {}", columnName);
-						// Now go through all other attributes. If the column name(=attribute name) contains ":", then it represents an attribute
-						if (columnName.contains(":")) {
-							// Decode the attribute name (column name has limited size, so we need to code the attribute names)
-							// Coded attribute name: x:y:z
-							// x - m: member, u: user, f: facility, r: resource, mr: member-resource, uf: user-facility, h: host, v: vo, g: group, gr: group-resource
-							// y - d: def, o: opt
-							String[] attributeRaw = columnName.split(":", 3);
-							String attributeName = null;
-							if (!attributeNameMapping.containsKey(attributeRaw[0])) {
-								log.warn("Unknown attribute type '{}' for user {} {}, attributeRaw {}", attributeRaw[0], map.get("firstName"), map.get("lastName"), attributeRaw);
-							} else if (!attributeNameMapping.containsKey(attributeRaw[1])) {
-								log.warn("Unknown attribute type '{}' for user {} {}, attributeRaw {}", attributeRaw[1], map.get("firstName"), map.get("lastName"), attributeRaw);
-							} else {
-								attributeName = attributeNameMapping.get(attributeRaw[0]) + attributeNameMapping.get(attributeRaw[1]) + attributeRaw[2];
-								if (!Objects.equals(rs.getMetaData().getColumnTypeName(i), "BLOB")) {
-									// trace only string data
-									log.trace("Adding attribute {} with value {}", attributeName, rs.getString(i));
-								} else {
-									log.trace("Adding attribute {} with BLOB value", attributeName);
-								}
-							}
-							String attributeValue = null;
-							if (Objects.equals(rs.getMetaData().getColumnTypeName(i), "BLOB")) {
-								// source column is binary
-								attributeValue = parseBlobValue(rs.getBinaryStream(i), columnName);
-							} else {
-								// let driver to convert type to string
-								attributeValue = rs.getString(i);
-							}
-							if (rs.wasNull()) {
-								map.put(attributeName, null);
-							} else {
-								map.put(attributeName, attributeValue);
-							}
-						} else if (columnName.toLowerCase().startsWith(ExtSourcesManagerImpl.USEREXTSOURCEMAPPING)) {
-							// additionalUserExtSources, we must do lower case because some DBs changes lower to upper
-							map.put(columnName.toLowerCase(), rs.getString(i));
-							log.trace("Adding attribute {} with value {}", columnName, rs.getString(i));
-						}
+	/**
+	 * Convert current row of the result set to the subject.
+	 *
+	 * @param rs result set positioned on the row with subject
+	 * @return subject as map of attribute names and values
+	 * @throws SQLException
+	 */
+	private Map<String, String> readSubject(ResultSet rs) throws SQLException {
+		Map<String, String> map = new HashMap<>();
+
+		try {
+			map.put("firstName", rs.getString("firstName"));
+		} catch (SQLException e) {
+			// If the column doesn't exists, ignore it
+			map.put("firstName", null);
+		}
+		try {
+			map.put("lastName", rs.getString("lastName"));
+		} catch (SQLException e) {
+			// If the column doesn't exists, ignore it
+			map.put("lastName", null);
+		}
+		try {
+			map.put("middleName", rs.getString("middleName"));
+		} catch (SQLException e) {
+			// If the column doesn't exists, ignore it
+			map.put("middleName", null);
+		}
+		try {
+			map.put("titleBefore", rs.getString("titleBefore"));
+		} catch (SQLException e) {
+			// If the column doesn't exists, ignore it
+			map.put("titleBefore", null);
+		}
+		try {
+			map.put("titleAfter", rs.getString("titleAfter"));
+		} catch (SQLException e) {
+			// If the column doesn't exists, ignore it
+			map.put("titleAfter", null);
+		}
+		try {
+			map.put("login", rs.getString("login"));
+		} catch (SQLException e) {
+			// If the column doesn't exists, ignore it
+			map.put("login", null);
+		}
+
+		for (int i = 1; i <= rs.getMetaData().getColumnCount(); i++) {
+			String columnName = rs.getMetaData().getColumnLabel(i);
+			log.trace("Iterating through attribute {}", columnName);
+			// Now go through all other attributes. If the column name(=attribute name) contains ":", then it represents an attribute
+			if (columnName.contains(":")) {
+				// Decode the attribute name (column name has limited size, so we need to code the attribute names)
+				// Coded attribute name: x:y:z
+				// x - m: member, u: user, f: facility, r: resource, mr: member-resource, uf: user-facility, h: host, v: vo, g: group, gr: group-resource
+				// y - d: def, o: opt
+				String[] attributeRaw = columnName.split(":", 3);
+				String attributeName = null;
+				if (!attributeNameMapping.containsKey(attributeRaw[0])) {
+					log.warn("Unknown attribute type '{}' for user {} {}, attributeRaw {}", attributeRaw[0], map.get("firstName"), map.get("lastName"), attributeRaw);
+				} else if (!attributeNameMapping.containsKey(attributeRaw[1])) {
+					log.warn("Unknown attribute type '{}' for user {} {}, attributeRaw {}", attributeRaw[1], map.get("firstName"), map.get("lastName"), attributeRaw);
+				} else {
+					attributeName = attributeNameMapping.get(attributeRaw[0]) + attributeNameMapping.get(attributeRaw[1]) + attributeRaw[2];
+					if (!Objects.equals(rs.getMetaData().getColumnTypeName(i), "BLOB")) {
+						// trace only string data
+						log.trace("Adding attribute {} with value {}", attributeName, rs.getString(i));
+					} else {
+						log.trace("Adding attribute {} with BLOB value", attributeName);
 					}
-					subjects.add(map);
 				}
-
-				log.debug("Returning {} subjects from external source {} for searchString {}", subjects.size(), this, searchString);
-				return subjects;
+				String attributeValue = null;
+				if (Objects.equals(rs.getMetaData().getColumnTypeName(i), "BLOB")) {
+					// source column is binary
+					attributeValue = parseBlobValue(rs.getBinaryStream(i), columnName);
+				} else {
+					// let driver to convert type to string
+					attributeValue = rs.getString(i);
+				}
+				if (rs.wasNull()) {
+					map.put(attributeName, null);
+				} else {
+					map.put(attributeName, attributeValue);
+				}
+			} else if (columnName.toLowerCase().startsWith(ExtSourcesManagerImpl.USEREXTSOURCEMAPPING)) {
+				// additionalUserExtSources, we must do lower case because some DBs changes lower to upper
+				map.put(columnName.toLowerCase(), rs.getString(i));
+				log.trace("Adding attribute {} with value {}", columnName, rs.getString(i));
 			}
-		} catch (SQLException e) {
-			log.error("SQL exception during searching for subject '{}'", query);
-			throw new InternalErrorException(e);
 		}
+		return map;
 	}
 
 	protected void createConnection() {
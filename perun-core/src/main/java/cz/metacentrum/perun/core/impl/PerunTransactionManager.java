@@ -29,7 +29,7 @@ public class PerunTransactionManager extends DataSourceTransactionManager implem
 	@Override
 	protected void doCommit(DefaultTransactionStatus status) {
 		super.doCommit(status);
-		this.getAuditer().flush();
+		this.getAuditer().flushAfterCommit();
 	}
 
 	@Override
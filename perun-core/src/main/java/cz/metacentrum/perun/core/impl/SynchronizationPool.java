@@ -6,17 +6,35 @@ import cz.metacentrum.perun.core.api.exceptions.GroupNotExistsException;
 import cz.metacentrum.perun.core.api.exceptions.InternalErrorException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Random;
-import java.util.concurrent.Semaphore;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
 
 /**
  * Class used for scheduling group and group structure synchronizations.
  * It does not run any scheduler, it just provides the functionality for the scheduling of synchronizations.
  *
+ * Group can't be synchronized while a structure of any of its parent groups is waiting or running.
+ * Group structure can't be synchronized while any group from its subtree is running.
+ * These conflicts are tracked explicitly: subgroups of a group structure are loaded when it enters the pool and every
+ * group knows the number of structures blocking it. Subgroups are loaded again only for structures touched by a change
+ * of the group tree (see {@link #groupsTreeChanged(Group...)}) and, as changes can be made by other Perun instances,
+ * for all structures at least once per MAX_WAIT_TIME. Loading is done outside the pool lock.
+ * Threads waiting for a job are woken up as soon as a new job is added, a conflicting synchronization finishes
+ * or the group tree is changed.
+ *
  * Methods in this class are thread safe
  *
  * @author Peter Balčirák peter.balcirak@gmail.com
@@ -25,14 +43,22 @@ public class SynchronizationPool {
 	private final PerunBeanProcessingPool<Group> poolOfGroupsToBeSynchronized = new PerunBeanProcessingPool<>();
 	private final PerunBeanProcessingPool<Group> poolOfGroupsStructuresToBeSynchronized = new PerunBeanProcessingPool<>();
 	//Access lock to create concurrent access by any operation to any pool of this class.
-	private final Lock poolAccessLock = new ReentrantLock(true);
-	//Semaphore which takes care about emptiness of list of waiting groups (threads will wait for another group)
-	//Counter in this semaphore counts number of waiting groups in the pool (0 means no groups are waiting to be processed)
-	private final Semaphore notEmptyGroupsPoolSemaphore = new Semaphore(0, true);
-	//Semaphore which takes care about emptiness of list of waiting groups structures (threads will wait for another group structure)
-	//Counter in this semaphore counts number of waiting groups structures in the pool (0 means no groups structures are waiting to be processed)
-	private final Semaphore notEmptyGroupsStructuresPoolSemaphore = new Semaphore(0, true);
-	private final static Random random = new Random();
+	private final Lock poolAccessLock = new ReentrantLock();
+	//Signalled when a group might have become ready for synchronization (new group or finished group structure)
+	private final Condition groupsChanged = poolAccessLock.newCondition();
+	//Signalled when a group structure might have become ready for synchronization (new group structure or finished group)
+	private final Condition groupsStructuresChanged = poolAccessLock.newCondition();
+	//Ids of all subgroups of waiting and running group structures
+	private final Map<Group, Set<Integer>> subGroupsOfGroupsStructures = new HashMap<>();
+	//Number of waiting and running group structures which contain the group (by id) in their subtree
+	private final Map<Integer, Integer> blockingGroupsStructuresCount = new HashMap<>();
+	//Ids of groups whose position in the group tree changed since subgroups were loaded
+	private final Set<Integer> changedGroups = new HashSet<>();
+	//Time of the last reload of subgroups of all group structures
+	private long lastFullRefresh = System.nanoTime();
+
+	//Group tree can be changed by other Perun instances, so subgroups of all structures are reloaded at least this often
+	private final static long MAX_WAIT_TIME = TimeUnit.SECONDS.toNanos(30);
 
 	private final static Logger log = LoggerFactory.getLogger(SynchronizationPool.class);
 
@@ -40,15 +66,15 @@ public class SynchronizationPool {
 	 * Put group to the pool of waiting groups structures.
 	 *
 	 * @param group which will be added to the pool of waiting group structures
-	 * @param asFirst true if group will skip order and will be placed to the list as first (LIFO)
+	 * @param forced true if group will skip all scheduled groups, forced groups are taken in order they were forced (FIFO)
 	 * @return
 	 * @throws InternalErrorException
 	 */
-	public boolean putGroupStructureToPoolOfWaitingGroupsStructures(Group group, boolean asFirst) {
+	public boolean putGroupStructureToPoolOfWaitingGroupsStructures(Group group, boolean forced) {
 		try {
 			poolAccessLock.lock();
-			if (poolOfGroupsStructuresToBeSynchronized.putJobIfAbsent(group, asFirst)) {
-				notEmptyGroupsStructuresPoolSemaphore.release();
+			if (poolOfGroupsStructuresToBeSynchronized.putJobIfAbsent(group, false, forced)) {
+				groupsStructuresChanged.signal();
 				return true;
 			}
 			return false;
@@ -61,15 +87,15 @@ public class SynchronizationPool {
 	 * Put group to the pool of waiting groups.
 	 *
 	 * @param group which will be added to the pool of waiting groups
-	 * @param asFirst true if group will skip order and will be placed to the list as first (LIFO)
+	 * @param forced true if group will skip all scheduled groups, forced groups are taken in order they were forced (FIFO)
 	 * @return
 	 * @throws InternalErrorException
 	 */
-	public boolean putGroupToPoolOfWaitingGroups(Group group, boolean asFirst) {
+	public boolean putGroupToPoolOfWaitingGroups(Group group, boolean forced) {
 		try {
 			poolAccessLock.lock();
-			if (poolOfGroupsToBeSynchronized.putJobIfAbsent(group, asFirst)) {
-				notEmptyGroupsPoolSemaphore.release();
+			if (poolOfGroupsToBeSynchronized.putJobIfAbsent(group, false, forced)) {
+				groupsChanged.signal();
 				return true;
 			}
 			return false;
@@ -90,14 +116,14 @@ public class SynchronizationPool {
 		try {
 			poolAccessLock.lock();
 			for (Group group: groups){
-				if (poolOfGroupsToBeSynchronized.putJobIfAbsent(group, false)) {
-					notEmptyGroupsPoolSemaphore.release();
+				if (poolOfGroupsToBeSynchronized.putJobIfAbsent(group, false, false)) {
 					log.debug("Group {} was added to the pool of groups waiting for synchronization.", group);
 					numberOfAddedGroups++;
 				} else {
 					log.debug("Group {} synchronization is already running.", group);
 				}
 			}
+			if (numberOfAddedGroups > 0) groupsChanged.signalAll();
 		} finally {
 			poolAccessLock.unlock();
 		}
@@ -116,14 +142,14 @@ public class SynchronizationPool {
 		try {
 			poolAccessLock.lock();
 			for (Group group: groups){
-				if (poolOfGroupsStructuresToBeSynchronized.putJobIfAbsent(group, false)) {
-					notEmptyGroupsStructuresPoolSemaphore.release();
+				if (poolOfGroupsStructuresToBeSynchronized.putJobIfAbsent(group, false, false)) {
 					log.debug("Group structure {} was added to the pool of groups structures waiting for synchronization.", group);
 					numberOfAddedGroups++;
 				} else {
 					log.debug("Group structure {} synchronization is already running.", group);
 				}
 			}
+			if (numberOfAddedGroups > 0) groupsStructuresChanged.signalAll();
 		} finally {
 			poolAccessLock.unlock();
 		}
@@ -132,9 +158,8 @@ public class SynchronizationPool {
 
 	/**
 	 * Take a first group, which can be safely synchronized, from the pool of waiting groups and add it to the pool of running groups.
-	 * If the group does not exists anymore, remove it from the pool of waiting groups, wait 1-2 seconds and try the whole process again.
-	 * We cannot remove more than one group during the one while loop because of the concurrent use of semaphore.
-	 * If none of the waiting groups can be synchronized, wait 1-2 seconds and try the whole process again.
+	 * If the group does not exists anymore, remove it from the pool of waiting groups and continue with the next one.
+	 * If none of the waiting groups can be synchronized, wait until a group is added or a group structure synchronization finishes.
 	 *
 	 * @param sess
 	 * @return
@@ -142,53 +167,34 @@ public class SynchronizationPool {
 	 * @throws InternalErrorException
 	 */
 	public Group takeGroup(PerunSessionImpl sess) throws InterruptedException {
-		while(true) {
-			//I can take only if there is not empty list of waiting jobs
-			notEmptyGroupsPoolSemaphore.acquire();
-
-			try {
-				poolAccessLock.lock();
-				boolean removedGroup = false;
-				//Take group which is not in all subGroups of group, which is in the pool of waiting or running group structures.
+		poolAccessLock.lockInterruptibly();
+		try {
+			while (true) {
+				refreshGroupsStructures(sess);
+				//Take group which is not in subGroups of any group, which is in the pool of waiting or running group structures.
 				for (Group group : poolOfGroupsToBeSynchronized.getWaitingJobs()) {
-					boolean allowed = true;
-					List<Group> groupStructureJobs = poolOfGroupsStructuresToBeSynchronized.getWaitingJobs();
-					groupStructureJobs.addAll(poolOfGroupsStructuresToBeSynchronized.getRunningJobs());
-					for (Group groupStructure : groupStructureJobs) {
-						List<Group> allSubGroups = sess.getPerunBl().getGroupsManagerBl().getAllSubGroups(sess, groupStructure);
-						if (allSubGroups.contains(group)) {
-							allowed = false;
-							break;
-						}
-					}
-					if (allowed) {
-						//Set the group to the first place in the pool of waiting groups.
-						poolOfGroupsToBeSynchronized.putJobIfAbsent(group, true);
-						try {
-							//Group could be removed during some group structure synchronization, so there is no need to synchronize it anymore.
-							sess.getPerunBl().getGroupsManagerBl().checkGroupExists(sess, group);
-						} catch (GroupNotExistsException e) {
-							log.warn("Group {} was removed from a Vo while it was waiting for a synchronization.", group);
-							poolOfGroupsToBeSynchronized.removeJob(poolOfGroupsToBeSynchronized.takeJob());
-							removedGroup = true;
-							break;
-						}
-						//Put the first group in the pool of waiting groups to the pool of running groups
-						return poolOfGroupsToBeSynchronized.takeJob();
+					if (blockingGroupsStructuresCount.containsKey(group.getId())) continue;
+					try {
+						//Group could be removed during some group structure synchronization, so there is no need to synchronize it anymore.
+						sess.getPerunBl().getGroupsManagerBl().checkGroupExists(sess, group);
+					} catch (GroupNotExistsException e) {
+						log.warn("Group {} was removed from a Vo while it was waiting for a synchronization.", group);
+						poolOfGroupsToBeSynchronized.removeJob(poolOfGroupsToBeSynchronized.takeJob(group));
+						continue;
 					}
+					//Put the group from the pool of waiting groups to the pool of running groups
+					return poolOfGroupsToBeSynchronized.takeJob(group);
 				}
-				//If no group was removed or taken we have to increase the semaphore.
-				if (!removedGroup) notEmptyGroupsPoolSemaphore.release();
-			} finally {
-				poolAccessLock.unlock();
+				groupsChanged.awaitNanos(MAX_WAIT_TIME);
 			}
-			Thread.sleep(1000 + random.nextInt(1001));
+		} finally {
+			poolAccessLock.unlock();
 		}
 	}
 
 	/**
 	 * Take a first group, which can be safely synchronized, from the pool of waiting groups structures and add it to the pool of running groups structures.
-	 * If none of the waiting groups can be taken, wait 1-2 seconds and try again.
+	 * If none of the waiting groups can be taken, wait until a group structure is added or a group synchronization finishes.
 	 *
 	 * @param sess
 	 * @return
@@ -196,62 +202,90 @@ public class SynchronizationPool {
 	 * @throws InternalErrorException
 	 */
 	public Group takeGroupStructure(PerunSessionImpl sess) throws InterruptedException {
-		while(true) {
-			//I can take only if there is not empty list of waiting jobs
-			notEmptyGroupsStructuresPoolSemaphore.acquire();
-
-			try{
-				poolAccessLock.lock();
+		poolAccessLock.lockInterruptibly();
+		try {
+			while (true) {
+				refreshGroupsStructures(sess);
+				Set<Integer> runningGroups = poolOfGroupsToBeSynchronized.getRunningJobs().stream()
+						.map(Group::getId)
+						.collect(Collectors.toSet());
 				//Take the group which does not have any subGroup in the pool of running groups.
 				for (Group groupStructure : poolOfGroupsStructuresToBeSynchronized.getWaitingJobs()) {
-					boolean allowed = true;
-					List<Group> allSubGroups = sess.getPerunBl().getGroupsManagerBl().getAllSubGroups(sess, groupStructure);
-					for (Group runningGroup : poolOfGroupsToBeSynchronized.getRunningJobs()) {
-						if (allSubGroups.contains(runningGroup)) {
-							allowed = false;
-							break;
-						}
-					}
-					if (allowed) {
-						//Set the group to the first place in the pool of waiting groups structures.
-						poolOfGroupsStructuresToBeSynchronized.putJobIfAbsent(groupStructure, true);
-						//Put the first group in the pool of waiting groups structures to the pool of running groups structures.
-						return poolOfGroupsStructuresToBeSynchronized.takeJob();
+					Set<Integer> subGroups = subGroupsOfGroupsStructures.get(groupStructure);
+					if (subGroups.stream().noneMatch(runningGroups::contains)) {
+						//Put the group from the pool of waiting groups structures to the pool of running groups structures.
+						return poolOfGroupsStructuresToBeSynchronized.takeJob(groupStructure);
 					}
 				}
-				//None of the groups was taken so we have to increase the semaphore.
-				notEmptyGroupsStructuresPoolSemaphore.release();
-			} finally {
-				poolAccessLock.unlock();
+				groupsStructuresChanged.awaitNanos(MAX_WAIT_TIME);
 			}
-			Thread.sleep(1000 + random.nextInt(1001));
+		} finally {
+			poolAccessLock.unlock();
 		}
 	}
 
 	/**
-	 * Remove group from the pool of running groups structures
-	 *
-	 * This method does not use poolAccessLock because of performance improvement.
-	 * Locking is done in PerunBeanProcessingPool.
+	 * Remove group from the pool of running groups structures.
+	 * Groups from its subtree are not blocked by it anymore.
 	 *
 	 * @param group which will be removed from the pool of running groups structures
 	 * @return
 	 */
 	public boolean removeGroupStructure(Group group) {
-			return poolOfGroupsStructuresToBeSynchronized.removeJob(group);
+		try {
+			poolAccessLock.lock();
+			boolean removed = poolOfGroupsStructuresToBeSynchronized.removeJob(group);
+			if (removed) {
+				untrackGroupStructure(group);
+				groupsChanged.signalAll();
+			}
+			return removed;
+		} finally {
+			poolAccessLock.unlock();
+		}
 	}
 
 	/**
-	 * Remove group from the pool of running groups
-	 *
-	 * This method does not use poolAccessLock because of performance improvement.
-	 * Locking is done in PerunBeanProcessingPool.
+	 * Remove group from the pool of running groups.
+	 * Group structures containing the group are not blocked by it anymore.
 	 *
 	 * @param group which will be removed from the pool of running groups structures
 	 * @return
 	 */
 	public boolean removeGroup(Group group) {
-			return poolOfGroupsToBeSynchronized.removeJob(group);
+		try {
+			poolAccessLock.lock();
+			boolean removed = poolOfGroupsToBeSynchronized.removeJob(group);
+			if (removed) groupsStructuresChanged.signalAll();
+			return removed;
+		} finally {
+			poolAccessLock.unlock();
+		}
+	}
+
+	/**
+	 * Mark groups whose subtree or position in the group tree was changed (group created under them, group moved
+	 * or deleted), so subgroups of group structures containing them are loaded again before the next pass.
+	 * When called in transaction, groups are marked after the transaction is finished.
+	 *
+	 * @param groups changed groups, null values are ignored
+	 */
+	public void groupsTreeChanged(Group... groups) {
+		Set<Integer> groupIds = Arrays.stream(groups)
+				.filter(Objects::nonNull)
+				.map(Group::getId)
+				.collect(Collectors.toSet());
+		if (groupIds.isEmpty()) return;
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCompletion(int status) {
+					markGroupsChanged(groupIds);
+				}
+			});
+		} else {
+			markGroupsChanged(groupIds);
+		}
 	}
 
 	/**
@@ -281,4 +315,101 @@ public class SynchronizationPool {
 			poolAccessLock.unlock();
 		}
 	}
+
+	/**
+	 * Load subgroups of waiting and running group structures which are not tracked yet or were touched by a change
+	 * of the group tree and mark them as blocked. Subgroups of all structures are loaded once per MAX_WAIT_TIME.
+	 * Subgroups are read from the database with poolAccessLock released, then swapped in. Loading is repeated
+	 * for structures added or touched meanwhile, so every waiting or running structure is tracked when the method returns.
+	 * Must be called with poolAccessLock held.
+	 */
+	private void refreshGroupsStructures(PerunSessionImpl sess) {
+		Set<Group> groupsStructures;
+		if (System.nanoTime() - lastFullRefresh >= MAX_WAIT_TIME) {
+			lastFullRefresh = System.nanoTime();
+			changedGroups.clear();
+			groupsStructures = getGroupsStructures();
+		} else {
+			groupsStructures = getGroupsStructuresToLoad();
+		}
+		while (!groupsStructures.isEmpty()) {
+			Map<Group, Set<Integer>> loadedSubGroups = new HashMap<>();
+			poolAccessLock.unlock();
+			try {
+				for (Group groupStructure : groupsStructures) {
+					loadedSubGroups.put(groupStructure, sess.getPerunBl().getGroupsManagerBl().getAllSubGroups(sess, groupStructure).stream()
+							.map(Group::getId)
+							.collect(Collectors.toSet()));
+				}
+			} finally {
+				poolAccessLock.lock();
+			}
+
+			Set<Group> currentGroupsStructures = getGroupsStructures();
+			for (Map.Entry<Group, Set<Integer>> entry : loadedSubGroups.entrySet()) {
+				//Structure finished while its subgroups were loaded
+				if (!currentGroupsStructures.contains(entry.getKey())) continue;
+				untrackGroupStructure(entry.getKey());
+				subGroupsOfGroupsStructures.put(entry.getKey(), entry.getValue());
+				for (Integer subGroup : entry.getValue()) {
+					blockingGroupsStructuresCount.merge(subGroup, 1, Integer::sum);
+				}
+			}
+			//Structures added or touched while the lock was released
+			groupsStructures = getGroupsStructuresToLoad();
+		}
+	}
+
+	/**
+	 * Return waiting and running group structures which are not tracked yet or contain a changed group,
+	 * changed groups are cleared.
+	 * Must be called with poolAccessLock held.
+	 */
+	private Set<Group> getGroupsStructuresToLoad() {
+		Set<Group> groupsStructures = getGroupsStructures().stream()
+				.filter(groupStructure -> {
+					Set<Integer> subGroups = subGroupsOfGroupsStructures.get(groupStructure);
+					return subGroups == null || changedGroups.contains(groupStructure.getId()) ||
+							subGroups.stream().anyMatch(changedGroups::contains);
+				})
+				.collect(Collectors.toSet());
+		changedGroups.clear();
+		return groupsStructures;
+	}
+
+	/**
+	 * Mark groups as changed and wake up threads waiting for a job.
+	 */
+	private void markGroupsChanged(Set<Integer> groupIds) {
+		try {
+			poolAccessLock.lock();
+			changedGroups.addAll(groupIds);
+			groupsChanged.signalAll();
+			groupsStructuresChanged.signalAll();
+		} finally {
+			poolAccessLock.unlock();
+		}
+	}
+
+	/**
+	 * Return all waiting and running group structures.
+	 * Must be called with poolAccessLock held.
+	 */
+	private Set<Group> getGroupsStructures() {
+		Set<Group> groupsStructures = new HashSet<>(poolOfGroupsStructuresToBeSynchronized.getWaitingJobs());
+		groupsStructures.addAll(poolOfGroupsStructuresToBeSynchronized.getRunningJobs());
+		return groupsStructures;
+	}
+
+	/**
+	 * Release groups blocked by the group structure.
+	 * Must be called with poolAccessLock held.
+	 */
+	private void untrackGroupStructure(Group groupStructure) {
+		Set<Integer> subGroups = subGroupsOfGroupsStructures.remove(groupStructure);
+		if (subGroups == null) return;
+		for (Integer subGroup : subGroups) {
+			blockingGroupsStructuresCount.computeIfPresent(subGroup, (id, count) -> count > 1 ? count - 1 : null);
+		}
+	}
 }
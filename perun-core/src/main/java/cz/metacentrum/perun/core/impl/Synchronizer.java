@@ -101,6 +101,32 @@ public class Synchronizer {
 		}
 	}
 
+	public void maintainAuditerLogPartitions() {
+		if(perunBl.isPerunReadOnly()) {
+			log.warn("This instance is just read only so skip maintenance of auditer_log partitions.");
+			return;
+		}
+
+		try {
+			getPerun().getDatabaseManagerBl().maintainAuditerLogPartitions();
+		} catch (InternalErrorException ex) {
+			log.error("Synchronizer: maintainAuditerLogPartitions, exception {}", ex);
+		}
+	}
+
+	public void convertAttributeValuesToJson() {
+		if(perunBl.isPerunReadOnly()) {
+			log.warn("This instance is just read only so skip conversion of attribute values to JSON.");
+			return;
+		}
+
+		try {
+			getPerun().getAttributesManagerBl().convertAttributeValuesToJson(sess);
+		} catch (InternalErrorException ex) {
+			log.error("Synchronizer: convertAttributeValuesToJson, exception {}", ex);
+		}
+	}
+
 	public void initialize() {
 		String synchronizerPrincipal = "perunSynchronizer";
 		this.sess = perunBl.getPerunSession(
@@ -24,7 +24,12 @@ import java.text.SimpleDateFormat;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.ResolverStyle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * TasksManagerImpl
@@ -34,6 +39,8 @@ public class TasksManagerImpl implements TasksManagerImplApi {
 	private static final Logger log = LoggerFactory.getLogger(TasksManagerImpl.class);
 
 	private static final int MAX_NUMBER_OF_UTF8_BYTES = 4;
+	// number of TaskResults inserted by one multi-row insert
+	private static final int TASK_RESULTS_BATCH_SIZE = 100;
 	private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
 
 	private JdbcPerunTemplate jdbc;
@@ -83,6 +90,8 @@ public class TasksManagerImpl implements TasksManagerImplApi {
 			taskResult.setStatus(TaskResult.TaskResultStatus.DENIED);
 		} else if (resultSet.getString("tasks_results_status").equalsIgnoreCase(TaskResult.TaskResultStatus.WARNING.toString())) {
 			taskResult.setStatus(TaskResult.TaskResultStatus.WARNING);
+		} else if (resultSet.getString("tasks_results_status").equalsIgnoreCase(TaskResult.TaskResultStatus.SKIPPED.toString())) {
+			taskResult.setStatus(TaskResult.TaskResultStatus.SKIPPED);
 		} else {
 			throw new IllegalArgumentException("Unknown TaskResult state.");
 		}
@@ -103,40 +112,90 @@ public class TasksManagerImpl implements TasksManagerImplApi {
 
 	@Override
 	public int insertNewTaskResult(TaskResult taskResult) {
-		int newTaskResultId = Utils.getNewId(jdbc, "tasks_results_id_seq");
+		return insertNewTaskResults(Collections.singletonList(taskResult)).get(0);
+	}
 
-		// There was probably an issue with too long a String for VARCHAR2 datatype http://goo.gl/caVxp.
-		// Solution might be to shorten the message according to VARCHAR2: http://goo.gl/WrlYm
-		byte[] standardMessage = null;
-		byte[] errorMessage = null;
-		if(taskResult.getStandardMessage() != null) standardMessage = taskResult.getStandardMessage().getBytes(StandardCharsets.UTF_8);
-		if(taskResult.getErrorMessage()    != null) errorMessage    = taskResult.getErrorMessage().getBytes(StandardCharsets.UTF_8);
+	@Override
+	public List<Integer> insertNewTaskResults(List<TaskResult> taskResults) {
+		if (taskResults.isEmpty()) return new ArrayList<>();
+		try {
+			List<Integer> ids = jdbc.queryForList("select nextval('tasks_results_id_seq') from generate_series(1, ?)",
+					Integer.class, taskResults.size());
+			for (int i = 0; i < taskResults.size(); i++) {
+				taskResults.get(i).setId(ids.get(i));
+			}
 
-		// CLEAR UTF-8 0x00 bytes, since PostgreSQL can't store them to varchar column (Oracle can).
-		// By java, such byte is displayed as 'empty string' and is not visible in a log.
-		standardMessage = clearZeroBytesFromString(standardMessage, 4000);
-		errorMessage = clearZeroBytesFromString(errorMessage, 4000);
+			for (int from = 0; from < taskResults.size(); from += TASK_RESULTS_BATCH_SIZE) {
+				List<TaskResult> batch = taskResults.subList(from, Math.min(from + TASK_RESULTS_BATCH_SIZE, taskResults.size()));
+				insertTaskResultsRows(batch);
+				updateLatestTaskResults(batch);
+			}
+			return ids;
+		} catch (RuntimeException ex) {
+			throw new InternalErrorException(ex);
+		}
+	}
 
+	/**
+	 * Insert TaskResults with already assigned IDs by one multi-row insert.
+	 *
+	 * @param taskResults TaskResults to insert
+	 */
+	private void insertTaskResultsRows(List<TaskResult> taskResults) {
+		StringBuilder sql = new StringBuilder("insert into tasks_results(id, task_id, destination_id, status, " +
+				"err_message, std_message, return_code, timestamp) values ");
+		List<Object> args = new ArrayList<>(taskResults.size() * 8);
+		for (TaskResult taskResult : taskResults) {
+			if (!args.isEmpty()) sql.append(',');
+			sql.append("(?,?,?,?,?,?,?,").append(Compatibility.toDate("?", "'DD-MM-YYYY HH24:MI:SS'")).append(')');
+
+			// There was probably an issue with too long a String for VARCHAR2 datatype http://goo.gl/caVxp.
+			// Solution might be to shorten the message according to VARCHAR2: http://goo.gl/WrlYm
+			byte[] standardMessage = null;
+			byte[] errorMessage = null;
+			if(taskResult.getStandardMessage() != null) standardMessage = taskResult.getStandardMessage().getBytes(StandardCharsets.UTF_8);
+			if(taskResult.getErrorMessage()    != null) errorMessage    = taskResult.getErrorMessage().getBytes(StandardCharsets.UTF_8);
+
+			// CLEAR UTF-8 0x00 bytes, since PostgreSQL can't store them to varchar column (Oracle can).
+			// By java, such byte is displayed as 'empty string' and is not visible in a log.
+			standardMessage = clearZeroBytesFromString(standardMessage, 4000);
+			errorMessage = clearZeroBytesFromString(errorMessage, 4000);
+
+			args.add(taskResult.getId());
+			args.add(taskResult.getTaskId());
+			args.add(taskResult.getDestinationId());
+			args.add(taskResult.getStatus().toString());
+			args.add(errorMessage == null ? null : new String(errorMessage, StandardCharsets.UTF_8));
+			args.add(standardMessage == null ? null : new String(standardMessage, StandardCharsets.UTF_8));
+			args.add(taskResult.getReturnCode());
+			args.add(getDateFormatter().format(taskResult.getTimestamp()));
+		}
 		// jdbc template cannot be null
-		jdbc.update(
-				"insert into tasks_results(" +
-					"id, " +
-					"task_id, " +
-					"destination_id, " +
-					"status, " +
-					"err_message, " +
-					"std_message, " +
-					"return_code, " +
-					"timestamp) values (?,?,?,?,?,?,?," + Compatibility.toDate("?","'DD-MM-YYYY HH24:MI:SS'") + ")",
-				newTaskResultId,
-				taskResult.getTaskId(),
-				taskResult.getDestinationId(),
-				taskResult.getStatus().toString(),
-				errorMessage == null ? null : new String(errorMessage, StandardCharsets.UTF_8),
-				standardMessage == null ? null : new String(standardMessage, StandardCharsets.UTF_8),
-				taskResult.getReturnCode(),
-				getDateFormatter().format(taskResult.getTimestamp()));
-		return newTaskResultId;
+		jdbc.update(sql.toString(), args.toArray());
+	}
+
+	/**
+	 * Point tasks_results_latest to the inserted TaskResults, unless it already points to newer ones.
+	 *
+	 * @param taskResults inserted TaskResults
+	 */
+	private void updateLatestTaskResults(List<TaskResult> taskResults) {
+		// one row can be updated only once by a statement, so keep only the newest result of each task and destination
+		Map<List<Integer>, Integer> latest = new LinkedHashMap<>();
+		for (TaskResult taskResult : taskResults) {
+			latest.merge(Arrays.asList(taskResult.getTaskId(), taskResult.getDestinationId()), taskResult.getId(), Math::max);
+		}
+		StringBuilder sql = new StringBuilder("insert into tasks_results_latest(task_id, destination_id, task_result_id) values ");
+		List<Object> args = new ArrayList<>(latest.size() * 3);
+		for (Map.Entry<List<Integer>, Integer> entry : latest.entrySet()) {
+			if (!args.isEmpty()) sql.append(',');
+			sql.append("(?,?,?)");
+			args.addAll(entry.getKey());
+			args.add(entry.getValue());
+		}
+		sql.append(" on conflict (task_id, destination_id) do update set task_result_id = excluded.task_result_id" +
+				" where tasks_results_latest.task_result_id < excluded.task_result_id");
+		jdbc.update(sql.toString(), args.toArray());
 	}
 
 	@Override
@@ -166,7 +225,15 @@ public class TasksManagerImpl implements TasksManagerImplApi {
 	@Override
 	public void deleteTaskResultById(int taskResultId) {
 		try {
+			List<int[]> taskAndDestination = jdbc.query("select task_id, destination_id from tasks_results where id = ?",
+					(resultSet, i) -> new int[] {resultSet.getInt("task_id"), resultSet.getInt("destination_id")}, taskResultId);
 			jdbc.update("delete from tasks_results where id = ?", taskResultId);
+			// when the newest result was deleted (cascade deletes it from tasks_results_latest), previous one becomes the newest
+			for (int[] key : taskAndDestination) {
+				jdbc.update("insert into tasks_results_latest(task_id, destination_id, task_result_id)" +
+						" select task_id, destination_id, max(id) from tasks_results where task_id = ? and destination_id = ?" +
+						" group by task_id, destination_id on conflict (task_id, destination_id) do nothing", key[0], key[1]);
+			}
 		} catch (RuntimeException ex) {
 			throw new InternalErrorException(ex);
 		}
@@ -195,16 +262,10 @@ public class TasksManagerImpl implements TasksManagerImplApi {
 		try {
 			String compareDate = LocalDateTime.now().minusDays(numDays).format(getDateTimeFormatter());
 
-			return jdbc.update("delete from tasks_results where " +
-							"id in (" +
-							"select otr.id from tasks_results otr " +
-							"         left join ( " +
-							"	select tr.destination_id, tr.task_id, max(tr.timestamp) as maxtimestamp " +
-							"	from tasks_results tr " +
-							"		inner join tasks t on tr.task_id = t.id " +
-							"		group by tr.destination_id,tr.task_id " +
-							"   )  tmp on otr.task_id = tmp.task_id and otr.destination_id = tmp.destination_id " +
-							"where otr.timestamp < maxtimestamp and otr.timestamp < "+Compatibility.toDate("?","'DD-MM-YYYY HH24:MI:SS'")+" )",
+			// old results are found by index on timestamp, newest result of each task and destination is kept
+			return jdbc.update("delete from tasks_results where timestamp < " + Compatibility.toDate("?","'DD-MM-YYYY HH24:MI:SS'") +
+							" and exists (select 1 from tasks_results newer where newer.task_id = tasks_results.task_id" +
+							" and newer.destination_id = tasks_results.destination_id and newer.timestamp > tasks_results.timestamp)",
 					compareDate);
 		} catch (RuntimeException ex) {
 			throw new InternalErrorException(ex);
@@ -239,25 +300,13 @@ public class TasksManagerImpl implements TasksManagerImplApi {
 		return jdbc.query(
 			"select " + taskResultMappingSelectQuery + ", " + ServicesManagerImpl.destinationMappingSelectQuery + ", " +
 				ServicesManagerImpl.serviceMappingSelectQuery +
-				" from tasks_results" +
+				" from tasks_results_latest" +
+				" inner join tasks_results on tasks_results.id = tasks_results_latest.task_result_id" +
 				" left join destinations on tasks_results.destination_id = destinations.id" +
 				" left join tasks on tasks.id = tasks_results.task_id" +
 				" left join services on services.id = tasks.service_id" +
-				" inner join (" +
-				" SELECT destination_id, MAX(modified_at) AS modified_at_max" +
-				" FROM tasks_results where task_id=?" +
-				" GROUP BY destination_id) tr2" +
-				" on tasks_results.destination_id = tr2.destination_id" +
-				" and tasks_results.modified_at = tr2.modified_at_max" +
-				" inner join (" +
-				" SELECT destination_id, modified_at, MAX(id) AS id_max" +
-				" FROM tasks_results where task_id=?" +
-				" GROUP BY destination_id, modified_at) tr3" +
-				" on tasks_results.destination_id = tr3.destination_id" +
-				" and tasks_results.modified_at = tr3.modified_at" +
-				" and tasks_results.id   = tr3.id_max" +
-				" where tasks_results.task_id=?",
-			TASKRESULT_ROWMAPPER, taskId, taskId, taskId);
+				" where tasks_results_latest.task_id=?",
+			TASKRESULT_ROWMAPPER, taskId);
 	}
 
 	@Override
@@ -3,6 +3,7 @@ package cz.metacentrum.perun.core.impl.modules.attributes;
 import cz.metacentrum.perun.core.api.Attribute;
 import cz.metacentrum.perun.core.api.AttributeDefinition;
 import cz.metacentrum.perun.core.api.AttributesManager;
+import cz.metacentrum.perun.core.api.ComputationContext;
 import cz.metacentrum.perun.core.api.Member;
 import cz.metacentrum.perun.core.api.Pair;
 import cz.metacentrum.perun.core.api.Resource;
@@ -40,25 +41,9 @@ public class urn_perun_member_resource_attribute_def_virt_dataQuotas extends Mem
 	public Attribute getAttributeValue(PerunSessionImpl sess, Member member, Resource resource, AttributeDefinition attributeDefinition) {
 		Attribute attribute = new Attribute(attributeDefinition);
 
-		//get resource quotas
-		Map<String, Pair<BigDecimal, BigDecimal>> resourceTransferedQuotas;
-		Attribute resourceQuotas;
-		try {
-			resourceQuotas = sess.getPerunBl().getAttributesManagerBl().getAttribute(sess, resource, A_R_defaultDataQuotas);
-		} catch (AttributeNotExistsException ex) {
-			throw new ConsistencyErrorException(ex);
-		} catch (WrongAttributeAssignmentException ex) {
-			throw new InternalErrorException(ex);
-		}
-
-		if(resourceQuotas == null || resourceQuotas.getValue() == null) resourceTransferedQuotas = new HashMap<>();
-		else {
-			try {
-				resourceTransferedQuotas = sess.getPerunBl().getModulesUtilsBl().checkAndTransferQuotas(resourceQuotas, resource, null, true);
-			} catch (WrongAttributeValueException ex) {
-				throw new ConsistencyErrorException("Quotas on resource " + resource + " are in bad format.", ex);
-			}
-		}
+		//get resource quotas (same for all members of the resource)
+		Map<String, Pair<BigDecimal, BigDecimal>> resourceTransferedQuotas = ComputationContext.memoize(sess,
+				"resourceTransferredDataQuotas", resource.getId(), () -> getResourceTransferredQuotas(sess, resource));
 
 		//get members quotas
 		Map<String, Pair<BigDecimal, BigDecimal>> memberTransferedQuotas;
@@ -110,6 +95,24 @@ public class urn_perun_member_resource_attribute_def_virt_dataQuotas extends Mem
 		return attribute;
 	}
 
+	private Map<String, Pair<BigDecimal, BigDecimal>> getResourceTransferredQuotas(PerunSessionImpl sess, Resource resource) {
+		Attribute resourceQuotas;
+		try {
+			resourceQuotas = sess.getPerunBl().getAttributesManagerBl().getAttribute(sess, resource, A_R_defaultDataQuotas);
+		} catch (AttributeNotExistsException ex) {
+			throw new ConsistencyErrorException(ex);
+		} catch (WrongAttributeAssignmentException ex) {
+			throw new InternalErrorException(ex);
+		}
+
+		if(resourceQuotas == null || resourceQuotas.getValue() == null) return new HashMap<>();
+		try {
+			return sess.getPerunBl().getModulesUtilsBl().checkAndTransferQuotas(resourceQuotas, resource, null, true);
+		} catch (WrongAttributeValueException ex) {
+			throw new ConsistencyErrorException("Quotas on resource " + resource + " are in bad format.", ex);
+		}
+	}
+
 	@Override
 	public List<String> getStrongDependencies() {
 		List<String> strongDependencies = new ArrayList<>();
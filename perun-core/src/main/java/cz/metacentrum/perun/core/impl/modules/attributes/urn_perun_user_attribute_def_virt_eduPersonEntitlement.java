@@ -38,10 +38,8 @@ public class urn_perun_user_attribute_def_virt_eduPersonEntitlement extends User
 	}
 
 	@Override
-	public Attribute getAttributeValue(PerunSessionImpl sess, User user, AttributeDefinition destinationAttributeDefinition) {
-		//get already filled value obtained from UserExtSources
-		Attribute attribute = super.getAttributeValue(sess, user, destinationAttributeDefinition);
-
+	protected Attribute processCollectedValue(PerunSessionImpl sess, User user, AttributeDefinition destinationAttributeDefinition, Attribute attribute) {
+		//attribute contains values already obtained from UserExtSources
 		Attribute destinationAttribute = new Attribute(destinationAttributeDefinition);
 		//get values previously obtained and add them to Set representing final value
 		//for values use set because of avoiding duplicities
@@ -24,17 +24,22 @@ import cz.metacentrum.perun.core.api.VosManager;
 import cz.metacentrum.perun.core.api.exceptions.AttributeNotExistsException;
 import cz.metacentrum.perun.core.api.exceptions.InternalErrorException;
 import cz.metacentrum.perun.core.api.exceptions.WrongAttributeAssignmentException;
+import cz.metacentrum.perun.core.bl.DatabaseManagerBl;
+import cz.metacentrum.perun.core.impl.Compatibility;
 import cz.metacentrum.perun.core.impl.PerunSessionImpl;
 import cz.metacentrum.perun.core.implApi.modules.attributes.SkipValueCheckDuringDependencyCheck;
 import cz.metacentrum.perun.core.implApi.modules.attributes.UserVirtualAttributesModuleAbstract;
 import cz.metacentrum.perun.core.implApi.modules.attributes.UserVirtualAttributesModuleImplApi;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.PreparedStatementCallback;
 import org.springframework.jdbc.core.RowMapper;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 
@@ -60,8 +65,6 @@ public class urn_perun_user_attribute_def_virt_groupNames extends UserVirtualAtt
 
 	@Override
 	public Attribute getAttributeValue(PerunSessionImpl sess, User user, AttributeDefinition attributeDefinition) {
-		Attribute attribute = new Attribute(attributeDefinition);
-		Set<String> groupNames = new TreeSet<>();
 		List<Pair<String, String>> names;
 		try {
 			names = sess.getPerunBl().getDatabaseManagerBl().getJdbcPerunTemplate().query(
@@ -81,6 +84,51 @@ public class urn_perun_user_attribute_def_virt_groupNames extends UserVirtualAtt
 			throw new InternalErrorException(e);
 		}
 
+		return createAttribute(attributeDefinition, names);
+	}
+
+	/**
+	 * Reads names of groups of all users by one query.
+	 */
+	@Override
+	public Map<User, Attribute> getAttributeValues(PerunSessionImpl sess, List<User> users, AttributeDefinition attributeDefinition) {
+		Map<Integer, List<Pair<String, String>>> namesByUserId = new HashMap<>();
+		if (!users.isEmpty()) {
+			try {
+				sess.getPerunBl().getDatabaseManagerBl().getJdbcPerunTemplate().execute(
+					"SELECT" +
+						" DISTINCT members.user_id AS user_id, vos.short_name AS vo_short_name, groups.name AS group_name" +
+						" FROM" +
+						" members" +
+						" JOIN vos ON vos.id = members.vo_id AND members.user_id " + Compatibility.getStructureForInClause() + " AND members.status = ?" +
+						" JOIN groups_members ON groups_members.member_id = members.id AND groups_members.source_group_status = ?" +
+						" JOIN groups ON groups_members.group_id = groups.id",
+					(PreparedStatementCallback<Void>) preparedStatement -> {
+						preparedStatement.setArray(1, DatabaseManagerBl.prepareSQLArrayOfNumbers(users, preparedStatement));
+						preparedStatement.setInt(2, Status.VALID.getCode());
+						preparedStatement.setInt(3, MemberGroupStatus.VALID.getCode());
+						try (ResultSet rs = preparedStatement.executeQuery()) {
+							while (rs.next()) {
+								namesByUserId.computeIfAbsent(rs.getInt("user_id"), id -> new ArrayList<>()).add(ROW_MAPPER.mapRow(rs, rs.getRow()));
+							}
+						}
+						return null;
+					});
+			} catch (RuntimeException e) {
+				throw new InternalErrorException(e);
+			}
+		}
+
+		Map<User, Attribute> attributes = new HashMap<>();
+		for (User user : users) {
+			attributes.put(user, createAttribute(attributeDefinition, namesByUserId.getOrDefault(user.getId(), new ArrayList<>())));
+		}
+		return attributes;
+	}
+
+	private Attribute createAttribute(AttributeDefinition attributeDefinition, List<Pair<String, String>> names) {
+		Attribute attribute = new Attribute(attributeDefinition);
+		Set<String> groupNames = new TreeSet<>();
 		for (Pair<String, String> one : names) {
 			String voShortName = one.getLeft();
 			groupNames.add(voShortName);
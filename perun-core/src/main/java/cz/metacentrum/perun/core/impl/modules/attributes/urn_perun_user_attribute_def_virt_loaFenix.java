@@ -36,12 +36,11 @@ public class urn_perun_user_attribute_def_virt_loaFenix extends UserVirtualAttri
 	}
 
 	@Override
-	public Attribute getAttributeValue(PerunSessionImpl sess, User user, AttributeDefinition destinationAttributeDefinition) {
+	protected Attribute processCollectedValue(PerunSessionImpl sess, User user, AttributeDefinition destinationAttributeDefinition, Attribute attribute) {
 		Attribute destinationAttribute = new Attribute(destinationAttributeDefinition);
 
-		// get already filled value obtained from UserExtSources
-		// IMPORTANT: value get from super method is type of ArrayList (destination attribute has String type), this situation is known and resolved below in code
-		Attribute attribute = super.getAttributeValue(sess, user, destinationAttributeDefinition);
+		// attribute contains values already obtained from UserExtSources
+		// IMPORTANT: value of collected attribute is type of ArrayList (destination attribute has String type), this situation is known and resolved below in code
 
 		if (attribute.valueAsList().isEmpty()) {
 			// there are no loaFenix values, return default null
@@ -18,7 +18,9 @@ import cz.metacentrum.perun.core.implApi.modules.attributes.UserFacilityVirtualA
 import cz.metacentrum.perun.core.implApi.modules.attributes.UserFacilityVirtualAttributesModuleImplApi;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Checks and fills at specified facility users UID.
@@ -103,6 +105,39 @@ public class urn_perun_user_facility_attribute_def_virt_UID extends UserFacility
 		return attr;
 	}
 
+	/**
+	 * Gets the value of the attribute f:uid-namespace once and then finds values of the attribute u:uid-namespace:[uid-namespace]
+	 * of all users by one query.
+	 */
+	@Override
+	public Map<User, Attribute> getAttributeValues(PerunSessionImpl sess, List<User> users, Facility facility, AttributeDefinition attributeDefinition) {
+		Map<User, List<Attribute>> uidAttributes = new HashMap<>();
+
+		try {
+			// Get the f:uid-namespace attribute
+			Attribute uidNamespaceAttribute = sess.getPerunBl().getAttributesManagerBl().getAttribute(sess, facility, AttributesManager.NS_FACILITY_ATTR_DEF + ":uid-namespace");
+
+			if (uidNamespaceAttribute.getValue() != null) {
+				// Get the u:uid-namespace[uidNamespaceAttribute] of all users
+				AttributeDefinition uidAttributeDefinition = sess.getPerunBl().getAttributesManagerBl().getAttributeDefinition(sess, AttributesManager.NS_USER_ATTR_DEF + ":uid-namespace:" + uidNamespaceAttribute.getValue());
+				uidAttributes = sess.getPerunBl().getAttributesManagerBl().getUsersAttributes(sess, users, List.of(uidAttributeDefinition.getName()));
+			}
+		} catch (AttributeNotExistsException | WrongAttributeAssignmentException e) {
+			throw new ConsistencyErrorException(e);
+		}
+
+		Map<User, Attribute> attributes = new HashMap<>();
+		for (User user : users) {
+			Attribute attr = new Attribute(attributeDefinition);
+			List<Attribute> userAttributes = uidAttributes.get(user);
+			if (userAttributes != null && !userAttributes.isEmpty()) {
+				Utils.copyAttributeToVirtualAttributeWithValue(userAttributes.get(0), attr);
+			}
+			attributes.put(user, attr);
+		}
+		return attributes;
+	}
+
 	@Override
 	public boolean setAttributeValue(PerunSessionImpl sess, User user, Facility facility, Attribute attribute) throws WrongReferenceAttributeValueException {
 		AttributeDefinition userUidAttributeDefinition;
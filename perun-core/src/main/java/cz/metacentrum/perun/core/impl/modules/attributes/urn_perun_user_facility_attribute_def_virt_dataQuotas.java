@@ -3,10 +3,12 @@ package cz.metacentrum.perun.core.impl.modules.attributes;
 import cz.metacentrum.perun.core.api.Attribute;
 import cz.metacentrum.perun.core.api.AttributeDefinition;
 import cz.metacentrum.perun.core.api.AttributesManager;
+import cz.metacentrum.perun.core.api.ComputationContext;
 import cz.metacentrum.perun.core.api.Facility;
 import cz.metacentrum.perun.core.api.Member;
 import cz.metacentrum.perun.core.api.Pair;
 import cz.metacentrum.perun.core.api.Resource;
+import cz.metacentrum.perun.core.api.Status;
 import cz.metacentrum.perun.core.api.User;
 import cz.metacentrum.perun.core.api.Vo;
 import cz.metacentrum.perun.core.api.exceptions.AttributeNotExistsException;
@@ -17,15 +19,23 @@ import cz.metacentrum.perun.core.api.exceptions.MemberResourceMismatchException;
 import cz.metacentrum.perun.core.api.exceptions.VoNotExistsException;
 import cz.metacentrum.perun.core.api.exceptions.WrongAttributeAssignmentException;
 import cz.metacentrum.perun.core.api.exceptions.WrongAttributeValueException;
+import cz.metacentrum.perun.core.bl.DatabaseManagerBl;
+import cz.metacentrum.perun.core.impl.Compatibility;
 import cz.metacentrum.perun.core.impl.PerunSessionImpl;
 import cz.metacentrum.perun.core.implApi.modules.attributes.SkipValueCheckDuringDependencyCheck;
 import cz.metacentrum.perun.core.implApi.modules.attributes.UserFacilityVirtualAttributesModuleAbstract;
+import org.springframework.jdbc.core.PreparedStatementCallback;
 
 import java.math.BigDecimal;
+import java.sql.ResultSet;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Virtual attribute to count all data quotas for user on facility.
@@ -41,8 +51,6 @@ public class urn_perun_user_facility_attribute_def_virt_dataQuotas extends UserF
 
 	@Override
 	public Attribute getAttributeValue(PerunSessionImpl sess, User user, Facility facility, AttributeDefinition attributeDefinition) {
-		Attribute attribute = new Attribute(attributeDefinition);
-
 		//merge attribute settings for every allowed resource
 		List<Map<String,Pair<BigDecimal, BigDecimal>>> mergedMemberResourceQuotas = new ArrayList<>();
 
@@ -63,28 +71,87 @@ public class urn_perun_user_facility_attribute_def_virt_dataQuotas extends UserF
 			}
 
 			//Get member-resource final counted quotas for the member on the resource
-			Map<String, Pair<BigDecimal, BigDecimal>> memberResourceFinalDataQuotas;
-			Attribute memberResourceFinalDataQuotasAttribute;
+			Map<String, Pair<BigDecimal, BigDecimal>> memberResourceFinalDataQuotas = ComputationContext.memoize(sess,
+					"memberResourceFinalDataQuotas", List.of(memberOnResource.getId(), resource.getId()),
+					() -> getMemberResourceFinalQuotas(sess, memberOnResource, resource));
+
+			//Add merged quotas to the big map by resources
+			mergedMemberResourceQuotas.add(memberResourceFinalDataQuotas);
+		}
+
+		return countUserFacilityQuotas(sess, attributeDefinition, mergedMemberResourceQuotas);
+	}
+
+	/**
+	 * Finds allowed members of all users on resources of the facility by one query
+	 * instead of looking up allowed resources, VO and member for each user.
+	 */
+	@Override
+	public Map<User, Attribute> getAttributeValues(PerunSessionImpl sess, List<User> users, Facility facility, AttributeDefinition attributeDefinition) {
+		// pairs of member and resource ids by user id
+		Map<Integer, List<Pair<Integer, Integer>>> memberResourceIdsByUserId = new HashMap<>();
+		if (!users.isEmpty()) {
 			try {
-				memberResourceFinalDataQuotasAttribute = sess.getPerunBl().getAttributesManagerBl().getAttribute(sess, memberOnResource, resource, A_MR_V_dataQuotas);
-			} catch (MemberResourceMismatchException | WrongAttributeAssignmentException ex) {
-				throw new InternalErrorException(ex);
-			} catch (AttributeNotExistsException ex) {
-				throw new ConsistencyErrorException(ex);
+				sess.getPerunBl().getDatabaseManagerBl().getJdbcPerunTemplate().execute(
+						"select distinct members.user_id as user_id, members.id as member_id, resources.id as resource_id from resources" +
+								" join groups_resources on groups_resources.resource_id=resources.id" +
+								" join groups_members on groups_members.group_id=groups_resources.group_id" +
+								" join members on members.id=groups_members.member_id" +
+								" where resources.facility_id=? and members.user_id " + Compatibility.getStructureForInClause() +
+								" and members.status!=? and members.status!=?",
+						(PreparedStatementCallback<Void>) preparedStatement -> {
+							preparedStatement.setInt(1, facility.getId());
+							preparedStatement.setArray(2, DatabaseManagerBl.prepareSQLArrayOfNumbers(users, preparedStatement));
+							preparedStatement.setInt(3, Status.INVALID.getCode());
+							preparedStatement.setInt(4, Status.DISABLED.getCode());
+							try (ResultSet rs = preparedStatement.executeQuery()) {
+								while (rs.next()) {
+									memberResourceIdsByUserId.computeIfAbsent(rs.getInt("user_id"), id -> new ArrayList<>())
+											.add(new Pair<>(rs.getInt("member_id"), rs.getInt("resource_id")));
+								}
+							}
+							return null;
+						});
+			} catch (RuntimeException e) {
+				throw new InternalErrorException(e);
 			}
+		}
 
-			if(memberResourceFinalDataQuotasAttribute == null || memberResourceFinalDataQuotasAttribute.getValue() == null) memberResourceFinalDataQuotas = new LinkedHashMap<>();
-			else {
-				try {
-					memberResourceFinalDataQuotas = sess.getPerunBl().getModulesUtilsBl().checkAndTransferQuotas(memberResourceFinalDataQuotasAttribute, resource, memberOnResource, true);
-				} catch (WrongAttributeValueException ex) {
-					throw new ConsistencyErrorException("Final counted quotas on " + resource + " for member " + memberOnResource + " are in bad format.", ex);
-				}
+		Map<Integer, Resource> resourcesById = new HashMap<>();
+		for (Resource resource : sess.getPerunBl().getFacilitiesManagerBl().getAssignedResources(sess, facility)) {
+			resourcesById.put(resource.getId(), resource);
+		}
+		Set<Integer> memberIds = new HashSet<>();
+		memberResourceIdsByUserId.values().forEach(pairs -> pairs.forEach(pair -> memberIds.add(pair.getLeft())));
+		Map<Integer, Member> membersById = new HashMap<>();
+		if (!memberIds.isEmpty()) {
+			for (Member member : sess.getPerunBl().getMembersManagerBl().getMembersByIds(sess, new ArrayList<>(memberIds))) {
+				membersById.put(member.getId(), member);
 			}
+		}
 
-			//Add merged quotas to the big map by resources
-			mergedMemberResourceQuotas.add(memberResourceFinalDataQuotas);
+		Map<User, Attribute> attributes = new HashMap<>();
+		// quotas of resources are shared by all their members
+		try (ComputationContext ignored = sess.openComputationContext()) {
+			for (User user : users) {
+				List<Map<String, Pair<BigDecimal, BigDecimal>>> mergedMemberResourceQuotas = new ArrayList<>();
+				for (Pair<Integer, Integer> memberResourceIds : memberResourceIdsByUserId.getOrDefault(user.getId(), Collections.emptyList())) {
+					Member member = membersById.get(memberResourceIds.getLeft());
+					Resource resource = resourcesById.get(memberResourceIds.getRight());
+					if (member == null || resource == null) {
+						throw new ConsistencyErrorException("Allowed member " + memberResourceIds.getLeft() + " of " + user + " on resource " + memberResourceIds.getRight() + " of " + facility + " doesn't exist.");
+					}
+					mergedMemberResourceQuotas.add(ComputationContext.memoize(sess, "memberResourceFinalDataQuotas",
+							List.of(member.getId(), resource.getId()), () -> getMemberResourceFinalQuotas(sess, member, resource)));
+				}
+				attributes.put(user, countUserFacilityQuotas(sess, attributeDefinition, mergedMemberResourceQuotas));
+			}
 		}
+		return attributes;
+	}
+
+	private Attribute countUserFacilityQuotas(PerunSessionImpl sess, AttributeDefinition attributeDefinition, List<Map<String, Pair<BigDecimal, BigDecimal>>> mergedMemberResourceQuotas) {
+		Attribute attribute = new Attribute(attributeDefinition);
 
 		//now we have all resource and member merged quotas, so we need to create 1 transfered map with sum of values
 		Map<String, Pair<BigDecimal, BigDecimal>> finalTransferredQuotas = sess.getPerunBl().getModulesUtilsBl().countUserFacilityQuotas(mergedMemberResourceQuotas);
@@ -95,6 +162,24 @@ public class urn_perun_user_facility_attribute_def_virt_dataQuotas extends UserF
 		return attribute;
 	}
 
+	private Map<String, Pair<BigDecimal, BigDecimal>> getMemberResourceFinalQuotas(PerunSessionImpl sess, Member member, Resource resource) {
+		Attribute memberResourceFinalDataQuotasAttribute;
+		try {
+			memberResourceFinalDataQuotasAttribute = sess.getPerunBl().getAttributesManagerBl().getAttribute(sess, member, resource, A_MR_V_dataQuotas);
+		} catch (MemberResourceMismatchException | WrongAttributeAssignmentException ex) {
+			throw new InternalErrorException(ex);
+		} catch (AttributeNotExistsException ex) {
+			throw new ConsistencyErrorException(ex);
+		}
+
+		if(memberResourceFinalDataQuotasAttribute == null || memberResourceFinalDataQuotasAttribute.getValue() == null) return new LinkedHashMap<>();
+		try {
+			return sess.getPerunBl().getModulesUtilsBl().checkAndTransferQuotas(memberResourceFinalDataQuotasAttribute, resource, member, true);
+		} catch (WrongAttributeValueException ex) {
+			throw new ConsistencyErrorException("Final counted quotas on " + resource + " for member " + member + " are in bad format.", ex);
+		}
+	}
+
 	@Override
 	public List<String> getStrongDependencies() {
 		List<String> strongDependencies = new ArrayList<>();
@@ -17,7 +17,9 @@ import cz.metacentrum.perun.core.implApi.modules.attributes.UserFacilityVirtualA
 import cz.metacentrum.perun.core.implApi.modules.attributes.UserFacilityVirtualAttributesModuleImplApi;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Checks and fills at specified facility users login.
@@ -104,6 +106,41 @@ public class urn_perun_user_facility_attribute_def_virt_login extends UserFacili
 		return attr;
 	}
 
+	/**
+	 * Gets the value of the attribute f:login-namespace once and then finds values of the attribute u:login-namespace:[login-namespace]
+	 * of all users by one query.
+	 */
+	@Override
+	public Map<User, Attribute> getAttributeValues(PerunSessionImpl sess, List<User> users, Facility facility, AttributeDefinition attributeDefinition) {
+		Map<User, List<Attribute>> loginAttributes = new HashMap<>();
+
+		try {
+			// Get the f:login-namespace attribute
+			Attribute loginNamespaceAttribute = sess.getPerunBl().getAttributesManagerBl().getAttribute(sess, facility, AttributesManager.NS_FACILITY_ATTR_DEF + ":login-namespace");
+
+			if (loginNamespaceAttribute.getValue() != null) {
+				// Get the u:login-namespace[loginNamespaceAttribute] of all users
+				AttributeDefinition loginAttributeDefinition = sess.getPerunBl().getAttributesManagerBl().getAttributeDefinition(sess, AttributesManager.NS_USER_ATTR_DEF + ":login-namespace:" + loginNamespaceAttribute.getValue());
+				loginAttributes = sess.getPerunBl().getAttributesManagerBl().getUsersAttributes(sess, users, List.of(loginAttributeDefinition.getName()));
+			}
+		} catch (AttributeNotExistsException e) {
+			throw new InternalErrorException(e);
+		} catch (WrongAttributeAssignmentException e) {
+			throw new ConsistencyErrorException(e);
+		}
+
+		Map<User, Attribute> attributes = new HashMap<>();
+		for (User user : users) {
+			Attribute attr = new Attribute(attributeDefinition);
+			List<Attribute> userAttributes = loginAttributes.get(user);
+			if (userAttributes != null && !userAttributes.isEmpty()) {
+				Utils.copyAttributeToVirtualAttributeWithValue(userAttributes.get(0), attr);
+			}
+			attributes.put(user, attr);
+		}
+		return attributes;
+	}
+
 	@Override
 	public boolean setAttributeValue(PerunSessionImpl sess, User user, Facility facility, Attribute attribute) throws WrongReferenceAttributeValueException {
 		AttributeDefinition userLoginAttributeDefinition;
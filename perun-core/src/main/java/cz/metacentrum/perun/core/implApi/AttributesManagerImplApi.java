@@ -320,6 +320,19 @@ public interface AttributesManagerImplApi {
 	 */
 	List<Attribute> getAttributes(PerunSession sess, Member member, List<String> attrNames);
 
+	/**
+	 * Get attributes associated with each member in list of members which have name in list attrNames (empty and virtual too).
+	 * Attributes of all members are loaded at once.
+	 *
+	 * @param sess perun session
+	 * @param members to get the attributes from
+	 * @param attrNames list of attributes' names
+	 * @return map of member and his list of attributes
+	 *
+	 * @throws InternalErrorException if an exception raise in concrete implementation, the exception is wrapped in InternalErrorException
+	 */
+	HashMap<Member, List<Attribute>> getMembersAttributes(PerunSession sess, List<Member> members, List<String> attrNames);
+
 	/**
 	 * Get all attributes associated with the group which have name in list attrNames (empty too).
 	 *
@@ -482,6 +495,19 @@ public interface AttributesManagerImplApi {
 	 */
 	List<Attribute> getAttributes(PerunSession sess, User user, List<String> attrNames);
 
+	/**
+	 * Get attributes associated with each user in list of users which have name in list attrNames (empty and virtual too).
+	 * Attributes of all users are loaded at once.
+	 *
+	 * @param sess perun session
+	 * @param users to get the attributes from
+	 * @param attrNames list of attributes' names
+	 * @return map of user and his list of attributes
+	 *
+	 * @throws InternalErrorException if an exception raise in concrete implementation, the exception is wrapped in InternalErrorException
+	 */
+	HashMap<User, List<Attribute>> getUsersAttributes(PerunSession sess, List<User> users, List<String> attrNames);
+
 	/**
 	 * Get all virtual attributes associated with the user.
 	 *
@@ -2674,4 +2700,13 @@ public interface AttributesManagerImplApi {
 	 * Deletes all values of the attribute from table _attr_u_values which has unique constraint. And returns how many rows were deleted.
 	 */
 	int convertAttributeValuesToNonunique(PerunSession session, AttributeDefinition attrDef);
+
+	/**
+	 * Stores JSON representation of list and map attribute values, which were stored only as escaped strings
+	 * (e.g. before the column attr_value_json was added), so they can be read without parsing the strings.
+	 *
+	 * @param sess perun session
+	 * @return number of converted values
+	 */
+	int convertAttributeValuesToJson(PerunSession sess);
 }
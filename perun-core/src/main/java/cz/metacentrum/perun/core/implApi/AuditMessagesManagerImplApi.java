@@ -79,6 +79,44 @@ public interface AuditMessagesManagerImplApi {
 	 */
 	List<AuditEvent> pollConsumerEvents(PerunSession perunSession, String consumerName, int lastProcessedId);
 
+	/**
+	 * Returns at most <b>maxCount</b> oldest <b>AuditMessages</b> from audit log with IDs > lastProcessedId.
+	 * Consumer should call this method repeatedly with ID of the last returned message, until it gets an empty list.
+	 *
+	 * @param perunSession perun session
+	 * @param consumerName consumer to get messages for
+	 * @param lastProcessedId id of the last processed message
+	 * @param maxCount max number of returned messages
+	 * @return List of audit messages ordered by ID
+	 * @throws InternalErrorException When implementation fails
+	 */
+	List<AuditMessage> pollConsumerMessagesBatch(PerunSession perunSession, String consumerName, int lastProcessedId, int maxCount);
+
+	/**
+	 * Stores position of the consumer, which keeps it on its own and passes it to the poll methods, so it holds back
+	 * dropping of old audit log partitions. Stored position is never lowered, so it is safe to call it after re-reading
+	 * older messages.
+	 *
+	 * @param perunSession perun session
+	 * @param consumerName name of consumer
+	 * @param lastProcessedId id of the last message processed by the consumer
+	 * @throws InternalErrorException When implementation fails
+	 */
+	void storeConsumerPosition(PerunSession perunSession, String consumerName, int lastProcessedId);
+
+	/**
+	 * Returns at most <b>maxCount</b> oldest <b>AuditEvents</b> from audit log with IDs > lastProcessedId of registered auditer consumer
+	 * and moves its lastProcessedId to the last returned event.
+	 * Consumer should call this method repeatedly until it gets an empty list.
+	 *
+	 * @param perunSession perun session
+	 * @param consumerName consumer to get events for
+	 * @param maxCount max number of returned events
+	 * @return List of audit events ordered by ID
+	 * @throws InternalErrorException When implementation fails
+	 */
+	List<AuditEvent> pollConsumerEventsBatch(PerunSession perunSession, String consumerName, int maxCount);
+
 	/**
 	 * Creates new auditer consumer with last processed id which equals current auditer log max id.
 	 *
@@ -126,6 +164,16 @@ public interface AuditMessagesManagerImplApi {
 	 */
 	int getAuditerMessagesCount(PerunSession perunSession);
 
+	/**
+	 * Get approximate count of all messages in audit log. Count is taken from planner statistics of the auditer_log
+	 * table and its partitions, so it is cheap even for huge audit log, but it is only as accurate as the last analyze.
+	 *
+	 * @param perunSession perun session
+	 * @return Approximate count of all messages in audit log
+	 * @throws InternalErrorException When implementation fails
+	 */
+	int getAuditerMessagesCountApproximate(PerunSession perunSession);
+
 	/**
 	 * Returns TRUE if auditer consumer with specified name exist.
 	 *
@@ -1,5 +1,6 @@
 package cz.metacentrum.perun.core.implApi;
 
+import cz.metacentrum.perun.core.api.AuditerLogPartition;
 import cz.metacentrum.perun.core.api.DBVersion;
 import cz.metacentrum.perun.core.api.exceptions.InternalErrorException;
 import cz.metacentrum.perun.core.impl.Compatibility;
@@ -7,6 +8,8 @@ import cz.metacentrum.perun.core.impl.Utils;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcPerunTemplate;
 
+import java.io.OutputStream;
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -106,4 +109,72 @@ public interface DatabaseManagerImplApi {
 	 */
 	JdbcPerunTemplate getJdbcPerunTemplate();
 
+	/**
+	 * Return all partitions of the auditer_log table ordered by their id ranges, default partition is the last one.
+	 *
+	 * @return list of auditer_log partitions
+	 */
+	List<AuditerLogPartition> getAuditerLogPartitions();
+
+	/**
+	 * Create new partition of the auditer_log table for messages with ids from idFrom (inclusive) to idTo (exclusive).
+	 * Partition is named auditer_log_p{idFrom}.
+	 *
+	 * @param idFrom lowest id of message in the partition
+	 * @param idTo upper bound (exclusive) of ids in the partition
+	 * @return created partition
+	 * @throws InternalErrorException when partition can't be created, e.g. when default partition already contains messages from the range
+	 */
+	AuditerLogPartition createAuditerLogPartition(long idFrom, long idTo);
+
+	/**
+	 * Return last value of the auditer_log_id_seq sequence, which is the id of the newest stored message (or 0).
+	 *
+	 * @return last id assigned to an audit message
+	 */
+	long getAuditerLogLastId();
+
+	/**
+	 * Return lowest id of the last processed message among auditer consumers.
+	 * Consumers which are behind lastId and didn't move since idleSince are skipped.
+	 *
+	 * @param lastId id of the newest stored message
+	 * @param idleSince consumers not moved since this time are skipped, null to take all consumers
+	 * @return lowest last processed id or null if there is no such consumer
+	 */
+	Integer getAuditerConsumersMinLastProcessedId(long lastId, LocalDateTime idleSince);
+
+	/**
+	 * Return names of auditer consumers which are behind lastId and didn't move since idleSince.
+	 *
+	 * @param lastId id of the newest stored message
+	 * @param idleSince time of the last allowed move of a consumer
+	 * @return names of idle consumers
+	 */
+	List<String> getIdleAuditerConsumers(long lastId, LocalDateTime idleSince);
+
+	/**
+	 * Return time of creation of the newest message in the partition.
+	 *
+	 * @param partition auditer_log partition
+	 * @return time of creation of the newest message or null if the partition is empty
+	 */
+	LocalDateTime getAuditerLogPartitionLastMessageTime(AuditerLogPartition partition);
+
+	/**
+	 * Write all messages from the partition as CSV (with header) to the output stream using the COPY command.
+	 *
+	 * @param partition auditer_log partition
+	 * @param outputStream stream to write data to, it is not closed by this method
+	 * @return number of exported messages
+	 */
+	long exportAuditerLogPartition(AuditerLogPartition partition, OutputStream outputStream);
+
+	/**
+	 * Detach partition from the auditer_log table and drop it with all its messages.
+	 *
+	 * @param partition auditer_log partition, must not be the default one
+	 */
+	void dropAuditerLogPartition(AuditerLogPartition partition);
+
 }
@@ -0,0 +1,42 @@
+package cz.metacentrum.perun.core.implApi;
+
+import cz.metacentrum.perun.core.api.exceptions.ExtSourceUnsupportedOperationException;
+import cz.metacentrum.perun.core.api.exceptions.InternalErrorException;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Definition of extSource api for incremental group synchronization.
+ *
+ * This extSource can report subjects of the external group, which were changed since
+ * the given watermark. Watermark is an opaque string understood only by the extSource itself.
+ *
+ * Subjects removed from the external group might not be reported, so incremental synchronization
+ * must be combined with periodic full synchronization.
+ */
+public interface ExtSourceIncrementalApi extends ExtSourceSimpleApi {
+
+	/**
+	 * Get current watermark of the external source. It must be taken before the subjects are read,
+	 * so changes made during the synchronization are reported again by the next call of
+	 * {@link #getGroupSubjectsChangedSince(Map, String)}.
+	 *
+	 * @param attributes map of attributes used for quering the external source
+	 * @return current watermark
+	 * @throws InternalErrorException
+	 * @throws ExtSourceUnsupportedOperationException if the external source can't provide watermark
+	 */
+	String getGroupSubjectsWatermark(Map<String, String> attributes) throws ExtSourceUnsupportedOperationException;
+
+	/**
+	 * Get the list of the subjects in the external group, which were added or modified since the watermark.
+	 *
+	 * @param attributes map of attributes used for quering the external source
+	 * @param watermark watermark returned by {@link #getGroupSubjectsWatermark(Map)} before the last synchronization
+	 * @return list of maps, which contains attr_name-&gt;attr_value, e.g. firstName-&gt;Michal
+	 * @throws InternalErrorException
+	 * @throws ExtSourceUnsupportedOperationException if changes can't be determined incrementally and full synchronization is needed
+	 */
+	List<Map<String, String>> getGroupSubjectsChangedSince(Map<String, String> attributes, String watermark) throws ExtSourceUnsupportedOperationException;
+}
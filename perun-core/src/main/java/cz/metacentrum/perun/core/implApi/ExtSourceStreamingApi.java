@@ -0,0 +1,27 @@
+package cz.metacentrum.perun.core.implApi;
+
+import cz.metacentrum.perun.core.api.exceptions.ExtSourceUnsupportedOperationException;
+import cz.metacentrum.perun.core.api.exceptions.InternalErrorException;
+
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Definition of extSource api for reading of large external groups.
+ *
+ * This extSource can return subjects of the external group one by one as they are read from the source,
+ * so they don't have to be all in memory at once.
+ */
+public interface ExtSourceStreamingApi extends ExtSourceSimpleApi {
+
+	/**
+	 * Get the stream of the subjects in the external group. Subjects are read lazily while the stream is consumed.
+	 * Stream holds resources of the external source, so it must be closed after use (e.g. by try-with-resources).
+	 *
+	 * @param attributes map of attributes used for quering the external source
+	 * @return stream of maps, which contains attr_name-&gt;attr_value, e.g. firstName-&gt;Michal
+	 * @throws InternalErrorException
+	 * @throws ExtSourceUnsupportedOperationException
+	 */
+	Stream<Map<String, String>> getGroupSubjectsStream(Map<String, String> attributes) throws ExtSourceUnsupportedOperationException;
+}
@@ -141,6 +141,15 @@ public interface TasksManagerImplApi {
 	 */
 	int insertNewTaskResult(TaskResult taskResult);
 
+	/**
+	 * Store task results into DB by multi-row inserts and update newest result of each task and destination.
+	 * IDs of new task results are also set to the passed objects.
+	 *
+	 * @param taskResults
+	 * @return ids of new task results in the same order
+	 */
+	List<Integer> insertNewTaskResults(List<TaskResult> taskResults);
+
 	/**
 	 * Insert new task into DB.
 	 * 
@@ -8,7 +8,9 @@ import cz.metacentrum.perun.core.api.exceptions.InternalErrorException;
 import cz.metacentrum.perun.core.impl.PerunSessionImpl;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Abstract class for Member Virtual Attributes modules.
@@ -25,6 +27,15 @@ public abstract class MemberVirtualAttributesModuleAbstract extends MemberAttrib
 		return new Attribute(attribute);
 	}
 
+	@Override
+	public Map<Member, Attribute> getAttributeValues(PerunSessionImpl perunSession, List<Member> members, AttributeDefinition attribute) {
+		Map<Member, Attribute> values = new HashMap<>();
+		for (Member member : members) {
+			values.put(member, getAttributeValue(perunSession, member, new Attribute(attribute)));
+		}
+		return values;
+	}
+
 	public boolean setAttributeValue(PerunSessionImpl perunSession, Member member, Attribute attribute) {
 		return false;
 	}
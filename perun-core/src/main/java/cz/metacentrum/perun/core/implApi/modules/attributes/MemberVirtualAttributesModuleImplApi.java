@@ -6,6 +6,9 @@ import cz.metacentrum.perun.core.api.Member;
 import cz.metacentrum.perun.core.api.exceptions.InternalErrorException;
 import cz.metacentrum.perun.core.impl.PerunSessionImpl;
 
+import java.util.List;
+import java.util.Map;
+
 /**
  * This interface serves as a template for virtual attributes.
  *
@@ -26,6 +29,18 @@ public interface MemberVirtualAttributesModuleImplApi extends MemberAttributesMo
 	 */
 	Attribute getAttributeValue(PerunSessionImpl perunSession, Member member, AttributeDefinition attribute);
 
+	/**
+	 * This method will return computed values for many members at once.
+	 * Modules should override it, when the values can be computed by fewer queries than calling
+	 * getAttributeValue() for each member.
+	 *
+	 * @param perunSession perun session
+	 * @param members members which are needed for computing the values
+	 * @param attribute attribute to operate on
+	 * @return attributes with computed values by member
+	 */
+	Map<Member, Attribute> getAttributeValues(PerunSessionImpl perunSession, List<Member> members, AttributeDefinition attribute);
+
 	/**
 	 * Method sets attributes' values which are dependent on this virtual attribute.
 	 *
@@ -10,7 +10,9 @@ import cz.metacentrum.perun.core.api.exceptions.WrongReferenceAttributeValueExce
 import cz.metacentrum.perun.core.impl.PerunSessionImpl;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Abstract class for Facility User Virtual Attributes modules.
@@ -27,6 +29,15 @@ public abstract class UserFacilityVirtualAttributesModuleAbstract extends UserFa
 		return new Attribute(attribute);
 	}
 
+	@Override
+	public Map<User, Attribute> getAttributeValues(PerunSessionImpl perunSession, List<User> users, Facility facility, AttributeDefinition attribute) {
+		Map<User, Attribute> values = new HashMap<>();
+		for (User user : users) {
+			values.put(user, getAttributeValue(perunSession, user, facility, new Attribute(attribute)));
+		}
+		return values;
+	}
+
 	public boolean setAttributeValue(PerunSessionImpl perunSession, User user, Facility facility, Attribute attribute) throws WrongReferenceAttributeValueException {
 		return false;
 	}
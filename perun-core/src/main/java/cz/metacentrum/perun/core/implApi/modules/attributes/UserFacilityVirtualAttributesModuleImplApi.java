@@ -8,6 +8,9 @@ import cz.metacentrum.perun.core.api.exceptions.InternalErrorException;
 import cz.metacentrum.perun.core.api.exceptions.WrongReferenceAttributeValueException;
 import cz.metacentrum.perun.core.impl.PerunSessionImpl;
 
+import java.util.List;
+import java.util.Map;
+
 /**
  * This interface serves as a template for virtual attributes.
  *
@@ -28,6 +31,19 @@ public interface UserFacilityVirtualAttributesModuleImplApi extends UserFacility
 	 */
 	Attribute getAttributeValue(PerunSessionImpl perunSession, User user, Facility facility, AttributeDefinition attribute);
 
+	/**
+	 * This method will return computed values for many users on the facility at once.
+	 * Modules should override it, when the values can be computed by fewer queries than calling
+	 * getAttributeValue() for each user.
+	 *
+	 * @param perunSession perun session
+	 * @param users users which are needed for computing the values
+	 * @param facility facility which is needed for computing the values
+	 * @param attribute attribute to operate on
+	 * @return attributes with computed values by user
+	 */
+	Map<User, Attribute> getAttributeValues(PerunSessionImpl perunSession, List<User> users, Facility facility, AttributeDefinition attribute);
+
 	/**
 	 * Method sets attributes' values which are dependent on this virtual attribute.
 	 *
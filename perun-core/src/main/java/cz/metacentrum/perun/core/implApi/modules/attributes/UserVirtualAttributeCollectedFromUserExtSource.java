@@ -17,14 +17,23 @@ import cz.metacentrum.perun.core.api.exceptions.UserNotExistsException;
 import cz.metacentrum.perun.core.api.exceptions.WrongAttributeAssignmentException;
 import cz.metacentrum.perun.core.api.exceptions.WrongReferenceAttributeValueException;
 import cz.metacentrum.perun.core.bl.AttributesManagerBl;
+import cz.metacentrum.perun.core.bl.DatabaseManagerBl;
+import cz.metacentrum.perun.core.impl.AttributesManagerImpl;
+import cz.metacentrum.perun.core.impl.Compatibility;
 import cz.metacentrum.perun.core.impl.PerunSessionImpl;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.PreparedStatementCallback;
 
+import java.sql.ResultSet;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 
@@ -141,16 +150,7 @@ public abstract class UserVirtualAttributeCollectedFromUserExtSource<T extends U
 			try {
 				String sourceAttributeName = getSourceAttributeName();
 				Attribute a = am.getAttribute(sess, userExtSource, sourceAttributeName);
-				Object value = a.getValue();
-				if (value != null && value instanceof String) {
-					//Apache mod_shib joins multiple values with ';', split them again
-					String[] rawValues = ((String) value).split(";");
-					//add non-null values returned by modifyValue()
-					Arrays.stream(rawValues).map(v -> modifyValue(sess, ctx, userExtSource, v)).filter(Objects::nonNull).forEachOrdered(valuesWithoutDuplicities::add);
-				} else if (value != null && value instanceof ArrayList) {
-					//If values are already separated to list of strings
-					a.valueAsList().stream().map(v -> modifyValue(sess, ctx, userExtSource, v)).filter(Objects::nonNull).forEachOrdered(valuesWithoutDuplicities::add);
-				}
+				collectValues(sess, ctx, userExtSource, a.getValue(), valuesWithoutDuplicities);
 			} catch (WrongAttributeAssignmentException | AttributeNotExistsException e) {
 				log.error("cannot read " + sourceAttributeFriendlyName + " from userExtSource " + userExtSource.getId() + " of user " + user.getId(), e);
 			}
@@ -158,7 +158,93 @@ public abstract class UserVirtualAttributeCollectedFromUserExtSource<T extends U
 
 		//convert set to list (values in list will be without duplicities)
 		destinationAttribute.setValue(new ArrayList<>(valuesWithoutDuplicities));
-		return destinationAttribute;
+		return processCollectedValue(sess, user, destinationAttributeDefinition, destinationAttribute);
+	}
+
+	/**
+	 * Reads values of the source attribute from UserExtSources of all users by one query.
+	 */
+	@Override
+	public Map<User, Attribute> getAttributeValues(PerunSessionImpl sess, List<User> users, AttributeDefinition destinationAttributeDefinition) {
+		// raw values of the source attribute by id of UserExtSource, grouped by user
+		Map<Integer, Map<Integer, Object>> sourceValuesByUserId = new HashMap<>();
+		if (!users.isEmpty()) {
+			try {
+				sess.getPerunBl().getDatabaseManagerBl().getJdbcPerunTemplate().execute(
+						"SELECT user_ext_sources.id AS ues_id, user_ext_sources.user_id AS user_id, attr_names.type AS attr_type, " +
+								"user_ext_source_attr_values.attr_value AS attr_value, user_ext_source_attr_values.attr_value_json AS attr_value_json FROM user_ext_sources " +
+								"JOIN user_ext_source_attr_values ON user_ext_source_attr_values.user_ext_source_id=user_ext_sources.id " +
+								"JOIN attr_names ON attr_names.id=user_ext_source_attr_values.attr_id AND attr_names.attr_name=? " +
+								"WHERE user_ext_sources.user_id " + Compatibility.getStructureForInClause(),
+						(PreparedStatementCallback<Void>) preparedStatement -> {
+							preparedStatement.setString(1, getSourceAttributeName());
+							preparedStatement.setArray(2, DatabaseManagerBl.prepareSQLArrayOfNumbers(users, preparedStatement));
+							try (ResultSet rs = preparedStatement.executeQuery()) {
+								while (rs.next()) {
+									Object value = AttributesManagerImpl.readAttributeValue(rs, rs.getString("attr_type"));
+									sourceValuesByUserId.computeIfAbsent(rs.getInt("user_id"), id -> new LinkedHashMap<>())
+											.put(rs.getInt("ues_id"), value);
+								}
+							}
+							return null;
+						});
+			} catch (RuntimeException e) {
+				throw new InternalErrorException(e);
+			}
+		}
+
+		// modifyValue() gets the whole UserExtSource, so load those with any value
+		List<Integer> userExtSourceIds = new ArrayList<>();
+		sourceValuesByUserId.values().forEach(values -> userExtSourceIds.addAll(values.keySet()));
+		Map<Integer, UserExtSource> userExtSources = new HashMap<>();
+		if (!userExtSourceIds.isEmpty()) {
+			for (UserExtSource userExtSource : sess.getPerunBl().getUsersManagerBl().getUserExtSourcesByIds(sess, userExtSourceIds)) {
+				userExtSources.put(userExtSource.getId(), userExtSource);
+			}
+		}
+
+		Map<User, Attribute> attributes = new HashMap<>();
+		for (User user : users) {
+			T ctx = initModifyValueContext(sess, user, destinationAttributeDefinition);
+			Set<String> valuesWithoutDuplicities = new HashSet<>();
+			for (Map.Entry<Integer, Object> entry : sourceValuesByUserId.getOrDefault(user.getId(), Collections.emptyMap()).entrySet()) {
+				UserExtSource userExtSource = userExtSources.get(entry.getKey());
+				if (userExtSource != null) {
+					collectValues(sess, ctx, userExtSource, entry.getValue(), valuesWithoutDuplicities);
+				}
+			}
+			Attribute destinationAttribute = new Attribute(destinationAttributeDefinition);
+			destinationAttribute.setValue(new ArrayList<>(valuesWithoutDuplicities));
+			attributes.put(user, processCollectedValue(sess, user, destinationAttributeDefinition, destinationAttribute));
+		}
+		return attributes;
+	}
+
+	/**
+	 * Override this method if you need to modify the value collected from all UserExtSources of the user.
+	 * The default implementation makes no modification.
+	 *
+	 * @param sess PerunSession
+	 * @param user user
+	 * @param destinationAttributeDefinition definition of this virtual attribute
+	 * @param collected attribute with list of collected values without duplicities
+	 * @return final attribute
+	 */
+	protected Attribute processCollectedValue(PerunSessionImpl sess, User user, AttributeDefinition destinationAttributeDefinition, Attribute collected) {
+		return collected;
+	}
+
+	private void collectValues(PerunSessionImpl sess, T ctx, UserExtSource userExtSource, Object value, Set<String> valuesWithoutDuplicities) {
+		if (value != null && value instanceof String) {
+			//Apache mod_shib joins multiple values with ';', split them again
+			String[] rawValues = ((String) value).split(";");
+			//add non-null values returned by modifyValue()
+			Arrays.stream(rawValues).map(v -> modifyValue(sess, ctx, userExtSource, v)).filter(Objects::nonNull).forEachOrdered(valuesWithoutDuplicities::add);
+		} else if (value != null && value instanceof ArrayList) {
+			//If values are already separated to list of strings
+			//noinspection unchecked
+			((ArrayList<String>) value).stream().map(v -> modifyValue(sess, ctx, userExtSource, v)).filter(Objects::nonNull).forEachOrdered(valuesWithoutDuplicities::add);
+		}
 	}
 
 	/**
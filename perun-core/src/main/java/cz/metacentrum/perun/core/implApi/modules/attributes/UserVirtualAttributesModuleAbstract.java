@@ -11,7 +11,9 @@ import cz.metacentrum.perun.core.api.exceptions.WrongReferenceAttributeValueExce
 import cz.metacentrum.perun.core.impl.PerunSessionImpl;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Abstract class for User Virtual Attributes modules.
@@ -28,6 +30,15 @@ public abstract class UserVirtualAttributesModuleAbstract extends UserAttributes
 		return new Attribute(attribute);
 	}
 
+	@Override
+	public Map<User, Attribute> getAttributeValues(PerunSessionImpl perunSession, List<User> users, AttributeDefinition attribute) {
+		Map<User, Attribute> values = new HashMap<>();
+		for (User user : users) {
+			values.put(user, getAttributeValue(perunSession, user, new Attribute(attribute)));
+		}
+		return values;
+	}
+
 	public boolean setAttributeValue(PerunSessionImpl perunSession, User user, Attribute attribute) {
 		return false;
 	}
@@ -7,6 +7,7 @@ import cz.metacentrum.perun.core.api.exceptions.InternalErrorException;
 import cz.metacentrum.perun.core.impl.PerunSessionImpl;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * This interface serves as a template for virtual attributes.
@@ -28,6 +29,18 @@ public interface UserVirtualAttributesModuleImplApi extends UserAttributesModule
 	 */
 	Attribute getAttributeValue(PerunSessionImpl perunSession, User user, AttributeDefinition attribute);
 
+	/**
+	 * This method will return computed values for many users at once.
+	 * Modules should override it, when the values can be computed by fewer queries than calling
+	 * getAttributeValue() for each user.
+	 *
+	 * @param perunSession perun session
+	 * @param users users which are needed for computing the values
+	 * @param attribute attribute to operate on
+	 * @return attributes with computed values by user
+	 */
+	Map<User, Attribute> getAttributeValues(PerunSessionImpl perunSession, List<User> users, AttributeDefinition attribute);
+
 	/**
 	 * Method sets attributes' values which are dependent on this virtual attribute.
 	 *
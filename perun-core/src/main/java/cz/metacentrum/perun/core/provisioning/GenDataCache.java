@@ -0,0 +1,284 @@
+package cz.metacentrum.perun.core.provisioning;
+
+import cz.metacentrum.perun.audit.events.AuditEvent;
+import cz.metacentrum.perun.core.api.Attribute;
+import cz.metacentrum.perun.core.api.BeansUtils;
+import cz.metacentrum.perun.core.api.CoreConfig;
+import cz.metacentrum.perun.core.api.Facility;
+import cz.metacentrum.perun.core.api.PerunBean;
+import cz.metacentrum.perun.core.api.Resource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Cache of member, user and user-facility attributes loaded for provisioning of facilities.
+ *
+ * Services of one facility are usually planned together and their required attributes overlap, so data loaded
+ * for one service can be reused by the following ones. Attributes are cached per facility and per entity hash
+ * together with their names, so the cached data can be used by any service whose required attributes
+ * of the entity are all cached.
+ *
+ * Number of cached facilities is limited by perun.genData.cache.size, the least recently used facility is dropped
+ * first. Data of facility are dropped when they are older than perun.genData.cache.timeToLive seconds or when
+ * an audit event touches only the facility or its resources. Any other event (e.g. change of an attribute or
+ * of a membership) drops data of all facilities, because virtual attributes can depend on entities which are
+ * not provisioned to the facility at all.
+ *
+ * Cached attributes are copied when stored and when read, so services can't change data of each other.
+ *
+ * @see GenDataProviderImpl
+ */
+public class GenDataCache {
+
+	private final static Logger log = LoggerFactory.getLogger(GenDataCache.class);
+
+	private static volatile GenDataCache instance;
+
+	/**
+	 * Public getters of audit events, which return beans (or collections of beans) touched by the event.
+	 */
+	private final static ClassValue<List<Method>> beanGetters = new ClassValue<>() {
+		@Override
+		protected List<Method> computeValue(Class<?> type) {
+			List<Method> getters = new ArrayList<>();
+			for (Method method : type.getMethods()) {
+				if (method.getParameterCount() == 0 && !Modifier.isStatic(method.getModifiers()) &&
+						(PerunBean.class.isAssignableFrom(method.getReturnType()) ||
+								Collection.class.isAssignableFrom(method.getReturnType()))) {
+					getters.add(method);
+				}
+			}
+			return getters;
+		}
+	};
+
+	private final int maxFacilities;
+	private final long timeToLive;
+	private final Map<Integer, FacilityData> dataByFacility;
+
+	/**
+	 * Create cache.
+	 *
+	 * @param maxFacilities max number of facilities with cached data, 0 or less disables the cache
+	 * @param timeToLive time in milliseconds after which cached data of facility are dropped
+	 */
+	public GenDataCache(int maxFacilities, long timeToLive) {
+		this.maxFacilities = maxFacilities;
+		this.timeToLive = timeToLive;
+		this.dataByFacility = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, FacilityData> eldest) {
+				if (size() > GenDataCache.this.maxFacilities) {
+					eldest.getValue().invalidate();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Get shared instance of the cache configured by CoreConfig.
+	 *
+	 * @return shared cache
+	 */
+	public static GenDataCache getInstance() {
+		GenDataCache cache = instance;
+		if (cache == null) {
+			synchronized (GenDataCache.class) {
+				cache = instance;
+				if (cache == null) {
+					CoreConfig config = BeansUtils.getCoreConfig();
+					cache = (config == null) ? new GenDataCache(0, 0) :
+							new GenDataCache(config.getGenDataCacheSize(), TimeUnit.SECONDS.toMillis(config.getGenDataCacheTimeToLive()));
+					instance = cache;
+				}
+			}
+		}
+		return cache;
+	}
+
+	/**
+	 * Check if the cache can hold any data.
+	 *
+	 * @return true if cache is enabled
+	 */
+	public boolean isEnabled() {
+		return maxFacilities > 0 && timeToLive > 0;
+	}
+
+	/**
+	 * Get cached data of the facility. If there are no valid data for the facility, new empty data are created.
+	 *
+	 * @param facility facility
+	 * @return cached data of the facility or null if the cache is disabled
+	 */
+	public FacilityData getFacilityData(Facility facility) {
+		if (!isEnabled()) return null;
+		synchronized (dataByFacility) {
+			FacilityData data = dataByFacility.get(facility.getId());
+			if (data == null || !data.isValid() || System.currentTimeMillis() - data.created > timeToLive) {
+				if (data != null) data.invalidate();
+				data = new FacilityData();
+				dataByFacility.put(facility.getId(), data);
+			}
+			return data;
+		}
+	}
+
+	/**
+	 * Drop cached data touched by the audit event.
+	 *
+	 * @param event audit event
+	 */
+	public void invalidate(AuditEvent event) {
+		if (!isEnabled() || event == null) return;
+
+		List<Object> beans = new ArrayList<>();
+		for (Method getter : beanGetters.get(event.getClass())) {
+			try {
+				Object value = getter.invoke(event);
+				if (value instanceof Collection) {
+					beans.addAll((Collection<?>) value);
+				} else if (value != null) {
+					beans.add(value);
+				}
+			} catch (IllegalAccessException | InvocationTargetException ex) {
+				log.warn("Unable to get beans of audit event {}, all cached data are dropped.", event.getName(), ex);
+				clear();
+				return;
+			}
+		}
+
+		List<Integer> facilityIds = new ArrayList<>();
+		for (Object bean : beans) {
+			if (bean instanceof Facility) {
+				facilityIds.add(((Facility) bean).getId());
+			} else if (bean instanceof Resource) {
+				facilityIds.add(((Resource) bean).getFacilityId());
+			} else if (bean instanceof PerunBean) {
+				clear();
+				return;
+			}
+		}
+		synchronized (dataByFacility) {
+			for (Integer facilityId : facilityIds) {
+				invalidateFacility(facilityId);
+			}
+		}
+	}
+
+	/**
+	 * Drop all cached data.
+	 */
+	public void clear() {
+		synchronized (dataByFacility) {
+			invalidateIf(data -> true);
+		}
+	}
+
+	private void invalidateFacility(int facilityId) {
+		FacilityData data = dataByFacility.remove(facilityId);
+		if (data != null) data.invalidate();
+	}
+
+	private void invalidateIf(Predicate<FacilityData> condition) {
+		Iterator<FacilityData> iterator = dataByFacility.values().iterator();
+		while (iterator.hasNext()) {
+			FacilityData data = iterator.next();
+			if (condition.test(data)) {
+				data.invalidate();
+				iterator.remove();
+			}
+		}
+	}
+
+	/**
+	 * Cached attributes of one facility.
+	 *
+	 * Data have to be obtained before attributes are read from DB. When the data are invalidated in the meantime,
+	 * attributes are not stored, so data read before a change is committed never get to the cache.
+	 */
+	public static class FacilityData {
+
+		private final long created = System.currentTimeMillis();
+		private volatile boolean valid = true;
+		private final Map<String, Map<String, Attribute>> attributesByHash = new ConcurrentHashMap<>();
+
+		public boolean isValid() {
+			return valid;
+		}
+
+		private void invalidate() {
+			valid = false;
+			attributesByHash.clear();
+		}
+
+		/**
+		 * Get cached attributes of the entity.
+		 *
+		 * @param hash hash of the entity
+		 * @param names names of required attributes
+		 * @return copies of attributes with given names or null if any of them is not cached
+		 */
+		public List<Attribute> getAttributes(String hash, Collection<String> names) {
+			if (!valid) return null;
+			Map<String, Attribute> cached = attributesByHash.get(hash);
+			if (cached == null) return null;
+			List<Attribute> attributes = new ArrayList<>(names.size());
+			for (String name : names) {
+				Attribute attribute = cached.get(name);
+				if (attribute == null) return null;
+				attributes.add(copy(attribute));
+			}
+			return attributes;
+		}
+
+		/**
+		 * Store attributes of the entity. Already cached attributes of the entity are kept.
+		 *
+		 * @param hash hash of the entity
+		 * @param attributes loaded attributes
+		 */
+		public void putAttributes(String hash, List<Attribute> attributes) {
+			if (!valid) return;
+			Map<String, Attribute> byName = new HashMap<>();
+			for (Attribute attribute : attributes) {
+				byName.put(attribute.getName(), copy(attribute));
+			}
+			attributesByHash.merge(hash, Collections.unmodifiableMap(byName), (cached, loaded) -> {
+				Map<String, Attribute> merged = new HashMap<>(cached);
+				merged.putAll(loaded);
+				return Collections.unmodifiableMap(merged);
+			});
+			// invalidation might have cleared the map while storing
+			if (!valid) attributesByHash.clear();
+		}
+
+		@SuppressWarnings("unchecked")
+		private static Attribute copy(Attribute attribute) {
+			Attribute copy = new Attribute(attribute, true);
+			if (attribute.getValue() instanceof ArrayList) {
+				copy.setValue(new ArrayList<>((ArrayList<String>) attribute.getValue()));
+			} else if (attribute.getValue() instanceof LinkedHashMap) {
+				copy.setValue(new LinkedHashMap<>((LinkedHashMap<String, String>) attribute.getValue()));
+			}
+			return copy;
+		}
+	}
+}
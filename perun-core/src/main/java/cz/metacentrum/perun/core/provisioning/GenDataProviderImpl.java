@@ -1,6 +1,7 @@
 package cz.metacentrum.perun.core.provisioning;
 
 import cz.metacentrum.perun.core.api.Attribute;
+import cz.metacentrum.perun.core.api.AttributeDefinition;
 import cz.metacentrum.perun.core.api.Facility;
 import cz.metacentrum.perun.core.api.Group;
 import cz.metacentrum.perun.core.api.Member;
@@ -77,10 +78,19 @@ public class GenDataProviderImpl implements GenDataProvider {
 
 	private final Hasher hasher = new IdHasher();
 
+	/**
+	 * Member, user and user-facility attributes shared with other services of the facility, null if not used.
+	 */
+	private final GenDataCache.FacilityData cachedData;
+	private Map<String, List<String>> requiredAttributeNamesByEntity;
+
 	public GenDataProviderImpl(PerunSessionImpl sess, Service service, Facility facility) {
 		this.sess = sess;
 		this.service = service;
 		this.facility = facility;
+		// data changed by the current transaction are not committed yet, so they can't be shared
+		this.cachedData = sess.getPerunBl().getAuditer().hasUnflushedMessages() ? null :
+				GenDataCache.getInstance().getFacilityData(facility);
 	}
 
 	@Override
@@ -338,9 +348,12 @@ public class GenDataProviderImpl implements GenDataProvider {
 	}
 
 	private void loadMemberSpecificAttributes(List<Member> members) {
-		memberAttrs.putAll(
-				sess.getPerunBl().getAttributesManagerBl().getRequiredAttributes(sess, null, service, members)
-		);
+		List<Member> membersToLoad = getCachedAttributes(members, "member", hasher::hashMember, memberAttrs);
+		if (!membersToLoad.isEmpty()) {
+			storeLoadedAttributes(
+					sess.getPerunBl().getAttributesManagerBl().getRequiredAttributes(sess, null, service, membersToLoad),
+					hasher::hashMember, memberAttrs);
+		}
 
 		List<Integer> userIds = members.stream()
 				.map(Member::getUserId)
@@ -356,13 +369,78 @@ public class GenDataProviderImpl implements GenDataProvider {
 	}
 
 	private void loadUserSpecificAttributes(List<User> users) {
-		userAttrs.putAll(
-				sess.getPerunBl().getAttributesManagerBl().getRequiredAttributes(sess, service, users)
-		);
+		List<User> usersToLoad = getCachedAttributes(users, "user", hasher::hashUser, userAttrs);
+		if (!usersToLoad.isEmpty()) {
+			storeLoadedAttributes(
+					sess.getPerunBl().getAttributesManagerBl().getRequiredAttributes(sess, service, usersToLoad),
+					hasher::hashUser, userAttrs);
+		}
+
+		Function<User, String> hashUserFacility = user -> hasher.hashUserFacility(user, facility);
+		usersToLoad = getCachedAttributes(users, "user_facility", hashUserFacility, userFacilityAttrs);
+		if (!usersToLoad.isEmpty()) {
+			storeLoadedAttributes(
+					sess.getPerunBl().getAttributesManagerBl().getRequiredAttributes(sess, service, facility, usersToLoad),
+					hashUserFacility, userFacilityAttrs);
+		}
+	}
+
+	/**
+	 * Put attributes of entities found in the shared cache into the given map.
+	 *
+	 * @param entities entities to get attributes for
+	 * @param entity name of the entity in attribute namespace, e.g. user_facility
+	 * @param hash function computing hash of the entity
+	 * @param map map of attributes to fill
+	 * @param <T> the type of the entity User, Member, ...
+	 * @return entities whose attributes are not cached and have to be loaded
+	 */
+	private <T> List<T> getCachedAttributes(List<T> entities, String entity, Function<T, String> hash,
+	                                        Map<T, List<Attribute>> map) {
+		if (cachedData == null) {
+			return entities;
+		}
+		List<String> names = getRequiredAttributeNames(entity);
+		if (names.isEmpty()) {
+			return entities;
+		}
+
+		List<T> notCached = new ArrayList<>();
+		for (T e : entities) {
+			List<Attribute> attributes = cachedData.getAttributes(hash.apply(e), names);
+			if (attributes == null) {
+				notCached.add(e);
+			} else {
+				map.put(e, attributes);
+			}
+		}
+		return notCached;
+	}
+
+	/**
+	 * Put loaded attributes into the given map and into the shared cache.
+	 *
+	 * @param loaded loaded attributes
+	 * @param hash function computing hash of the entity
+	 * @param map map of attributes to fill
+	 * @param <T> the type of the entity User, Member, ...
+	 */
+	private <T> void storeLoadedAttributes(Map<T, List<Attribute>> loaded, Function<T, String> hash,
+	                                       Map<T, List<Attribute>> map) {
+		map.putAll(loaded);
+		if (cachedData != null) {
+			loaded.forEach((e, attributes) -> cachedData.putAttributes(hash.apply(e), attributes));
+		}
+	}
 
-		userFacilityAttrs.putAll(
-				sess.getPerunBl().getAttributesManagerBl().getRequiredAttributes(sess, service, facility, users)
-		);
+	private List<String> getRequiredAttributeNames(String entity) {
+		if (requiredAttributeNamesByEntity == null) {
+			requiredAttributeNamesByEntity = new HashMap<>();
+			for (AttributeDefinition definition : sess.getPerunBl().getAttributesManagerBl().getRequiredAttributesDefinition(sess, service)) {
+				requiredAttributeNamesByEntity.computeIfAbsent(definition.getEntity(), k -> new ArrayList<>()).add(definition.getName());
+			}
+		}
+		return requiredAttributeNamesByEntity.getOrDefault(entity, List.of());
 	}
 
 	private void loadVoSpecificAttributes(Resource resource) {
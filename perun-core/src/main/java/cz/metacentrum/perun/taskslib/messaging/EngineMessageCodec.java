@@ -0,0 +1,296 @@
+package cz.metacentrum.perun.taskslib.messaging;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import cz.metacentrum.perun.core.api.Destination;
+import cz.metacentrum.perun.core.api.Facility;
+import cz.metacentrum.perun.core.api.Service;
+import cz.metacentrum.perun.taskslib.model.Task;
+import cz.metacentrum.perun.taskslib.model.TaskResult;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Encoding of JMS messages between dispatcher and engine.
+ *
+ * Version 1 is the original text protocol, where Task is sent as Base64 encoded serialized beans
+ * and each TaskResult is sent in a separate "taskresult:" message. Version 2 sends Tasks as JSON
+ * with only the properties needed by engine and TaskResults in batches as "taskresults:" JSON message.
+ *
+ * Engine announces highest version it supports in "register:[version]" message (plain "register" means version 1).
+ * Dispatcher replies with "protocol|[version]" message with negotiated version, when it is higher than 1.
+ * Until then, both sides use version 1, so engine and dispatcher of different releases still understand each other.
+ *
+ * Every JSON message contains its version in "v" property, so it can be parsed regardless of negotiated version.
+ */
+public class EngineMessageCodec {
+
+	public static final int LEGACY_VERSION = 1;
+	public static final int CURRENT_VERSION = 2;
+
+	public static final String REGISTER = "register";
+	public static final String PROTOCOL = "protocol";
+	public static final String TASK_RESULTS = "taskresults";
+
+	private static final ObjectMapper mapper = new ObjectMapper();
+
+	private EngineMessageCodec() {
+	}
+
+	/**
+	 * Get version to be used with the other side supporting given version.
+	 *
+	 * @param remoteVersion highest version supported by the other side
+	 * @return negotiated version
+	 */
+	public static int negotiate(int remoteVersion) {
+		return Math.max(LEGACY_VERSION, Math.min(CURRENT_VERSION, remoteVersion));
+	}
+
+	/**
+	 * Create register message announcing current version.
+	 *
+	 * @return register message
+	 */
+	public static String encodeRegister() {
+		return REGISTER + ":" + CURRENT_VERSION;
+	}
+
+	/**
+	 * Get version announced by "register" message of engine.
+	 *
+	 * @param message register message
+	 * @return announced version, 1 for engines not announcing version
+	 */
+	public static int decodeRegister(String message) {
+		return parseVersion(message, ':');
+	}
+
+	/**
+	 * Create message with negotiated version sent to engine.
+	 *
+	 * @param version negotiated version
+	 * @return protocol message
+	 */
+	public static String encodeProtocol(int version) {
+		return PROTOCOL + "|" + version;
+	}
+
+	/**
+	 * Get negotiated version from "protocol" message of dispatcher.
+	 *
+	 * @param message protocol message
+	 * @return negotiated version
+	 */
+	public static int decodeProtocol(String message) {
+		return negotiate(parseVersion(message, '|'));
+	}
+
+	/**
+	 * Encode Task to be sent to engine (without "task|" prefix added by producer).
+	 *
+	 * @param task Task with its Service, Facility and Destinations
+	 * @return JSON message
+	 */
+	public static String encodeTask(Task task) {
+		ObjectNode node = mapper.createObjectNode();
+		node.put("v", CURRENT_VERSION);
+		node.put("id", task.getId());
+		node.put("forced", task.isPropagationForced());
+
+		Service service = task.getService();
+		ObjectNode serviceNode = node.putObject("service");
+		serviceNode.put("id", service.getId());
+		serviceNode.put("name", service.getName());
+		serviceNode.put("description", service.getDescription());
+		serviceNode.put("delay", service.getDelay());
+		serviceNode.put("recurrence", service.getRecurrence());
+		serviceNode.put("enabled", service.isEnabled());
+		serviceNode.put("script", service.getScript());
+
+		Facility facility = task.getFacility();
+		ObjectNode facilityNode = node.putObject("facility");
+		facilityNode.put("id", facility.getId());
+		facilityNode.put("name", facility.getName());
+		facilityNode.put("description", facility.getDescription());
+
+		ArrayNode destinationsNode = node.putArray("destinations");
+		if (task.getDestinations() != null) {
+			for (Destination destination : task.getDestinations()) {
+				ObjectNode destinationNode = destinationsNode.addObject();
+				destinationNode.put("id", destination.getId());
+				destinationNode.put("destination", destination.getDestination());
+				destinationNode.put("type", destination.getType());
+				destinationNode.put("propagationType", destination.getPropagationType());
+			}
+		}
+		return write(node);
+	}
+
+	/**
+	 * Check if message sent to engine (without "task|" prefix) is encoded by encodeTask().
+	 *
+	 * @param message message content
+	 * @return true if message is JSON Task
+	 */
+	public static boolean isEncodedTask(String message) {
+		return message != null && message.startsWith("{");
+	}
+
+	/**
+	 * Decode Task encoded by encodeTask().
+	 *
+	 * @param message JSON message
+	 * @return Task
+	 * @throws IllegalArgumentException when message is malformed
+	 */
+	public static Task decodeTask(String message) {
+		JsonNode node = read(message);
+
+		JsonNode serviceNode = required(node, "service");
+		Service service = new Service(required(serviceNode, "id").asInt(), required(serviceNode, "name").asText());
+		service.setDescription(text(serviceNode, "description"));
+		service.setDelay(serviceNode.path("delay").asInt(service.getDelay()));
+		service.setRecurrence(serviceNode.path("recurrence").asInt(service.getRecurrence()));
+		service.setEnabled(serviceNode.path("enabled").asBoolean(true));
+		service.setScript(text(serviceNode, "script"));
+
+		JsonNode facilityNode = required(node, "facility");
+		Facility facility = new Facility(required(facilityNode, "id").asInt(), required(facilityNode, "name").asText());
+		facility.setDescription(text(facilityNode, "description"));
+
+		List<Destination> destinations = new ArrayList<>();
+		for (JsonNode destinationNode : node.path("destinations")) {
+			Destination destination = new Destination(required(destinationNode, "id").asInt(),
+					required(destinationNode, "destination").asText(), text(destinationNode, "type"));
+			String propagationType = text(destinationNode, "propagationType");
+			if (propagationType != null) destination.setPropagationType(propagationType);
+			destinations.add(destination);
+		}
+
+		Task task = new Task();
+		task.setId(required(node, "id").asInt());
+		task.setPropagationForced(node.path("forced").asBoolean(false));
+		task.setFacility(facility);
+		task.setService(service);
+		task.setDestinations(destinations);
+		task.setDelay(service.getDelay());
+		task.setRecurrence(service.getRecurrence());
+		return task;
+	}
+
+	/**
+	 * Encode TaskResults to be sent to dispatcher in one message.
+	 *
+	 * @param taskResults TaskResults
+	 * @return "taskresults:" message
+	 */
+	public static String encodeTaskResults(List<TaskResult> taskResults) {
+		ObjectNode node = mapper.createObjectNode();
+		node.put("v", CURRENT_VERSION);
+		ArrayNode resultsNode = node.putArray("results");
+		for (TaskResult taskResult : taskResults) {
+			ObjectNode resultNode = resultsNode.addObject();
+			resultNode.put("id", taskResult.getId());
+			resultNode.put("taskId", taskResult.getTaskId());
+			resultNode.put("destinationId", taskResult.getDestinationId());
+			resultNode.put("status", taskResult.getStatus() == null ? null : taskResult.getStatus().name());
+			resultNode.put("returnCode", taskResult.getReturnCode());
+			resultNode.put("standardMessage", taskResult.getStandardMessage());
+			resultNode.put("errorMessage", taskResult.getErrorMessage());
+			if (taskResult.getTimestamp() != null) resultNode.put("timestamp", taskResult.getTimestamp().getTime());
+			if (taskResult.getService() != null) {
+				resultNode.put("serviceId", taskResult.getService().getId());
+				resultNode.put("serviceName", taskResult.getService().getName());
+			}
+		}
+		return TASK_RESULTS + ":" + write(node);
+	}
+
+	/**
+	 * Decode TaskResults encoded by encodeTaskResults() (without "taskresults:" prefix).
+	 *
+	 * @param message JSON message
+	 * @return TaskResults
+	 * @throws IllegalArgumentException when message is malformed
+	 */
+	public static List<TaskResult> decodeTaskResults(String message) {
+		JsonNode node = read(message);
+		List<TaskResult> taskResults = new ArrayList<>();
+		for (JsonNode resultNode : required(node, "results")) {
+			TaskResult taskResult = new TaskResult();
+			taskResult.setId(resultNode.path("id").asInt());
+			taskResult.setTaskId(required(resultNode, "taskId").asInt());
+			taskResult.setDestinationId(required(resultNode, "destinationId").asInt());
+			try {
+				taskResult.setStatus(TaskResult.TaskResultStatus.valueOf(required(resultNode, "status").asText()));
+			} catch (IllegalArgumentException e) {
+				throw new IllegalArgumentException("Unknown status of TaskResult: " + resultNode.path("status").asText(), e);
+			}
+			taskResult.setReturnCode(resultNode.path("returnCode").asInt());
+			taskResult.setStandardMessage(text(resultNode, "standardMessage"));
+			taskResult.setErrorMessage(text(resultNode, "errorMessage"));
+			if (resultNode.hasNonNull("timestamp")) taskResult.setTimestamp(new Date(resultNode.get("timestamp").asLong()));
+			if (resultNode.hasNonNull("serviceId")) {
+				taskResult.setService(new Service(resultNode.get("serviceId").asInt(), text(resultNode, "serviceName")));
+			}
+			taskResults.add(taskResult);
+		}
+		return taskResults;
+	}
+
+	private static int parseVersion(String message, char separator) {
+		int index = message.indexOf(separator);
+		if (index < 0) return LEGACY_VERSION;
+		try {
+			return Integer.parseInt(message.substring(index + 1).trim());
+		} catch (NumberFormatException e) {
+			return LEGACY_VERSION;
+		}
+	}
+
+	private static JsonNode read(String message) {
+		JsonNode node;
+		try {
+			node = mapper.readTree(message);
+		} catch (JsonProcessingException e) {
+			throw new IllegalArgumentException("Message is not valid JSON: " + e.getMessage(), e);
+		}
+		if (node == null || !node.isObject()) {
+			throw new IllegalArgumentException("Message is not JSON object.");
+		}
+		int version = node.path("v").asInt(0);
+		if (version < 2 || version > CURRENT_VERSION) {
+			throw new IllegalArgumentException("Unsupported version of message: " + version);
+		}
+		return node;
+	}
+
+	private static String write(JsonNode node) {
+		try {
+			return mapper.writeValueAsString(node);
+		} catch (JsonProcessingException e) {
+			// can't happen for tree of simple values
+			throw new IllegalStateException("Unable to write message.", e);
+		}
+	}
+
+	private static JsonNode required(JsonNode node, String property) {
+		JsonNode value = node.get(property);
+		if (value == null || value.isNull()) {
+			throw new IllegalArgumentException("Message is missing property " + property + ".");
+		}
+		return value;
+	}
+
+	private static String text(JsonNode node, String property) {
+		JsonNode value = node.get(property);
+		return (value == null || value.isNull()) ? null : value.asText();
+	}
+
+}
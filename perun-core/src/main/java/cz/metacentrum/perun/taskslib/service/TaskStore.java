@@ -66,6 +66,16 @@ public interface TaskStore {
 	 */
 	List<Task> getTasksWithStatus(Task.TaskStatus... status);
 
+	/**
+	 * Get number of Tasks which are in any of specified statuses.
+	 *
+	 * @see cz.metacentrum.perun.taskslib.model.Task.TaskStatus
+	 *
+	 * @param status Array of expected TaskStatuses
+	 * @return Number of Tasks which are in any of expected statuses.
+	 */
+	int getTasksCountWithStatus(Task.TaskStatus... status);
+
 	/**
 	 * Remove Task from TaskStore
 	 *
@@ -10,27 +10,38 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Implementation of TaskStore as in-memory pool.
  *
+ * Tasks are kept in concurrent maps, so readers are never blocked. Adding and removing of Tasks is serialized
+ * to keep both primary maps consistent. Tasks are also indexed by their status. Store registers itself
+ * as a status listener of every stored Task, so the index follows all status changes and getting Tasks
+ * or their count in some status doesn't need to scan all Tasks. Index is weakly consistent, Task whose
+ * status is just being changed might be missing from the result.
+ *
  * @see cz.metacentrum.perun.taskslib.service.TaskStore
  *
  * @author David Šarman
  * @author Pavel Zlámal <zlamal@cesnet.cz>
  */
-public class TaskStoreImpl implements TaskStore {
+public class TaskStoreImpl implements TaskStore, Task.StatusListener {
 
 	private final static Logger log = LoggerFactory.getLogger(TaskStoreImpl.class);
-	private final Map<Integer, Task> tasksById = new HashMap<>();
-	private final Map<Pair<Integer, Integer>, Task> tasksByFacilityAndService = new HashMap<>();
+	private final Map<Integer, Task> tasksById = new ConcurrentHashMap<>();
+	private final Map<Pair<Integer, Integer>, Task> tasksByFacilityAndService = new ConcurrentHashMap<>();
+	private final Map<Task.TaskStatus, Set<Task>> tasksByStatus = new EnumMap<>(Task.TaskStatus.class);
 
 	public TaskStoreImpl() {
+		for (Task.TaskStatus status : Task.TaskStatus.values()) {
+			tasksByStatus.put(status, ConcurrentHashMap.newKeySet());
+		}
 	}
 
 	@Override
@@ -57,17 +68,18 @@ public class TaskStoreImpl implements TaskStore {
 			log.error("Tried to insert Task {} with no Facility", task);
 			throw new IllegalArgumentException("Tasks Facility not set.");
 		}
-		Task idAdded;
-		Task otherAdded;
+		Pair<Integer, Integer> facilityAndService = new Pair<>(task.getFacility().getId(), task.getService().getId());
 		synchronized (this) {
-			idAdded = tasksById.put(task.getId(), task);
-			otherAdded = tasksByFacilityAndService.put(
-					new Pair<>(task.getFacility().getId(), task.getService().getId()), task);
-		}
-		if (idAdded != otherAdded) {
-			log.error("Task returned from both Maps after insert differ. taskById {}, taskByFacilityAndService {}", idAdded, otherAdded);
-			throw new TaskStoreException("Tasks returned after insert into both Maps differ.");
-		} else {
+			Task idAdded = tasksById.get(task.getId());
+			Task otherAdded = tasksByFacilityAndService.get(facilityAndService);
+			if (idAdded != otherAdded) {
+				log.error("Task returned from both Maps after insert differ. taskById {}, taskByFacilityAndService {}", idAdded, otherAdded);
+				throw new TaskStoreException("Tasks returned after insert into both Maps differ.");
+			}
+			if (idAdded != null && idAdded != task) unindexTask(idAdded);
+			tasksById.put(task.getId(), task);
+			tasksByFacilityAndService.put(facilityAndService, task);
+			indexTask(task);
 			return idAdded;
 		}
 	}
@@ -78,16 +90,21 @@ public class TaskStoreImpl implements TaskStore {
 	}
 
 	@Override
-	public synchronized List<Task> getTasksWithStatus(Task.TaskStatus... status) {
-		Collection<Task> tasks = tasksById.values();
-		synchronized (this) {
-			List<Task> result = new ArrayList<>();
-			List<Task.TaskStatus> statuses = Arrays.asList(status);
-			for (Task t : tasks) {
-				if (statuses.contains(t.getStatus())) result.add(t);
-			}
-			return result;
+	public List<Task> getTasksWithStatus(Task.TaskStatus... status) {
+		List<Task> result = new ArrayList<>();
+		for (Task.TaskStatus taskStatus : status) {
+			result.addAll(tasksByStatus.get(taskStatus));
+		}
+		return result;
+	}
+
+	@Override
+	public int getTasksCountWithStatus(Task.TaskStatus... status) {
+		int count = 0;
+		for (Task.TaskStatus taskStatus : status) {
+			count += tasksByStatus.get(taskStatus).size();
 		}
+		return count;
 	}
 
 	@Override
@@ -97,6 +114,8 @@ public class TaskStoreImpl implements TaskStore {
 		synchronized (this) {
 			idRemoved = tasksById.remove(task.getId());
 			otherRemoved = tasksByFacilityAndService.remove(new Pair<>(task.getFacility().getId(), task.getService().getId()));
+			if (idRemoved != null) unindexTask(idRemoved);
+			if (otherRemoved != null && otherRemoved != idRemoved) unindexTask(otherRemoved);
 		}
 		if (idRemoved != otherRemoved) {
 			log.error("Inconsistent state occurred after removing Task {} from TaskStore", task);
@@ -109,15 +128,42 @@ public class TaskStoreImpl implements TaskStore {
 	public Task removeTask(int id) throws TaskStoreException {
 		Task task = getTask(id);
 		if (task != null) {
-			task = removeTask(getTask(id));
+			task = removeTask(task);
 		}
 		return task;
 	}
 
 	@Override
-	public void clear() {
+	public synchronized void clear() {
+		for (Task task : tasksById.values()) {
+			unindexTask(task);
+		}
 		tasksById.clear();
 		tasksByFacilityAndService.clear();
 	}
 
+	/**
+	 * Keeps index of Tasks by status up to date, called by the Task whenever its status is changed.
+	 */
+	@Override
+	public void statusChanged(Task task, Task.TaskStatus oldStatus, Task.TaskStatus newStatus) {
+		if (oldStatus != null) tasksByStatus.get(oldStatus).remove(task);
+		if (newStatus != null) tasksByStatus.get(newStatus).add(task);
+	}
+
+	private void indexTask(Task task) {
+		// status can't be changed while the listener is registered and the Task is indexed by current status
+		synchronized (task) {
+			task.setStatusListener(this);
+			if (task.getStatus() != null) tasksByStatus.get(task.getStatus()).add(task);
+		}
+	}
+
+	private void unindexTask(Task task) {
+		synchronized (task) {
+			task.setStatusListener(null);
+			if (task.getStatus() != null) tasksByStatus.get(task.getStatus()).remove(task);
+		}
+	}
+
 }
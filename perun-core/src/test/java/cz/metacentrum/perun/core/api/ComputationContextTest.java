@@ -0,0 +1,118 @@
+package cz.metacentrum.perun.core.api;
+
+import cz.metacentrum.perun.core.api.exceptions.VoNotExistsException;
+import cz.metacentrum.perun.core.impl.PerunSessionImpl;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+public class ComputationContextTest {
+
+	private PerunSession sess;
+	private final AtomicInteger loads = new AtomicInteger();
+
+	@Before
+	public void setUp() {
+		sess = new PerunSessionImpl(mock(Perun.class), new PerunPrincipal("test", "test", "test"), new PerunClient());
+		loads.set(0);
+	}
+
+	@Test
+	public void memoizeWithoutContextAlwaysLoads() {
+		System.out.println("ComputationContextTest.memoizeWithoutContextAlwaysLoads");
+
+		assertNull(sess.getComputationContext());
+		ComputationContext.memoize(sess, "vo", 1, this::loadVo);
+		ComputationContext.memoize(sess, "vo", 1, this::loadVo);
+		assertEquals(2, loads.get());
+	}
+
+	@Test
+	public void memoizeInContextLoadsOnce() {
+		System.out.println("ComputationContextTest.memoizeInContextLoadsOnce");
+
+		try (ComputationContext context = sess.openComputationContext()) {
+			Vo first = ComputationContext.memoize(sess, "vo", 1, this::loadVo);
+			Vo second = ComputationContext.memoize(sess, "vo", 1, this::loadVo);
+			assertSame(first, second);
+			assertNull(ComputationContext.memoize(sess, "missing", 1, () -> {
+				loads.incrementAndGet();
+				return null;
+			}));
+			assertNull(ComputationContext.memoize(sess, "missing", 1, () -> {
+				loads.incrementAndGet();
+				return null;
+			}));
+			assertEquals(2, loads.get());
+
+			assertEquals(1, context.getStatistics().get("vo").getHits());
+			assertEquals(1, context.getStatistics().get("vo").getMisses());
+			assertEquals(1, context.getStatistics().get("missing").getHits());
+		}
+		assertNull(sess.getComputationContext());
+	}
+
+	@Test
+	public void nestedContextIsReused() {
+		System.out.println("ComputationContextTest.nestedContextIsReused");
+
+		try (ComputationContext outer = sess.openComputationContext()) {
+			try (ComputationContext inner = sess.openComputationContext()) {
+				assertSame(outer, inner);
+				ComputationContext.memoize(sess, "vo", 1, this::loadVo);
+			}
+			assertNotNull("Context must stay open until outermost close.", sess.getComputationContext());
+			ComputationContext.memoize(sess, "vo", 1, this::loadVo);
+			assertEquals(1, loads.get());
+		}
+		assertNull(sess.getComputationContext());
+	}
+
+	@Test
+	public void exceptionsAreNotMemoized() {
+		System.out.println("ComputationContextTest.exceptionsAreNotMemoized");
+
+		try (ComputationContext ignored = sess.openComputationContext()) {
+			for (int i = 0; i < 2; i++) {
+				try {
+					ComputationContext.memoize(sess, "vo", 1, () -> {
+						loads.incrementAndGet();
+						throw new VoNotExistsException("missing");
+					});
+					fail("Exception should be thrown.");
+				} catch (VoNotExistsException e) {
+					// expected
+				}
+			}
+			assertEquals(2, loads.get());
+		}
+	}
+
+	@Test
+	public void contextIsNotVisibleToOtherThreads() throws Exception {
+		System.out.println("ComputationContextTest.contextIsNotVisibleToOtherThreads");
+
+		try (ComputationContext ignored = sess.openComputationContext()) {
+			Thread thread = new Thread(() -> assertNull(sess.getComputationContext()));
+			final Throwable[] failure = new Throwable[1];
+			thread.setUncaughtExceptionHandler((t, e) -> failure[0] = e);
+			thread.start();
+			thread.join();
+			assertNull(failure[0]);
+		}
+	}
+
+	private Vo loadVo() {
+		loads.incrementAndGet();
+		return new Vo(1, "vo", "vo");
+	}
+
+}
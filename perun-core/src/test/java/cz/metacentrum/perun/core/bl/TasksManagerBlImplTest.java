@@ -385,6 +385,36 @@ public class TasksManagerBlImplTest {
 		assertTrue(result1.equals(tasksManager.getTaskResultById(perunSession, result1Id)));
 	}
 	
+	@Test
+	public void testInsertNewTaskResults() {
+		System.out.println("TasksManagerBlImplTest.testInsertNewTaskResults");
+		TaskResult result4 = new TaskResult();
+		result4.setDestination(destination1);
+		result4.setDestinationId(testDestinationId1);
+		result4.setService(testService1);
+		result4.setTaskId(task1Id);
+		result4.setStatus(TaskResultStatus.ERROR);
+		result4.setTimestamp(new Date());
+
+		TaskResult result5 = new TaskResult();
+		result5.setDestination(destination2);
+		result5.setDestinationId(testDestinationId2);
+		result5.setService(testService1);
+		result5.setTaskId(task1Id);
+		result5.setStatus(TaskResultStatus.DONE);
+		result5.setTimestamp(new Date());
+
+		List<Integer> ids = tasksManager.insertNewTaskResults(perunSession, List.of(result4, result5));
+		assertEquals(2, ids.size());
+		assertEquals(result4, tasksManager.getTaskResultById(perunSession, ids.get(0)));
+		assertEquals(result5, tasksManager.getTaskResultById(perunSession, ids.get(1)));
+
+		List<TaskResult> newest = tasksManager.getTaskResultsByTaskOnlyNewest(perunSession, task1Id);
+		assertEquals(2, newest.size());
+		assertTrue(newest.contains(result4));
+		assertTrue(newest.contains(result5));
+	}
+
 	@Test 
 	public void testInsertTask() {
 		System.out.println("TasksManagerBlImplTest.testInsertTask");
@@ -1574,6 +1574,23 @@ public class AttributesManagerEntryIntegrationTest extends AbstractPerunIntegrat
 		assertTrue("our attribute was not returned", retAttr.contains(attr));
 	}
 
+	@Test
+	public void getMembersAttributesByListOfNames() throws Exception {
+		System.out.println(CLASS_NAME + "getMembersAttributesByListOfNames");
+
+		vo = setUpVo();
+		member = setUpMember();
+		attributes = setUpMemberAttribute();
+		attributesManager.setAttribute(sess, member, attributes.get(0));
+
+		List<Attribute> expectedAttributes = attributesManager.getAttributes(sess, member, Collections.singletonList(attributes.get(0).getName()));
+
+		Map<Member, List<Attribute>> retAttr = perun.getAttributesManagerBl().getMembersAttributes(sess, Collections.singletonList(member), Collections.singletonList(attributes.get(0).getName()));
+		assertEquals("unable to get attributes of members", 1, retAttr.size());
+		assertEquals("our attribute was not returned", expectedAttributes, retAttr.get(member));
+		assertEquals("value of our attribute is not correct", attributes.get(0).getValue(), retAttr.get(member).get(0).getValue());
+	}
+
 	@Test
 	public void getFacilityUserAttributes() throws Exception {
 		System.out.println(CLASS_NAME + "getFacilityUserAttributes");
@@ -3698,6 +3715,35 @@ public class AttributesManagerEntryIntegrationTest extends AbstractPerunIntegrat
 
 	}
 
+	@Test
+	public void getAttributeDefinitionAfterChanges() throws Exception {
+		System.out.println(CLASS_NAME + "getAttributeDefinitionAfterChanges");
+
+		// fill snapshot of attribute definitions
+		attributesManager.getAttributesDefinition(sess);
+
+		AttributeDefinition attrDef = new AttributeDefinition();
+		attrDef.setFriendlyName("test-registry-attr");
+		attrDef.setNamespace(AttributesManager.NS_USER_ATTR_DEF);
+		attrDef.setDescription("created");
+		attrDef.setType(String.class.getName());
+		attrDef = attributesManager.createAttribute(sess, attrDef);
+
+		assertEquals("created", attributesManager.getAttributeDefinitionById(sess, attrDef.getId()).getDescription());
+		assertTrue(attributesManager.getAttributesDefinitionByNamespace(sess, AttributesManager.NS_USER_ATTR_DEF).contains(attrDef));
+
+		attrDef.setDescription("updated");
+		attributesManager.updateAttributeDefinition(sess, attrDef);
+		assertEquals("updated", attributesManager.getAttributeDefinition(sess, attrDef.getName()).getDescription());
+
+		// returned definitions are copies
+		attributesManager.getAttributeDefinition(sess, attrDef.getName()).setDescription("changed locally");
+		assertEquals("updated", attributesManager.getAttributeDefinition(sess, attrDef.getName()).getDescription());
+
+		attributesManager.deleteAttribute(sess, attrDef);
+		assertFalse(attributesManager.getAttributesDefinition(sess).contains(attrDef));
+	}
+
 	@Test
 	public void getAttributesDefinitionByNamespace() throws Exception {
 		System.out.println(CLASS_NAME + "getAttributesDefinitionByNamespace");
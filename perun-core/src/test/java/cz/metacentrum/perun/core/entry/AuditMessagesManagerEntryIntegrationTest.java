@@ -87,6 +87,70 @@ public class AuditMessagesManagerEntryIntegrationTest extends AbstractPerunInteg
 		perun.getAuditMessagesManager().getMessages(sess, -1);
 	}
 
+	@Test
+	public void pollConsumerEventsBatch() throws Exception {
+		System.out.println(CLASS_NAME + "pollConsumerEventsBatch");
+		String consumerName = "testBatchConsumer";
+		perun.getAuditMessagesManagerBl().createAuditerConsumer(sess, consumerName);
+
+		int count = 5;
+		for (int i = 0; i < count; i++) {
+			perun.getAuditer().logWithoutTransaction(sess, new StringMessageEvent("Test cislo: "+ i));
+		}
+
+		List<AuditEvent> firstBatch = perun.getAuditMessagesManager().pollConsumerEventsBatch(sess, consumerName, 3);
+		assertEquals("first batch has wrong size", 3, firstBatch.size());
+		assertEquals(new StringMessageEvent("Test cislo: 0"), firstBatch.get(0));
+
+		List<AuditEvent> secondBatch = perun.getAuditMessagesManager().pollConsumerEventsBatch(sess, consumerName, 3);
+		assertEquals("second batch has wrong size", 2, secondBatch.size());
+		assertEquals(new StringMessageEvent("Test cislo: 3"), secondBatch.get(0));
+
+		assertThat(perun.getAuditMessagesManager().pollConsumerEventsBatch(sess, consumerName, 3)).isEmpty();
+	}
+
+	@Test
+	public void pollConsumerMessagesBatch() throws Exception {
+		System.out.println(CLASS_NAME + "pollConsumerMessagesBatch");
+		String consumerName = "testBatchConsumer";
+		perun.getAuditMessagesManagerBl().createAuditerConsumer(sess, consumerName);
+		int lastProcessedId = perun.getAuditMessagesManager().getLastMessageId(sess);
+
+		int count = 5;
+		for (int i = 0; i < count; i++) {
+			perun.getAuditer().logWithoutTransaction(sess, new StringMessageEvent("Test cislo: "+ i));
+		}
+
+		List<AuditMessage> messages = perun.getAuditMessagesManager().pollConsumerMessagesBatch(sess, consumerName, lastProcessedId, 4);
+		assertEquals("batch has wrong size", 4, messages.size());
+		assertThat(messages.get(0).getId()).isLessThan(messages.get(3).getId());
+
+		messages = perun.getAuditMessagesManager().pollConsumerMessagesBatch(sess, consumerName, messages.get(3).getId(), 4);
+		assertEquals("batch has wrong size", 1, messages.size());
+		assertEquals(new StringMessageEvent("Test cislo: 4"), messages.get(0).getEvent());
+	}
+
+	@Test
+	public void storeConsumerPosition() throws Exception {
+		System.out.println(CLASS_NAME + "storeConsumerPosition");
+		String consumerName = "testSelfPositionedConsumer";
+		perun.getAuditMessagesManagerBl().createAuditerConsumer(sess, consumerName);
+		perun.getAuditer().logWithoutTransaction(sess, new StringMessageEvent("Test position"));
+		int lastMessageId = perun.getAuditMessagesManager().getLastMessageId(sess);
+
+		// polling with own position doesn't change the stored one
+		Integer storedId = perun.getAuditMessagesManagerBl().getAllAuditerConsumers(sess).get(consumerName);
+		perun.getAuditMessagesManager().pollConsumerMessagesBatch(sess, consumerName, lastMessageId - 1, 4);
+		assertEquals(storedId, perun.getAuditMessagesManagerBl().getAllAuditerConsumers(sess).get(consumerName));
+
+		perun.getAuditMessagesManager().storeConsumerPosition(sess, consumerName, lastMessageId);
+		assertEquals(Integer.valueOf(lastMessageId), perun.getAuditMessagesManagerBl().getAllAuditerConsumers(sess).get(consumerName));
+
+		// position is never lowered
+		perun.getAuditMessagesManager().storeConsumerPosition(sess, consumerName, lastMessageId - 1);
+		assertEquals(Integer.valueOf(lastMessageId), perun.getAuditMessagesManagerBl().getAllAuditerConsumers(sess).get(consumerName));
+	}
+
 	@Test
 	public void testLocalDate() throws Exception {
 		System.out.println(CLASS_NAME + "testLocalDate");
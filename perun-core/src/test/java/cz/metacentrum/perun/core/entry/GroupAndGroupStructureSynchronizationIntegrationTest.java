@@ -4,6 +4,7 @@ import cz.metacentrum.perun.core.AbstractPerunIntegrationTest;
 import cz.metacentrum.perun.core.api.Attribute;
 import cz.metacentrum.perun.core.api.AttributeDefinition;
 import cz.metacentrum.perun.core.api.AttributesManager;
+import cz.metacentrum.perun.core.api.BeansUtils;
 import cz.metacentrum.perun.core.api.Candidate;
 import cz.metacentrum.perun.core.api.CandidateSync;
 import cz.metacentrum.perun.core.api.ExtSource;
@@ -19,6 +20,7 @@ import cz.metacentrum.perun.core.api.User;
 import cz.metacentrum.perun.core.api.UserExtSource;
 import cz.metacentrum.perun.core.api.Vo;
 import cz.metacentrum.perun.core.api.VosManager;
+import cz.metacentrum.perun.core.api.exceptions.InternalErrorException;
 import cz.metacentrum.perun.core.bl.AttributesManagerBl;
 import cz.metacentrum.perun.core.bl.ExtSourcesManagerBl;
 import cz.metacentrum.perun.core.bl.GroupsManagerBl;
@@ -52,6 +54,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyMap;
 import static org.mockito.Mockito.doNothing;
@@ -126,6 +129,8 @@ public class GroupAndGroupStructureSynchronizationIntegrationTest extends Abstra
 		//noinspection ResultOfMethodCallIgnored
 		doReturn(EXT_SOURCE_NAME).when((ExtSourceLdap)essa).getName();
 		doNothing().when(extSourceManagerBl).addExtSource(any(PerunSession.class), any(Group.class), any(ExtSource.class));
+		//LDAP extSource is read as stream of subjects stubbed by getGroupSubjects
+		when(((ExtSourceLdap)essa).getGroupSubjectsStream(anyMap())).thenAnswer(invocation -> essa.getGroupSubjects(invocation.getArgument(0)).stream());
 	}
 
 
@@ -877,6 +882,73 @@ public class GroupAndGroupStructureSynchronizationIntegrationTest extends Abstra
 		assertEquals(1, groupsManagerBl.getGroupMembers(sess, group).size());
 	}
 
+	@Test
+	public void synchronizeGroupSkipsDuplicateSubjectsInBatches() throws Exception {
+		System.out.println(CLASS_NAME + "synchronizeGroupSkipsDuplicateSubjectsInBatches");
+
+		when(extSourceManagerBl.getExtSourceByName(sess, ExtSourcesManager.EXTSOURCE_NAME_PERUN)).thenReturn(extSourceForUserCreation);
+
+		Attribute attr = attributesManagerBl.getAttribute(sess, group, GroupsManager.GROUPEXTSOURCE_ATTRNAME);
+		attr.setValue(extSource.getName());
+		attributesManagerBl.setAttribute(sess, group, attr);
+
+		Map<String, String> attributes = new HashMap<>();
+		attributes.put("login", "metodej");
+		Candidate candidate = setUpCandidate();
+
+		when(extSourceManagerBl.getCandidate(sess, attributes, (ExtSourceLdap)essa, "metodej")).thenReturn(new CandidateSync(candidate));
+		when(essa.getGroupSubjects(anyMap())).thenReturn(List.of(attributes, new HashMap<>(attributes)));
+
+		int batchSize = BeansUtils.getCoreConfig().getGroupSynchronizationBatchSize();
+		BeansUtils.getCoreConfig().setGroupSynchronizationBatchSize(1);
+		try {
+			List<String> skippedMembers = groupsManagerBl.synchronizeGroup(sess, group);
+			assertThat(skippedMembers).isEmpty();
+		} finally {
+			BeansUtils.getCoreConfig().setGroupSynchronizationBatchSize(batchSize);
+		}
+		assertEquals(1, groupsManagerBl.getGroupMembers(sess, group).size());
+	}
+
+	@Test
+	public void synchronizeGroupDoesNotRemoveMembersWhenReadingFails() throws Exception {
+		System.out.println(CLASS_NAME + "synchronizeGroupDoesNotRemoveMembersWhenReadingFails");
+
+		when(extSourceManagerBl.getExtSourceByName(sess, ExtSourcesManager.EXTSOURCE_NAME_PERUN)).thenReturn(extSourceForUserCreation);
+
+		Attribute attr = attributesManagerBl.getAttribute(sess, group, GroupsManager.GROUPEXTSOURCE_ATTRNAME);
+		attr.setValue(extSource.getName());
+		attributesManagerBl.setAttribute(sess, group, attr);
+		groupsManagerBl.addMember(sess, group, member);
+
+		Map<String, String> attributes = new HashMap<>();
+		attributes.put("login", "metodej");
+		Candidate candidate = setUpCandidate();
+
+		when(extSourceManagerBl.getCandidate(sess, attributes, (ExtSourceLdap)essa, "metodej")).thenReturn(new CandidateSync(candidate));
+		//connection to the extSource is lost after the first subject
+		when(((ExtSourceLdap)essa).getGroupSubjectsStream(anyMap())).thenReturn(Stream.of(attributes, null).map(subject -> {
+			if (subject == null) throw new InternalErrorException("Connection to extSource lost.");
+			return subject;
+		}));
+
+		int batchSize = BeansUtils.getCoreConfig().getGroupSynchronizationBatchSize();
+		BeansUtils.getCoreConfig().setGroupSynchronizationBatchSize(1);
+		try {
+			groupsManagerBl.synchronizeGroup(sess, group);
+			fail("Synchronization should fail when reading of subjects fails.");
+		} catch (InternalErrorException e) {
+			// expected
+		} finally {
+			BeansUtils.getCoreConfig().setGroupSynchronizationBatchSize(batchSize);
+		}
+
+		//already read subject was added, but the member missing in the incomplete data wasn't removed
+		List<Member> members = groupsManagerBl.getGroupMembers(sess, group);
+		assertEquals(2, members.size());
+		assertTrue(members.contains(member));
+	}
+
 	@Test
 	public void synchronizeGroupUpdateUserAttributeOfMember() throws Exception {
 		System.out.println(CLASS_NAME + "synchronizeGroupUpdateUserAttributeOfMember");
@@ -0,0 +1,58 @@
+package cz.metacentrum.perun.core.impl;
+
+import cz.metacentrum.perun.core.api.AttributeDefinition;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcPerunTemplate;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+public class AttributeDefinitionRegistryTest {
+
+	private static final String WATCHER_NAME = "attribute-definitions-watcher";
+
+	private AttributeDefinitionRegistry registry;
+
+	@Before
+	public void setUp() {
+		JdbcPerunTemplate jdbc = mock(JdbcPerunTemplate.class);
+		doReturn(0L).when(jdbc).queryForObject(anyString(), eq(Long.class));
+		List<AttributeDefinition> definitions = Collections.emptyList();
+		registry = new AttributeDefinitionRegistry(jdbc, () -> definitions);
+	}
+
+	@Test
+	public void closeStopsWatcher() throws Exception {
+		System.out.println("closeStopsWatcher");
+
+		assertNotNull(registry.getAll());
+		Thread watcher = findWatcher();
+		assertNotNull("watcher should be started with the first snapshot", watcher);
+
+		registry.close();
+		watcher.join(5000);
+		assertFalse("watcher should be stopped", watcher.isAlive());
+
+		// registry is not used nor watched after closing
+		assertNull(registry.getAll());
+		assertNull(registry.getByName("urn:perun:user:attribute-def:def:test"));
+		assertNull("watcher should not be started again", findWatcher());
+	}
+
+	private static Thread findWatcher() {
+		for (Thread thread : Thread.getAllStackTraces().keySet()) {
+			if (WATCHER_NAME.equals(thread.getName()) && thread.isAlive()) return thread;
+		}
+		return null;
+	}
+
+}
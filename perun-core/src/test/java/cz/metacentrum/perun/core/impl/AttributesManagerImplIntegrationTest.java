@@ -51,11 +51,14 @@ public class AttributesManagerImplIntegrationTest extends AbstractPerunIntegrati
 		attrMap.put(getArrayAttribute("a,b", "c"), "a\\,b,c,");
 		attrMap.put(getArrayAttribute("a,,b", "c"), "a\\,\\,b,c,");
 		attrMap.put(getArrayAttribute("a\\b"), "a\\\\b,");
+		attrMap.put(getArrayAttribute("a", null, "b\\"), "a,\\0,b\\\\,");
+		attrMap.put(getArrayAttribute("a\nb,c", "d"), "a\nb\\,c,d,");
 
 		attrMap.put(getHashAttribute("a", "b", "c", "d"), "a:b,c:d,");
 		attrMap.put(getHashAttribute("a,x", "b,,", ",,c", ",,d,,"), "a\\,x:b\\,\\,,\\,\\,c:\\,\\,d\\,\\,,");
 		attrMap.put(getHashAttribute("a:x", "b"), "a\\:x:b,");
 		attrMap.put(getHashAttribute("a:x", "b", ":", "::"), "a\\:x:b,\\::\\:\\:,");
+		attrMap.put(getHashAttribute("a\nb", "c,d", "e", null), "a\nb:c\\,d,e:\\0,");
 	}
 
 
@@ -78,6 +81,76 @@ public class AttributesManagerImplIntegrationTest extends AbstractPerunIntegrati
 		}
 	}
 
+	@Test
+	public void escaping() throws Exception {
+		System.out.println(CLASS_NAME + "escaping");
+		assertEquals("a\\\\b\\<c\\>", BeansUtils.createEscaping("a\\b<c>"));
+		assertEquals("\\0", BeansUtils.createEscaping(null));
+		assertEquals("a\\b<c>", BeansUtils.eraseEscaping(BeansUtils.createEscaping("a\\b<c>")));
+		assertEquals("anull", BeansUtils.eraseEscaping("a\\0"));
+		assertNull(BeansUtils.eraseEscaping("\\0"));
+	}
+
+	@Test
+	public void attributeValueToJson() throws Exception {
+		System.out.println(CLASS_NAME + "attributeValueToJson");
+		List<Attribute> attributes = new ArrayList<>(attrMap.keySet());
+		attributes.add(getArrayAttribute("a", null, "\"b\""));
+		attributes.add(getHashAttribute("b", "1", "a", null));
+		for(Attribute attribute : attributes) {
+			String json = BeansUtils.attributeValueToJson(attribute);
+			assertEquals("JSON: " + json, attribute.getValue(), BeansUtils.jsonToAttributeValue(json, attribute.getType()));
+		}
+		assertNull(BeansUtils.attributeValueToJson(getArrayAttribute()));
+	}
+
+	@Test
+	public void setListAttributeStoresJson() throws Exception {
+		System.out.println(CLASS_NAME + "setListAttributeStoresJson");
+		Attribute attribute = setGroupListAttribute("a,b", "c:d");
+
+		assertNotNull(getGroupAttributeValueJson(attribute));
+		assertEquals(attribute.getValue(), perun.getAttributesManagerBl().getAttribute(sess, group, attribute.getName()).getValue());
+	}
+
+	@Test
+	public void changeOfStringValueClearsJson() throws Exception {
+		System.out.println(CLASS_NAME + "changeOfStringValueClearsJson");
+		Attribute attribute = setGroupListAttribute("a", "b");
+
+		// client, which doesn't know the JSON column
+		perunBlImpl.getDatabaseManagerBl().getJdbcPerunTemplate().update("update group_attr_values set attr_value=? where group_id=? and attr_id=?",
+				BeansUtils.attributeValueToString(new ArrayList<>(List.of("c")), ArrayList.class.getName()), group.getId(), attribute.getId());
+
+		assertNull(getGroupAttributeValueJson(attribute));
+		assertEquals(List.of("c"), perun.getAttributesManagerBl().getAttribute(sess, group, attribute.getName()).getValue());
+	}
+
+	@Test
+	public void convertAttributeValuesToJson() throws Exception {
+		System.out.println(CLASS_NAME + "convertAttributeValuesToJson");
+		Attribute attribute = setGroupListAttribute("a", "b");
+		perunBlImpl.getDatabaseManagerBl().getJdbcPerunTemplate().update("update group_attr_values set attr_value_json=null where group_id=? and attr_id=?",
+				group.getId(), attribute.getId());
+
+		assertThat(attributesManager.convertAttributeValuesToJson(sess)).isGreaterThanOrEqualTo(1);
+		assertNotNull(getGroupAttributeValueJson(attribute));
+		assertEquals(attribute.getValue(), perun.getAttributesManagerBl().getAttribute(sess, group, attribute.getName()).getValue());
+	}
+
+	@Test
+	public void convertAttributeValuesToJsonSkipsValueWithoutJson() throws Exception {
+		System.out.println(CLASS_NAME + "convertAttributeValuesToJsonSkipsValueWithoutJson");
+		Attribute attribute = setGroupListAttribute("a", "b");
+		// value without trailing delimiter is parsed as empty list, which has no JSON
+		perunBlImpl.getDatabaseManagerBl().getJdbcPerunTemplate().update("update group_attr_values set attr_value='a', attr_value_json=null where group_id=? and attr_id=?",
+				group.getId(), attribute.getId());
+
+		// returns instead of reading the value again and again
+		attributesManager.convertAttributeValuesToJson(sess);
+		assertNull(getGroupAttributeValueJson(attribute));
+	}
+
 	@Test
 	public void getRequiredAttributes_Services_Group_ForMoreServices() {
 		System.out.println(CLASS_NAME + "getRequiredAttributes_Services_Group_ForMoreServices");
@@ -215,6 +288,21 @@ public class AttributesManagerImplIntegrationTest extends AbstractPerunIntegrati
 		perunBlImpl.getResourcesManagerBl().assignService(sess, resource, service2);
 	}
 
+	private Attribute setGroupListAttribute(String ... value) throws Exception {
+		AttributeDefinition definition = getGroupAttributeDefinition("listAttribute");
+		definition.setType(ArrayList.class.getName());
+		definition = perunBlImpl.getAttributesManagerBl().createAttribute(sess, definition);
+		Attribute attribute = new Attribute(definition);
+		attribute.setValue(new ArrayList<>(Arrays.asList(value)));
+		perunBlImpl.getAttributesManagerBl().setAttribute(sess, group, attribute);
+		return attribute;
+	}
+
+	private String getGroupAttributeValueJson(AttributeDefinition definition) {
+		return perunBlImpl.getDatabaseManagerBl().getJdbcPerunTemplate().queryForObject("select attr_value_json from group_attr_values where group_id=? and attr_id=?",
+				String.class, group.getId(), definition.getId());
+	}
+
 	private Attribute getArrayAttribute(String ... value) {
 		Attribute attribute = new Attribute();
 		attribute.setFriendlyName("test");
@@ -72,6 +72,31 @@ public class AuditerImplIntegrationTest extends AbstractPerunIntegrationTest {
 		//assertTrue("Invalid message received.", messages.get(0).getEvent().getMessage().contains("\"message\":\"Facility created Facility:"));
 	}
 
+	@Test
+	public void flushKeepsOrderOfMessages() throws Exception {
+		System.out.println("AuditerTest.flushKeepsOrderOfMessages");
+		perun.getAuditer().clean();
+
+		FacilityCreated first = new FacilityCreated(new Facility(0, "AuditorTestFacility1"));
+		FacilityCreated second = new FacilityCreated(new Facility(0, "AuditorTestFacility2"));
+		FacilityCreated third = new FacilityCreated(new Facility(0, "AuditorTestFacility3"));
+
+		perun.getAuditer().log(sess, first);
+		perun.getAuditer().log(sess, second);
+		perun.getAuditer().log(sess, third);
+		perun.getAuditer().flush();
+
+		// messages are returned from the newest one
+		List<AuditMessage> messages = perun.getAuditMessagesManagerBl().getMessagesByCount(sess, 3);
+
+		assertEquals("Invalid number of messages.", 3, messages.size());
+		assertEquals(third, messages.get(0).getEvent());
+		assertEquals(second, messages.get(1).getEvent());
+		assertEquals(first, messages.get(2).getEvent());
+		assertTrue("Ids of messages must follow order of logging.", messages.get(0).getId() > messages.get(1).getId());
+		assertTrue("Ids of messages must follow order of logging.", messages.get(1).getId() > messages.get(2).getId());
+	}
+
 	// ------------- private methods ----------------------------------
 
 
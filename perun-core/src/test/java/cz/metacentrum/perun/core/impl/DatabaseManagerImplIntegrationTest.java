@@ -1,15 +1,23 @@
 package cz.metacentrum.perun.core.impl;
 
 import cz.metacentrum.perun.core.AbstractPerunIntegrationTest;
+import cz.metacentrum.perun.core.api.AuditerLogPartition;
+import cz.metacentrum.perun.core.api.BeansUtils;
 import cz.metacentrum.perun.core.api.DBVersion;
 import cz.metacentrum.perun.core.api.exceptions.InternalErrorException;
 import cz.metacentrum.perun.core.bl.DatabaseManagerBl;
+import cz.metacentrum.perun.core.blImpl.DatabaseManagerBlImpl;
+import cz.metacentrum.perun.core.implApi.DatabaseManagerImplApi;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
 import java.util.List;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 /**
  * @author Simona Kruppova 410315
@@ -65,4 +73,35 @@ public class DatabaseManagerImplIntegrationTest extends AbstractPerunIntegration
 		List<DBVersion> versions = dbManager.getChangelogVersions("2.2.4", "changelogPatternTests/correctTestFile.txt");
 		assertEquals("It should load 2 new database versions from a file", 2, versions.size());
 	}
+
+	@Test
+	public void maintainAuditerLogPartitions() throws Exception {
+		long partitionSize = BeansUtils.getCoreConfig().getAuditerLogPartitionSize();
+		long lastId = perun.getAuditMessagesManagerBl().getLastMessageId(sess);
+
+		dbManager.maintainAuditerLogPartitions();
+
+		List<AuditerLogPartition> partitions = dbManager.getAuditerLogPartitions();
+		assertTrue("Default partition should be the last one", partitions.get(partitions.size() - 1).isDefaultPartition());
+		long highestBound = partitions.stream()
+				.filter(partition -> !partition.isDefaultPartition())
+				.mapToLong(AuditerLogPartition::getIdTo)
+				.max().orElse(0);
+		long expected = (lastId / partitionSize + 1 + BeansUtils.getCoreConfig().getAuditerLogPartitionsAhead()) * partitionSize;
+		assertTrue("Partitions should be created ahead of the last message id", highestBound >= expected);
+	}
+
+	@Test
+	public void getAuditerConsumersMinLastProcessedIdSkipsIdleConsumers() throws Exception {
+		DatabaseManagerImplApi dbManagerImpl = ((DatabaseManagerBlImpl) dbManager).getDatabaseManagerImpl();
+		int lastId = perun.getAuditMessagesManagerBl().getLastMessageId(sess);
+		perun.getAuditMessagesManagerBl().createAuditerConsumer(sess, "idleConsumer");
+		dbManager.getJdbcPerunTemplate().update("update auditer_consumers set last_processed_id=?, modified_at=? where name=?",
+				-1, Timestamp.valueOf(LocalDateTime.now().minusDays(10)), "idleConsumer");
+		LocalDateTime idleSince = LocalDateTime.now().minusDays(5);
+
+		assertEquals(Integer.valueOf(-1), dbManagerImpl.getAuditerConsumersMinLastProcessedId(lastId, null));
+		assertThat(dbManagerImpl.getAuditerConsumersMinLastProcessedId(lastId, idleSince)).isNotEqualTo(-1);
+		assertThat(dbManagerImpl.getIdleAuditerConsumers(lastId, idleSince)).contains("idleConsumer");
+	}
 }
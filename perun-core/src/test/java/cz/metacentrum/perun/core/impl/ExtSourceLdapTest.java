@@ -11,7 +11,11 @@ import javax.naming.directory.Attributes;
 import javax.naming.directory.BasicAttribute;
 import javax.naming.directory.BasicAttributes;
 import javax.naming.directory.DirContext;
+import javax.naming.directory.SearchControls;
 import javax.naming.directory.SearchResult;
+import javax.naming.ldap.Control;
+import javax.naming.ldap.LdapContext;
+import javax.naming.ldap.PagedResultsResponseControl;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -21,8 +25,11 @@ import java.util.Map;
 import static org.junit.Assert.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 /**
  * @author Metodej Klang
@@ -60,7 +67,7 @@ public class ExtSourceLdapTest {
 		Attributes attributes = new BasicAttributes();
 		attributes.put(new BasicAttribute("firstName", "josef"));
 		attributes.put(new BasicAttribute("dc", "cz"));
-		doReturn(attributes).when(dirContext).getAttributes(base);
+		doReturn(attributes).when(dirContext).getAttributes(eq(base), any(String[].class));
 
 		// create expected subject to get
 		List<Map<String, String>> expectedSubjects = new ArrayList<>();
@@ -111,4 +118,45 @@ public class ExtSourceLdapTest {
 		List<Map<String, String>> actualSubjects = extSourceLdap.getUsersSubjects();
 		assertEquals("subjects should be same", expectedSubjects, actualSubjects);
 	}
+
+	@Test
+	public void getUsersSubjectsPagedTest() throws Exception {
+		System.out.println("getUsersSubjectsPagedTest");
+
+		// define needed attributes
+		String base = "dc=cz";
+		Map<String, String> mapOfAttributes = new HashMap<>();
+		mapOfAttributes.put("usersQuery", "(objectClass=person)");
+		mapOfAttributes.put("base", base);
+		mapOfAttributes.put("pageSize", "1");
+		doReturn(mapOfAttributes).when(extSourceLdap).getAttributes();
+
+		// mock connection, which returns two pages with one entry each
+		LdapContext ldapContext = mock(LdapContext.class);
+		doReturn(ldapContext).when(extSourceLdap).getContext();
+		NamingEnumeration<SearchResult> firstPage = mock(NamingEnumeration.class);
+		doReturn(true, false).when(firstPage).hasMore();
+		Attributes josef = new BasicAttributes();
+		josef.put(new BasicAttribute("firstName", "josef"));
+		josef.put(new BasicAttribute("dc", "cz"));
+		doReturn(new SearchResult("josef", null, josef)).when(firstPage).next();
+		NamingEnumeration<SearchResult> secondPage = mock(NamingEnumeration.class);
+		doReturn(true, false).when(secondPage).hasMore();
+		Attributes karel = new BasicAttributes();
+		karel.put(new BasicAttribute("firstName", "karel"));
+		karel.put(new BasicAttribute("dc", "cz"));
+		doReturn(new SearchResult("karel", null, karel)).when(secondPage).next();
+		doReturn(firstPage, secondPage).when(ldapContext).search(anyString(), anyString(), any(SearchControls.class));
+		// BER encoded response values: sequence of result size (0) and cookie (empty on the last page)
+		Control nextPage = new PagedResultsResponseControl(PagedResultsResponseControl.OID, false, new byte[] {0x30, 0x06, 0x02, 0x01, 0x00, 0x04, 0x01, 0x01});
+		Control lastPage = new PagedResultsResponseControl(PagedResultsResponseControl.OID, false, new byte[] {0x30, 0x05, 0x02, 0x01, 0x00, 0x04, 0x00});
+		doReturn(new Control[] {nextPage}).doReturn(new Control[] {lastPage}).when(ldapContext).getResponseControls();
+
+		// test the method
+		List<Map<String, String>> actualSubjects = extSourceLdap.getUsersSubjects();
+		assertEquals("both pages should be read", 2, actualSubjects.size());
+		assertEquals("josef", actualSubjects.get(0).get("cn"));
+		assertEquals("karel", actualSubjects.get(1).get("cn"));
+		verify(ldapContext, times(2)).search(anyString(), anyString(), any(SearchControls.class));
+	}
 }
@@ -0,0 +1,354 @@
+package cz.metacentrum.perun.core.impl;
+
+import cz.metacentrum.perun.core.AbstractPerunIntegrationTest;
+import cz.metacentrum.perun.core.api.Attribute;
+import cz.metacentrum.perun.core.api.AttributeDefinition;
+import cz.metacentrum.perun.core.api.AttributesManager;
+import cz.metacentrum.perun.core.api.BanOnVo;
+import cz.metacentrum.perun.core.api.ExtSource;
+import cz.metacentrum.perun.core.api.ExtSourcesManager;
+import cz.metacentrum.perun.core.api.Facility;
+import cz.metacentrum.perun.core.api.Group;
+import cz.metacentrum.perun.core.api.Member;
+import cz.metacentrum.perun.core.api.Resource;
+import cz.metacentrum.perun.core.api.Service;
+import cz.metacentrum.perun.core.api.Status;
+import cz.metacentrum.perun.core.api.User;
+import cz.metacentrum.perun.core.api.UserExtSource;
+import cz.metacentrum.perun.core.api.Vo;
+import cz.metacentrum.perun.core.api.exceptions.AttributeNotExistsException;
+import cz.metacentrum.perun.core.impl.modules.attributes.urn_perun_member_attribute_def_virt_isSuspended;
+import cz.metacentrum.perun.core.impl.modules.attributes.urn_perun_member_resource_attribute_def_def_dataQuotas;
+import cz.metacentrum.perun.core.impl.modules.attributes.urn_perun_member_resource_attribute_def_def_dataQuotasOverride;
+import cz.metacentrum.perun.core.impl.modules.attributes.urn_perun_member_resource_attribute_def_virt_dataQuotas;
+import cz.metacentrum.perun.core.impl.modules.attributes.urn_perun_resource_attribute_def_def_defaultDataQuotas;
+import cz.metacentrum.perun.core.impl.modules.attributes.urn_perun_user_attribute_def_virt_additionalIdentifiers;
+import cz.metacentrum.perun.core.impl.modules.attributes.urn_perun_user_attribute_def_virt_eduPersonEntitlement;
+import cz.metacentrum.perun.core.impl.modules.attributes.urn_perun_user_attribute_def_virt_groupNames;
+import cz.metacentrum.perun.core.impl.modules.attributes.urn_perun_user_facility_attribute_def_virt_dataQuotas;
+import cz.metacentrum.perun.core.implApi.modules.attributes.UserVirtualAttributeCollectedFromUserExtSource;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares values of virtual attributes computed for many holders at once with values computed for each holder alone.
+ */
+public class VirtualAttributesBatchIntegrationTest extends AbstractPerunIntegrationTest {
+
+	private static final String CLASS_NAME = "VirtualAttributesBatchIntegrationTest.";
+
+	private static final String A_U_DEF_TEST = AttributesManager.NS_USER_ATTR_DEF + ":batchTestValue";
+	private static final String A_M_DEF_TEST = AttributesManager.NS_MEMBER_ATTR_DEF + ":batchTestValue";
+	private static final String A_UES_ENTITLEMENT = AttributesManager.NS_UES_ATTR_DEF + ":entitlement";
+	private static final String A_UES_ADDITIONAL_IDENTIFIERS = AttributesManager.NS_UES_ATTR_DEF + ":additionalIdentifiers";
+
+	private PerunSessionImpl session;
+
+	private Vo vo1;
+	private Vo vo2;
+	private Facility facility;
+	private Resource resource1;
+	private Resource resource2;
+
+	// valid members in both VOs
+	private User user1;
+	// valid member in vo1, disabled member in vo2
+	private User user2;
+	// invalid member in vo1
+	private User user3;
+	// no members and no values at all
+	private User user4;
+	private List<User> users;
+
+	private Member member11;
+	private Member member12;
+	private Member member21;
+	private Member member22;
+	private Member member31;
+	private List<Member> members;
+
+	private AttributeDefinition groupNames;
+	private AttributeDefinition eduPersonEntitlement;
+	private AttributeDefinition additionalIdentifiers;
+	private AttributeDefinition dataQuotas;
+	private AttributeDefinition isSuspended;
+
+	@Before
+	public void setUp() throws Exception {
+		session = (PerunSessionImpl) sess;
+
+		groupNames = getOrCreateAttributeDefinition(new urn_perun_user_attribute_def_virt_groupNames().getAttributeDefinition());
+		eduPersonEntitlement = getOrCreateAttributeDefinition(new urn_perun_user_attribute_def_virt_eduPersonEntitlement().getAttributeDefinition());
+		additionalIdentifiers = getOrCreateAttributeDefinition(new urn_perun_user_attribute_def_virt_additionalIdentifiers().getAttributeDefinition());
+		dataQuotas = getOrCreateAttributeDefinition(new urn_perun_user_facility_attribute_def_virt_dataQuotas().getAttributeDefinition());
+		isSuspended = getOrCreateAttributeDefinition(new urn_perun_member_attribute_def_virt_isSuspended().getAttributeDefinition());
+		getOrCreateAttributeDefinition(new urn_perun_member_resource_attribute_def_virt_dataQuotas().getAttributeDefinition());
+		getOrCreateAttributeDefinition(new urn_perun_member_resource_attribute_def_def_dataQuotas().getAttributeDefinition());
+		getOrCreateAttributeDefinition(new urn_perun_member_resource_attribute_def_def_dataQuotasOverride().getAttributeDefinition());
+		getOrCreateAttributeDefinition(new urn_perun_resource_attribute_def_def_defaultDataQuotas().getAttributeDefinition());
+		getOrCreateAttributeDefinition(getAttributeDefinition(A_U_DEF_TEST, String.class.getName()));
+		getOrCreateAttributeDefinition(getAttributeDefinition(A_M_DEF_TEST, String.class.getName()));
+		// source values joined by ';' and already separated to list
+		getOrCreateAttributeDefinition(getAttributeDefinition(A_UES_ENTITLEMENT, String.class.getName()));
+		getOrCreateAttributeDefinition(getAttributeDefinition(A_UES_ADDITIONAL_IDENTIFIERS, ArrayList.class.getName()));
+
+		vo1 = perun.getVosManagerBl().createVo(sess, new Vo(0, "batchVo1", "batchVo1"));
+		vo2 = perun.getVosManagerBl().createVo(sess, new Vo(0, "batchVo2", "batchVo2"));
+		facility = perun.getFacilitiesManagerBl().createFacility(sess, new Facility(0, "batchFacility"));
+		resource1 = perun.getResourcesManagerBl().createResource(sess, new Resource(0, "batchResource1", "", facility.getId()), vo1, facility);
+		resource2 = perun.getResourcesManagerBl().createResource(sess, new Resource(0, "batchResource2", "", facility.getId()), vo2, facility);
+		Group group1 = perun.getGroupsManagerBl().createGroup(sess, vo1, new Group("batchGroup1", ""));
+		Group group2 = perun.getGroupsManagerBl().createGroup(sess, vo2, new Group("batchGroup2", ""));
+		perun.getResourcesManagerBl().assignGroupToResource(sess, group1, resource1);
+		perun.getResourcesManagerBl().assignGroupToResource(sess, group2, resource2);
+
+		user1 = createUser("One");
+		user2 = createUser("Two");
+		user3 = createUser("Three");
+		user4 = createUser("Four");
+		users = Arrays.asList(user1, user2, user3, user4);
+
+		member11 = createMember(vo1, user1, group1, Status.VALID);
+		member12 = createMember(vo2, user1, group2, Status.VALID);
+		member21 = createMember(vo1, user2, group1, Status.VALID);
+		member22 = createMember(vo2, user2, group2, Status.DISABLED);
+		member31 = createMember(vo1, user3, group1, Status.INVALID);
+		members = Arrays.asList(member11, member12, member21, member22, member31);
+
+		perun.getVosManagerBl().setBan(sess, new BanOnVo(0, member21.getId(), vo1.getId(), new Date(System.currentTimeMillis() + 86400000L), "batch"));
+
+		setUserValue(user1, A_U_DEF_TEST, "one");
+		setUserValue(user2, A_U_DEF_TEST, "two");
+		setUserValue(user3, A_U_DEF_TEST, "three");
+		setMemberValue(member11, "11");
+		setMemberValue(member12, "12");
+		setMemberValue(member22, "22");
+
+		ExtSource extSource = perun.getExtSourcesManagerBl().createExtSource(sess, new ExtSource("batchExtSource", ExtSourcesManager.EXTSOURCE_INTERNAL), null);
+		UserExtSource ues11 = perun.getUsersManagerBl().addUserExtSource(sess, user1, new UserExtSource(extSource, "one-1"));
+		UserExtSource ues12 = perun.getUsersManagerBl().addUserExtSource(sess, user1, new UserExtSource(extSource, "one-2"));
+		UserExtSource ues21 = perun.getUsersManagerBl().addUserExtSource(sess, user2, new UserExtSource(extSource, "two-1"));
+		UserExtSource ues31 = perun.getUsersManagerBl().addUserExtSource(sess, user3, new UserExtSource(extSource, "three-1"));
+		setUesValue(ues11, A_UES_ENTITLEMENT, "a;b;c");
+		setUesValue(ues12, A_UES_ENTITLEMENT, "c;d");
+		setUesValue(ues21, A_UES_ENTITLEMENT, "e");
+		setUesValue(ues11, A_UES_ADDITIONAL_IDENTIFIERS, new ArrayList<>(Arrays.asList("id1", "id2")));
+		setUesValue(ues12, A_UES_ADDITIONAL_IDENTIFIERS, new ArrayList<>(Arrays.asList("id2", "id3")));
+		setUesValue(ues31, A_UES_ADDITIONAL_IDENTIFIERS, new ArrayList<>(Arrays.asList("id4")));
+
+		setQuotas(resource1, "/data", "10G:20G");
+		setQuotas(resource2, "/data", "1T:2T", "/scratch", "5G:5G");
+		Attribute memberQuotas = new Attribute(perun.getAttributesManagerBl().getAttributeDefinition(sess, urn_perun_member_resource_attribute_def_virt_dataQuotas.A_MR_dataQuotas));
+		memberQuotas.setValue(quotas("/data", "30G:40G"));
+		perun.getAttributesManagerBl().setAttributeWithoutCheck(sess, member11, resource1, memberQuotas, false);
+	}
+
+	@Test
+	public void groupNamesOfUsers() throws Exception {
+		System.out.println(CLASS_NAME + "groupNamesOfUsers");
+
+		urn_perun_user_attribute_def_virt_groupNames module = new urn_perun_user_attribute_def_virt_groupNames();
+		Map<User, Attribute> values = module.getAttributeValues(session, users, groupNames);
+
+		assertEquals(users.size(), values.size());
+		for (User user : users) {
+			assertEquals("Value of " + user, module.getAttributeValue(session, user, groupNames).getValue(), values.get(user).getValue());
+		}
+		assertTrue(values.get(user1).valueAsList().containsAll(Arrays.asList("batchVo1", "batchVo1:batchGroup1", "batchVo2", "batchVo2:batchGroup2")));
+		// disabled member in vo2 is skipped
+		assertTrue(values.get(user2).valueAsList().contains("batchVo1:batchGroup1"));
+		assertFalse(values.get(user2).valueAsList().contains("batchVo2"));
+		assertTrue(values.get(user3).valueAsList().isEmpty());
+		assertTrue(values.get(user4).valueAsList().isEmpty());
+	}
+
+	@Test
+	public void valuesCollectedFromUserExtSourcesOfUsers() throws Exception {
+		System.out.println(CLASS_NAME + "valuesCollectedFromUserExtSourcesOfUsers");
+
+		assertCollectedValues(new urn_perun_user_attribute_def_virt_eduPersonEntitlement(), eduPersonEntitlement);
+		assertCollectedValues(new urn_perun_user_attribute_def_virt_additionalIdentifiers(), additionalIdentifiers);
+
+		Map<User, Attribute> entitlements = new urn_perun_user_attribute_def_virt_eduPersonEntitlement().getAttributeValues(session, users, eduPersonEntitlement);
+		assertEquals(new HashSet<>(Arrays.asList("a", "b", "c", "d")), new HashSet<>(entitlements.get(user1).valueAsList()));
+		assertTrue(entitlements.get(user4).valueAsList().isEmpty());
+		Map<User, Attribute> identifiers = new urn_perun_user_attribute_def_virt_additionalIdentifiers().getAttributeValues(session, users, additionalIdentifiers);
+		assertEquals(new HashSet<>(Arrays.asList("id1", "id2", "id3")), new HashSet<>(identifiers.get(user1).valueAsList()));
+		assertEquals(new HashSet<>(Arrays.asList("id4")), new HashSet<>(identifiers.get(user3).valueAsList()));
+	}
+
+	@Test
+	public void dataQuotasOfUsersOnFacility() throws Exception {
+		System.out.println(CLASS_NAME + "dataQuotasOfUsersOnFacility");
+
+		urn_perun_user_facility_attribute_def_virt_dataQuotas module = new urn_perun_user_facility_attribute_def_virt_dataQuotas();
+		Map<User, Attribute> values = module.getAttributeValues(session, users, facility, dataQuotas);
+
+		assertEquals(users.size(), values.size());
+		for (User user : users) {
+			assertEquals("Value of " + user, module.getAttributeValue(session, user, facility, dataQuotas).getValue(), values.get(user).getValue());
+		}
+		assertEquals(values.get(user1).valueAsMap().keySet(), new HashSet<>(Arrays.asList("/data", "/scratch")));
+		assertEquals(values.get(user2).valueAsMap().keySet(), new HashSet<>(Arrays.asList("/data")));
+		assertTrue(values.get(user3).valueAsMap().isEmpty());
+		assertTrue(values.get(user4).valueAsMap().isEmpty());
+	}
+
+	@Test
+	public void getUsersAttributesMatchesAttributesOfEachUser() throws Exception {
+		System.out.println(CLASS_NAME + "getUsersAttributesMatchesAttributesOfEachUser");
+
+		List<String> attrNames = Arrays.asList(A_U_DEF_TEST, groupNames.getName(), eduPersonEntitlement.getName(), additionalIdentifiers.getName());
+		Map<User, List<Attribute>> usersAttributes = perun.getAttributesManagerBl().getUsersAttributes(sess, users, attrNames);
+
+		assertEquals(users.size(), usersAttributes.size());
+		for (User user : users) {
+			Map<String, Object> expected = new HashMap<>();
+			for (String attrName : attrNames) {
+				expected.put(attrName, perun.getAttributesManagerBl().getAttribute(sess, user, attrName).getValue());
+			}
+			assertSameValues(user, expected, usersAttributes.get(user));
+		}
+	}
+
+	@Test
+	public void getRequiredAttributesOfUsersOnFacilityMatchesAttributesOfEachUser() throws Exception {
+		System.out.println(CLASS_NAME + "getRequiredAttributesOfUsersOnFacilityMatchesAttributesOfEachUser");
+
+		Service service = perun.getServicesManagerBl().createService(sess, new Service(0, "batchService"));
+		perun.getServicesManagerBl().addRequiredAttribute(sess, service, dataQuotas);
+		Map<User, List<Attribute>> usersAttributes = perun.getAttributesManagerBl().getRequiredAttributes(sess, service, facility, users);
+
+		assertEquals(users.size(), usersAttributes.size());
+		for (User user : users) {
+			Map<String, Object> expected = new HashMap<>();
+			expected.put(dataQuotas.getName(), perun.getAttributesManagerBl().getAttribute(sess, facility, user, dataQuotas.getName()).getValue());
+			assertSameValues(user, expected, usersAttributes.get(user));
+		}
+	}
+
+	@Test
+	public void getMembersAttributesMatchesAttributesOfEachMember() throws Exception {
+		System.out.println(CLASS_NAME + "getMembersAttributesMatchesAttributesOfEachMember");
+
+		List<String> attrNames = Arrays.asList(isSuspended.getName(), A_M_DEF_TEST);
+		Map<Member, List<Attribute>> membersAttributes = perun.getAttributesManagerBl().getMembersAttributes(sess, members, attrNames);
+
+		assertEquals(members.size(), membersAttributes.size());
+		for (Member member : members) {
+			Map<String, Object> expected = new HashMap<>();
+			for (String attrName : attrNames) {
+				expected.put(attrName, perun.getAttributesManagerBl().getAttribute(sess, member, attrName).getValue());
+			}
+			assertSameValues(member, expected, membersAttributes.get(member));
+		}
+		assertEquals(true, perun.getAttributesManagerBl().getAttribute(sess, member21, isSuspended.getName()).getValue());
+	}
+
+	/**
+	 * Each attribute has to be at its own position with value of its own holder.
+	 */
+	private void assertSameValues(Object holder, Map<String, Object> expected, List<Attribute> attributes) {
+		assertNotNull("Attributes of " + holder, attributes);
+		assertEquals("Attributes of " + holder, expected.size(), attributes.size());
+		for (Attribute attribute : attributes) {
+			assertNotNull("Attribute of " + holder, attribute);
+			assertTrue("Unexpected " + attribute + " of " + holder, expected.containsKey(attribute.getName()));
+			assertEquals("Value of " + attribute.getName() + " of " + holder, comparable(expected.get(attribute.getName())), comparable(attribute.getValue()));
+		}
+	}
+
+	private void assertCollectedValues(UserVirtualAttributeCollectedFromUserExtSource<?> module, AttributeDefinition definition) {
+		Map<User, Attribute> values = module.getAttributeValues(session, users, definition);
+		assertEquals(users.size(), values.size());
+		for (User user : users) {
+			assertEquals("Value of " + definition.getName() + " of " + user,
+					comparable(module.getAttributeValue(session, user, definition).getValue()), comparable(values.get(user).getValue()));
+		}
+	}
+
+	/**
+	 * Values collected to sets don't keep order of items.
+	 */
+	private static Object comparable(Object value) {
+		return value instanceof ArrayList ? new HashSet<>((ArrayList<?>) value) : value;
+	}
+
+	private AttributeDefinition getOrCreateAttributeDefinition(AttributeDefinition definition) throws Exception {
+		try {
+			return perun.getAttributesManagerBl().getAttributeDefinition(sess, definition.getName());
+		} catch (AttributeNotExistsException e) {
+			return perun.getAttributesManagerBl().createAttribute(sess, definition);
+		}
+	}
+
+	private AttributeDefinition getAttributeDefinition(String name, String type) {
+		AttributeDefinition definition = new AttributeDefinition();
+		definition.setNamespace(name.substring(0, name.lastIndexOf(':')));
+		definition.setFriendlyName(name.substring(name.lastIndexOf(':') + 1));
+		definition.setDisplayName(definition.getFriendlyName());
+		definition.setDescription(definition.getFriendlyName());
+		definition.setType(type);
+		return definition;
+	}
+
+	private User createUser(String lastName) {
+		return perun.getUsersManagerBl().createUser(sess, new User(0, "Batch", lastName, "", "", ""));
+	}
+
+	private Member createMember(Vo vo, User user, Group group, Status status) throws Exception {
+		Member member = perun.getMembersManagerBl().createMember(sess, vo, user);
+		perun.getGroupsManagerBl().addMember(sess, group, member);
+		if (status == Status.DISABLED) {
+			member = perun.getMembersManagerBl().setStatus(sess, member, Status.VALID);
+		}
+		return perun.getMembersManagerBl().setStatus(sess, member, status);
+	}
+
+	private void setUserValue(User user, String name, Object value) throws Exception {
+		Attribute attribute = new Attribute(perun.getAttributesManagerBl().getAttributeDefinition(sess, name));
+		attribute.setValue(value);
+		perun.getAttributesManagerBl().setAttribute(sess, user, attribute);
+	}
+
+	private void setMemberValue(Member member, Object value) throws Exception {
+		Attribute attribute = new Attribute(perun.getAttributesManagerBl().getAttributeDefinition(sess, A_M_DEF_TEST));
+		attribute.setValue(value);
+		perun.getAttributesManagerBl().setAttribute(sess, member, attribute);
+	}
+
+	private void setUesValue(UserExtSource ues, String name, Object value) throws Exception {
+		Attribute attribute = new Attribute(perun.getAttributesManagerBl().getAttributeDefinition(sess, name));
+		attribute.setValue(value);
+		perun.getAttributesManagerBl().setAttribute(sess, ues, attribute);
+	}
+
+	private void setQuotas(Resource resource, String ... pathsAndQuotas) throws Exception {
+		Attribute attribute = new Attribute(perun.getAttributesManagerBl().getAttributeDefinition(sess, urn_perun_member_resource_attribute_def_virt_dataQuotas.A_R_defaultDataQuotas));
+		attribute.setValue(quotas(pathsAndQuotas));
+		perun.getAttributesManagerBl().setAttributeWithoutCheck(sess, resource, attribute);
+	}
+
+	private static LinkedHashMap<String, String> quotas(String ... pathsAndQuotas) {
+		LinkedHashMap<String, String> quotas = new LinkedHashMap<>();
+		for (int i = 0; i < pathsAndQuotas.length; i += 2) {
+			quotas.put(pathsAndQuotas[i], pathsAndQuotas[i + 1]);
+		}
+		return quotas;
+	}
+
+}
@@ -1,6 +1,7 @@
 package cz.metacentrum.perun.core.impl.modules.attributes;
 
 import cz.metacentrum.perun.core.api.Attribute;
+import cz.metacentrum.perun.core.api.AttributeDefinition;
 import cz.metacentrum.perun.core.api.AttributesManager;
 import cz.metacentrum.perun.core.api.Facility;
 import cz.metacentrum.perun.core.api.User;
@@ -11,6 +12,12 @@ import cz.metacentrum.perun.core.impl.PerunSessionImpl;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -67,4 +74,26 @@ public class urn_perun_user_facility_attribute_def_virt_loginTest {
 
 		classInstance.checkAttributeSemantics(sess, user, facility, attributeToCheck);
 	}
+
+	@Test
+	public void testGetAttributeValues() throws Exception {
+		System.out.println("testGetAttributeValues()");
+		User userWithoutLogin = new User(2, "", "", "", "", "");
+		AttributeDefinition loginDefinition = new AttributeDefinition();
+		loginDefinition.setNamespace(AttributesManager.NS_USER_ATTR_DEF);
+		loginDefinition.setFriendlyName("login-namespace:" + facilityLoginNamespace.getValue());
+		Attribute login = new Attribute(loginDefinition);
+		login.setValue("login");
+		AttributesManagerBl attributesManagerBl = sess.getPerunBl().getAttributesManagerBl();
+		when(attributesManagerBl.getAttributeDefinition(sess, loginDefinition.getName())).thenReturn(loginDefinition);
+		HashMap<User, List<Attribute>> usersAttributes = new HashMap<>();
+		usersAttributes.put(user, List.of(login));
+		when(attributesManagerBl.getUsersAttributes(sess, List.of(user, userWithoutLogin), List.of(loginDefinition.getName()))).thenReturn(usersAttributes);
+
+		Map<User, Attribute> values = classInstance.getAttributeValues(sess, List.of(user, userWithoutLogin), facility, classInstance.getAttributeDefinition());
+
+		assertEquals(2, values.size());
+		assertEquals("login", values.get(user).getValue());
+		assertNull(values.get(userWithoutLogin).getValue());
+	}
 }
@@ -0,0 +1,173 @@
+package cz.metacentrum.perun.core.provisioning;
+
+import cz.metacentrum.perun.audit.events.AttributesManagerEvents.AttributeSetForUser;
+import cz.metacentrum.perun.audit.events.AttributesManagerEvents.AttributeUpdated;
+import cz.metacentrum.perun.audit.events.MembersManagerEvents.MemberValidated;
+import cz.metacentrum.perun.audit.events.ResourceManagerEvents.GroupAssignedToResource;
+import cz.metacentrum.perun.audit.events.ResourceManagerEvents.ResourceUpdated;
+import cz.metacentrum.perun.core.api.Attribute;
+import cz.metacentrum.perun.core.api.AttributeDefinition;
+import cz.metacentrum.perun.core.api.Facility;
+import cz.metacentrum.perun.core.api.Group;
+import cz.metacentrum.perun.core.api.Member;
+import cz.metacentrum.perun.core.api.Resource;
+import cz.metacentrum.perun.core.api.Status;
+import cz.metacentrum.perun.core.api.User;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class GenDataCacheTest {
+
+	private static final String A_M_MAIL = "urn:perun:member:attribute-def:def:mail";
+	private static final String A_M_PHONE = "urn:perun:member:attribute-def:def:phone";
+
+	private final Facility facility = new Facility(1, "facility");
+	private final Facility otherFacility = new Facility(2, "otherFacility");
+	private final Member member = new Member(10, 20, 30, Status.VALID);
+	private final User user = new User(20, "John", "Doe", "", "", "");
+	private final Group group = new Group(40, "group", "", null, null, null, null);
+
+	private GenDataCache cache;
+
+	@Before
+	public void setUp() {
+		cache = new GenDataCache(2, 60000);
+	}
+
+	@Test
+	public void testCachedAttributesAreSharedByServices() {
+		GenDataCache.FacilityData data = cache.getFacilityData(facility);
+		data.putAttributes("m-10", List.of(attribute(A_M_MAIL, "john@doe.com")));
+
+		GenDataCache.FacilityData reused = cache.getFacilityData(facility);
+		assertSame(data, reused);
+		List<Attribute> attributes = reused.getAttributes("m-10", List.of(A_M_MAIL));
+		assertEquals(1, attributes.size());
+		assertEquals("john@doe.com", attributes.get(0).getValue());
+
+		// other service requires attribute which is not cached yet
+		assertNull(reused.getAttributes("m-10", List.of(A_M_MAIL, A_M_PHONE)));
+		reused.putAttributes("m-10", List.of(attribute(A_M_PHONE, "123")));
+		assertEquals(2, reused.getAttributes("m-10", List.of(A_M_MAIL, A_M_PHONE)).size());
+	}
+
+	@Test
+	public void testServicesGetCopiesOfCachedAttributes() {
+		GenDataCache.FacilityData data = cache.getFacilityData(facility);
+		Attribute stored = attribute(A_M_MAIL, "john@doe.com");
+		data.putAttributes("m-10", List.of(stored));
+		stored.setValue("changed@doe.com");
+
+		Attribute first = data.getAttributes("m-10", List.of(A_M_MAIL)).get(0);
+		assertEquals("john@doe.com", first.getValue());
+		first.setValue("other@doe.com");
+
+		Attribute second = data.getAttributes("m-10", List.of(A_M_MAIL)).get(0);
+		assertNotSame(first, second);
+		assertEquals("john@doe.com", second.getValue());
+	}
+
+	@Test
+	public void testMemberEventInvalidatesAllFacilities() {
+		GenDataCache.FacilityData data = cache.getFacilityData(facility);
+		data.putAttributes("m-10", List.of(attribute(A_M_MAIL, "john@doe.com")));
+		GenDataCache.FacilityData otherData = cache.getFacilityData(otherFacility);
+
+		cache.invalidate(new MemberValidated(member));
+
+		assertFalse(data.isValid());
+		assertNull(data.getAttributes("m-10", List.of(A_M_MAIL)));
+		assertFalse(otherData.isValid());
+		assertNotSame(data, cache.getFacilityData(facility));
+	}
+
+	@Test
+	public void testUserAttributeEventInvalidatesAllFacilities() {
+		GenDataCache.FacilityData data = cache.getFacilityData(facility);
+		GenDataCache.FacilityData otherData = cache.getFacilityData(otherFacility);
+
+		cache.invalidate(new AttributeSetForUser(attribute("urn:perun:user:attribute-def:def:phone", "123"), user));
+
+		assertFalse(data.isValid());
+		assertFalse(otherData.isValid());
+	}
+
+	@Test
+	public void testResourceEventInvalidatesOnlyItsFacility() {
+		GenDataCache.FacilityData data = cache.getFacilityData(facility);
+		GenDataCache.FacilityData otherData = cache.getFacilityData(otherFacility);
+
+		cache.invalidate(new ResourceUpdated(new Resource(50, "resource", "", facility.getId())));
+		assertFalse(data.isValid());
+		assertTrue(otherData.isValid());
+	}
+
+	@Test
+	public void testGroupEventInvalidatesAllFacilities() {
+		GenDataCache.FacilityData data = cache.getFacilityData(facility);
+		GenDataCache.FacilityData otherData = cache.getFacilityData(otherFacility);
+
+		cache.invalidate(new GroupAssignedToResource(group, new Resource(51, "resource", "", 3)));
+		assertFalse(data.isValid());
+		assertFalse(otherData.isValid());
+	}
+
+	@Test
+	public void testAttributeDefinitionEventInvalidatesAll() {
+		GenDataCache.FacilityData data = cache.getFacilityData(facility);
+		GenDataCache.FacilityData otherData = cache.getFacilityData(otherFacility);
+
+		cache.invalidate(new AttributeUpdated(attribute(A_M_MAIL, null)));
+
+		assertFalse(data.isValid());
+		assertFalse(otherData.isValid());
+	}
+
+	@Test
+	public void testDataAreNotStoredAfterInvalidation() {
+		GenDataCache.FacilityData data = cache.getFacilityData(facility);
+		cache.invalidate(new MemberValidated(member));
+
+		// data read before the change was committed
+		data.putAttributes("m-10", List.of(attribute(A_M_MAIL, "old@doe.com")));
+
+		assertNull(data.getAttributes("m-10", List.of(A_M_MAIL)));
+		assertNull(cache.getFacilityData(facility).getAttributes("m-10", List.of(A_M_MAIL)));
+	}
+
+	@Test
+	public void testLeastRecentlyUsedFacilityIsDropped() {
+		GenDataCache.FacilityData data = cache.getFacilityData(facility);
+		cache.getFacilityData(otherFacility);
+		cache.getFacilityData(facility);
+
+		cache.getFacilityData(new Facility(3, "thirdFacility"));
+
+		assertTrue(data.isValid());
+		assertSame(data, cache.getFacilityData(facility));
+	}
+
+	@Test
+	public void testDisabledCache() {
+		cache = new GenDataCache(0, 60000);
+		assertFalse(cache.isEnabled());
+		assertNull(cache.getFacilityData(facility));
+	}
+
+	private Attribute attribute(String name, Object value) {
+		AttributeDefinition definition = new AttributeDefinition();
+		definition.setNamespace(name.substring(0, name.lastIndexOf(':')));
+		definition.setFriendlyName(name.substring(name.lastIndexOf(':') + 1));
+		definition.setType(String.class.getName());
+		return new Attribute(definition, value);
+	}
+}
@@ -0,0 +1,100 @@
+package cz.metacentrum.perun.taskslib.messaging;
+
+import cz.metacentrum.perun.core.api.Destination;
+import cz.metacentrum.perun.core.api.Facility;
+import cz.metacentrum.perun.core.api.Service;
+import cz.metacentrum.perun.taskslib.model.Task;
+import cz.metacentrum.perun.taskslib.model.TaskResult;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class EngineMessageCodecTest {
+
+	@Test
+	public void testVersionNegotiation() {
+		assertEquals(1, EngineMessageCodec.decodeRegister("register"));
+		assertEquals(2, EngineMessageCodec.decodeRegister(EngineMessageCodec.encodeRegister()));
+		assertEquals(1, EngineMessageCodec.negotiate(1));
+		assertEquals(EngineMessageCodec.CURRENT_VERSION, EngineMessageCodec.negotiate(99));
+		assertEquals(2, EngineMessageCodec.decodeProtocol(EngineMessageCodec.encodeProtocol(2)));
+	}
+
+	@Test
+	public void testTaskRoundTrip() {
+		Service service = new Service(1, "passwd|shadow");
+		service.setDelay(5);
+		service.setRecurrence(3);
+		service.setScript("./passwd");
+		Facility facility = new Facility(2, "cluster", "description with | and \"quotes\"");
+		Destination destination = new Destination(3, "root@host.example.com", Destination.DESTINATIONUSERHOSTTYPE,
+				Destination.PROPAGATIONTYPE_SERIAL);
+
+		Task task = new Task();
+		task.setId(4);
+		task.setPropagationForced(true);
+		task.setService(service);
+		task.setFacility(facility);
+		task.setDestinations(Arrays.asList(destination));
+
+		String message = EngineMessageCodec.encodeTask(task);
+		assertTrue(EngineMessageCodec.isEncodedTask(message));
+		assertFalse(EngineMessageCodec.isEncodedTask("[4][true]|[Service:[...]]"));
+
+		Task decoded = EngineMessageCodec.decodeTask(message);
+		assertEquals(4, decoded.getId());
+		assertTrue(decoded.isPropagationForced());
+		assertEquals(service, decoded.getService());
+		assertEquals("./passwd", decoded.getService().getScript());
+		assertEquals(5, decoded.getDelay());
+		assertEquals(3, decoded.getRecurrence());
+		assertEquals(facility, decoded.getFacility());
+		assertEquals(facility.getDescription(), decoded.getFacility().getDescription());
+		assertEquals(1, decoded.getDestinations().size());
+		assertEquals(destination, decoded.getDestinations().get(0));
+		assertEquals(Destination.PROPAGATIONTYPE_SERIAL, decoded.getDestinations().get(0).getPropagationType());
+	}
+
+	@Test
+	public void testTaskResultsRoundTrip() {
+		TaskResult first = new TaskResult();
+		first.setTaskId(1);
+		first.setDestinationId(2);
+		first.setStatus(TaskResult.TaskResultStatus.DONE);
+		first.setReturnCode(0);
+		first.setStandardMessage("line 1\nline 2");
+		first.setTimestamp(new Date(1000L));
+		first.setService(new Service(3, "passwd"));
+
+		TaskResult second = new TaskResult();
+		second.setTaskId(1);
+		second.setDestinationId(4);
+		second.setStatus(TaskResult.TaskResultStatus.ERROR);
+		second.setReturnCode(1);
+		second.setErrorMessage("taskresult:|");
+
+		String message = EngineMessageCodec.encodeTaskResults(Arrays.asList(first, second));
+		String[] split = message.split(":", 2);
+		assertEquals(EngineMessageCodec.TASK_RESULTS, split[0]);
+
+		List<TaskResult> decoded = EngineMessageCodec.decodeTaskResults(split[1]);
+		assertEquals(2, decoded.size());
+		assertEquals(first, decoded.get(0));
+		assertEquals(first.getTimestamp(), decoded.get(0).getTimestamp());
+		assertEquals(second, decoded.get(1));
+		assertNull(decoded.get(1).getService());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnsupportedVersionIsRejected() {
+		EngineMessageCodec.decodeTaskResults("{\"v\":99,\"results\":[]}");
+	}
+
+}
@@ -96,4 +96,23 @@ public class TaskStoreTest {
 		assertTrue(tasks.contains(taskG));
 		assertTrue(tasks.contains(taskD));
 	}
+
+	@Test
+	public void testStatusIndexFollowsStatusChanges() throws Exception {
+		taskStore.addTask(taskW);
+		taskStore.addTask(taskG);
+		taskStore.addTask(taskD);
+		assertEquals(1, taskStore.getTasksCountWithStatus(Task.TaskStatus.WAITING));
+
+		taskW.setStatus(Task.TaskStatus.PLANNED);
+		assertEquals(0, taskStore.getTasksCountWithStatus(Task.TaskStatus.WAITING));
+		assertEquals(1, taskStore.getTasksCountWithStatus(Task.TaskStatus.PLANNED));
+		assertTrue(taskStore.getTasksWithStatus(Task.TaskStatus.PLANNED).contains(taskW));
+		assertEquals(3, taskStore.getTasksCountWithStatus(Task.TaskStatus.PLANNED, Task.TaskStatus.GENERATED, Task.TaskStatus.DONE));
+
+		taskStore.removeTask(taskW);
+		assertEquals(0, taskStore.getTasksCountWithStatus(Task.TaskStatus.PLANNED));
+		taskW.setStatus(Task.TaskStatus.WAITING);
+		assertTrue("Removed task must not be indexed.", taskStore.getTasksWithStatus(Task.TaskStatus.WAITING).isEmpty());
+	}
 }
@@ -1,4 +1,4 @@
--- database version 3.1.75 (don't forget to update insert statement at the end of file)
+-- database version 3.1.80 (don't forget to update insert statement at the end of file)
 
 -- VOS - virtual organizations
 create table vos (
@@ -295,6 +295,11 @@ create table attr_names (
   constraint attfullnam_u unique (friendly_name,namespace)
 );
 
+-- ATTR_NAMES_VERSION - single row with version of attribute definitions, incremented by trigger on each change of attr_names
+create table attr_names_version (
+	version bigint not null
+);
+
 -- ATTRIBUTES_AUTHZ - controles permissions for access to attributes
 create table attributes_authz (
 	attr_id integer not null,  --identifier of attribute (attr_names.id)
@@ -328,6 +333,7 @@ create table host_attr_values (
 	host_id integer not null,  --identifier of host (hosts.id)
 	attr_id integer not null,  --identifier of attributes (attr_names.id)
 	attr_value text,  --value of attribute
+	attr_value_json jsonb, --value of list or map attribute as JSON
 	created_at timestamp default statement_timestamp() not null,
 	created_by varchar default user not null,
 	modified_at timestamp default statement_timestamp() not null,
@@ -603,6 +609,7 @@ create table entityless_attr_values (
 	subject varchar not null,  --indicator of subject assigned with attribute
 	attr_id integer not null,       --identifier of attribute (attr_names.id)
 	attr_value text,       --attribute value
+	attr_value_json jsonb, --value of list or map attribute as JSON
 	created_at timestamp default statement_timestamp() not null,
 	created_by varchar default user not null,
 	modified_at timestamp default statement_timestamp() not null,
@@ -618,6 +625,7 @@ create table facility_attr_values (
 	facility_id integer not null,   --identifier of facility (facilities.id)
 	attr_id integer not null,       --identifier of attribute (attr_names.id)
 	attr_value text,       --attribute value
+	attr_value_json jsonb, --value of list or map attribute as JSON
 	created_at timestamp default statement_timestamp() not null,
 	created_by varchar default user not null,
 	modified_at timestamp default statement_timestamp() not null,
@@ -644,6 +652,7 @@ create table group_attr_values (
 	group_id integer not null,     --identifier of group (groups.id)
 	attr_id integer not null,      --identifier of attribute (attr_names.id)
 	attr_value text,      --attribute value
+	attr_value_json jsonb, --value of list or map attribute as JSON
 	created_at timestamp default statement_timestamp() not null,
 	created_by varchar default user not null,
 	modified_at timestamp default statement_timestamp() not null,
@@ -669,6 +678,7 @@ create table resource_attr_values (
 	resource_id integer not null,   --identifier of resource (resources.id)
 	attr_id integer not null,       --identifier of attribute (attr_names.id)
 	attr_value text,       --attribute value
+	attr_value_json jsonb, --value of list or map attribute as JSON
 	created_at timestamp default statement_timestamp() not null,
 	created_by varchar default user not null,
 	modified_at timestamp default statement_timestamp() not null,
@@ -695,6 +705,7 @@ create table group_resource_attr_values (
 	resource_id integer not null,  --identifier of resource (resources.id)
 	attr_id integer not null,      --identifier of attribute (attr_names.id)
 	attr_value text,      --attribute value
+	attr_value_json jsonb, --value of list or map attribute as JSON
 	created_at timestamp default statement_timestamp() not null,
 	created_by varchar default user not null,
 	modified_at timestamp default statement_timestamp() not null,
@@ -756,6 +767,7 @@ create table member_attr_values (
 	member_id integer not null,   --identifier of member (members.id)
 	attr_id integer not null,     --identifier of attribute (attr_names.id)
 	attr_value text,     --attribute value
+	attr_value_json jsonb, --value of list or map attribute as JSON
 	created_at timestamp default statement_timestamp() not null,
 	created_by varchar default user not null,
 	modified_at timestamp default statement_timestamp() not null,
@@ -782,6 +794,7 @@ create table member_group_attr_values (
 	group_id integer not null, --identifier of group (groups.id)
 	attr_id integer not null,     --identifier of attribute (attr_names.id)
 	attr_value text,     --attribute value
+	attr_value_json jsonb, --value of list or map attribute as JSON
 	created_at timestamp default statement_timestamp() not null,
 	created_by varchar default user not null,
 	modified_at timestamp default statement_timestamp() not null,
@@ -810,6 +823,7 @@ create table member_resource_attr_values (
 	resource_id integer not null, --identifier of resource (resources.id)
 	attr_id integer not null,     --identifier of attribute (attr_names.id)
 	attr_value text,     --attribute value
+	attr_value_json jsonb, --value of list or map attribute as JSON
 	created_at timestamp default statement_timestamp() not null,
 	created_by varchar default user not null,
 	modified_at timestamp default statement_timestamp() not null,
@@ -837,6 +851,7 @@ create table user_attr_values (
 	user_id integer not null,  --identifier of user (users.id)
 	attr_id integer not null,  --identifier of attribute (attr_names.id)
 	attr_value text,  --attribute value
+	attr_value_json jsonb, --value of list or map attribute as JSON
 	created_at timestamp default statement_timestamp() not null,
 	created_by varchar default user not null,
 	modified_at timestamp default statement_timestamp() not null,
@@ -863,6 +878,7 @@ create table user_facility_attr_values (
 	facility_id integer not null, --identifier of facility (facilities.id)
 	attr_id integer not null,     --identifier of attribute (attr_names.id)
 	attr_value text,     --attribute value
+	attr_value_json jsonb, --value of list or map attribute as JSON
 	created_at timestamp default statement_timestamp() not null,
 	created_by varchar default user not null,
 	modified_at timestamp default statement_timestamp() not null,
@@ -890,6 +906,7 @@ create table vo_attr_values (
 	vo_id integer not null,    --identifier of VO (vos.id)
 	attr_id integer not null,  --identifier of attribute (attr_names.id)
 	attr_value text,  --attribute value
+	attr_value_json jsonb, --value of list or map attribute as JSON
 	created_at timestamp default statement_timestamp() not null,
 	created_by varchar default user not null,
 	modified_at timestamp default statement_timestamp() not null,
@@ -1062,9 +1079,19 @@ create table tasks_results (
 	constraint taskres_pk primary key (id),
 	constraint taskres_task_fk foreign key (task_id) references tasks(id),
   constraint taskres_dest_fk foreign key (destination_id) references destinations(id),
-  constraint taskres_stat_chk check (status in ('DONE','ERROR','DENIED', 'WARNING'))
+  constraint taskres_stat_chk check (status in ('DONE','ERROR','DENIED','WARNING','SKIPPED'))
+);
+
+-- TASKS_RESULTS_LATEST - newest result (highest id) of each task on each destination, maintained on insert of tasks_results
+create table tasks_results_latest (
+	task_id integer not null,         --identifier of task (tasks.id)
+	destination_id integer not null,  --identifier of destination (destinations.id)
+	task_result_id integer not null,  --identifier of newest result (tasks_results.id)
+	constraint taskreslat_pk primary key (task_id, destination_id),
+	constraint taskreslat_res_fk foreign key (task_result_id) references tasks_results(id) on delete cascade
 );
 
+-- AUDITER_LOG - partitioned by ranges of ids, partitions are created and removed by DatabaseManagerBl.maintainAuditerLogPartitions()
 create table auditer_log (
 	id integer not null,         --identifier of logged event
 	msg text not null,           --text of logging message
@@ -1073,7 +1100,9 @@ create table auditer_log (
 	created_by_uid integer,
 	modified_by_uid integer,
 	constraint audlog_pk primary key (id)
-);
+) partition by range (id);
+create table auditer_log_p0 partition of auditer_log for values from (minvalue) to (10000000);
+create table auditer_log_default partition of auditer_log default;
 
 -- RESERVED_LOGINS - reserved lognames, actually is not used. Prepared for reservation by core.
 create table reserved_logins (
@@ -1368,6 +1397,7 @@ create table user_ext_source_attr_values (
 	user_ext_source_id integer not null,
 	attr_id integer not null,
 	attr_value text,
+	attr_value_json jsonb, --value of list or map attribute as JSON
 	created_at timestamp default statement_timestamp() not null,
 	created_by varchar default user not null,
 	modified_at timestamp default statement_timestamp() not null,
@@ -1534,6 +1564,8 @@ create index idx_fk_task_srv on tasks(service_id);
 create index idx_fk_task_fac on tasks(facility_id);
 create index idx_fk_taskres_task on tasks_results(task_id);
 create index idx_fk_taskres_dest on tasks_results(destination_id);
+create index idx_taskres_timestamp on tasks_results(timestamp);
+create index idx_fk_taskreslat_res on tasks_results_latest(task_result_id);
 create index idx_fk_srvden_srv on service_denials(service_id);
 create index idx_fk_srvden_fac on service_denials(facility_id);
 create index idx_fk_srvden_dest on service_denials(destination_id);
@@ -1637,6 +1669,36 @@ CREATE INDEX uesauv_idx ON user_ext_source_attr_u_values (user_ext_source_id, at
 CREATE INDEX ufauv_idx ON user_facility_attr_u_values (user_id, facility_id, attr_id);
 CREATE INDEX vauv_idx ON vo_attr_u_values (vo_id, attr_id);
 
+-- clear JSON of attribute value, when only the value in attr_value is changed (e.g. by older Perun instance during upgrade)
+create or replace function attr_value_json_clear() returns trigger as $$
+begin
+	NEW.attr_value_json := null;
+	return NEW;
+end
+$$ language plpgsql;
+create trigger host_attr_values_json_trg before update on host_attr_values for each row when (NEW.attr_value is distinct from OLD.attr_value and NEW.attr_value_json is not distinct from OLD.attr_value_json) execute procedure attr_value_json_clear();
+create trigger entityless_attr_values_json_trg before update on entityless_attr_values for each row when (NEW.attr_value is distinct from OLD.attr_value and NEW.attr_value_json is not distinct from OLD.attr_value_json) execute procedure attr_value_json_clear();
+create trigger facility_attr_values_json_trg before update on facility_attr_values for each row when (NEW.attr_value is distinct from OLD.attr_value and NEW.attr_value_json is not distinct from OLD.attr_value_json) execute procedure attr_value_json_clear();
+create trigger group_attr_values_json_trg before update on group_attr_values for each row when (NEW.attr_value is distinct from OLD.attr_value and NEW.attr_value_json is not distinct from OLD.attr_value_json) execute procedure attr_value_json_clear();
+create trigger resource_attr_values_json_trg before update on resource_attr_values for each row when (NEW.attr_value is distinct from OLD.attr_value and NEW.attr_value_json is not distinct from OLD.attr_value_json) execute procedure attr_value_json_clear();
+create trigger group_resource_attr_values_json_trg before update on group_resource_attr_values for each row when (NEW.attr_value is distinct from OLD.attr_value and NEW.attr_value_json is not distinct from OLD.attr_value_json) execute procedure attr_value_json_clear();
+create trigger member_attr_values_json_trg before update on member_attr_values for each row when (NEW.attr_value is distinct from OLD.attr_value and NEW.attr_value_json is not distinct from OLD.attr_value_json) execute procedure attr_value_json_clear();
+create trigger member_group_attr_values_json_trg before update on member_group_attr_values for each row when (NEW.attr_value is distinct from OLD.attr_value and NEW.attr_value_json is not distinct from OLD.attr_value_json) execute procedure attr_value_json_clear();
+create trigger member_resource_attr_values_json_trg before update on member_resource_attr_values for each row when (NEW.attr_value is distinct from OLD.attr_value and NEW.attr_value_json is not distinct from OLD.attr_value_json) execute procedure attr_value_json_clear();
+create trigger user_attr_values_json_trg before update on user_attr_values for each row when (NEW.attr_value is distinct from OLD.attr_value and NEW.attr_value_json is not distinct from OLD.attr_value_json) execute procedure attr_value_json_clear();
+create trigger user_facility_attr_values_json_trg before update on user_facility_attr_values for each row when (NEW.attr_value is distinct from OLD.attr_value and NEW.attr_value_json is not distinct from OLD.attr_value_json) execute procedure attr_value_json_clear();
+create trigger vo_attr_values_json_trg before update on vo_attr_values for each row when (NEW.attr_value is distinct from OLD.attr_value and NEW.attr_value_json is not distinct from OLD.attr_value_json) execute procedure attr_value_json_clear();
+create trigger user_ext_source_attr_values_json_trg before update on user_ext_source_attr_values for each row when (NEW.attr_value is distinct from OLD.attr_value and NEW.attr_value_json is not distinct from OLD.attr_value_json) execute procedure attr_value_json_clear();
+
+-- increment version of attribute definitions, row lock serializes the changes, so committed versions follow the order of commits
+create or replace function attr_names_version_bump() returns trigger as $$
+begin
+	update attr_names_version set version=version+1;
+	return null;
+end
+$$ language plpgsql;
+create trigger attr_names_version_trg after insert or update or delete on attr_names for each statement execute procedure attr_names_version_bump();
+
 grant all on users to perun;
 grant all on vos to perun;
 grant all on ext_sources to perun;
@@ -1651,6 +1713,7 @@ grant all on vo_ext_sources to perun;
 grant all on group_ext_sources to perun;
 grant all on ext_sources_attributes to perun;
 grant all on attr_names to perun;
+grant all on attr_names_version to perun;
 grant all on facilities to perun;
 grant all on resources to perun;
 grant all on resource_attr_values to perun;
@@ -1674,6 +1737,7 @@ grant all on user_facility_attr_values to perun;
 grant all on user_facility_attr_u_values to perun;
 grant all on tasks to perun;
 grant all on tasks_results to perun;
+grant all on tasks_results_latest to perun;
 grant all on service_denials to perun;
 grant all on service_required_attrs to perun;
 grant all on resource_services to perun;
@@ -1693,6 +1757,8 @@ grant all on application to perun;
 grant all on application_data to perun;
 grant all on application_reserved_logins to perun;
 grant all on auditer_log to perun;
+grant all on auditer_log_p0 to perun;
+grant all on auditer_log_default to perun;
 grant all on auditer_consumers to perun;
 grant all on entityless_attr_values to perun;
 grant all on cabinet_categories to perun;
@@ -1737,7 +1803,9 @@ grant all on user_ext_source_attr_u_values to perun;
 grant all on members_sponsored to perun;
 
 -- set initial Perun DB version
-insert into configurations values ('DATABASE VERSION','3.1.75');
+insert into configurations values ('DATABASE VERSION','3.1.80');
+-- initial version of attribute definitions
+insert into attr_names_version (version) values (0);
 
 -- insert membership types
 insert into membership_types (id, membership_type, description) values (1, 'DIRECT', 'Member is directly added into group');
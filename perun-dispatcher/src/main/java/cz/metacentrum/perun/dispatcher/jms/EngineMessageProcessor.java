@@ -1,6 +1,7 @@
 package cz.metacentrum.perun.dispatcher.jms;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 
@@ -25,6 +26,8 @@ import cz.metacentrum.perun.dispatcher.exceptions.MessageFormatException;
 import cz.metacentrum.perun.dispatcher.exceptions.PerunHornetQServerException;
 import cz.metacentrum.perun.dispatcher.hornetq.PerunHornetQServer;
 import cz.metacentrum.perun.dispatcher.scheduling.SchedulingPool;
+import cz.metacentrum.perun.taskslib.messaging.EngineMessageCodec;
+import cz.metacentrum.perun.taskslib.model.TaskResult;
 
 /**
  * Main class ensuring processing of JMS communication between Dispatcher and Engines.
@@ -246,8 +249,8 @@ public class EngineMessageProcessor {
 	 *
 	 * Expected message format is:
 	 *
-	 * Register engine message
-	 * register
+	 * Register engine message, version is the highest protocol version supported by the engine (1 when missing)
+	 * register:version
 	 *
 	 * Good bye engine message
 	 * goodbye
@@ -262,6 +265,10 @@ public class EngineMessageProcessor {
 	 * taskresult:object
 	 * object is serialized TaskResult object sent from Engine
 	 *
+	 * Batch of task results message (protocol version 2)
+	 * taskresults:json
+	 * json is list of TaskResults encoded by EngineMessageCodec
+	 *
 	 * @see EngineMessageConsumer
 	 *
 	 * @param message Message to be parsed a processed
@@ -294,6 +301,10 @@ public class EngineMessageProcessor {
 				} else {
 					// No, we have to create the whole JMS queue and load matching rules...
 					createDispatcherQueueForClient();
+					engineMessageProducer = engineMessageProducerFactory.getProducer();
+				}
+				if (engineMessageProducer != null) {
+					engineMessageProducer.negotiateProtocolVersion(EngineMessageCodec.decodeRegister(message));
 				}
 
 			} else if (clientMessageSplitter[0].equalsIgnoreCase("goodbye")) {
@@ -327,6 +338,22 @@ public class EngineMessageProcessor {
 
 				schedulingPool.onTaskDestinationComplete(clientMessageSplitter[1]);
 
+			} else if (clientMessageSplitter[0].equalsIgnoreCase(EngineMessageCodec.TASK_RESULTS)) {
+
+				if(clientMessageSplitter.length < 2) {
+					throw new MessageFormatException("Engine sent a malformed message, not enough params [" + message + "]");
+				}
+
+				List<TaskResult> taskResults;
+				try {
+					taskResults = EngineMessageCodec.decodeTaskResults(clientMessageSplitter[1]);
+				} catch (IllegalArgumentException e) {
+					throw new MessageFormatException("Engine sent a malformed message [" + message + "]", e);
+				}
+				for (TaskResult taskResult : taskResults) {
+					schedulingPool.onTaskDestinationComplete(taskResult);
+				}
+
 			} else {
 				throw new MessageFormatException("Engine sent a malformed message, unknown type of message [" + message + "]");
 			}
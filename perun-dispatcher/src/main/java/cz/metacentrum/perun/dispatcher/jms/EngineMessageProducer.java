@@ -10,6 +10,8 @@ import org.hornetq.api.jms.HornetQJMSClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import cz.metacentrum.perun.taskslib.messaging.EngineMessageCodec;
+
 /**
  * Instance of Engine message queue producer for sending messages to Engine.
  * For each Engine own producer (message queue) is created, and stored in EngineMessageProducerPool.
@@ -29,6 +31,7 @@ public class EngineMessageProducer {
 	private Session session;
 	private MessageProducer producer;
 	private String queueName;
+	private int protocolVersion = EngineMessageCodec.LEGACY_VERSION;
 
 	// this one is to allow for mock objects which extend this class
 	public EngineMessageProducer(String queueName) {
@@ -80,6 +83,34 @@ public class EngineMessageProducer {
 		}
 	}
 
+	/**
+	 * Negotiate protocol version with the Engine, which announced given version on registration.
+	 * Engine is informed about the negotiated version, when it is higher than legacy version.
+	 *
+	 * @param engineVersion highest version supported by the Engine
+	 */
+	public void negotiateProtocolVersion(int engineVersion) {
+		protocolVersion = EngineMessageCodec.negotiate(engineVersion);
+		log.info("Using protocol version {} for queue {}.", protocolVersion, queueName);
+		if (protocolVersion > EngineMessageCodec.LEGACY_VERSION) {
+			try {
+				producer.send(session.createTextMessage(EngineMessageCodec.encodeProtocol(protocolVersion)));
+			} catch (JMSException e) {
+				log.error("Unable to send protocol version to engine, legacy version is used.", e);
+				protocolVersion = EngineMessageCodec.LEGACY_VERSION;
+			}
+		}
+	}
+
+	/**
+	 * Get protocol version negotiated with the Engine.
+	 *
+	 * @return protocol version
+	 */
+	public int getProtocolVersion() {
+		return protocolVersion;
+	}
+
 	/**
 	 * Get name of the queue for engine.
 	 *
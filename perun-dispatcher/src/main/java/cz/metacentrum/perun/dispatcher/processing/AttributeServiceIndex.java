@@ -0,0 +1,42 @@
+package cz.metacentrum.perun.dispatcher.processing;
+
+import cz.metacentrum.perun.audit.events.AuditEvent;
+import cz.metacentrum.perun.core.api.AttributeDefinition;
+import cz.metacentrum.perun.core.api.Service;
+
+import java.util.Set;
+
+/**
+ * Index of Services, whose data can change by change of an attribute.
+ * It's used by EventServiceResolver to plan only Services affected by attribute change in Event.
+ *
+ * Service is affected by attribute, when it requires the attribute itself or any attribute depending on it
+ * (e.g. virtual attribute calculated from its value).
+ *
+ * @see cz.metacentrum.perun.dispatcher.processing.EventServiceResolver
+ */
+public interface AttributeServiceIndex {
+
+	/**
+	 * Get Services, whose data can change by change of the attribute.
+	 *
+	 * @param attributeDefinition Changed attribute
+	 * @return Affected Services (must not be modified)
+	 */
+	Set<Service> getAffectedServices(AttributeDefinition attributeDefinition);
+
+	/**
+	 * Drop the index, if the Event changes Services, their required attributes or attribute definitions.
+	 * Index is built again on the next use.
+	 *
+	 * @param event Event to check
+	 * @return TRUE if index was dropped
+	 */
+	boolean invalidateOn(AuditEvent event);
+
+	/**
+	 * Drop the index, so it's built again on the next use.
+	 */
+	void invalidate();
+
+}
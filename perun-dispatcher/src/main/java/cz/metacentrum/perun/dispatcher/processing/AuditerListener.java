@@ -3,11 +3,14 @@ package cz.metacentrum.perun.dispatcher.processing;
 import javax.annotation.Resource;
 
 import cz.metacentrum.perun.audit.events.AuditEvent;
+import cz.metacentrum.perun.core.api.AuditMessagesSubscription;
+import cz.metacentrum.perun.core.api.BeansUtils;
 import cz.metacentrum.perun.core.api.Perun;
 import cz.metacentrum.perun.core.api.PerunClient;
 import cz.metacentrum.perun.core.api.PerunPrincipal;
 import cz.metacentrum.perun.core.api.PerunSession;
 import cz.metacentrum.perun.core.api.exceptions.PrivilegeException;
+import cz.metacentrum.perun.core.bl.PerunBl;
 import cz.metacentrum.perun.taskslib.runners.impl.AbstractRunner;
 
 import org.slf4j.Logger;
@@ -19,6 +22,7 @@ import cz.metacentrum.perun.dispatcher.model.Event;
 
 import org.springframework.stereotype.Service;
 
+import java.util.List;
 import java.util.Properties;
 import java.util.concurrent.BlockingQueue;
 
@@ -43,6 +47,9 @@ public class AuditerListener extends AbstractRunner {
 
 	private final static Logger log = LoggerFactory.getLogger(AuditerListener.class);
 
+	// max time in ms to wait for notification about new audit messages before polling them anyway
+	private static final long POLL_INTERVAL = 10000;
+
 	private BlockingQueue<Event> eventQueue;
 	private Properties dispatcherProperties;
 	private Perun perun;
@@ -101,27 +108,33 @@ public class AuditerListener extends AbstractRunner {
 			}
 
 
-			while (!shouldStop()) {
-				try {
-					for (AuditEvent message : perun.getAuditMessagesManager().pollConsumerEvents(sess, "dispatcher")) {
-						// create event for each message
-						Event event = new Event();
-						event.setTimeStamp(System.currentTimeMillis());
-						if (whichOfTwoRules) {
-							event.setHeader("portishead");
-							whichOfTwoRules = false;
-						} else {
-							event.setHeader("clockworkorange");
-							whichOfTwoRules = true;
+			// wake up as soon as new messages are stored, poll at least once per POLL_INTERVAL as a fallback
+			try (AuditMessagesSubscription subscription = ((PerunBl) perun).getAuditMessagesManagerBl().subscribeToNewMessages(sess)) {
+				while (!shouldStop()) {
+					try {
+						List<AuditEvent> messages = perun.getAuditMessagesManager().pollConsumerEventsBatch(sess, "dispatcher", BeansUtils.getCoreConfig().getAuditerConsumerBatchSize());
+						for (AuditEvent message : messages) {
+							// create event for each message
+							Event event = new Event();
+							event.setTimeStamp(System.currentTimeMillis());
+							if (whichOfTwoRules) {
+								event.setHeader("portishead");
+								whichOfTwoRules = false;
+							} else {
+								event.setHeader("clockworkorange");
+								whichOfTwoRules = true;
+							}
+							event.setData(message);
+							// pass event to queue for further processing
+							eventQueue.put(event);
+						}
+						if (messages.isEmpty()) {
+							subscription.awaitNewMessages(POLL_INTERVAL);
 						}
-						event.setData(message);
-						// pass event to queue for further processing
-						eventQueue.put(event);
+					} catch (InternalErrorException | PrivilegeException ex) {
+						log.error("AuditerListener couldn't get AuditEvents.", ex);
+						Thread.sleep(1000);
 					}
-					Thread.sleep(1000);
-				} catch (InternalErrorException | PrivilegeException ex) {
-					log.error("AuditerListener couldn't get AuditEvents.", ex);
-					Thread.sleep(1000);
 				}
 			}
 			log.debug("AuditerListener has stopped.");
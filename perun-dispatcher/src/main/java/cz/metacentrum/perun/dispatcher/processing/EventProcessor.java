@@ -1,5 +1,6 @@
 package cz.metacentrum.perun.dispatcher.processing;
 
+import cz.metacentrum.perun.audit.events.AuditEvent;
 import cz.metacentrum.perun.audit.events.EngineForceEvent;
 import cz.metacentrum.perun.core.api.Destination;
 import cz.metacentrum.perun.core.api.Facility;
@@ -13,7 +14,6 @@ import cz.metacentrum.perun.core.api.exceptions.InternalErrorException;
 import cz.metacentrum.perun.core.api.exceptions.PrivilegeException;
 import cz.metacentrum.perun.core.api.exceptions.ServiceNotExistsException;
 import cz.metacentrum.perun.core.bl.PerunBl;
-import cz.metacentrum.perun.dispatcher.exceptions.InvalidEventMessageException;
 import cz.metacentrum.perun.dispatcher.jms.EngineMessageProducerFactory;
 import cz.metacentrum.perun.dispatcher.model.Event;
 import cz.metacentrum.perun.dispatcher.scheduling.SchedulingPool;
@@ -28,21 +28,26 @@ import org.springframework.beans.factory.annotation.Autowired;
 
 import javax.annotation.Resource;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This class ensure periodic blocking polling of EventQueue with Events parsed from audit messages by AuditerListener.
  *
- * For each Event, Facility and set of affected Services is resolved. If can't be resolved or are empty, Event is discarded.
+ * Events are coalesced in windows limited by time (dispatcher.events.window in ms) and size (dispatcher.events.windowSize).
+ * For Events of the window, Facilities and sets of affected Services are resolved together, so Events with the same beans
+ * are resolved only once. If can't be resolved or are empty, Event is discarded.
  *
- * Each Event is converted to Task if possible and added to pool (if new) or updated in pool (if exists).
- * New Tasks are also planned immediately.
+ * Each resolved Facility-Service pair of the window is converted to Task if possible and added to pool (if new)
+ * or updated in pool (if exists). New Tasks are also planned immediately.
  *
  * @see cz.metacentrum.perun.dispatcher.model.Event
  * @see cz.metacentrum.perun.dispatcher.processing.AuditerListener
@@ -132,9 +137,9 @@ public class EventProcessor extends AbstractRunner {
 	public void run() {
 		while (!shouldStop()) {
 			try {
-				Event event = eventQueue.take();
-				createTaskFromEvent(event);
-				log.debug("Remaining events in a Queue = {}", eventQueue.size());
+				List<Event> events = takeEvents();
+				createTasksFromEvents(events);
+				log.debug("Processed {} events, remaining events in a Queue = {}", events.size(), eventQueue.size());
 			} catch (Exception e) {
 				log.error(e.getMessage(), e);
 			}
@@ -143,111 +148,173 @@ public class EventProcessor extends AbstractRunner {
 	}
 
 	/**
-	 * Creates Task from Event data. Tries to resolve Service and Facility pairs from Event.
-	 * Events for non existing entities are discarded.
+	 * Wait for the next Event and collect Events coming until the window elapses or is full.
 	 *
-	 * @param event Event to parse
-	 * @throws ServiceNotExistsException When Service from Event doesn't exists anymore
-	 * @throws InvalidEventMessageException  When Message has invalid format.
-	 * @throws InternalErrorException  When implementation fails
-	 * @throws PrivilegeException  When dispatcher lack privileges to call core methods
+	 * @return Events of the window
+	 * @throws InterruptedException When waiting was interrupted
 	 */
-	private void createTaskFromEvent(Event event) throws ServiceNotExistsException, InvalidEventMessageException, PrivilegeException {
+	private List<Event> takeEvents() throws InterruptedException {
+		long window = getLongProperty("dispatcher.events.window", 1000);
+		int windowSize = (int) Math.max(1, getLongProperty("dispatcher.events.windowSize", 1000));
+
+		List<Event> events = new ArrayList<>();
+		events.add(eventQueue.take());
+		long deadline = System.currentTimeMillis() + window;
+		while (events.size() < windowSize) {
+			if (eventQueue.drainTo(events, windowSize - events.size()) > 0) continue;
+			long remaining = deadline - System.currentTimeMillis();
+			if (remaining <= 0) break;
+			Event event = eventQueue.poll(remaining, TimeUnit.MILLISECONDS);
+			if (event == null) break;
+			events.add(event);
+		}
+		return events;
+	}
 
-		Map<Facility, Set<Service>> resolvedServices = eventServiceResolver.resolveEvent(event.getData());
+	/**
+	 * Creates Tasks from data of Events. Tries to resolve Service and Facility pairs from Events.
+	 * Each pair resolved from multiple Events is processed only once, propagation is forced if any of the Events forces it.
+	 * Events for non existing entities are discarded.
+	 *
+	 * @param events Events to parse
+	 */
+	private void createTasksFromEvents(List<Event> events) {
 
-		for (Entry<Facility, Set<Service>> map : resolvedServices.entrySet()) {
-			Facility facility = map.getKey();
-			for (Service service : map.getValue()) {
-				if (!service.isEnabled()) {
-					log.debug("Service not enabled: {}.", service);
-					continue;
+		List<AuditEvent> auditEvents = new ArrayList<>(events.size());
+		for (Event event : events) {
+			auditEvents.add(event.getData());
+		}
+		List<Map<Facility, Set<Service>>> resolvedEvents = eventServiceResolver.resolveEvents(auditEvents);
+
+		// coalesce resolved pairs of all events, remember if any of them forces propagation
+		Map<Facility, Map<Service, Boolean>> resolvedServices = new LinkedHashMap<>();
+		for (int i = 0; i < events.size(); i++) {
+			boolean isForced = determineForcedPropagation(events.get(i));
+			for (Entry<Facility, Set<Service>> map : resolvedEvents.get(i).entrySet()) {
+				Map<Service, Boolean> services = resolvedServices.computeIfAbsent(map.getKey(), facility -> new LinkedHashMap<>());
+				for (Service service : map.getValue()) {
+					services.merge(service, isForced, Boolean::logicalOr);
 				}
+			}
+		}
 
-				if (((PerunBl) perun).getServicesManagerBl().isServiceBlockedOnFacility(service, facility)) {
-					log.debug("Service blocked on Facility: {} , {}.", service, facility);
-					continue;
+		for (Entry<Facility, Map<Service, Boolean>> map : resolvedServices.entrySet()) {
+			for (Entry<Service, Boolean> service : map.getValue().entrySet()) {
+				try {
+					createTask(map.getKey(), service.getKey(), service.getValue());
+				} catch (Exception e) {
+					log.error("Could not create Task for {} on {}: {}", service.getKey(), map.getKey(), e);
 				}
+			}
+		}
+	}
 
-				// Check if all destinations are not blocked
-				try {
+	/**
+	 * Creates Task for Service and Facility pair resolved from Events or updates existing one.
+	 *
+	 * @param facility Facility resolved from Events
+	 * @param service Service resolved from Events
+	 * @param isForced TRUE = forced propagation / FALSE = normal data change
+	 * @throws ServiceNotExistsException When Service from Event doesn't exists anymore
+	 * @throws InternalErrorException  When implementation fails
+	 * @throws PrivilegeException  When dispatcher lack privileges to call core methods
+	 */
+	private void createTask(Facility facility, Service service, boolean isForced) throws ServiceNotExistsException, PrivilegeException {
 
-					// init session
-					try {
-						if (sess == null) {
-							sess = perun.getPerunSession(new PerunPrincipal(
-											dispatcherProperties.getProperty("perun.principal.name"),
-											dispatcherProperties.getProperty("perun.principal.extSourceName"),
-											dispatcherProperties.getProperty("perun.principal.extSourceType")),
-									new PerunClient());
-						}
-					} catch (InternalErrorException e1) {
-						log.error("Error establishing perun session to create Task from Event: ", e1);
-						continue;
-					}
+		if (!service.isEnabled()) {
+			log.debug("Service not enabled: {}.", service);
+			return;
+		}
 
-					List<Destination> destinations = perun.getServicesManager().getDestinations(sess, service, facility);
-					if (destinations != null && !destinations.isEmpty()) {
-						Iterator<Destination> iter = destinations.iterator();
-						while (iter.hasNext()) {
-							Destination dest = iter.next();
-							if (((PerunBl) perun).getServicesManagerBl().isServiceBlockedOnDestination(service, dest.getId())) {
-								iter.remove();
-							}
-						}
-						if (destinations.isEmpty()) {
-							// All service destinations were blocked -> Task is denied to be sent to engine just like
-							// when service is blocked globally in Perun or on facility as a whole.
-							log.debug("{} blocked on all destinations on {}.", service, facility);
-							continue;
-						}
-					}
+		if (((PerunBl) perun).getServicesManagerBl().isServiceBlockedOnFacility(service, facility)) {
+			log.debug("Service blocked on Facility: {} , {}.", service, facility);
+			return;
+		}
 
-				} catch (ServiceNotExistsException e) {
-					log.error("Service not exist: {}.", service);
-				} catch (FacilityNotExistsException e) {
-					log.error("Facility not exist: {}.", facility);
-				}  catch (InternalErrorException | PrivilegeException e) {
-					log.error("{}", e);
+		// Check if all destinations are not blocked
+		try {
+
+			// init session
+			try {
+				if (sess == null) {
+					sess = perun.getPerunSession(new PerunPrincipal(
+									dispatcherProperties.getProperty("perun.principal.name"),
+									dispatcherProperties.getProperty("perun.principal.extSourceName"),
+									dispatcherProperties.getProperty("perun.principal.extSourceType")),
+							new PerunClient());
 				}
+			} catch (InternalErrorException e1) {
+				log.error("Error establishing perun session to create Task from Event: ", e1);
+				return;
+			}
 
-				// check for presence of task for this <Service, Facility> pair
-				// NOTE: this must be atomic enough to not create duplicate
-				// tasks in schedulingPool (are we running in parallel
-				// here?)
-
-				boolean isForced = determineForcedPropagation(event);
-
-				Task task = schedulingPool.getTask(facility, service);
-
-				if (task != null) {
-					// there already is a task in schedulingPool
-					// signal that task needs to regenerate data and be forced next time
-					task.setDestinations(null);
-					task.setSourceUpdated(true);
-					if (isForced) task.setPropagationForced(true);
-					task.setRecurrence(0);
-					log.debug("[{}] Task is already in pool. Re-setting source updated and forced flags, {}.", task.getId(), task);
-				} else {
-					// no such task yet, create one
-					task = new Task();
-					task.setFacility(facility);
-					task.setService(service);
-					task.setStatus(TaskStatus.WAITING);
-					task.setRecurrence(0);
-					task.setDelay(service.getDelay());
-					task.setSchedule(LocalDateTime.now());
-					task.setSourceUpdated(false);
-					task.setPropagationForced(isForced);
-					try {
-						schedulingPool.addToPool(task);
-						log.debug("[{}] New Task added to pool. {}.", task.getId(), task);
-					} catch (TaskStoreException e) {
-						log.error("[{}] Could not add Task to pool. Task {} will be lost: {}", task.getId(), task, e);
+			List<Destination> destinations = perun.getServicesManager().getDestinations(sess, service, facility);
+			if (destinations != null && !destinations.isEmpty()) {
+				Iterator<Destination> iter = destinations.iterator();
+				while (iter.hasNext()) {
+					Destination dest = iter.next();
+					if (((PerunBl) perun).getServicesManagerBl().isServiceBlockedOnDestination(service, dest.getId())) {
+						iter.remove();
 					}
-					schedulingPool.scheduleTask(task, -1);
 				}
+				if (destinations.isEmpty()) {
+					// All service destinations were blocked -> Task is denied to be sent to engine just like
+					// when service is blocked globally in Perun or on facility as a whole.
+					log.debug("{} blocked on all destinations on {}.", service, facility);
+					return;
+				}
+			}
+
+		} catch (ServiceNotExistsException e) {
+			log.error("Service not exist: {}.", service);
+		} catch (FacilityNotExistsException e) {
+			log.error("Facility not exist: {}.", facility);
+		}  catch (InternalErrorException | PrivilegeException e) {
+			log.error("{}", e);
+		}
+
+		// check for presence of task for this <Service, Facility> pair
+		// NOTE: this must be atomic enough to not create duplicate
+		// tasks in schedulingPool (are we running in parallel
+		// here?)
+
+		Task task = schedulingPool.getTask(facility, service);
+
+		if (task != null) {
+			// there already is a task in schedulingPool
+			// signal that task needs to regenerate data and be forced next time
+			task.setDestinations(null);
+			task.setSourceUpdated(true);
+			if (isForced) task.setPropagationForced(true);
+			task.setRecurrence(0);
+			log.debug("[{}] Task is already in pool. Re-setting source updated and forced flags, {}.", task.getId(), task);
+		} else {
+			// no such task yet, create one
+			task = new Task();
+			task.setFacility(facility);
+			task.setService(service);
+			task.setStatus(TaskStatus.WAITING);
+			task.setRecurrence(0);
+			task.setDelay(service.getDelay());
+			task.setSchedule(LocalDateTime.now());
+			task.setSourceUpdated(false);
+			task.setPropagationForced(isForced);
+			try {
+				schedulingPool.addToPool(task);
+				log.debug("[{}] New Task added to pool. {}.", task.getId(), task);
+			} catch (TaskStoreException e) {
+				log.error("[{}] Could not add Task to pool. Task {} will be lost: {}", task.getId(), task, e);
 			}
+			schedulingPool.scheduleTask(task, -1);
+		}
+	}
+
+	private long getLongProperty(String name, long defaultValue) {
+		try {
+			return Long.parseLong(dispatcherProperties.getProperty(name, String.valueOf(defaultValue)));
+		} catch (NumberFormatException e) {
+			log.warn("Could not parse value of {} property. Using default.", name);
+			return defaultValue;
 		}
 	}
 
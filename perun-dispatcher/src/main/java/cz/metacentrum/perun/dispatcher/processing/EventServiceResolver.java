@@ -8,6 +8,7 @@ import cz.metacentrum.perun.core.api.exceptions.PrivilegeException;
 import cz.metacentrum.perun.core.api.exceptions.ServiceNotExistsException;
 import cz.metacentrum.perun.dispatcher.exceptions.InvalidEventMessageException;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -37,4 +38,15 @@ public interface EventServiceResolver {
 	 */
 	Map<Facility, Set<Service>> resolveEvent(AuditEvent event) throws InvalidEventMessageException, ServiceNotExistsException, PrivilegeException;
 
+	/**
+	 * Resolve Facilities and set of Services affected by AuditEvents coalesced in one window.
+	 * Events with the same beans are resolved only once and facility and services
+	 * of each Resource are read only once for all Events.
+	 * Events which can't be resolved are logged and resolved to no Facilities.
+	 *
+	 * @param events Events to be resolved
+	 * @return Affected Facilities and Services on them for each Event in the same order (shared by Events with same beans, must not be modified)
+	 */
+	List<Map<Facility, Set<Service>>> resolveEvents(List<AuditEvent> events);
+
 }
@@ -0,0 +1,159 @@
+package cz.metacentrum.perun.dispatcher.processing.impl;
+
+import cz.metacentrum.perun.audit.events.AttributesManagerEvents.AttributeCreated;
+import cz.metacentrum.perun.audit.events.AttributesManagerEvents.AttributeDeleted;
+import cz.metacentrum.perun.audit.events.AuditEvent;
+import cz.metacentrum.perun.audit.events.ServicesManagerEvents.AllRequiredAttributesRemovedFromService;
+import cz.metacentrum.perun.audit.events.ServicesManagerEvents.AttributeAddedAsRequiredToService;
+import cz.metacentrum.perun.audit.events.ServicesManagerEvents.AttributesAddedAsRequiredToService;
+import cz.metacentrum.perun.audit.events.ServicesManagerEvents.RequiredAttributeRemovedFromService;
+import cz.metacentrum.perun.audit.events.ServicesManagerEvents.RequiredAttributesRemovedFromService;
+import cz.metacentrum.perun.audit.events.ServicesManagerEvents.ServiceCreated;
+import cz.metacentrum.perun.audit.events.ServicesManagerEvents.ServiceDeleted;
+import cz.metacentrum.perun.core.api.AttributeDefinition;
+import cz.metacentrum.perun.core.api.Perun;
+import cz.metacentrum.perun.core.api.PerunClient;
+import cz.metacentrum.perun.core.api.PerunPrincipal;
+import cz.metacentrum.perun.core.api.PerunSession;
+import cz.metacentrum.perun.core.api.Service;
+import cz.metacentrum.perun.core.bl.PerunBl;
+import cz.metacentrum.perun.dispatcher.processing.AttributeServiceIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Implementation of AttributeServiceIndex.
+ *
+ * Index maps ID of each attribute to Services requiring it or any attribute from its dependencies
+ * known by AttributesManagerBl. Since the dependencies contain also attributes only checked against the attribute,
+ * the index can contain more Services than strictly necessary, but never less.
+ *
+ * @see cz.metacentrum.perun.dispatcher.processing.AttributeServiceIndex
+ */
+@org.springframework.stereotype.Service(value = "attributeServiceIndex")
+public class AttributeServiceIndexImpl implements AttributeServiceIndex {
+
+	private static final Logger log = LoggerFactory.getLogger(AttributeServiceIndexImpl.class);
+
+	private Properties dispatcherProperties;
+	private Perun perun;
+
+	private PerunSession perunSession = null;
+	private volatile Map<Integer, Set<Service>> servicesByAttribute = null;
+	// incremented on each invalidation, so index built from outdated data is not kept
+	private final AtomicInteger generation = new AtomicInteger();
+
+	// ----- setters -------------------------------------
+
+	public Properties getDispatcherProperties() {
+		return dispatcherProperties;
+	}
+
+	@javax.annotation.Resource(name="dispatcherPropertiesBean")
+	public void setDispatcherProperties(Properties dispatcherProperties) {
+		this.dispatcherProperties = dispatcherProperties;
+	}
+
+	public Perun getPerun() {
+		return perun;
+	}
+
+	@Autowired
+	public void setPerun(Perun perun) {
+		this.perun = perun;
+	}
+
+	// ----- methods -------------------------------------
+
+	@Override
+	public Set<Service> getAffectedServices(AttributeDefinition attributeDefinition) {
+		Map<Integer, Set<Service>> index = servicesByAttribute;
+		if (index == null) {
+			index = buildIndex();
+		}
+		return index.getOrDefault(attributeDefinition.getId(), Collections.emptySet());
+	}
+
+	@Override
+	public boolean invalidateOn(AuditEvent event) {
+		if (event instanceof AttributeAddedAsRequiredToService ||
+				event instanceof AttributesAddedAsRequiredToService ||
+				event instanceof RequiredAttributeRemovedFromService ||
+				event instanceof RequiredAttributesRemovedFromService ||
+				event instanceof AllRequiredAttributesRemovedFromService ||
+				event instanceof ServiceCreated ||
+				event instanceof ServiceDeleted ||
+				event instanceof AttributeCreated ||
+				event instanceof AttributeDeleted) {
+			log.debug("Index of services by attributes invalidated by event: {}", event);
+			invalidate();
+			return true;
+		}
+		return false;
+	}
+
+	@Override
+	public void invalidate() {
+		generation.incrementAndGet();
+		servicesByAttribute = null;
+	}
+
+	/**
+	 * Build index from required attributes of all Services and dependencies of attributes.
+	 *
+	 * @return built index
+	 */
+	private synchronized Map<Integer, Set<Service>> buildIndex() {
+
+		if (servicesByAttribute != null) return servicesByAttribute;
+		int builtGeneration = generation.get();
+
+		if (perunSession == null) {
+			perunSession = perun.getPerunSession(new PerunPrincipal(
+							dispatcherProperties.getProperty("perun.principal.name"),
+							dispatcherProperties.getProperty("perun.principal.extSourceName"),
+							dispatcherProperties.getProperty("perun.principal.extSourceType")),
+					new PerunClient());
+		}
+
+		PerunBl perunBl = (PerunBl) perun;
+
+		// services requiring the attribute directly
+		Map<Integer, Set<Service>> requiredBy = new HashMap<>();
+		List<Service> services = perunBl.getServicesManagerBl().getServices(perunSession);
+		for (Service service : services) {
+			for (AttributeDefinition attribute : perunBl.getAttributesManagerBl().getRequiredAttributesDefinition(perunSession, service)) {
+				requiredBy.computeIfAbsent(attribute.getId(), id -> new HashSet<>()).add(service);
+			}
+		}
+
+		// add services requiring attributes depending on the attribute
+		Map<Integer, Set<Service>> index = new HashMap<>(requiredBy);
+		for (Map.Entry<AttributeDefinition, Set<AttributeDefinition>> entry : perunBl.getAttributesManagerBl().getAllDependencies().entrySet()) {
+			Set<Service> affected = null;
+			for (AttributeDefinition dependent : entry.getValue()) {
+				Set<Service> requiring = requiredBy.get(dependent.getId());
+				if (requiring == null) continue;
+				if (affected == null) affected = new HashSet<>(requiredBy.getOrDefault(entry.getKey().getId(), Collections.emptySet()));
+				affected.addAll(requiring);
+			}
+			if (affected != null) index.put(entry.getKey().getId(), affected);
+		}
+
+		log.info("Index of services by attributes built for {} services and {} attributes.", services.size(), index.size());
+		if (generation.get() == builtGeneration) servicesByAttribute = index;
+		return index;
+
+	}
+
+}
@@ -5,6 +5,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Properties;
 import java.util.Set;
 import cz.metacentrum.perun.audit.events.AuditEvent;
@@ -38,6 +39,7 @@ import cz.metacentrum.perun.core.api.exceptions.ResourceNotExistsException;
 import cz.metacentrum.perun.core.api.exceptions.ServiceNotExistsException;
 import cz.metacentrum.perun.core.api.exceptions.UserNotExistsException;
 import cz.metacentrum.perun.dispatcher.exceptions.InvalidEventMessageException;
+import cz.metacentrum.perun.dispatcher.processing.AttributeServiceIndex;
 import cz.metacentrum.perun.dispatcher.processing.EventServiceResolver;
 
 /**
@@ -57,6 +59,7 @@ public class EventServiceResolverImpl implements EventServiceResolver {
 
 	private Properties dispatcherProperties;
 	private Perun perun;
+	private AttributeServiceIndex attributeServiceIndex;
 
 	private PerunSession perunSession = null;
 
@@ -80,6 +83,15 @@ public class EventServiceResolverImpl implements EventServiceResolver {
 		this.perun = perun;
 	}
 
+	public AttributeServiceIndex getAttributeServiceIndex() {
+		return attributeServiceIndex;
+	}
+
+	@Autowired
+	public void setAttributeServiceIndex(AttributeServiceIndex attributeServiceIndex) {
+		this.attributeServiceIndex = attributeServiceIndex;
+	}
+
 	// ----- methods -------------------------------------
 
 	@Override
@@ -87,52 +99,81 @@ public class EventServiceResolverImpl implements EventServiceResolver {
 
 		log.info("Event - I am going to process event: {}", event);
 
-		Map<Facility, Set<Service>> result = new HashMap<Facility, Set<Service>>();
+		attributeServiceIndex.invalidateOn(event);
 
 		if (event instanceof EngineIgnoreEvent) {
-			log.info("Event ignored {} facilities will be returned", result.size());
-			return result;
+			log.info("Event ignored 0 facilities will be returned");
+			return new HashMap<>();
 		}
 
-		// GET All Beans (only PerunBeans) from message
-		List<PerunBean> listOfBeans = new ArrayList<PerunBean>();
-		listOfBeans = AuditParser.parseLog(event.getMessage());
-
-		// Prepare variables
-		AttributeDefinition attributeDefinition = null;
-		Facility facility = null;
-		Resource resource = null;
-		Group group = null;
-		User user = null;
-		Member member = null;
-		Service service = null;
-		Host host = null;
-
-		// Recognize every object in List of PerunBeans from eventData
-		// TODO: What about more than 1 resources, or more than 1 facilities etc. ?
-		for (PerunBean pb : listOfBeans) {
-			if (pb instanceof AttributeDefinition) {
-				attributeDefinition = (AttributeDefinition) pb;
-			} else if (pb instanceof Facility) {
-				facility = (Facility) pb;
-			} else if (pb instanceof Resource) {
-				resource = (Resource) pb;
-			} else if (pb instanceof Group) {
-				group = (Group) pb;
-			} else if (pb instanceof User) {
-				user = (User) pb;
-			} else if (pb instanceof Member) {
-				member = (Member) pb;
-			} else if (pb instanceof Service) {
-				service = (Service) pb;
-			} else if (pb instanceof Host) {
-				host = (Host) pb;
+		return resolveBeans(new EventBeans(event), new ResolutionCache());
+
+	}
+
+	@Override
+	public List<Map<Facility, Set<Service>>> resolveEvents(List<AuditEvent> events) {
+
+		List<Map<Facility, Set<Service>>> results = new ArrayList<>(events.size());
+		Map<EventBeans, Map<Facility, Set<Service>>> resolvedBeans = new HashMap<>();
+		ResolutionCache cache = new ResolutionCache();
+
+		for (AuditEvent event : events) {
+			if (attributeServiceIndex.invalidateOn(event)) {
+				// resolution of following events can differ
+				resolvedBeans.clear();
 			}
+			if (event instanceof EngineIgnoreEvent) {
+				log.debug("Event ignored: {}", event);
+				results.add(new HashMap<>());
+				continue;
+			}
+			EventBeans beans = new EventBeans(event);
+			Map<Facility, Set<Service>> result = resolvedBeans.get(beans);
+			if (result == null) {
+				log.debug("Event - I am going to process event: {}", event);
+				try {
+					result = resolveBeans(beans, cache);
+				} catch (Exception e) {
+					log.error("Could not resolve event {}: {}", event, e);
+					result = new HashMap<>();
+				}
+				resolvedBeans.put(beans, result);
+			} else {
+				log.debug("Event coalesced with previous event with same beans: {}", event);
+			}
+			results.add(result);
 		}
 
-		// If there is any attribute, so create AttributeDefinition
+		log.info("{} events resolved in a window.", events.size());
+		return results;
+
+	}
+
+	/**
+	 * Resolve Facilities and Services affected by beans from Event.
+	 *
+	 * @param beans Beans from Event
+	 * @param cache Cache of resources and services used during this resolution
+	 * @return Affected Facilities and Services on them.
+	 */
+	private Map<Facility, Set<Service>> resolveBeans(EventBeans beans, ResolutionCache cache) throws PrivilegeException {
+
+		Map<Facility, Set<Service>> result = new HashMap<Facility, Set<Service>>();
+
+		AttributeDefinition attributeDefinition = beans.attributeDefinition;
+		Facility facility = beans.facility;
+		Resource resource = beans.resource;
+		Group group = beans.group;
+		User user = beans.user;
+		Member member = beans.member;
+		Service service = beans.service;
+		Host host = beans.host;
+
+		// If there is any attribute, plan only services which can be affected by its change
+		Set<Service> servicesAffectedByAttribute = null;
 		if (attributeDefinition != null) {
 			log.debug("Attribute found in event. {}.", attributeDefinition);
+			servicesAffectedByAttribute = attributeServiceIndex.getAffectedServices(attributeDefinition);
 		}
 
 		List<Facility> facilitiesResolvedFromEvent = new ArrayList<Facility>();
@@ -207,7 +248,7 @@ public class EventServiceResolverImpl implements EventServiceResolver {
 									log.warn("Non-existing host found while resolving event. id={}", host.getId());
 								}
 							} else {
-								log.warn("No match found for this event. Event={}", event);
+								log.warn("No match found for this event. Beans={}", beans);
 							}
 						}
 					}
@@ -247,8 +288,9 @@ public class EventServiceResolverImpl implements EventServiceResolver {
 			Facility facilityResolvedFromEvent;
 			List<Service> servicesResolvedFromResource;
 			try {
-				facilityResolvedFromEvent = perun.getResourcesManager().getFacility(perunSession, r);
-				servicesResolvedFromResource = perun.getResourcesManager().getAssignedServices(perunSession, r);
+				facilityResolvedFromEvent = cache.getFacility(r);
+				// copy, since cached list is shared by all events of the window
+				servicesResolvedFromResource = new ArrayList<>(cache.getAssignedServices(r));
 				// process only services resolved from event if any
 				if (!servicesResolvedFromEvent.isEmpty())
 					servicesResolvedFromResource.retainAll(servicesResolvedFromEvent);
@@ -259,17 +301,10 @@ public class EventServiceResolverImpl implements EventServiceResolver {
 
 			for (Service s : servicesResolvedFromResource) {
 
-				if (attributeDefinition != null) {
-					// remove from future processing services
-					// which don't require the found attribute
-					// TODO (CHECKME) This method can raise
-					// ServiceNotExistsException. Is it ok? Or it must be
-					// catch?
-					List<AttributeDefinition> serviceRequiredAttributes = perun
-							.getAttributesManager()
-							.getRequiredAttributesDefinition(perunSession, s);
-					if (!serviceRequiredAttributes.contains(attributeDefinition))
-						continue;
+				// remove from future processing services
+				// which don't require the found attribute or attributes depending on it
+				if (servicesAffectedByAttribute != null && !servicesAffectedByAttribute.contains(s)) {
+					continue;
 				}
 
 				if(!result.containsKey(facilityResolvedFromEvent)) {
@@ -287,4 +322,102 @@ public class EventServiceResolverImpl implements EventServiceResolver {
 
 	}
 
+	/**
+	 * Beans from Event message used for resolution. Events with equal beans are resolved to the same Facilities and Services.
+	 */
+	private static class EventBeans {
+
+		private AttributeDefinition attributeDefinition = null;
+		private Facility facility = null;
+		private Resource resource = null;
+		private Group group = null;
+		private User user = null;
+		private Member member = null;
+		private Service service = null;
+		private Host host = null;
+
+		private EventBeans(AuditEvent event) {
+			// GET All Beans (only PerunBeans) from message
+			List<PerunBean> listOfBeans = AuditParser.parseLog(event.getMessage());
+
+			// Recognize every object in List of PerunBeans from eventData
+			// TODO: What about more than 1 resources, or more than 1 facilities etc. ?
+			for (PerunBean pb : listOfBeans) {
+				if (pb instanceof AttributeDefinition) {
+					attributeDefinition = (AttributeDefinition) pb;
+				} else if (pb instanceof Facility) {
+					facility = (Facility) pb;
+				} else if (pb instanceof Resource) {
+					resource = (Resource) pb;
+				} else if (pb instanceof Group) {
+					group = (Group) pb;
+				} else if (pb instanceof User) {
+					user = (User) pb;
+				} else if (pb instanceof Member) {
+					member = (Member) pb;
+				} else if (pb instanceof Service) {
+					service = (Service) pb;
+				} else if (pb instanceof Host) {
+					host = (Host) pb;
+				}
+			}
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (o == null || getClass() != o.getClass()) return false;
+			EventBeans that = (EventBeans) o;
+			return Objects.equals(attributeDefinition, that.attributeDefinition) &&
+					Objects.equals(facility, that.facility) &&
+					Objects.equals(resource, that.resource) &&
+					Objects.equals(group, that.group) &&
+					Objects.equals(user, that.user) &&
+					Objects.equals(member, that.member) &&
+					Objects.equals(service, that.service) &&
+					Objects.equals(host, that.host);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(attributeDefinition, facility, resource, group, user, member, service, host);
+		}
+
+		@Override
+		public String toString() {
+			return "[" + attributeDefinition + ", " + facility + ", " + resource + ", " + group + ", " + user + ", " +
+					member + ", " + service + ", " + host + "]";
+		}
+
+	}
+
+	/**
+	 * Facilities and services of resources looked up during one resolution,
+	 * so they are read only once for all events resolved together.
+	 */
+	private class ResolutionCache {
+
+		private final Map<Integer, Facility> facilities = new HashMap<>();
+		private final Map<Integer, List<Service>> assignedServices = new HashMap<>();
+
+		private Facility getFacility(Resource resource) throws ResourceNotExistsException, PrivilegeException {
+			Facility facility = facilities.get(resource.getId());
+			if (facility == null) {
+				facility = perun.getResourcesManager().getFacility(perunSession, resource);
+				facilities.put(resource.getId(), facility);
+			}
+			return facility;
+		}
+
+		private List<Service> getAssignedServices(Resource resource) throws ResourceNotExistsException, PrivilegeException {
+			List<Service> services = assignedServices.get(resource.getId());
+			if (services == null) {
+				services = perun.getResourcesManager().getAssignedServices(perunSession, resource);
+				assignedServices.put(resource.getId(), services);
+			}
+			return services;
+		}
+
+	}
+
 }
@@ -85,6 +85,7 @@ public interface SchedulingPool extends TaskStore {
 
 	/**
 	 * Store change in Task status sent from Engine.
+	 * Buffered TaskResults of the Task are stored first, so they are never older than the status of the Task.
 	 *
 	 * @param taskId ID of Task to update
 	 * @param status TaskStatus to set
@@ -106,4 +107,10 @@ public interface SchedulingPool extends TaskStore {
 	 */
 	void onTaskDestinationComplete(TaskResult taskResult);
 
+	/**
+	 * Store all TaskResults received from Engine, which are waiting to be stored in a batch.
+	 * TaskResults are stored when batch is full or when this method is periodically called.
+	 */
+	void flushTaskResults();
+
 }
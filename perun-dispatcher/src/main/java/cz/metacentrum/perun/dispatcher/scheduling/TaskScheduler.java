@@ -16,6 +16,7 @@ import cz.metacentrum.perun.core.bl.TasksManagerBl;
 import cz.metacentrum.perun.dispatcher.jms.EngineMessageProducer;
 import cz.metacentrum.perun.dispatcher.jms.EngineMessageProducerFactory;
 import cz.metacentrum.perun.dispatcher.scheduling.impl.TaskScheduled;
+import cz.metacentrum.perun.taskslib.messaging.EngineMessageCodec;
 import cz.metacentrum.perun.taskslib.model.Task;
 import cz.metacentrum.perun.taskslib.model.Task.TaskStatus;
 import cz.metacentrum.perun.taskslib.model.TaskResult;
@@ -355,23 +356,25 @@ public class TaskScheduler extends AbstractRunner {
 
 		task.setDestinations(destinations);
 
-		// construct JMS message for Engine
+		// construct JMS message for Engine and send it async
 
-		StringBuilder destinations_s = new StringBuilder("Destinations [");
-		if (destinations != null) {
-			for (Destination destination : destinations) {
-				destinations_s.append(destination.serializeToString()).append(", ");
+		if (engineMessageProducer.getProtocolVersion() >= 2) {
+			engineMessageProducer.sendMessage(EngineMessageCodec.encodeTask(task));
+		} else {
+			StringBuilder destinations_s = new StringBuilder("Destinations [");
+			if (destinations != null) {
+				for (Destination destination : destinations) {
+					destinations_s.append(destination.serializeToString()).append(", ");
+				}
 			}
-		}
-		destinations_s.append("]");
+			destinations_s.append("]");
 
-		// send message async
-
-		engineMessageProducer.sendMessage("[" + task.getId() + "]["
-				+ task.isPropagationForced() + "]|["
-				+ fixStringSeparators(task.getService().serializeToString()) + "]|["
-				+ fixStringSeparators(task.getFacility().serializeToString()) + "]|["
-				+ fixStringSeparators(destinations_s.toString()) + "]");
+			engineMessageProducer.sendMessage("[" + task.getId() + "]["
+					+ task.isPropagationForced() + "]|["
+					+ fixStringSeparators(task.getService().serializeToString()) + "]|["
+					+ fixStringSeparators(task.getFacility().serializeToString()) + "]|["
+					+ fixStringSeparators(destinations_s.toString()) + "]");
+		}
 
 		// modify task status and reset forced flag
 
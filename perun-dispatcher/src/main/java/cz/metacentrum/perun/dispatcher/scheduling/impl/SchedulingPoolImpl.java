@@ -33,12 +33,15 @@ import org.springframework.beans.factory.annotation.Autowired;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.DelayQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 
 import javax.annotation.Resource;
 
@@ -66,6 +69,9 @@ public class SchedulingPoolImpl implements SchedulingPool, InitializingBean {
 	private TasksManagerBl tasksManagerBl;
 	private EngineMessageProducerFactory engineMessageProducerFactory;
 	private Perun perun;
+	// TaskResults from Engine waiting to be stored to DB in one batch
+	private final BlockingQueue<TaskResult> taskResultsBuffer = new LinkedBlockingQueue<>();
+	private final Object taskResultsFlushLock = new Object();
 
 	public SchedulingPoolImpl() {
 	}
@@ -198,6 +204,11 @@ public class SchedulingPoolImpl implements SchedulingPool, InitializingBean {
 		return taskStore.getTasksWithStatus(status);
 	}
 
+	@Override
+	public int getTasksCountWithStatus(TaskStatus... status) {
+		return taskStore.getTasksCountWithStatus(status);
+	}
+
 	@Override
 	public Task removeTask(Task task) throws TaskStoreException {
 		return taskStore.removeTask(task);
@@ -386,16 +397,16 @@ public class SchedulingPoolImpl implements SchedulingPool, InitializingBean {
 
 	@Override
 	public String getReport() {
-		int waiting = getTasksWithStatus(TaskStatus.WAITING).size();
-		int planned = getTasksWithStatus(TaskStatus.PLANNED).size();
-		int generating = getTasksWithStatus(TaskStatus.GENERATING).size();
-		int generated = getTasksWithStatus(TaskStatus.GENERATED).size();
-		int generror = getTasksWithStatus(TaskStatus.GENERROR).size();
-		int sending = getTasksWithStatus(TaskStatus.SENDING).size();
-		int senderror = getTasksWithStatus(TaskStatus.SENDERROR).size();
-		int done = getTasksWithStatus(TaskStatus.DONE).size();
-		int warning = getTasksWithStatus(TaskStatus.WARNING).size();
-		int error = getTasksWithStatus(TaskStatus.ERROR).size();
+		int waiting = getTasksCountWithStatus(TaskStatus.WAITING);
+		int planned = getTasksCountWithStatus(TaskStatus.PLANNED);
+		int generating = getTasksCountWithStatus(TaskStatus.GENERATING);
+		int generated = getTasksCountWithStatus(TaskStatus.GENERATED);
+		int generror = getTasksCountWithStatus(TaskStatus.GENERROR);
+		int sending = getTasksCountWithStatus(TaskStatus.SENDING);
+		int senderror = getTasksCountWithStatus(TaskStatus.SENDERROR);
+		int done = getTasksCountWithStatus(TaskStatus.DONE);
+		int warning = getTasksCountWithStatus(TaskStatus.WARNING);
+		int error = getTasksCountWithStatus(TaskStatus.ERROR);
 
 		return "Dispatcher SchedulingPool Task report:\n" +
 				"  WAITING: " + waiting +
@@ -473,6 +484,10 @@ public class SchedulingPoolImpl implements SchedulingPool, InitializingBean {
 	@Override
 	public void onTaskStatusChange(int taskId, String status, String milliseconds) {
 
+		// TaskResults sent before the status change must be stored before it, flush is called always,
+		// since they might be already drained by other thread which is still storing them under the lock
+		flushTaskResults();
+
 		Task task = getTask(taskId);
 		if (task == null) {
 			log.error("[{}] Received status update about Task which is not in Dispatcher anymore, will ignore it.", taskId);
@@ -549,10 +564,43 @@ public class SchedulingPoolImpl implements SchedulingPool, InitializingBean {
 
 	@Override
 	public void onTaskDestinationComplete(TaskResult taskResult) {
+		taskResultsBuffer.add(taskResult);
+		if (taskResultsBuffer.size() >= getTaskResultsBatchSize()) {
+			flushTaskResults();
+		}
+	}
+
+	@Override
+	public void flushTaskResults() {
+		synchronized (taskResultsFlushLock) {
+			int batchSize = getTaskResultsBatchSize();
+			List<TaskResult> taskResults = new ArrayList<>(batchSize);
+			while (taskResultsBuffer.drainTo(taskResults, batchSize) > 0) {
+				try {
+					tasksManagerBl.insertNewTaskResults(sess, taskResults);
+					log.debug("Stored {} TaskResults from Engine.", taskResults.size());
+				} catch (Exception e) {
+					// don't lose whole batch because of one wrong TaskResult
+					log.warn("Could not save batch of {} TaskResults from Engine, storing them one by one: {}", taskResults.size(), e.getMessage());
+					for (TaskResult taskResult : taskResults) {
+						try {
+							tasksManagerBl.insertNewTaskResult(sess, taskResult);
+						} catch (Exception ex) {
+							log.error("Could not save TaskResult from Engine, {}, {}", taskResult, ex.getMessage());
+						}
+					}
+				}
+				taskResults.clear();
+			}
+		}
+	}
+
+	private int getTaskResultsBatchSize() {
 		try {
-			tasksManagerBl.insertNewTaskResult(sess, taskResult);
-		} catch (Exception e) {
-			log.error("Could not save TaskResult from Engine, {}, {}", taskResult, e.getMessage());
+			return Math.max(1, Integer.parseInt(dispatcherProperties.getProperty("dispatcher.taskResults.batchSize", "100")));
+		} catch (NumberFormatException e) {
+			log.warn("Could not parse value of dispatcher.taskResults.batchSize property. Using default.");
+			return 100;
 		}
 	}
 
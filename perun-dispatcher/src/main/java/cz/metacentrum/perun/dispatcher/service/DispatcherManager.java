@@ -84,4 +84,10 @@ public interface DispatcherManager {
 	 */
 	void cleanOldTaskResults();
 
+	/**
+	 * Store TaskResults received from Engine, which are waiting in a buffer for batch insert.
+	 * This method is supposed to be called by spring scheduler with fixed delay.
+	 */
+	void flushTaskResults();
+
 }
@@ -271,6 +271,15 @@ public class DispatcherManagerImpl implements DispatcherManager {
 		}
 	}
 
+	@Override
+	public void flushTaskResults() {
+		try {
+			schedulingPool.flushTaskResults();
+		} catch (Throwable e) {
+			log.error("Error storing task results from engine: {}", e);
+		}
+	}
+
 	/**
 	 * Main initialization method. Loads all data and starts all scheduling a processing threads.
 	 */
@@ -326,6 +335,8 @@ public class DispatcherManagerImpl implements DispatcherManager {
 		stopPropagationMaintaining();
 		stopProcessingSystemMessages();
 		stopPerunHornetQServer();
+		// store results received before stop
+		flushTaskResults();
 	}
 
 }
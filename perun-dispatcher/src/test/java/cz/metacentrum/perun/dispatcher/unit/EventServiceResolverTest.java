@@ -1,10 +1,16 @@
 package cz.metacentrum.perun.dispatcher.unit;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import cz.metacentrum.perun.audit.events.AttributesManagerEvents.AttributeSetForUser;
 import cz.metacentrum.perun.audit.events.AuditEvent;
 import cz.metacentrum.perun.audit.events.GroupManagerEvents.DirectMemberAddedToGroup;
+import cz.metacentrum.perun.core.api.Attribute;
+import cz.metacentrum.perun.core.api.AttributeDefinition;
+import cz.metacentrum.perun.core.api.AttributesManager;
 import cz.metacentrum.perun.core.api.Facility;
 import cz.metacentrum.perun.core.api.Group;
 import cz.metacentrum.perun.core.api.Service;
@@ -16,6 +22,7 @@ import cz.metacentrum.perun.core.bl.PerunBl;
 import cz.metacentrum.perun.dispatcher.AbstractDispatcherTest;
 import cz.metacentrum.perun.dispatcher.exceptions.InvalidEventMessageException;
 import cz.metacentrum.perun.dispatcher.model.Event;
+import cz.metacentrum.perun.dispatcher.processing.AttributeServiceIndex;
 import cz.metacentrum.perun.dispatcher.processing.EventServiceResolver;
 
 import org.junit.Assert;
@@ -33,6 +40,9 @@ public class EventServiceResolverTest extends AbstractDispatcherTest {
 	@Autowired
 	private EventServiceResolver eventServiceResolver;
 
+	@Autowired
+	private AttributeServiceIndex attributeServiceIndex;
+
 	@Autowired
 	PerunBl perun;
 
@@ -81,4 +91,47 @@ public class EventServiceResolverTest extends AbstractDispatcherTest {
 
 	}
 
+	@Test
+	public void resolveEventsTest() {
+		System.out.println("EventServiceResolver.resolveEventsTest()");
+
+		List<AuditEvent> events = Arrays.asList(
+				new DirectMemberAddedToGroup(member1, group1),
+				new DirectMemberAddedToGroup(member1, group1));
+		List<Map<Facility, Set<Service>>> resolvedEvents = eventServiceResolver.resolveEvents(events);
+
+		Assert.assertEquals("We should have result for each event", 2, resolvedEvents.size());
+		for (Map<Facility, Set<Service>> resolvedServices : resolvedEvents) {
+			Assert.assertEquals("We should resolved only one facility-service", 1, resolvedServices.size());
+			Set<Service> resolved = resolvedServices.get(facility1);
+			Assert.assertEquals("We should have 2 service", 2, resolved.size());
+			Assert.assertTrue("Our Service 1 is missing", resolved.contains(service1));
+			Assert.assertTrue("Our Service 2 is missing", resolved.contains(service2));
+		}
+
+	}
+
+	@Test
+	public void resolveAttributeEventTest() throws Exception {
+		System.out.println("EventServiceResolver.resolveAttributeEventTest()");
+
+		AttributeDefinition attributeDefinition = new AttributeDefinition();
+		attributeDefinition.setFriendlyName("dispatcherTestAttribute");
+		attributeDefinition.setNamespace(AttributesManager.NS_USER_ATTR_DEF);
+		attributeDefinition.setType(String.class.getName());
+		attributeDefinition = perun.getAttributesManagerBl().createAttribute(sess, attributeDefinition);
+		perun.getServicesManagerBl().addRequiredAttribute(sess, service1, attributeDefinition);
+		// required attribute was added without processing its event
+		attributeServiceIndex.invalidate();
+
+		Attribute attribute = new Attribute(attributeDefinition, "value");
+		Map<Facility, Set<Service>> resolvedServices = eventServiceResolver.resolveEvent(new AttributeSetForUser(attribute, user1));
+
+		Assert.assertEquals("We should resolved only one facility-service", 1, resolvedServices.size());
+		Set<Service> resolved = resolvedServices.get(facility1);
+		Assert.assertEquals("We should have only service requiring the attribute", 1, resolved.size());
+		Assert.assertTrue("Our Service 1 is missing", resolved.contains(service1));
+
+	}
+
 }
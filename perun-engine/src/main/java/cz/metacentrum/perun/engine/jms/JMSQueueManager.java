@@ -1,8 +1,15 @@
 package cz.metacentrum.perun.engine.jms;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import javax.jms.Connection;
 import javax.jms.ConnectionFactory;
@@ -24,12 +31,19 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.task.TaskExecutor;
 
 import cz.metacentrum.perun.core.api.Destination;
+import cz.metacentrum.perun.taskslib.messaging.EngineMessageCodec;
 import cz.metacentrum.perun.taskslib.model.Task;
 import cz.metacentrum.perun.taskslib.model.TaskResult;
 
 /**
  * Class used to send messages through JMS to Dispatcher and also to initiate/close the needed connection.
  *
+ * Engine announces supported protocol version on registration. When dispatcher confirms version 2,
+ * TaskResults are sent in batches of engine.jms.taskResults.batchSize, at latest after
+ * engine.jms.taskResults.batchDelay ms or before next Task status, so they never arrive after status of their Task.
+ *
+ * @see cz.metacentrum.perun.taskslib.messaging.EngineMessageCodec
+ *
  * @author Michal Karm Babacek
  * @author Pavel Zlámal <zlamal@cesnet.cz>
  */
@@ -51,6 +65,9 @@ public class JMSQueueManager {
 	private Connection connection = null;
 	private boolean needToConnect = true;
 	private int waitTime = 0;
+	private volatile int protocolVersion = EngineMessageCodec.LEGACY_VERSION;
+	private final BlockingDeque<TaskResult> pendingTaskResults = new LinkedBlockingDeque<>();
+	private ScheduledExecutorService taskResultsSender = null;
 
 	/**
 	 *
@@ -116,7 +133,9 @@ public class JMSQueueManager {
 			// Step 6. Create a JMS Message Producer
 			producer = session.createProducer(queue);
 
-			TextMessage message = session.createTextMessage("register");
+			// use old protocol until dispatcher confirms the new one
+			protocolVersion = EngineMessageCodec.LEGACY_VERSION;
+			TextMessage message = session.createTextMessage(EngineMessageCodec.encodeRegister());
 
 			// Step 8. Send the Message
 			producer.send(message);
@@ -160,6 +179,15 @@ public class JMSQueueManager {
 	}
 
 	public void reportTaskResult(TaskResult taskResult) throws JMSException {
+		if (protocolVersion >= 2) {
+			pendingTaskResults.add(taskResult);
+			if (pendingTaskResults.size() >= getTaskResultsBatchSize()) {
+				sendPendingTaskResults();
+			} else {
+				scheduleTaskResultsSender();
+			}
+			return;
+		}
 		TextMessage message = session.createTextMessage("taskresult:" + taskResult.serializeToString());
 		synchronized(producer) {
 			producer.send(message, DeliveryMode.PERSISTENT, 2, 0);
@@ -169,14 +197,95 @@ public class JMSQueueManager {
 	}
 
 	public void reportTaskStatus(int id, Task.TaskStatus status, long miliseconds) throws JMSException {
+		// results must be processed by dispatcher before status of their Task
+		try {
+			sendPendingTaskResults();
+		} catch (JMSException e) {
+			// unsent results stay pending and are sent later, the status must not be lost because of them
+			log.error("[{}] Unable to send pending TaskResults to dispatcher before Task state.", id, e);
+		}
 		TextMessage message = session.createTextMessage("task:"
 				+ id + ":" + status + ":" + miliseconds);
-		producer.send(message, DeliveryMode.PERSISTENT, 6, 0);
+		synchronized(producer) {
+			producer.send(message, DeliveryMode.PERSISTENT, 6, 0);
+		}
 		log.info("[{}] Task state {} sent to dispatcher.", id, status);
 	}
 
+	/**
+	 * Send all pending TaskResults to dispatcher in batches.
+	 *
+	 * @throws JMSException when sending fails, unsent TaskResults are put back to the head of pending TaskResults
+	 */
+	public void sendPendingTaskResults() throws JMSException {
+		int batchSize = getTaskResultsBatchSize();
+		List<TaskResult> batch = new ArrayList<>(batchSize);
+		synchronized(pendingTaskResults) {
+			while (pendingTaskResults.drainTo(batch, batchSize) > 0) {
+				try {
+					TextMessage message = session.createTextMessage(EngineMessageCodec.encodeTaskResults(batch));
+					synchronized(producer) {
+						producer.send(message, DeliveryMode.PERSISTENT, 2, 0);
+					}
+				} catch (JMSException | RuntimeException e) {
+					// drained only under the lock, so the batch is still the oldest part of the queue
+					for (int i = batch.size() - 1; i >= 0; i--) {
+						pendingTaskResults.addFirst(batch.get(i));
+					}
+					throw e;
+				}
+				log.info("{} TaskResults sent to dispatcher.", batch.size());
+				batch.clear();
+			}
+		}
+	}
+
+	/**
+	 * Set protocol version confirmed by dispatcher.
+	 *
+	 * @param protocolVersion negotiated version
+	 */
+	public void setProtocolVersion(int protocolVersion) {
+		log.info("Dispatcher confirmed protocol version {}.", protocolVersion);
+		this.protocolVersion = protocolVersion;
+	}
+
+	public int getProtocolVersion() {
+		return protocolVersion;
+	}
+
+	private synchronized void scheduleTaskResultsSender() {
+		if (taskResultsSender != null) return;
+		taskResultsSender = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "taskResultsSender");
+			thread.setDaemon(true);
+			return thread;
+		});
+		long delay = getLongProperty("engine.jms.taskResults.batchDelay", 500);
+		taskResultsSender.scheduleWithFixedDelay(() -> {
+			try {
+				sendPendingTaskResults();
+			} catch (Exception e) {
+				log.error("Unable to send TaskResults to dispatcher.", e);
+			}
+		}, delay, delay, TimeUnit.MILLISECONDS);
+	}
+
+	private int getTaskResultsBatchSize() {
+		return (int) Math.max(1, getLongProperty("engine.jms.taskResults.batchSize", 100));
+	}
+
+	private long getLongProperty(String name, long defaultValue) {
+		try {
+			return Long.parseLong(propertiesBean.getProperty(name, String.valueOf(defaultValue)));
+		} catch (NumberFormatException e) {
+			return defaultValue;
+		}
+	}
+
 	public void sendGoodByeAndClose() {
 		try {
+			sendPendingTaskResults();
 			TextMessage message = session.createTextMessage("goodbye");
 			// Step 8. Send the Message
 			synchronized(producer) {
@@ -17,6 +17,7 @@ import org.springframework.core.task.TaskRejectedException;
 import cz.metacentrum.perun.engine.exceptions.UnknownMessageTypeException;
 import cz.metacentrum.perun.engine.processing.CommandProcessor;
 import cz.metacentrum.perun.engine.processing.EventProcessor;
+import cz.metacentrum.perun.taskslib.messaging.EngineMessageCodec;
 
 /**
  *
@@ -46,6 +47,8 @@ public class MessageReceiver implements Runnable {
 	private EventProcessor eventProcessor;
 	@Autowired
 	private TaskExecutor taskExecutorMessageProcess;
+	@Autowired
+	private JMSQueueManager jmsQueueManager;
 
 	public MessageReceiver() {
 	}
@@ -112,6 +115,8 @@ public class MessageReceiver implements Runnable {
 								log.error("Task was rejected. Message {}", message);
 								throw ex;
 							}
+						} else if (messageType.equalsIgnoreCase(EngineMessageCodec.PROTOCOL)) {
+							jmsQueueManager.setProtocolVersion(EngineMessageCodec.decodeProtocol(message));
 						} else if (messageType.equalsIgnoreCase("command")) {
 							// TODO: There is no need to put commandProcessor to
 							// a separate thread at the moment, however it is
@@ -0,0 +1,99 @@
+package cz.metacentrum.perun.engine.model;
+
+/**
+ * Snapshot of concurrency limits and queue depths of GEN or SEND completion service.
+ *
+ * @see cz.metacentrum.perun.engine.scheduling.impl.AdmissionController
+ */
+public class ConcurrencyLimits {
+
+	private final String name;
+	private final int limit;
+	private final int minLimit;
+	private final int maxLimit;
+	private final int running;
+	private final int waiting;
+	private final int slowLaneLimit;
+	private final int slowLaneRunning;
+	private final int slowDestinations;
+
+	public ConcurrencyLimits(String name, int limit, int minLimit, int maxLimit, int running, int waiting,
+	                         int slowLaneLimit, int slowLaneRunning, int slowDestinations) {
+		this.name = name;
+		this.limit = limit;
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.running = running;
+		this.waiting = waiting;
+		this.slowLaneLimit = slowLaneLimit;
+		this.slowLaneRunning = slowLaneRunning;
+		this.slowDestinations = slowDestinations;
+	}
+
+	/**
+	 * @return name of the completion service, e.g. GEN or SEND
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return current limit of Tasks running in the main lane
+	 */
+	public int getLimit() {
+		return limit;
+	}
+
+	public int getMinLimit() {
+		return minLimit;
+	}
+
+	public int getMaxLimit() {
+		return maxLimit;
+	}
+
+	/**
+	 * @return number of Tasks running in the main lane
+	 */
+	public int getRunning() {
+		return running;
+	}
+
+	/**
+	 * @return number of submitted Tasks waiting for admission
+	 */
+	public int getWaiting() {
+		return waiting;
+	}
+
+	public int getSlowLaneLimit() {
+		return slowLaneLimit;
+	}
+
+	public int getSlowLaneRunning() {
+		return slowLaneRunning;
+	}
+
+	/**
+	 * @return number of destinations currently considered slow
+	 */
+	public int getSlowDestinations() {
+		return slowDestinations;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + ":[" +
+				"name='" + name + '\'' +
+				", limit='" + limit + '\'' +
+				", minLimit='" + minLimit + '\'' +
+				", maxLimit='" + maxLimit + '\'' +
+				", running='" + running + '\'' +
+				", waiting='" + waiting + '\'' +
+				", slowLaneLimit='" + slowLaneLimit + '\'' +
+				", slowLaneRunning='" + slowLaneRunning + '\'' +
+				", slowDestinations='" + slowDestinations + '\'' +
+				']';
+	}
+
+}
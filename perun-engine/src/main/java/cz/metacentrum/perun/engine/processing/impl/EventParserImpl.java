@@ -10,6 +10,7 @@ import cz.metacentrum.perun.core.api.exceptions.PrivilegeException;
 import cz.metacentrum.perun.core.api.exceptions.ServiceNotExistsException;
 import cz.metacentrum.perun.engine.exceptions.InvalidEventMessageException;
 import cz.metacentrum.perun.engine.processing.EventParser;
+import cz.metacentrum.perun.taskslib.messaging.EngineMessageCodec;
 import cz.metacentrum.perun.taskslib.model.Task;
 import org.apache.commons.codec.binary.Base64;
 import org.slf4j.Logger;
@@ -37,6 +38,16 @@ public class EventParserImpl implements EventParser {
 
 		log.info("Going to process event: {}", event);
 
+		// protocol version 2 sends Task as JSON
+		String content = event.startsWith("task|") ? event.substring("task|".length()) : event;
+		if (EngineMessageCodec.isEncodedTask(content)) {
+			try {
+				return EngineMessageCodec.decodeTask(content);
+			} catch (IllegalArgumentException e) {
+				throw new InvalidEventMessageException("Invalid message format: Message[" + event + "]", e);
+			}
+		}
+
 		/*
 		 * Expected string format:
 		 * "task|[task_id][is_forced]|[service]|[facility]|[destination_list]|[dependency_list]"
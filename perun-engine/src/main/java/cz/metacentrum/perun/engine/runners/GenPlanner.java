@@ -1,10 +1,12 @@
 package cz.metacentrum.perun.engine.runners;
 
 import cz.metacentrum.perun.engine.jms.JMSQueueManager;
+import cz.metacentrum.perun.engine.scheduling.GenDataFetcher;
 import cz.metacentrum.perun.engine.scheduling.GenWorker;
 import cz.metacentrum.perun.engine.scheduling.SchedulingPool;
 import cz.metacentrum.perun.engine.scheduling.impl.BlockingGenExecutorCompletionService;
 import cz.metacentrum.perun.engine.scheduling.impl.GenWorkerImpl;
+import cz.metacentrum.perun.engine.scheduling.impl.InProcessGenWorkerImpl;
 import cz.metacentrum.perun.taskslib.model.Task;
 import cz.metacentrum.perun.taskslib.runners.impl.AbstractRunner;
 import org.slf4j.Logger;
@@ -14,8 +16,13 @@ import org.springframework.beans.factory.annotation.Autowired;
 import javax.jms.JMSException;
 import java.io.File;
 import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.BlockingDeque;
+import java.util.stream.Collectors;
 
 import static cz.metacentrum.perun.taskslib.model.Task.TaskStatus.GENERATING;
 
@@ -27,9 +34,16 @@ import static cz.metacentrum.perun.taskslib.model.Task.TaskStatus.GENERATING;
  *
  * Expected Task status change PLANNED -> GENERATING is reported to Dispatcher.
  *
+ * Services listed in engine.gen.rawJson.services are marked as consuming raw hashed data instead of output
+ * of their GEN script, so they are generated inside the engine by InProcessGenWorkerImpl. Other services (or all
+ * of them, if Perun RPC for GEN data is not configured) start their GEN script. Each listed service can be followed
+ * by options separated by ':' - "hierarchical" fetches data without groups and "filterExpired" filters expired
+ * members, e.g. "service_a:filterExpired,service_b:hierarchical".
+ *
  * @see SchedulingPool#getNewTasksQueue()
  * @see BlockingGenExecutorCompletionService
  * @see GenWorkerImpl
+ * @see InProcessGenWorkerImpl
  *
  * @author David Šarman
  * @author Pavel Zlámal <zlamal@cesnet.cz>
@@ -37,6 +51,8 @@ import static cz.metacentrum.perun.taskslib.model.Task.TaskStatus.GENERATING;
 public class GenPlanner extends AbstractRunner {
 
 	private final static Logger log = LoggerFactory.getLogger(GenPlanner.class);
+	private final static String HIERARCHICAL_OPTION = "hierarchical";
+	private final static String FILTER_EXPIRED_OPTION = "filterExpired";
 
 	@Autowired
 	private SchedulingPool schedulingPool;
@@ -44,7 +60,10 @@ public class GenPlanner extends AbstractRunner {
 	private BlockingGenExecutorCompletionService genCompletionService;
 	@Autowired
 	private JMSQueueManager jmsQueueManager;
+	@Autowired(required = false)
+	private GenDataFetcher genDataFetcher;
 	private File directory;
+	private Map<String, List<String>> rawJsonServices = new HashMap<>();
 
 	public GenPlanner() {}
 
@@ -66,7 +85,7 @@ public class GenPlanner extends AbstractRunner {
 				because we might be waiting on blockingSubmit() here !!
 				*/
 				task.setStatus(GENERATING);
-				GenWorker worker = new GenWorkerImpl(task, directory);
+				GenWorker worker = createGenWorker(task);
 				genCompletionService.blockingSubmit(worker);
 				try {
 					jmsQueueManager.reportTaskStatus(task.getId(), task.getStatus(), task.getGenStartTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
@@ -85,11 +104,49 @@ public class GenPlanner extends AbstractRunner {
 		}
 	}
 
+	/**
+	 * Create in-process GEN worker for services configured for it, script GEN worker otherwise.
+	 *
+	 * @param task Task to be generated
+	 * @return GEN worker for the Task
+	 */
+	private GenWorker createGenWorker(Task task) {
+		List<String> options = rawJsonServices.get(task.getService().getName());
+		if (genDataFetcher != null && genDataFetcher.isEnabled() && options != null) {
+			return new InProcessGenWorkerImpl(task, directory, genDataFetcher,
+					!options.contains(HIERARCHICAL_OPTION), options.contains(FILTER_EXPIRED_OPTION));
+		}
+		return new GenWorkerImpl(task, directory);
+	}
+
 	@Autowired
 	public void setPropertiesBean(Properties propertiesBean) {
 		if (propertiesBean != null) {
 			directory = new File(propertiesBean.getProperty("engine.genscript.path"));
+			rawJsonServices = parseRawJsonServices(propertiesBean.getProperty("engine.gen.rawJson.services", ""));
+		}
+	}
+
+	/**
+	 * Parse services consuming raw hashed data and their options. Services with unknown options are left
+	 * to their GEN script.
+	 *
+	 * @param property value of engine.gen.rawJson.services
+	 * @return options by service name
+	 */
+	private static Map<String, List<String>> parseRawJsonServices(String property) {
+		Map<String, List<String>> services = new HashMap<>();
+		for (String entry : property.split(",")) {
+			if (entry.trim().isEmpty()) continue;
+			List<String> parts = Arrays.stream(entry.split(":")).map(String::trim).collect(Collectors.toList());
+			List<String> options = parts.subList(1, parts.size());
+			if (options.stream().allMatch(option -> HIERARCHICAL_OPTION.equals(option) || FILTER_EXPIRED_OPTION.equals(option))) {
+				services.put(parts.get(0), options);
+			} else {
+				log.error("Unknown in-process GEN options of service in '{}', GEN script will be used.", entry);
+			}
 		}
+		return services;
 	}
 
 }
@@ -9,6 +9,7 @@ import cz.metacentrum.perun.engine.scheduling.impl.BlockingSendExecutorCompletio
 import cz.metacentrum.perun.taskslib.exceptions.TaskStoreException;
 import cz.metacentrum.perun.taskslib.model.SendTask;
 import cz.metacentrum.perun.taskslib.model.SendTask.SendTaskStatus;
+import cz.metacentrum.perun.taskslib.model.TaskResult;
 import cz.metacentrum.perun.taskslib.model.TaskResult.TaskResultStatus;
 import cz.metacentrum.perun.taskslib.model.Task;
 import cz.metacentrum.perun.taskslib.model.Task.TaskStatus;
@@ -29,6 +30,7 @@ import java.util.Objects;
  *
  * If any of SendTasks fails its processing (has ERROR status), whole Task is set to SENDERROR.
  * If any of SendTasks completes its processing with WARNING status, whole Task is set to WARNING, unless there was other failure..
+ * SendTasks skipped because of unchanged data are reported as SKIPPED TaskResults and they don't change Task status.
  * Otherwise SENDING or DONE is kept for whole Task.
  * Once all SendTasks are finished Task status is reported to Dispatcher.
  *
@@ -143,7 +145,11 @@ public class SendCollector extends AbstractRunner {
 			try {
 
 				// report TaskResult to Dispatcher for this SendTask (Destination)
-				jmsQueueManager.reportTaskResult(schedulingPool.createTaskResult(task.getId(), destination.getId(), stderr, stdout, returnCode, service));
+				TaskResult taskResult = schedulingPool.createTaskResult(task.getId(), destination.getId(), stderr, stdout, returnCode, service);
+				if (sendTask != null && Objects.equals(sendTask.getStatus(), SendTaskStatus.SKIPPED)) {
+					taskResult.setStatus(TaskResultStatus.SKIPPED);
+				}
+				jmsQueueManager.reportTaskResult(taskResult);
 
 			} catch (JMSException e1) {
 				log.error("[{}] Error trying to reportTaskResult for Destination: {} to Dispatcher: {}", task.getId(), destination, e1);
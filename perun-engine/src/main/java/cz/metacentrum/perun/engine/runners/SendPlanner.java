@@ -3,7 +3,9 @@ package cz.metacentrum.perun.engine.runners;
 import cz.metacentrum.perun.core.api.Destination;
 import cz.metacentrum.perun.engine.jms.JMSQueueManager;
 import cz.metacentrum.perun.engine.scheduling.SchedulingPool;
+import cz.metacentrum.perun.engine.scheduling.SendDigestStore;
 import cz.metacentrum.perun.engine.scheduling.SendWorker;
+import cz.metacentrum.perun.engine.scheduling.SshConnectionManager;
 import cz.metacentrum.perun.engine.scheduling.impl.BlockingSendExecutorCompletionService;
 import cz.metacentrum.perun.engine.scheduling.impl.SendWorkerImpl;
 import cz.metacentrum.perun.taskslib.exceptions.TaskStoreException;
@@ -33,10 +35,15 @@ import static cz.metacentrum.perun.taskslib.model.SendTask.SendTaskStatus.SENDIN
  * Expected Task status change GENERATED -> SENDING is reported to Dispatcher.
  * For Tasks without any Destination, status changes GENERATED -> ERROR and Task is removed from SchedulingPool (Engine).
  *
+ * Unless propagation is forced, digest of GEN output is computed once for the Task and passed to SendWorkers,
+ * so they can skip Destinations which already have the same data. SendWorkers share SSH connections
+ * to the same host, when SshConnectionManager is enabled.
+ *
  * @see SchedulingPool#getGeneratedTasksQueue()
  * @see SendTask
  * @see SendWorkerImpl
  * @see BlockingSendExecutorCompletionService
+ * @see SendDigestStore
  *
  * @author David Šarman
  * @author Pavel Zlámal <zlamal@cesnet.cz>
@@ -51,6 +58,10 @@ public class SendPlanner extends AbstractRunner {
 	private SchedulingPool schedulingPool;
 	@Autowired
 	private JMSQueueManager jmsQueueManager;
+	@Autowired(required = false)
+	private SendDigestStore sendDigestStore;
+	@Autowired(required = false)
+	private SshConnectionManager sshConnectionManager;
 	private File directory;
 
 	public SendPlanner() {
@@ -100,11 +111,16 @@ public class SendPlanner extends AbstractRunner {
 					jmsLogError(task);
 				}
 
+				// forced propagation always sends data to all destinations
+				SendDigestStore digestStore = (sendDigestStore != null && sendDigestStore.isEnabled() &&
+						!task.isPropagationForced()) ? sendDigestStore : null;
+				String digest = (digestStore != null) ? digestStore.computeDigest(task) : null;
+
 				// create SendTask and SendWorker for each Destination
 				for (Destination destination : task.getDestinations()) {
 					// submit for execution
 					SendTask sendTask = new SendTask(task, destination);
-					SendWorker worker = new SendWorkerImpl(sendTask, directory);
+					SendWorker worker = new SendWorkerImpl(sendTask, directory, digestStore, digest, sshConnectionManager);
 					sendCompletionService.blockingSubmit(worker);
 				}
 
@@ -1,6 +1,7 @@
 package cz.metacentrum.perun.engine.scheduling;
 
 import cz.metacentrum.perun.engine.exceptions.TaskExecutionException;
+import cz.metacentrum.perun.engine.model.ConcurrencyLimits;
 
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Future;
@@ -50,7 +51,16 @@ public interface BlockingCompletionService<V>{
 	ConcurrentMap<Future<V>, V> getRunningTasks();
 
 	/**
-	 * Remove Future from running tasks in completion service and release blocking semaphore.
+	 * Return map of submitted Tasks, which wait for admission and were not started yet.
+	 * This map must NEVER be modified outside BlockingCompletionService !! Its only for inspection reasons !!
+	 *
+	 * @return map of waiting Futures and Tasks
+	 */
+	ConcurrentMap<Future<V>, V> getWaitingTasks();
+
+	/**
+	 * Remove Future from running tasks in completion service. Its place in concurrency limits is released,
+	 * when the Future is cancelled or done.
 	 * This should be called only if we are sure, that Future is either stuck (running for more than
 	 * rescheduleTime) or GenCollector / SendCollector is not running and finished and failed Tasks are kept
 	 * in completion service.
@@ -59,4 +69,11 @@ public interface BlockingCompletionService<V>{
 	 */
 	void removeStuckTask(Future<V> future);
 
+	/**
+	 * Return current concurrency limits and number of running and waiting Tasks.
+	 *
+	 * @return snapshot of concurrency limits
+	 */
+	ConcurrencyLimits getConcurrencyLimits();
+
 }
@@ -0,0 +1,34 @@
+package cz.metacentrum.perun.engine.scheduling;
+
+import cz.metacentrum.perun.taskslib.model.Task;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Source of provisioning data for in-process GEN of Tasks.
+ *
+ * @see cz.metacentrum.perun.engine.scheduling.impl.InProcessGenWorkerImpl
+ */
+public interface GenDataFetcher {
+
+	/**
+	 * Check if fetcher is configured and can be used for in-process GEN.
+	 *
+	 * @return true if fetcher can be used
+	 */
+	boolean isEnabled();
+
+	/**
+	 * Write hashed provisioning data (HashedGenData in JSON) for Facility and Service of the Task
+	 * to the output stream. Data are streamed as they are received, they are not kept in memory.
+	 *
+	 * @param task Task to fetch data for
+	 * @param withGroups true for data with groups, false for hierarchical data without groups
+	 * @param filterExpiredMembers true if expired members should be filtered out
+	 * @param out stream to write data to
+	 * @throws IOException when data can't be fetched or written
+	 */
+	void fetchHashedData(Task task, boolean withGroups, boolean filterExpiredMembers, OutputStream out) throws IOException;
+
+}
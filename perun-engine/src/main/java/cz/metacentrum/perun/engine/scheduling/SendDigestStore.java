@@ -0,0 +1,57 @@
+package cz.metacentrum.perun.engine.scheduling;
+
+import cz.metacentrum.perun.core.api.Destination;
+import cz.metacentrum.perun.taskslib.model.Task;
+
+/**
+ * Keeps digests of GEN outputs, which were successfully sent to destinations.
+ *
+ * SEND of the Task to the Destination can be skipped, when the GEN output is the same as the one last sent to it.
+ *
+ * @see cz.metacentrum.perun.engine.scheduling.impl.SendWorkerImpl
+ */
+public interface SendDigestStore {
+
+	/**
+	 * Check if unchanged data are not sent again.
+	 *
+	 * @return true if SEND can be skipped
+	 */
+	boolean isEnabled();
+
+	/**
+	 * Compute digest of the current GEN output of the Task.
+	 *
+	 * @param task Task
+	 * @return digest or null if there is no GEN output or it can't be read
+	 */
+	String computeDigest(Task task);
+
+	/**
+	 * Check if data with the digest were already successfully sent to the Destination.
+	 *
+	 * @param task Task
+	 * @param destination Destination
+	 * @param digest digest of the current GEN output
+	 * @return true if the same data were sent and they don't need to be sent again
+	 */
+	boolean isSent(Task task, Destination destination, String digest);
+
+	/**
+	 * Remember that data with the digest were successfully sent to the Destination.
+	 *
+	 * @param task Task
+	 * @param destination Destination
+	 * @param digest digest of the sent GEN output
+	 */
+	void storeSent(Task task, Destination destination, String digest);
+
+	/**
+	 * Forget data sent to the Destination, so they are sent next time regardless of the digest.
+	 *
+	 * @param task Task
+	 * @param destination Destination
+	 */
+	void removeSent(Task task, Destination destination);
+
+}
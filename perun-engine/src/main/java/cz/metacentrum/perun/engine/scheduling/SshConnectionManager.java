@@ -0,0 +1,55 @@
+package cz.metacentrum.perun.engine.scheduling;
+
+import cz.metacentrum.perun.core.api.Destination;
+
+/**
+ * Shares SSH connections between SEND scripts of all Services sending to the same host.
+ *
+ * SEND scripts are started with environment, in which their ssh connections to the host are multiplexed
+ * over one master connection, which is kept open for a while after the last script ends. Number of scripts
+ * sending to the same host at once is limited by admission of SEND Tasks, so they don't exceed sessions
+ * allowed by the host.
+ *
+ * @see cz.metacentrum.perun.engine.scheduling.impl.SendWorkerImpl
+ * @see cz.metacentrum.perun.engine.scheduling.impl.BlockingSendExecutorCompletionService
+ */
+public interface SshConnectionManager {
+
+	/**
+	 * Check if SSH connections are shared.
+	 *
+	 * @return true if connections are shared
+	 */
+	boolean isEnabled();
+
+	/**
+	 * Check if data are sent to the Destination over SSH.
+	 *
+	 * @param destination Destination
+	 * @return true if Destination is an SSH host
+	 */
+	boolean isSshDestination(Destination destination);
+
+	/**
+	 * Get host of the SSH Destination, e.g. host.example.com for user@host.example.com:22.
+	 *
+	 * @param destination Destination
+	 * @return host name
+	 */
+	String getHost(Destination destination);
+
+	/**
+	 * Get max number of SEND scripts sending to the same host at once.
+	 *
+	 * @return limit of scripts per host
+	 */
+	int getMaxSessionsPerHost();
+
+	/**
+	 * Set up environment of SEND script process, so its ssh connections are shared.
+	 *
+	 * @param processBuilder process of SEND script
+	 */
+	void configure(ProcessBuilder processBuilder);
+
+}
@@ -0,0 +1,412 @@
+package cz.metacentrum.perun.engine.scheduling.impl;
+
+import cz.metacentrum.perun.engine.model.ConcurrencyLimits;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Adaptive admission control for GEN and SEND completion services.
+ *
+ * Submitted jobs wait in a queue until they can be admitted for execution. Job is admitted, when its lane
+ * and its facility, destination and host are below their limits, so jobs of one facility, destination or host
+ * can't occupy all threads, while jobs of others are still admitted. Limit of the main lane moves between min and max
+ * limit: after each round of "limit" finished jobs it is decreased by a quarter, when more than maxErrorRate
+ * of them failed or run longer than latencyTarget, otherwise it is increased by a tenth.
+ *
+ * Submit blocks while maxWaiting jobs wait for the capacity of lanes. Jobs held back only by the limit of their facility,
+ * destination or host don't count to it, so they can't block submitting of jobs of the others.
+ *
+ * Destinations, whose job run longer than slowThreshold, are considered slow and their jobs are admitted
+ * to the separate slow lane with its own limit, until their job ends faster again. So hanging destinations
+ * wait for timeouts only in the slow lane. Slow lane is disabled, when its limit is 0.
+ *
+ * Completed jobs (including failed and cancelled ones) are passed to take() like by ExecutorCompletionService.
+ *
+ * @see BlockingGenExecutorCompletionService
+ * @see BlockingSendExecutorCompletionService
+ */
+public class AdmissionController<V> {
+
+	private final static Logger log = LoggerFactory.getLogger(AdmissionController.class);
+
+	private final String name;
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+	private final BlockingQueue<Future<V>> completedJobs = new LinkedBlockingQueue<>();
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notFull = lock.newCondition();
+	private final LinkedList<Job> waitingJobs = new LinkedList<>();
+	private final Map<String, Integer> runningByFacility = new HashMap<>();
+	private final Map<String, Integer> runningByDestination = new HashMap<>();
+	private final Map<String, Integer> runningByHost = new HashMap<>();
+	private final Set<String> slowDestinations = new HashSet<>();
+
+	private final Lane mainLane;
+	private final Lane slowLane = new Lane(0);
+	private int minLimit;
+	private int maxLimit;
+	private int maxWaiting;
+	private int facilityLimit = 0;
+	private int destinationLimit = 0;
+	private int hostLimit = 0;
+	private long latencyTarget = TimeUnit.MINUTES.toMillis(5);
+	private long slowThreshold = TimeUnit.MINUTES.toMillis(5);
+	private double maxErrorRate = 0.5;
+
+	// statistics of the current round of finished jobs in the main lane
+	private int finished = 0;
+	private int failedOrLate = 0;
+
+	/**
+	 * Create admission controller with fixed limit.
+	 *
+	 * @param name name used in logs, e.g. GEN or SEND
+	 * @param limit limit of concurrently running jobs
+	 */
+	public AdmissionController(String name, int limit) {
+		this.name = name;
+		this.minLimit = Math.max(1, limit);
+		this.maxLimit = this.minLimit;
+		this.maxWaiting = this.maxLimit;
+		this.mainLane = new Lane(this.maxLimit);
+	}
+
+	/**
+	 * Submit job, blocking while the queue of waiting jobs is full.
+	 *
+	 * @param callable job
+	 * @param facility facility of the job or null
+	 * @param destination destination of the job or null
+	 * @param onSubmit called with Future of the job before it can be started, e.g. to register it as waiting
+	 * @return Future of the job
+	 * @throws InterruptedException when waiting was interrupted
+	 */
+	public Future<V> submit(Callable<V> callable, String facility, String destination, Consumer<Future<V>> onSubmit) throws InterruptedException {
+		return submit(callable, facility, destination, null, onSubmit, started -> {});
+	}
+
+	/**
+	 * Submit job, blocking while the queue of waiting jobs is full (see isWaitingFull()).
+	 * Job is admitted only when less than host limit jobs of the same host are running.
+	 *
+	 * @param callable job
+	 * @param facility facility of the job or null
+	 * @param destination destination of the job or null
+	 * @param host host of the job or null, when the job doesn't count to the host limit
+	 * @param onSubmit called with Future of the job before it can be started, e.g. to register it as waiting
+	 * @param onStart called with Future of the job by the thread executing it, right before the job is started,
+	 *                e.g. to set its start time and register it as running
+	 * @return Future of the job
+	 * @throws InterruptedException when waiting was interrupted
+	 */
+	public Future<V> submit(Callable<V> callable, String facility, String destination, String host,
+	                        Consumer<Future<V>> onSubmit, Consumer<Future<V>> onStart) throws InterruptedException {
+		Job job = new Job(callable, facility, destination, host, onStart);
+		lock.lockInterruptibly();
+		try {
+			while (isWaitingFull()) {
+				notFull.await();
+			}
+			onSubmit.accept(job);
+			waitingJobs.add(job);
+			admit();
+		} finally {
+			lock.unlock();
+		}
+		return job;
+	}
+
+	/**
+	 * Wait for the next completed job.
+	 *
+	 * @return Future of completed job
+	 * @throws InterruptedException when waiting was interrupted
+	 */
+	public Future<V> take() throws InterruptedException {
+		return completedJobs.take();
+	}
+
+	/**
+	 * Get current limits and queue depths.
+	 *
+	 * @return snapshot of limits
+	 */
+	public ConcurrencyLimits getLimits() {
+		lock.lock();
+		try {
+			return new ConcurrencyLimits(name, mainLane.limit, minLimit, maxLimit, mainLane.running, waitingJobs.size(),
+					slowLane.limit, slowLane.running, slowDestinations.size());
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Configure limits from properties with given prefix, e.g. engine.thread.sendtasks.min.
+	 * Limits not present in properties are kept. Max limit is set by constructor,
+	 * when min limit is lower, the limit is adaptive.
+	 *
+	 * @param properties properties
+	 * @param prefix prefix of limit properties
+	 */
+	public void configure(Properties properties, String prefix) {
+		lock.lock();
+		try {
+			minLimit = Math.max(1, Math.min(maxLimit, getInt(properties, prefix + ".min", minLimit)));
+			maxWaiting = Math.max(1, getInt(properties, prefix + ".waiting", maxWaiting));
+			facilityLimit = Math.max(0, getInt(properties, prefix + ".perFacility", facilityLimit));
+			destinationLimit = Math.max(0, getInt(properties, prefix + ".perDestination", destinationLimit));
+			slowLane.limit = Math.max(0, getInt(properties, prefix + ".slowLane", slowLane.limit));
+			latencyTarget = TimeUnit.SECONDS.toMillis(getInt(properties, prefix + ".latencyTarget", (int) TimeUnit.MILLISECONDS.toSeconds(latencyTarget)));
+			slowThreshold = TimeUnit.SECONDS.toMillis(getInt(properties, prefix + ".slowThreshold", (int) TimeUnit.MILLISECONDS.toSeconds(slowThreshold)));
+			String errorRate = properties.getProperty(prefix + ".maxErrorRate");
+			if (errorRate != null && !errorRate.trim().isEmpty()) {
+				try {
+					maxErrorRate = Double.parseDouble(errorRate.trim());
+				} catch (NumberFormatException ex) {
+					log.warn("Wrong number in property {}, value {} is kept.", prefix + ".maxErrorRate", maxErrorRate);
+				}
+			}
+			log.info("{} limits: {}-{} running, {} in slow lane, {} per facility, {} per destination (0 = unlimited).",
+					name, minLimit, maxLimit, slowLane.limit, facilityLimit, destinationLimit);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Set limit of concurrently running jobs of one host (0 = unlimited).
+	 *
+	 * @param hostLimit limit of jobs per host
+	 */
+	public void setHostLimit(int hostLimit) {
+		lock.lock();
+		try {
+			this.hostLimit = Math.max(0, hostLimit);
+			admit();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Start waiting jobs, which fit into the limits. Must be called with the lock held.
+	 */
+	private void admit() {
+		Iterator<Job> iterator = waitingJobs.iterator();
+		while (iterator.hasNext() && (mainLane.hasCapacity() || slowLane.hasCapacity())) {
+			Job job = iterator.next();
+			Lane lane = (slowLane.limit > 0 && job.destination != null && slowDestinations.contains(job.destination)) ? slowLane : mainLane;
+			if (!lane.hasCapacity() || isCapped(job)) {
+				continue;
+			}
+			iterator.remove();
+			job.lane = lane;
+			lane.running++;
+			increment(runningByFacility, job.facility, 1);
+			increment(runningByDestination, job.destination, 1);
+			increment(runningByHost, job.host, 1);
+			executor.execute(job);
+		}
+		if (!isWaitingFull()) notFull.signalAll();
+	}
+
+	/**
+	 * Check whether the queue of waiting jobs is full. Only jobs waiting for the capacity of lanes count to the limit,
+	 * jobs held back by the limit of their facility, destination or host don't, so they can't block submitting
+	 * jobs of the others. Must be called with the lock held.
+	 *
+	 * @return true if submit has to wait
+	 */
+	private boolean isWaitingFull() {
+		if (waitingJobs.size() < maxWaiting) return false;
+		int globallyWaiting = 0;
+		for (Job job : waitingJobs) {
+			if (!isCapped(job) && ++globallyWaiting >= maxWaiting) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Must be called with the lock held.
+	 *
+	 * @param job waiting job
+	 * @return true if facility, destination or host of the job is at its limit
+	 */
+	private boolean isCapped(Job job) {
+		return !hasCapacity(runningByFacility, job.facility, facilityLimit) ||
+				!hasCapacity(runningByDestination, job.destination, destinationLimit) ||
+				!hasCapacity(runningByHost, job.host, hostLimit);
+	}
+
+	/**
+	 * Release limits of finished or cancelled job and adapt limit of the main lane.
+	 *
+	 * @param job finished job
+	 */
+	private void finish(Job job) {
+		long duration = job.startTime == 0 ? 0 : System.currentTimeMillis() - job.startTime;
+		boolean failed = job.isCancelled();
+		if (!failed) {
+			try {
+				job.get();
+			} catch (ExecutionException | CancellationException e) {
+				failed = true;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		lock.lock();
+		try {
+			if (job.lane == null) {
+				// cancelled before admission
+				waitingJobs.remove(job);
+			} else {
+				job.lane.running--;
+				increment(runningByFacility, job.facility, -1);
+				increment(runningByDestination, job.destination, -1);
+				increment(runningByHost, job.host, -1);
+				if (job.destination != null) {
+					if (duration > slowThreshold || (job.isCancelled() && job.startTime != 0)) {
+						if (slowDestinations.add(job.destination)) {
+							log.debug("{} destination {} is slow ({} ms).", name, job.destination, duration);
+						}
+					} else if (!failed) {
+						slowDestinations.remove(job.destination);
+					}
+				}
+				if (job.lane == mainLane) adaptLimit(failed || duration > latencyTarget);
+			}
+			admit();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Adapt limit of the main lane after each round of finished jobs. Must be called with the lock held.
+	 *
+	 * @param failedOrLate true if the finished job failed or exceeded latency target
+	 */
+	private void adaptLimit(boolean failedOrLate) {
+		finished++;
+		if (failedOrLate) this.failedOrLate++;
+		if (finished < mainLane.limit) return;
+
+		int limit = mainLane.limit;
+		if (this.failedOrLate > finished * maxErrorRate) {
+			limit = Math.max(minLimit, limit - Math.max(1, limit / 4));
+		} else {
+			limit = Math.min(maxLimit, limit + Math.max(1, limit / 10));
+		}
+		if (limit != mainLane.limit) {
+			log.info("{} limit changed from {} to {} ({} of {} jobs failed or late).", name, mainLane.limit, limit, this.failedOrLate, finished);
+			mainLane.limit = limit;
+		}
+		finished = 0;
+		this.failedOrLate = 0;
+	}
+
+	private static boolean hasCapacity(Map<String, Integer> running, String key, int limit) {
+		return key == null || limit <= 0 || running.getOrDefault(key, 0) < limit;
+	}
+
+	private static void increment(Map<String, Integer> running, String key, int delta) {
+		if (key == null) return;
+		running.merge(key, delta, (count, change) -> (count + change) <= 0 ? null : count + change);
+	}
+
+	private static int getInt(Properties properties, String key, int defaultValue) {
+		String value = properties.getProperty(key);
+		if (value == null || value.trim().isEmpty()) return defaultValue;
+		try {
+			return Integer.parseInt(value.trim());
+		} catch (NumberFormatException ex) {
+			log.warn("Wrong number in property {}, value {} is kept.", key, defaultValue);
+			return defaultValue;
+		}
+	}
+
+	/**
+	 * Concurrency limit and number of running jobs of a lane. Guarded by the lock.
+	 */
+	private static class Lane {
+
+		private int limit;
+		private int running = 0;
+
+		private Lane(int limit) {
+			this.limit = limit;
+		}
+
+		private boolean hasCapacity() {
+			return running < limit;
+		}
+
+	}
+
+	/**
+	 * Submitted job, which passes itself to completed jobs when done.
+	 */
+	private class Job extends FutureTask<V> {
+
+		private final String facility;
+		private final String destination;
+		private final String host;
+		private final Consumer<Future<V>> onStart;
+		private Lane lane;
+		private volatile long startTime = 0;
+
+		private Job(Callable<V> callable, String facility, String destination, String host, Consumer<Future<V>> onStart) {
+			super(callable);
+			this.facility = facility;
+			this.destination = destination;
+			this.host = host;
+			this.onStart = onStart;
+		}
+
+		@Override
+		public void run() {
+			startTime = System.currentTimeMillis();
+			try {
+				// job cancelled while waiting is not started at all
+				if (!isDone()) onStart.accept(this);
+			} finally {
+				super.run();
+			}
+		}
+
+		@Override
+		protected void done() {
+			try {
+				finish(this);
+			} finally {
+				completedJobs.add(this);
+			}
+		}
+
+	}
+
+}
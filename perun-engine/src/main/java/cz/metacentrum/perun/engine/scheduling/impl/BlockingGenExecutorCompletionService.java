@@ -1,19 +1,22 @@
 package cz.metacentrum.perun.engine.scheduling.impl;
 
 import cz.metacentrum.perun.engine.exceptions.TaskExecutionException;
+import cz.metacentrum.perun.engine.model.ConcurrencyLimits;
 import cz.metacentrum.perun.engine.scheduling.BlockingCompletionService;
 import cz.metacentrum.perun.engine.scheduling.EngineWorker;
 import cz.metacentrum.perun.engine.scheduling.GenWorker;
 import cz.metacentrum.perun.taskslib.model.Task;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 
 import java.time.LocalDateTime;
+import java.util.Properties;
 import java.util.concurrent.*;
 
 /**
  * Implementation of BlockingCompletionService<Task> for generating Tasks in Engine.
- * It provides blocking methods and size limit to javas CompletionService, which itself run GenWorkers.
+ * It provides blocking methods and adaptive size limits (see AdmissionController) for running GenWorkers.
  * Tasks are managed by separate threads GenPlanner and GenCollector.
  *
  * @see BlockingCompletionService
@@ -28,14 +31,13 @@ import java.util.concurrent.*;
 public class BlockingGenExecutorCompletionService implements BlockingCompletionService<Task> {
 
 	private final static Logger log = LoggerFactory.getLogger(BlockingGenExecutorCompletionService.class);
-	private CompletionService<Task> completionService;
 	private ConcurrentMap<Future<Task>, Task> executingGenTasks = new ConcurrentHashMap<>();
+	private ConcurrentMap<Future<Task>, Task> waitingGenTasks = new ConcurrentHashMap<>();
 	/**
-	 * Provide blocking-waiting behavior to GEN Tasks, which are not started, until semaphore is acquired.
-	 * When job is cancelled or done, semaphore is released. Semaphore shares limit for concurrently running
-	 * GEN Tasks with javas ExecutorCompletionService.
+	 * Provide blocking-waiting behavior to GEN Tasks, which are not started, until they are admitted within
+	 * adaptive concurrency limits. When job is cancelled or done, its place is released.
 	 */
-	private Semaphore semaphore;
+	private AdmissionController<Task> admissionController;
 
 	/**
 	 * Create new blocking CompletionService for GEN Tasks with specified limit
@@ -43,32 +45,27 @@ public class BlockingGenExecutorCompletionService implements BlockingCompletionS
 	 * @param limit Limit for processing GEN Tasks
 	 */
 	public BlockingGenExecutorCompletionService(int limit) {
-		completionService = new ExecutorCompletionService<Task>(Executors.newFixedThreadPool(limit), new LinkedBlockingQueue<Future<Task>>());
-		this.semaphore = new Semaphore(limit);
+		this.admissionController = new AdmissionController<>("GEN", limit);
 	}
 
 	@Override
 	public Future<Task> blockingSubmit(EngineWorker<Task> taskWorker) throws InterruptedException {
-		semaphore.acquire();
-		Future<Task> future = null;
-		try {
-			GenWorker genWorker = (GenWorker) taskWorker;
-			// We must have start time before adding Task to executingGenTasks
-			genWorker.getTask().setGenStartTime(LocalDateTime.now());
-			future = completionService.submit(genWorker);
-			executingGenTasks.put(future, genWorker.getTask());
-		} catch (Exception ex) {
-			// release semaphore if submission fails
-			semaphore.release();
-			throw ex;
-		}
-		return future;
+		GenWorker genWorker = (GenWorker) taskWorker;
+		// We must have start time before adding Task to executingGenTasks
+		genWorker.getTask().setGenStartTime(LocalDateTime.now());
+		// Task is running only once it is admitted, GenWorker sets its start time again, when it starts
+		return admissionController.submit(genWorker, String.valueOf(genWorker.getTask().getFacilityId()), null, null,
+				submitted -> waitingGenTasks.put(submitted, genWorker.getTask()),
+				started -> {
+					executingGenTasks.put(started, genWorker.getTask());
+					waitingGenTasks.remove(started);
+				});
 	}
 
 	@Override
 	public Task blockingTake() throws InterruptedException, TaskExecutionException {
 
-		Future<Task> taskFuture = completionService.take();
+		Future<Task> taskFuture = admissionController.take();
 
 		try {
 
@@ -79,7 +76,7 @@ public class BlockingGenExecutorCompletionService implements BlockingCompletionS
 
 		} catch (ExecutionException e) {
 
-			Task task = executingGenTasks.get(taskFuture);
+			Task task = getTask(taskFuture);
 			removeTaskFuture(taskFuture);
 
 			Throwable cause = e.getCause();
@@ -100,7 +97,7 @@ public class BlockingGenExecutorCompletionService implements BlockingCompletionS
 		} catch (CancellationException ex) {
 
 			// processing was cancelled
-			Task removedTask = executingGenTasks.get(taskFuture);
+			Task removedTask = getTask(taskFuture);
 			removeTaskFuture(taskFuture);
 			if (removedTask == null) {
 				log.error("Somebody manually removed Future<Task> from executingGenTasks or Task was null: {}", ex);
@@ -119,22 +116,47 @@ public class BlockingGenExecutorCompletionService implements BlockingCompletionS
 		return executingGenTasks;
 	}
 
+	@Override
+	public ConcurrentMap<Future<Task>, Task> getWaitingTasks() {
+		return waitingGenTasks;
+	}
+
 	@Override
 	public void removeStuckTask(Future<Task> future) {
 		removeTaskFuture(future);
 	}
 
+	@Override
+	public ConcurrencyLimits getConcurrencyLimits() {
+		return admissionController.getLimits();
+	}
+
 	/**
-	 * Remove Future<Task> from executingGenTasks and release semaphore.
+	 * Get Task of running or waiting Future<Task>.
+	 *
+	 * @param future Future of the Task
+	 * @return Task or null if Future is not known
+	 */
+	private Task getTask(Future<Task> future) {
+		Task task = executingGenTasks.get(future);
+		return task != null ? task : waitingGenTasks.get(future);
+	}
+
+	/**
+	 * Remove Future<Task> from executingGenTasks and waitingGenTasks. Its place in limits is released
+	 * by AdmissionController when the Future is done or cancelled.
 	 *
 	 * @param future to be removed
 	 */
 	private void removeTaskFuture(Future<Task> future) {
-		Task removedTask = executingGenTasks.remove(future);
-		if (removedTask != null) {
-			// release semaphore only if future was really in a map
-			// because it could change during processing
-			semaphore.release();
+		executingGenTasks.remove(future);
+		waitingGenTasks.remove(future);
+	}
+
+	@Autowired
+	public void setPropertiesBean(Properties propertiesBean) {
+		if (propertiesBean != null) {
+			admissionController.configure(propertiesBean, "engine.thread.gentasks");
 		}
 	}
 
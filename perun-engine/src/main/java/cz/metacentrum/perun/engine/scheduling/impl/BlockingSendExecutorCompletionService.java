@@ -1,14 +1,18 @@
 package cz.metacentrum.perun.engine.scheduling.impl;
 
 import cz.metacentrum.perun.engine.exceptions.TaskExecutionException;
+import cz.metacentrum.perun.engine.model.ConcurrencyLimits;
 import cz.metacentrum.perun.engine.scheduling.BlockingCompletionService;
 import cz.metacentrum.perun.engine.scheduling.EngineWorker;
 import cz.metacentrum.perun.engine.scheduling.SendWorker;
+import cz.metacentrum.perun.engine.scheduling.SshConnectionManager;
 import cz.metacentrum.perun.taskslib.model.SendTask;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 
 import java.util.Date;
+import java.util.Properties;
 import java.util.concurrent.*;
 
 import static cz.metacentrum.perun.taskslib.model.SendTask.SendTaskStatus.SENDING;
@@ -16,7 +20,9 @@ import static cz.metacentrum.perun.taskslib.model.SendTask.SendTaskStatus.SENDIN
 /**
  * Implementation of BlockingCompletionService<SendTask> for sending Tasks in Engine.
  * (SendTask is inner representation of <Task,Destination>)
- * It provides blocking methods and size limit to javas CompletionService, which itself run SendWorkers.
+ * It provides blocking methods and adaptive size limits (see AdmissionController) for running SendWorkers.
+ * When SSH connections are shared, SendWorkers of one host are admitted only up to the max sessions per host,
+ * so they don't wait for the host while occupying a place within the limits.
  * Tasks are managed by separate threads SendPlanner and SendCollector.
  *
  * @see BlockingCompletionService
@@ -31,14 +37,14 @@ import static cz.metacentrum.perun.taskslib.model.SendTask.SendTaskStatus.SENDIN
 public class BlockingSendExecutorCompletionService implements BlockingCompletionService<SendTask> {
 
 	private final static Logger log = LoggerFactory.getLogger(BlockingSendExecutorCompletionService.class);
-	private CompletionService<SendTask> completionService;
 	private ConcurrentMap<Future<SendTask>, SendTask> executingSendTasks = new ConcurrentHashMap<>();
+	private ConcurrentMap<Future<SendTask>, SendTask> waitingSendTasks = new ConcurrentHashMap<>();
 	/**
-	 * Provide blocking-waiting behavior to SEND Tasks, which are not started, until semaphore is acquired.
-	 * When job is cancelled or done, semaphore is released. Semaphore shares limit for concurrently running
-	 * SEND Tasks with javas ExecutorCompletionService.
+	 * Provide blocking-waiting behavior to SEND Tasks, which are not started, until they are admitted within
+	 * adaptive concurrency limits. When job is cancelled or done, its place is released.
 	 */
-	private Semaphore semaphore;
+	private AdmissionController<SendTask> admissionController;
+	private SshConnectionManager sshConnectionManager;
 
 	/**
 	 * Create new blocking CompletionService for SEND Tasks with specified limit
@@ -46,31 +52,31 @@ public class BlockingSendExecutorCompletionService implements BlockingCompletion
 	 * @param limit Limit for processing SEND Tasks
 	 */
 	public BlockingSendExecutorCompletionService(int limit) {
-		this.completionService = new ExecutorCompletionService<SendTask>(Executors.newFixedThreadPool(limit), new LinkedBlockingQueue<Future<SendTask>>());
-		this.semaphore = new Semaphore(limit);
+		this.admissionController = new AdmissionController<>("SEND", limit);
 	}
 
 	@Override
 	public Future<SendTask> blockingSubmit(EngineWorker<SendTask> taskWorker) throws InterruptedException {
-		semaphore.acquire();
-		Future<SendTask> future = null;
-		try {
-			SendWorker sendWorker = (SendWorker) taskWorker;
-			sendWorker.getSendTask().setStartTime(new Date(System.currentTimeMillis()));
-			sendWorker.getSendTask().setStatus(SENDING);
-			future = completionService.submit(sendWorker);
-			executingSendTasks.put(future, sendWorker.getSendTask());
-		} catch (Exception ex) {
-			semaphore.release();
-			throw ex;
-		}
-		return future;
+		SendWorker sendWorker = (SendWorker) taskWorker;
+		SendTask sendTask = sendWorker.getSendTask();
+		sendTask.setStatus(SENDING);
+		String host = (sshConnectionManager != null && sshConnectionManager.isEnabled() &&
+				sshConnectionManager.isSshDestination(sendTask.getDestination())) ? sshConnectionManager.getHost(sendTask.getDestination()) : null;
+		return admissionController.submit(sendWorker, String.valueOf(sendTask.getTask().getFacilityId()),
+				sendTask.getDestination().getDestination(), host,
+				submitted -> waitingSendTasks.put(submitted, sendTask),
+				started -> {
+					// waiting for admission doesn't count to the time after which the SendTask is considered stuck
+					sendTask.setStartTime(new Date(System.currentTimeMillis()));
+					executingSendTasks.put(started, sendTask);
+					waitingSendTasks.remove(started);
+				});
 	}
 
 	@Override
 	public SendTask blockingTake() throws InterruptedException, TaskExecutionException {
 
-		Future<SendTask> taskFuture = completionService.take();
+		Future<SendTask> taskFuture = admissionController.take();
 
 		try {
 			// .get() throws CancellationException if Task processing was cancelled from outside
@@ -80,7 +86,7 @@ public class BlockingSendExecutorCompletionService implements BlockingCompletion
 
 		} catch (ExecutionException e) {
 
-			SendTask sendTask = executingSendTasks.get(taskFuture);
+			SendTask sendTask = getSendTask(taskFuture);
 			removeTaskFuture(taskFuture);
 
 			Throwable cause = e.getCause();
@@ -101,7 +107,7 @@ public class BlockingSendExecutorCompletionService implements BlockingCompletion
 		} catch (CancellationException ex) {
 
 			// processing was cancelled
-			SendTask removedSendTask = executingSendTasks.get(taskFuture);
+			SendTask removedSendTask = getSendTask(taskFuture);
 			removeTaskFuture(taskFuture);
 			if (removedSendTask == null) {
 				log.error("Somebody manually removed Future<SendTask> from executingSendTasks or SendTask was null: {}", ex);
@@ -120,22 +126,55 @@ public class BlockingSendExecutorCompletionService implements BlockingCompletion
 		return executingSendTasks;
 	}
 
+	@Override
+	public ConcurrentMap<Future<SendTask>, SendTask> getWaitingTasks() {
+		return waitingSendTasks;
+	}
+
 	@Override
 	public void removeStuckTask(Future<SendTask> future) {
 		removeTaskFuture(future);
 	}
 
+	@Override
+	public ConcurrencyLimits getConcurrencyLimits() {
+		return admissionController.getLimits();
+	}
+
+	/**
+	 * Get SendTask of running or waiting Future<SendTask>.
+	 *
+	 * @param future Future of the SendTask
+	 * @return SendTask or null if Future is not known
+	 */
+	private SendTask getSendTask(Future<SendTask> future) {
+		SendTask sendTask = executingSendTasks.get(future);
+		return sendTask != null ? sendTask : waitingSendTasks.get(future);
+	}
+
 	/**
-	 * Remove Future<SendTask> from executingSendTasks and release semaphore.
+	 * Remove Future<SendTask> from executingSendTasks and waitingSendTasks. Its place in limits is released
+	 * by AdmissionController when the Future is done or cancelled.
 	 *
 	 * @param future to be removed
 	 */
 	private void removeTaskFuture(Future<SendTask> future) {
-		SendTask removedTask = executingSendTasks.remove(future);
-		if (removedTask != null) {
-			// release semaphore only if future was really in a map
-			// because it could change during processing
-			semaphore.release();
+		executingSendTasks.remove(future);
+		waitingSendTasks.remove(future);
+	}
+
+	@Autowired(required = false)
+	public void setSshConnectionManager(SshConnectionManager sshConnectionManager) {
+		this.sshConnectionManager = sshConnectionManager;
+		if (sshConnectionManager != null) {
+			admissionController.setHostLimit(sshConnectionManager.getMaxSessionsPerHost());
+		}
+	}
+
+	@Autowired
+	public void setPropertiesBean(Properties propertiesBean) {
+		if (propertiesBean != null) {
+			admissionController.configure(propertiesBean, "engine.thread.sendtasks");
 		}
 	}
 
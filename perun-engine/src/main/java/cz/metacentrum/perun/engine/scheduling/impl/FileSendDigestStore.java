@@ -0,0 +1,200 @@
+package cz.metacentrum.perun.engine.scheduling.impl;
+
+import cz.metacentrum.perun.core.api.Destination;
+import cz.metacentrum.perun.engine.scheduling.SendDigestStore;
+import cz.metacentrum.perun.taskslib.model.Task;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Implementation of SendDigestStore, which keeps sent digests in files.
+ *
+ * Digest is SHA-256 of all files in spool/[facility name]/[service name] of the GEN directory, including their
+ * relative paths, so it doesn't depend on file timestamps or order of listing. Digest sent to destination is stored
+ * as digest and time of sending in [digest directory]/[facility id]-[service id]/[destination id], so each SEND writes
+ * only its own small file and SEND threads don't wait for each other. Digest directory defaults to digests in the GEN
+ * directory of the engine.
+ * Digests older than engine.send.skipUnchanged.maxAge hours are ignored, so data are periodically sent again
+ * and changes made directly on destinations are eventually overwritten.
+ *
+ * @see cz.metacentrum.perun.engine.scheduling.SendDigestStore
+ */
+public class FileSendDigestStore implements SendDigestStore {
+
+	private final static Logger log = LoggerFactory.getLogger(FileSendDigestStore.class);
+	private final static String DIGEST_ALGORITHM = "SHA-256";
+
+	private boolean enabled = false;
+	private long maxAge = TimeUnit.HOURS.toMillis(24);
+	private File genDirectory;
+	private Path digestDirectory;
+
+	// digest and time of sending by digest file, empty string when nothing was sent
+	private final Map<Path, String> sentDigests = new ConcurrentHashMap<>();
+
+	public FileSendDigestStore() {
+	}
+
+	public FileSendDigestStore(File genDirectory, Path digestDirectory, long maxAge) {
+		this.enabled = true;
+		this.genDirectory = genDirectory;
+		this.digestDirectory = digestDirectory;
+		this.maxAge = maxAge;
+	}
+
+	@Override
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	@Override
+	public String computeDigest(Task task) {
+		Path spool = InProcessGenWorkerImpl.getSpoolDirectory(genDirectory, task);
+		if (!Files.isDirectory(spool)) return null;
+
+		try (Stream<Path> paths = Files.walk(spool)) {
+			List<Path> files = paths.filter(Files::isRegularFile)
+					.sorted()
+					.collect(Collectors.toList());
+			MessageDigest digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+			byte[] buffer = new byte[8192];
+			for (Path file : files) {
+				digest.update(spool.relativize(file).toString().getBytes(StandardCharsets.UTF_8));
+				digest.update(ByteBuffer.allocate(Long.BYTES).putLong(Files.size(file)).array());
+				try (InputStream in = Files.newInputStream(file)) {
+					int read;
+					while ((read = in.read(buffer)) != -1) {
+						digest.update(buffer, 0, read);
+					}
+				}
+			}
+			return toHex(digest.digest());
+		} catch (IOException | NoSuchAlgorithmException e) {
+			log.warn("[{}] Unable to compute digest of GEN output in {}, data will be sent.", task.getId(), spool, e);
+			return null;
+		}
+	}
+
+	@Override
+	public boolean isSent(Task task, Destination destination, String digest) {
+		if (digest == null) return false;
+		String sent = getSentDigest(task, destination);
+		String[] digestAndTime = sent.split(" ");
+		try {
+			return digestAndTime.length == 2 && digestAndTime[0].equals(digest) &&
+					System.currentTimeMillis() - Long.parseLong(digestAndTime[1]) < maxAge;
+		} catch (NumberFormatException e) {
+			return false;
+		}
+	}
+
+	@Override
+	public void storeSent(Task task, Destination destination, String digest) {
+		if (digest == null) {
+			removeSent(task, destination);
+			return;
+		}
+		Path file = getDigestFile(task, destination);
+		String digestAndTime = digest + " " + System.currentTimeMillis();
+		sentDigests.put(file, digestAndTime);
+		writeSentDigest(task, file, digestAndTime);
+	}
+
+	@Override
+	public void removeSent(Task task, Destination destination) {
+		Path file = getDigestFile(task, destination);
+		sentDigests.put(file, "");
+		try {
+			Files.deleteIfExists(file);
+		} catch (IOException e) {
+			log.warn("[{}] Unable to delete sent digest {}.", task.getId(), file, e);
+		}
+	}
+
+	private Path getDigestFile(Task task, Destination destination) {
+		return getDigestDirectory().resolve(task.getFacilityId() + "-" + task.getServiceId()).resolve(String.valueOf(destination.getId()));
+	}
+
+	private Path getDigestDirectory() {
+		if (digestDirectory != null) return digestDirectory;
+		Path base = (genDirectory == null) ? Path.of("") : genDirectory.toPath();
+		return base.resolve("digests").toAbsolutePath();
+	}
+
+	private String getSentDigest(Task task, Destination destination) {
+		return sentDigests.computeIfAbsent(getDigestFile(task, destination), file -> {
+			if (!Files.isRegularFile(file)) return "";
+			try {
+				return Files.readString(file, StandardCharsets.UTF_8).trim();
+			} catch (IOException e) {
+				log.warn("[{}] Unable to read sent digest from {}, data will be sent.", task.getId(), file, e);
+				return "";
+			}
+		});
+	}
+
+	private void writeSentDigest(Task task, Path file, String digestAndTime) {
+		Path tempFile = null;
+		try {
+			Files.createDirectories(file.getParent());
+			tempFile = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+			Files.writeString(tempFile, digestAndTime, StandardCharsets.UTF_8);
+			Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			// digest is still kept in memory, so only restart of engine might cause sending of unchanged data
+			log.warn("[{}] Unable to store sent digest to {}.", task.getId(), file, e);
+		} finally {
+			if (tempFile != null) {
+				try {
+					Files.deleteIfExists(tempFile);
+				} catch (IOException e) {
+					log.warn("[{}] Unable to delete temporary digest file {}.", task.getId(), tempFile, e);
+				}
+			}
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		StringBuilder hex = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes) {
+			hex.append(Character.forDigit((b >> 4) & 0xF, 16));
+			hex.append(Character.forDigit(b & 0xF, 16));
+		}
+		return hex.toString();
+	}
+
+	@Autowired
+	public void setPropertiesBean(Properties propertiesBean) {
+		if (propertiesBean != null) {
+			enabled = Boolean.parseBoolean(propertiesBean.getProperty("engine.send.skipUnchanged", "false"));
+			genDirectory = new File(propertiesBean.getProperty("engine.genscript.path", "gen"));
+			String directory = propertiesBean.getProperty("engine.send.digest.path", "");
+			digestDirectory = directory.trim().isEmpty() ? null : Path.of(directory.trim());
+			try {
+				maxAge = TimeUnit.HOURS.toMillis(Long.parseLong(propertiesBean.getProperty("engine.send.skipUnchanged.maxAge", "24")));
+			} catch (NumberFormatException ex) {
+				maxAge = TimeUnit.HOURS.toMillis(24);
+			}
+		}
+	}
+
+}
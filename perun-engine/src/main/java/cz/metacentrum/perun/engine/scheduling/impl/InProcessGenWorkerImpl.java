@@ -0,0 +1,113 @@
+package cz.metacentrum.perun.engine.scheduling.impl;
+
+import cz.metacentrum.perun.engine.exceptions.TaskExecutionException;
+import cz.metacentrum.perun.engine.scheduling.GenDataFetcher;
+import cz.metacentrum.perun.engine.scheduling.GenWorker;
+import cz.metacentrum.perun.taskslib.model.Task;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+
+/**
+ * Implementation of GenWorker, which generates data of the Task inside the engine instead of starting GEN script.
+ * Only raw hashed data are written, so it can be used only for services whose SEND consumes them as they are
+ * (see engine.gen.rawJson.services).
+ *
+ * Hashed provisioning data are fetched by GenDataFetcher and streamed to the file
+ * spool/[facility name]/[service name]/hashed_data.json in the GEN directory, where SEND scripts expect outputs
+ * of GEN. File is replaced atomically, so SEND never reads partially written data. On completion, genEndTime is set.
+ *
+ * @see GenWorkerImpl
+ * @see cz.metacentrum.perun.engine.runners.GenPlanner
+ */
+public class InProcessGenWorkerImpl extends AbstractWorker<Task> implements GenWorker {
+
+	private final static Logger log = LoggerFactory.getLogger(InProcessGenWorkerImpl.class);
+	public final static String HASHED_DATA_FILE = "hashed_data.json";
+
+	private final Task task;
+	private final GenDataFetcher genDataFetcher;
+	private final boolean withGroups;
+	private final boolean filterExpiredMembers;
+
+	public InProcessGenWorkerImpl(Task task, File directory, GenDataFetcher genDataFetcher, boolean withGroups, boolean filterExpiredMembers) {
+		if (task == null) throw new IllegalArgumentException("Task to execute can't be null.");
+		if (genDataFetcher == null) throw new IllegalArgumentException("GenDataFetcher can't be null.");
+		this.task = task;
+		this.genDataFetcher = genDataFetcher;
+		this.withGroups = withGroups;
+		this.filterExpiredMembers = filterExpiredMembers;
+		setDirectory(directory);
+	}
+
+	@Override
+	public Task call() throws TaskExecutionException {
+
+		getTask().setGenStartTime(LocalDateTime.now());
+
+		log.info("[{}] Executing in-process GEN worker for Task with Service ID: {} and Facility ID: {}.",
+				getTask().getId(), getTask().getServiceId(), getTask().getFacilityId());
+
+		Path spool = getSpoolDirectory(getDirectory(), getTask());
+		Path tempFile = null;
+		try {
+			Files.createDirectories(spool);
+			tempFile = Files.createTempFile(spool, HASHED_DATA_FILE, ".tmp");
+			try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tempFile))) {
+				genDataFetcher.fetchHashedData(getTask(), withGroups, filterExpiredMembers, out);
+			}
+			Files.move(tempFile, spool.resolve(HASHED_DATA_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+			// set gen end time
+			getTask().setGenEndTime(LocalDateTime.now());
+
+			log.info("[{}] In-process GEN worker finished for Task, data stored in {}.", getTask().getId(), spool);
+			return getTask();
+
+		} catch (IOException e) {
+			getTask().setGenEndTime(LocalDateTime.now());
+			log.error("[{}] In-process GEN worker failed for Task. IOException: {}.", task.getId(), e);
+			throw new TaskExecutionException(task, 2, "", e.getMessage());
+		} finally {
+			if (tempFile != null) {
+				try {
+					Files.deleteIfExists(tempFile);
+				} catch (IOException e) {
+					log.warn("[{}] Unable to delete temporary GEN file {}.", task.getId(), tempFile, e);
+				}
+			}
+		}
+
+	}
+
+	/**
+	 * Get directory where GEN outputs of the Task are stored.
+	 *
+	 * @param directory GEN directory or null for current working directory
+	 * @param task Task
+	 * @return spool directory of the Task
+	 */
+	public static Path getSpoolDirectory(File directory, Task task) {
+		Path base = (directory == null) ? Path.of("") : directory.toPath();
+		return base.resolve("spool").resolve(task.getFacility().getName()).resolve(task.getService().getName());
+	}
+
+	@Override
+	public Integer getTaskId() {
+		return task.getId();
+	}
+
+	@Override
+	public Task getTask() {
+		return task;
+	}
+
+}
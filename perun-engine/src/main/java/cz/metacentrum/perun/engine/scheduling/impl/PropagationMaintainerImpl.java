@@ -246,6 +246,7 @@ public class PropagationMaintainerImpl implements PropagationMaintainer {
 					but now for Tasks missing in "generatingTasks".
 					!! We can't abort GENERATING Tasks with startTime=NULL here,
 					because they are waiting to be started at genCompletionService#blockingSubmit() !!
+					Submitted Tasks waiting for admission are not running yet, so they are not aborted either.
 					*/
 					LocalDateTime startTime = task.getGenStartTime();
 					long howManyMinutesAgo = 0;
@@ -254,7 +255,8 @@ public class PropagationMaintainerImpl implements PropagationMaintainer {
 					}
 					// If task started too long ago and is not in generating structure anymore
 					// somebody probably wrongly manipulated the structure
-					if (howManyMinutesAgo >= rescheduleTime && !generatingTasks.getRunningTasks().values().contains(task)) {
+					if (howManyMinutesAgo >= rescheduleTime && !generatingTasks.getRunningTasks().values().contains(task) &&
+							!generatingTasks.getWaitingTasks().values().contains(task)) {
 						// probably GenCollector failed to pick task -> abort
 						abortTask(task, TaskStatus.GENERROR);
 					}
@@ -0,0 +1,107 @@
+package cz.metacentrum.perun.engine.scheduling.impl;
+
+import cz.metacentrum.perun.engine.scheduling.GenDataFetcher;
+import cz.metacentrum.perun.taskslib.model.Task;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Properties;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Implementation of GenDataFetcher, which calls servicesManager/getHashedDataWithGroups or
+ * servicesManager/getHashedHierarchicalData of Perun RPC directly.
+ *
+ * Single HTTP client is shared by all GEN workers, so connections to RPC are reused. Response is requested
+ * compressed and it is copied to the output without parsing.
+ *
+ * @see cz.metacentrum.perun.engine.scheduling.GenDataFetcher
+ */
+public class RpcGenDataFetcher implements GenDataFetcher {
+
+	private final static Logger log = LoggerFactory.getLogger(RpcGenDataFetcher.class);
+	private final static String HASHED_DATA_WITH_GROUPS_METHOD = "/json/servicesManager/getHashedDataWithGroups";
+	private final static String HASHED_HIERARCHICAL_DATA_METHOD = "/json/servicesManager/getHashedHierarchicalData";
+
+	private final HttpClient httpClient = HttpClient.newBuilder()
+			.connectTimeout(Duration.ofSeconds(30))
+			.build();
+	private String rpcUrl;
+	private String authorization;
+	// GEN is considered stuck after engine.propagation.timeout, so there is no reason to wait longer
+	private Duration timeout = Duration.ofMinutes(180);
+
+	@Override
+	public boolean isEnabled() {
+		return rpcUrl != null && !rpcUrl.isEmpty();
+	}
+
+	@Override
+	public void fetchHashedData(Task task, boolean withGroups, boolean filterExpiredMembers, OutputStream out) throws IOException {
+		if (!isEnabled()) throw new IOException("Perun RPC url for in-process GEN is not set.");
+
+		String body = "{\"service\":" + task.getServiceId() + ",\"facility\":" + task.getFacilityId() +
+				",\"filterExpiredMembers\":" + filterExpiredMembers + "}";
+		String method = withGroups ? HASHED_DATA_WITH_GROUPS_METHOD : HASHED_HIERARCHICAL_DATA_METHOD;
+		HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(rpcUrl + method))
+				.timeout(timeout)
+				.header("Content-Type", "application/json; charset=utf-8")
+				.header("Accept-Encoding", "gzip")
+				.POST(HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8));
+		if (authorization != null) request.header("Authorization", authorization);
+
+		HttpResponse<InputStream> response;
+		try {
+			response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Fetching of GEN data was interrupted.", e);
+		}
+
+		boolean gzip = response.headers().firstValue("Content-Encoding").map("gzip"::equalsIgnoreCase).orElse(false);
+		try (InputStream data = gzip ? new GZIPInputStream(response.body()) : response.body()) {
+			if (response.statusCode() != 200) {
+				String error = new String(data.readAllBytes(), StandardCharsets.UTF_8);
+				throw new IOException("Perun RPC returned HTTP " + response.statusCode() + ": " + error);
+			}
+			long size = data.transferTo(out);
+			log.debug("[{}] Fetched {} bytes of GEN data from Perun RPC.", task.getId(), size);
+		}
+	}
+
+	private void setRpc(String rpcUrl, String user, String password) {
+		this.rpcUrl = (rpcUrl == null) ? null : rpcUrl.replaceAll("/+$", "");
+		if (user != null && !user.isEmpty()) {
+			String credentials = user + ":" + (password == null ? "" : password);
+			this.authorization = "Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8));
+		} else {
+			this.authorization = null;
+		}
+	}
+
+	@Autowired
+	public void setPropertiesBean(Properties propertiesBean) {
+		if (propertiesBean != null) {
+			setRpc(propertiesBean.getProperty("engine.perun.rpc.url"),
+					propertiesBean.getProperty("engine.perun.rpc.user"),
+					propertiesBean.getProperty("engine.perun.rpc.password"));
+			try {
+				timeout = Duration.ofMinutes(Long.parseLong(propertiesBean.getProperty("engine.propagation.timeout", "180")));
+			} catch (NumberFormatException ex) {
+				timeout = Duration.ofMinutes(180);
+			}
+		}
+	}
+
+}
@@ -112,6 +112,11 @@ public class SchedulingPoolImpl implements SchedulingPool {
 		return taskStore.getTasksWithStatus(status);
 	}
 
+	@Override
+	public int getTasksCountWithStatus(Task.TaskStatus... status) {
+		return taskStore.getTasksCountWithStatus(status);
+	}
+
 	@Override
 	public Integer addSendTaskCount(Task task, int count) {
 		return sendTaskCount.put(task.getId(), count);
@@ -3,7 +3,9 @@ package cz.metacentrum.perun.engine.scheduling.impl;
 import cz.metacentrum.perun.core.api.Destination;
 import cz.metacentrum.perun.core.api.Service;
 import cz.metacentrum.perun.engine.exceptions.TaskExecutionException;
+import cz.metacentrum.perun.engine.scheduling.SendDigestStore;
 import cz.metacentrum.perun.engine.scheduling.SendWorker;
+import cz.metacentrum.perun.engine.scheduling.SshConnectionManager;
 import cz.metacentrum.perun.taskslib.model.SendTask;
 import cz.metacentrum.perun.taskslib.model.Task;
 import org.slf4j.Logger;
@@ -15,6 +17,7 @@ import java.util.Date;
 
 import static cz.metacentrum.perun.taskslib.model.SendTask.SendTaskStatus.ERROR;
 import static cz.metacentrum.perun.taskslib.model.SendTask.SendTaskStatus.SENT;
+import static cz.metacentrum.perun.taskslib.model.SendTask.SendTaskStatus.SKIPPED;
 import static cz.metacentrum.perun.taskslib.model.SendTask.SendTaskStatus.WARNING;
 
 
@@ -23,6 +26,13 @@ import static cz.metacentrum.perun.taskslib.model.SendTask.SendTaskStatus.WARNIN
  * On completion, SendTask endTime and status is set to either SEND or ERROR.
  * (beware, its SendTask.Status and not Task.Status).
  *
+ * When digest of GEN output is known and the same data were already sent to the Destination,
+ * SEND script is not started and status is set to SKIPPED.
+ *
+ * When SSH connections are shared, ssh connections of SEND script are multiplexed with other SEND scripts
+ * sending to the same host. Number of scripts per host is limited before the worker is admitted,
+ * see BlockingSendExecutorCompletionService.
+ *
  * Workers are created by SendPlanner, done/error workers are collected by SendCollector.
  *
  * @see cz.metacentrum.perun.engine.runners.SendPlanner
@@ -36,10 +46,34 @@ public class SendWorkerImpl extends AbstractWorker<SendTask> implements SendWork
 	private final static Logger log = LoggerFactory.getLogger(SendWorkerImpl.class);
 
 	private SendTask sendTask;
+	private SendDigestStore sendDigestStore;
+	private String digest;
+	private SshConnectionManager sshConnectionManager;
 
 	public SendWorkerImpl(SendTask sendTask, File directory) {
+		this(sendTask, directory, null, null);
+	}
+
+	public SendWorkerImpl(SendTask sendTask, File directory, SendDigestStore sendDigestStore, String digest) {
+		this(sendTask, directory, sendDigestStore, digest, null);
+	}
+
+	/**
+	 * Create worker, which skips SEND of unchanged data and shares SSH connections.
+	 *
+	 * @param sendTask SendTask to execute
+	 * @param directory directory with SEND scripts
+	 * @param sendDigestStore store of sent digests or null to always send
+	 * @param digest digest of GEN output of the Task or null to always send
+	 * @param sshConnectionManager manager of shared SSH connections or null to not share them
+	 */
+	public SendWorkerImpl(SendTask sendTask, File directory, SendDigestStore sendDigestStore, String digest,
+	                      SshConnectionManager sshConnectionManager) {
 		if (sendTask == null) throw new IllegalArgumentException("SendTask to execute can't be null.");
 		this.sendTask = sendTask;
+		this.sendDigestStore = sendDigestStore;
+		this.digest = digest;
+		this.sshConnectionManager = sshConnectionManager;
 		setDirectory(directory);
 	}
 
@@ -66,6 +100,22 @@ public class SendWorkerImpl extends AbstractWorker<SendTask> implements SendWork
 
 		}
 
+		if (sendDigestStore != null && sendDigestStore.isSent(task, sendTask.getDestination(), digest)) {
+
+			log.info("[{}] Executing SEND worker skipped for Destination: {}. Same data were already sent. Marked as SKIPPED.",
+					sendTask.getTask().getId(), sendTask.getDestination().getDestination());
+
+			// set results
+			sendTask.setStatus(SKIPPED);
+			sendTask.setStdout("");
+			sendTask.setStderr("");
+			sendTask.setReturnCode(0);
+			sendTask.setEndTime(new Date(System.currentTimeMillis()));
+
+			return sendTask;
+
+		}
+
 		log.info("[{}] Executing SEND worker for Task with Service ID: {} and Facility ID: {} and Destination: {}",
 				sendTask.getTask().getId(), sendTask.getTask().getServiceId(), sendTask.getTask().getFacilityId(),
 				sendTask.getDestination().getDestination());
@@ -77,8 +127,13 @@ public class SendWorkerImpl extends AbstractWorker<SendTask> implements SendWork
 				sendTask.getDestination().getType()
 		);
 
+		boolean shareConnection = sshConnectionManager != null && sshConnectionManager.isEnabled() &&
+				sshConnectionManager.isSshDestination(sendTask.getDestination());
+
 		try {
 
+			if (shareConnection) sshConnectionManager.configure(pb);
+
 			// start the script and wait for results
 			super.execute(pb);
 
@@ -94,6 +149,7 @@ public class SendWorkerImpl extends AbstractWorker<SendTask> implements SendWork
 						task.getId(), getReturnCode(), getStdout(), getStderr());
 
 				sendTask.setStatus(ERROR);
+				forgetSentData();
 				// XXX: why exception? There is nothing exceptional about the situation.
 				throw new TaskExecutionException(task, sendTask.getDestination(), getReturnCode(), getStdout(), getStderr());
 
@@ -101,8 +157,11 @@ public class SendWorkerImpl extends AbstractWorker<SendTask> implements SendWork
 
 				if(getStderr().isEmpty()) {
 					sendTask.setStatus(SENT);
+					if (sendDigestStore != null) sendDigestStore.storeSent(task, sendTask.getDestination(), digest);
 				} else {
+					// data might not be fully applied, so they will be sent again next time
 					sendTask.setStatus(WARNING);
+					forgetSentData();
 				}
 
 				log.info("[{}] SEND worker finished for Task with status {}. Ret code {}, STDOUT: {}, STDERR: {}",
@@ -115,11 +174,13 @@ public class SendWorkerImpl extends AbstractWorker<SendTask> implements SendWork
 		} catch (IOException e) {
 			log.error("[{}] SEND worker failed for Task. IOException: {}.",  task.getId(), e);
 			sendTask.setStatus(ERROR);
+			forgetSentData();
 			sendTask.setEndTime(new Date(System.currentTimeMillis()));
 			throw new TaskExecutionException(task, sendTask.getDestination(), 2, "", e.getMessage());
 		} catch (InterruptedException e) {
 			log.warn("[{}] SEND worker failed for Task. Execution was interrupted {}.", task.getId(), e);
 			sendTask.setStatus(ERROR);
+			forgetSentData();
 			sendTask.setEndTime(new Date(System.currentTimeMillis()));
 			throw new TaskExecutionException(task, sendTask.getDestination(), 1, "", e.getMessage());
 		}
@@ -130,4 +191,11 @@ public class SendWorkerImpl extends AbstractWorker<SendTask> implements SendWork
 		return sendTask;
 	}
 
+	/**
+	 * State of the Destination is unknown after failed SEND, so any data have to be sent to it again.
+	 */
+	private void forgetSentData() {
+		if (sendDigestStore != null) sendDigestStore.removeSent(sendTask.getTask(), sendTask.getDestination());
+	}
+
 }
@@ -0,0 +1,169 @@
+package cz.metacentrum.perun.engine.scheduling.impl;
+
+import cz.metacentrum.perun.core.api.Destination;
+import cz.metacentrum.perun.engine.scheduling.SshConnectionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Implementation of SshConnectionManager based on OpenSSH connection multiplexing (ControlMaster).
+ *
+ * Wrappers of ssh and scp are created in [control directory]/bin and this directory is put first on PATH
+ * of SEND scripts. Wrappers add ControlMaster=auto, ControlPath=[control directory]/%C and ControlPersist options,
+ * so the first connection to the host becomes the master and all following SEND scripts (of any Service) reuse it
+ * instead of doing their own handshake. Path to the control sockets is also passed to scripts
+ * as PERUN_SSH_CONTROL_DIR, so scripts calling ssh by absolute path can use it too.
+ *
+ * Control directory is accessible only by the engine user, since anybody with access to the socket can use
+ * the connection. By default, it is the directory ssh-control in the working directory of the engine. It is created
+ * with permissions 0700 and existing directory is used only when it is not a symbolic link and is owned by the engine user.
+ * Its path should be short, because it is limited by the maximal length of unix socket path.
+ *
+ * @see cz.metacentrum.perun.engine.scheduling.SshConnectionManager
+ */
+public class SshConnectionManagerImpl implements SshConnectionManager {
+
+	private final static Logger log = LoggerFactory.getLogger(SshConnectionManagerImpl.class);
+	private final static Set<String> SSH_DESTINATION_TYPES = Set.of(Destination.DESTINATIONHOSTTYPE,
+			Destination.DESTINATIONUSERHOSTTYPE, Destination.DESTINATIONUSERHOSTPORTTYPE,
+			Destination.DESTINATIONWINDOWS, Destination.DESTINATIONWINDOWSPROXY);
+
+	private final static String DEFAULT_CONTROL_DIRECTORY = "ssh-control";
+
+	private boolean enabled = false;
+	private Path controlDirectory = Path.of(DEFAULT_CONTROL_DIRECTORY).toAbsolutePath();
+	private int controlPersist = 120;
+	private int maxSessionsPerHost = 4;
+	// commands must be absolute, wrappers with the same name are first on PATH
+	private String sshCommand = "/usr/bin/ssh";
+	private String scpCommand = "/usr/bin/scp";
+
+	private volatile boolean initialized = false;
+
+	@Override
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	@Override
+	public boolean isSshDestination(Destination destination) {
+		return SSH_DESTINATION_TYPES.contains(destination.getType());
+	}
+
+	@Override
+	public String getHost(Destination destination) {
+		String host = destination.getDestination();
+		int at = host.lastIndexOf('@');
+		if (at >= 0) host = host.substring(at + 1);
+		int colon = host.indexOf(':');
+		// don't break IPv6 addresses without port
+		if (colon >= 0 && colon == host.lastIndexOf(':')) host = host.substring(0, colon);
+		return host.toLowerCase();
+	}
+
+	@Override
+	public int getMaxSessionsPerHost() {
+		return maxSessionsPerHost;
+	}
+
+	@Override
+	public void configure(ProcessBuilder processBuilder) {
+		if (!enabled || !initialize()) return;
+		Map<String, String> environment = processBuilder.environment();
+		String path = environment.get("PATH");
+		String wrappers = controlDirectory.resolve("bin").toAbsolutePath().toString();
+		environment.put("PATH", (path == null || path.isEmpty()) ? wrappers : wrappers + File.pathSeparator + path);
+		environment.put("PERUN_SSH_CONTROL_DIR", controlDirectory.toAbsolutePath().toString());
+	}
+
+	/**
+	 * Create control directory and wrappers of ssh commands.
+	 *
+	 * @return true if connections can be shared
+	 */
+	private synchronized boolean initialize() {
+		if (initialized) return true;
+		try {
+			createPrivateDirectory(controlDirectory);
+			Path bin = controlDirectory.resolve("bin");
+			createPrivateDirectory(bin);
+			String options = " -o " + quote("ControlMaster=auto") + " -o " + quote("ControlPath=" + controlDirectory.toAbsolutePath() + "/%C") +
+					" -o " + quote("ControlPersist=" + controlPersist) + " ";
+			writeWrapper(bin.resolve("ssh"), "exec " + quote(sshCommand) + options + "\"$@\"\n");
+			writeWrapper(bin.resolve("scp"), "exec " + quote(scpCommand) + options + "\"$@\"\n");
+			initialized = true;
+			log.info("SSH connections of SEND scripts are shared using control directory {}.", controlDirectory);
+		} catch (IOException | UnsupportedOperationException e) {
+			log.error("Unable to prepare sharing of SSH connections in {}, connections won't be shared.", controlDirectory, e);
+			enabled = false;
+		}
+		return initialized;
+	}
+
+	/**
+	 * Create directory accessible only by the engine user or check that the existing one is safe to use.
+	 *
+	 * @param directory directory
+	 * @throws IOException when directory can't be created or is not safe
+	 */
+	private void createPrivateDirectory(Path directory) throws IOException {
+		if (Files.notExists(directory, LinkOption.NOFOLLOW_LINKS)) {
+			if (directory.getParent() != null) Files.createDirectories(directory.getParent());
+			Files.createDirectory(directory, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+		}
+		if (!Files.isDirectory(directory, LinkOption.NOFOLLOW_LINKS)) {
+			throw new IOException(directory + " is not a directory.");
+		}
+		String owner = Files.getOwner(directory, LinkOption.NOFOLLOW_LINKS).getName();
+		if (!owner.equals(System.getProperty("user.name"))) {
+			throw new IOException(directory + " is owned by " + owner + ", not by the engine user.");
+		}
+		Files.setPosixFilePermissions(directory, PosixFilePermissions.fromString("rwx------"));
+	}
+
+	/**
+	 * Quote value for use in shell script.
+	 *
+	 * @param value value
+	 * @return value in single quotes
+	 */
+	private static String quote(String value) {
+		return "'" + value.replace("'", "'\\''") + "'";
+	}
+
+	private void writeWrapper(Path wrapper, String command) throws IOException {
+		Files.writeString(wrapper, "#!/bin/sh\n" + command);
+		Files.setPosixFilePermissions(wrapper, PosixFilePermissions.fromString("rwx------"));
+	}
+
+	@Autowired
+	public void setPropertiesBean(Properties propertiesBean) {
+		if (propertiesBean != null) {
+			enabled = Boolean.parseBoolean(propertiesBean.getProperty("engine.send.ssh.shareConnections", "false"));
+			String directory = propertiesBean.getProperty("engine.send.ssh.controlDir", "");
+			controlDirectory = Path.of(directory.trim().isEmpty() ? DEFAULT_CONTROL_DIRECTORY : directory.trim()).toAbsolutePath();
+			sshCommand = propertiesBean.getProperty("engine.send.ssh.command", "/usr/bin/ssh");
+			scpCommand = propertiesBean.getProperty("engine.send.scp.command", "/usr/bin/scp");
+			try {
+				controlPersist = Integer.parseInt(propertiesBean.getProperty("engine.send.ssh.controlPersist", "120"));
+				maxSessionsPerHost = Math.max(1, Integer.parseInt(propertiesBean.getProperty("engine.send.ssh.maxSessionsPerHost", "4")));
+			} catch (NumberFormatException ex) {
+				log.warn("Wrong number in SSH connection sharing properties, defaults are used.", ex);
+				controlPersist = 120;
+				maxSessionsPerHost = 4;
+			}
+		}
+	}
+
+}
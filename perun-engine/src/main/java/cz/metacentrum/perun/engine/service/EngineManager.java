@@ -1,5 +1,7 @@
 package cz.metacentrum.perun.engine.service;
 
+import cz.metacentrum.perun.engine.model.ConcurrencyLimits;
+
 /**
  * Interface of EngineManager used to start all the threads and processes necessary for Engine
  * to propagate data from Perun to end services.
@@ -24,4 +26,18 @@ public interface EngineManager {
 	 * Gives indication to all runner Threads that they should stop
 	 */
 	void stopRunnerThreads();
+
+	/**
+	 * Return current concurrency limits and queue depths of GEN Tasks
+	 *
+	 * @return snapshot of GEN concurrency limits
+	 */
+	ConcurrencyLimits getGenConcurrencyLimits();
+
+	/**
+	 * Return current concurrency limits and queue depths of SEND Tasks
+	 *
+	 * @return snapshot of SEND concurrency limits
+	 */
+	ConcurrencyLimits getSendConcurrencyLimits();
 }
@@ -1,5 +1,6 @@
 package cz.metacentrum.perun.engine.service.impl;
 
+import cz.metacentrum.perun.engine.model.ConcurrencyLimits;
 import cz.metacentrum.perun.engine.runners.GenCollector;
 import cz.metacentrum.perun.engine.runners.GenPlanner;
 import cz.metacentrum.perun.engine.runners.SendCollector;
@@ -10,6 +11,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 
 import cz.metacentrum.perun.engine.jms.JMSQueueManager;
 import cz.metacentrum.perun.engine.scheduling.SchedulingPool;
+import cz.metacentrum.perun.engine.scheduling.impl.BlockingGenExecutorCompletionService;
+import cz.metacentrum.perun.engine.scheduling.impl.BlockingSendExecutorCompletionService;
 import cz.metacentrum.perun.engine.service.EngineManager;
 
 /**
@@ -32,6 +35,8 @@ public class EngineManagerImpl implements EngineManager {
 	private SendCollector sendCollector;
 	private JMSQueueManager jmsQueueManager;
 	private SchedulingPool schedulingPool;
+	private BlockingGenExecutorCompletionService genCompletionService;
+	private BlockingSendExecutorCompletionService sendCompletionService;
 
 	public EngineManagerImpl() {
 	}
@@ -100,6 +105,25 @@ public class EngineManagerImpl implements EngineManager {
 	}
 
 
+	public BlockingGenExecutorCompletionService getGenCompletionService() {
+		return genCompletionService;
+	}
+
+	@Autowired
+	public void setGenCompletionService(BlockingGenExecutorCompletionService genCompletionService) {
+		this.genCompletionService = genCompletionService;
+	}
+
+	public BlockingSendExecutorCompletionService getSendCompletionService() {
+		return sendCompletionService;
+	}
+
+	@Autowired
+	public void setSendCompletionService(BlockingSendExecutorCompletionService sendCompletionService) {
+		this.sendCompletionService = sendCompletionService;
+	}
+
+
 	// ----- methods ------------------------------
 
 
@@ -124,4 +148,14 @@ public class EngineManagerImpl implements EngineManager {
 		sendCollector.stop();
 	}
 
+	@Override
+	public ConcurrencyLimits getGenConcurrencyLimits() {
+		return genCompletionService.getConcurrencyLimits();
+	}
+
+	@Override
+	public ConcurrencyLimits getSendConcurrencyLimits() {
+		return sendCompletionService.getConcurrencyLimits();
+	}
+
 }
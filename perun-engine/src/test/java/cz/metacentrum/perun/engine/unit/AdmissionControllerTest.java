@@ -0,0 +1,162 @@
+package cz.metacentrum.perun.engine.unit;
+
+import cz.metacentrum.perun.engine.AbstractEngineTest;
+import cz.metacentrum.perun.engine.model.ConcurrencyLimits;
+import cz.metacentrum.perun.engine.scheduling.impl.AdmissionController;
+import org.junit.Test;
+
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class AdmissionControllerTest extends AbstractEngineTest {
+
+	@Test
+	public void testFacilityLimitDoesNotBlockOtherFacilities() throws Exception {
+		AdmissionController<String> controller = new AdmissionController<>("TEST", 4);
+		Properties properties = new Properties();
+		properties.setProperty("test.perFacility", "1");
+		controller.configure(properties, "test");
+
+		CountDownLatch release = new CountDownLatch(1);
+		controller.submit(() -> { release.await(); return "1"; }, "1", null, future -> {});
+		Future<String> sameFacility = controller.submit(() -> "2", "1", null, future -> {});
+		Future<String> otherFacility = controller.submit(() -> "3", "2", null, future -> {});
+
+		assertEquals("3", otherFacility.get(5, TimeUnit.SECONDS));
+		assertFalse("Second job of the same facility should wait.", sameFacility.isDone());
+		assertEquals(1, controller.getLimits().getWaiting());
+
+		release.countDown();
+		assertEquals("2", sameFacility.get(5, TimeUnit.SECONDS));
+		takeAll(controller, 3);
+	}
+
+	@Test
+	public void testHostLimitDoesNotBlockOtherHosts() throws Exception {
+		AdmissionController<String> controller = new AdmissionController<>("TEST", 4);
+		controller.setHostLimit(1);
+
+		CountDownLatch release = new CountDownLatch(1);
+		controller.submit(() -> { release.await(); return "1"; }, "1", "root@host.example.com", "host.example.com", future -> {}, future -> {});
+		Future<String> sameHost = controller.submit(() -> "2", "2", "host.example.com", "host.example.com", future -> {}, future -> {});
+		Future<String> otherHost = controller.submit(() -> "3", "2", "other.example.com", "other.example.com", future -> {}, future -> {});
+
+		assertEquals("3", otherHost.get(5, TimeUnit.SECONDS));
+		assertFalse("Second job of the same host should wait for admission.", sameHost.isDone());
+		assertEquals(1, controller.getLimits().getWaiting());
+
+		release.countDown();
+		assertEquals("2", sameHost.get(5, TimeUnit.SECONDS));
+		takeAll(controller, 3);
+	}
+
+	@Test
+	public void testCappedJobsDoNotBlockSubmit() throws Exception {
+		AdmissionController<String> controller = new AdmissionController<>("TEST", 2);
+		Properties properties = new Properties();
+		properties.setProperty("test.waiting", "1");
+		controller.configure(properties, "test");
+		controller.setHostLimit(1);
+
+		CountDownLatch release = new CountDownLatch(1);
+		controller.submit(() -> { release.await(); return "1"; }, "1", "host.example.com", "host.example.com", future -> {}, future -> {});
+		for (int i = 0; i < 3; i++) {
+			controller.submit(() -> "same", "1", "host.example.com", "host.example.com", future -> {}, future -> {});
+		}
+		// submit returns, even though more jobs than the waiting limit are held back by the host limit
+		Future<String> otherHost = controller.submit(() -> "other", "2", "other.example.com", "other.example.com", future -> {}, future -> {});
+
+		assertEquals("other", otherHost.get(5, TimeUnit.SECONDS));
+		assertEquals(3, controller.getLimits().getWaiting());
+
+		release.countDown();
+		takeAll(controller, 5);
+	}
+
+	@Test
+	public void testJobIsStartedOnlyWhenAdmitted() throws Exception {
+		AdmissionController<String> controller = new AdmissionController<>("TEST", 1);
+		Set<Future<String>> waiting = ConcurrentHashMap.newKeySet();
+		Set<Future<String>> started = ConcurrentHashMap.newKeySet();
+
+		CountDownLatch release = new CountDownLatch(1);
+		Future<String> first = controller.submit(() -> { release.await(); return "1"; }, null, null, null, waiting::add,
+				future -> { waiting.remove(future); started.add(future); });
+		Future<String> second = controller.submit(() -> "2", null, null, null, waiting::add,
+				future -> { waiting.remove(future); started.add(future); });
+
+		Thread.sleep(100);
+		assertEquals(Set.of(first), started);
+		assertEquals(Set.of(second), waiting);
+
+		release.countDown();
+		takeAll(controller, 2);
+		assertEquals(Set.of(first, second), started);
+		assertTrue(waiting.isEmpty());
+	}
+
+	@Test
+	public void testSlowDestinationUsesSlowLane() throws Exception {
+		AdmissionController<String> controller = new AdmissionController<>("TEST", 1);
+		Properties properties = new Properties();
+		properties.setProperty("test.slowLane", "1");
+		properties.setProperty("test.slowThreshold", "0");
+		controller.configure(properties, "test");
+
+		controller.submit(() -> { Thread.sleep(50); return "slow"; }, "1", "slow.example.com", future -> {});
+		takeAll(controller, 1);
+
+		CountDownLatch release = new CountDownLatch(1);
+		controller.submit(() -> { release.await(); return "slow"; }, "1", "slow.example.com", future -> {});
+		Future<String> fast = controller.submit(() -> "fast", "1", "fast.example.com", future -> {});
+
+		assertEquals("fast", fast.get(5, TimeUnit.SECONDS));
+		ConcurrencyLimits limits = controller.getLimits();
+		assertEquals(1, limits.getSlowLaneRunning());
+		assertEquals(1, limits.getSlowDestinations());
+
+		release.countDown();
+		takeAll(controller, 2);
+	}
+
+	@Test
+	public void testLimitAdaptsToErrors() throws Exception {
+		AdmissionController<String> controller = new AdmissionController<>("TEST", 8);
+		Properties properties = new Properties();
+		properties.setProperty("test.min", "2");
+		controller.configure(properties, "test");
+
+		for (int i = 0; i < 8; i++) {
+			controller.submit(() -> { throw new IllegalStateException("failed"); }, null, null, future -> {});
+		}
+		for (int i = 0; i < 8; i++) {
+			try {
+				controller.take().get();
+				fail("Job should fail.");
+			} catch (ExecutionException ex) {
+				// expected
+			}
+		}
+		assertEquals(6, controller.getLimits().getLimit());
+
+		for (int i = 0; i < 6; i++) {
+			controller.submit(() -> "ok", null, null, future -> {});
+		}
+		takeAll(controller, 6);
+		assertEquals(7, controller.getLimits().getLimit());
+	}
+
+	private void takeAll(AdmissionController<String> controller, int count) throws Exception {
+		for (int i = 0; i < count; i++) {
+			assertNotNull(controller.take().get());
+		}
+	}
+
+}
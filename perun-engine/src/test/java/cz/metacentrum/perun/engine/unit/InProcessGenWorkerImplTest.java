@@ -0,0 +1,76 @@
+package cz.metacentrum.perun.engine.unit;
+
+import cz.metacentrum.perun.engine.AbstractEngineTest;
+import cz.metacentrum.perun.engine.exceptions.TaskExecutionException;
+import cz.metacentrum.perun.engine.scheduling.GenDataFetcher;
+import cz.metacentrum.perun.engine.scheduling.GenWorker;
+import cz.metacentrum.perun.engine.scheduling.impl.InProcessGenWorkerImpl;
+import cz.metacentrum.perun.taskslib.model.Task;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static cz.metacentrum.perun.taskslib.model.Task.TaskStatus.PLANNED;
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+public class InProcessGenWorkerImplTest extends AbstractEngineTest {
+
+	private static final String DATA = "{\"attributes\":{},\"hierarchy\":{}}";
+
+	@Rule
+	public TemporaryFolder genDirectory = new TemporaryFolder();
+
+	@Test
+	public void testInProcessGenWorkerSuccess() throws Exception {
+		GenDataFetcher fetcher = mock(GenDataFetcher.class);
+		doReturn(true).when(fetcher).isEnabled();
+		doAnswer(invocation -> {
+			invocation.getArgument(3, OutputStream.class).write(DATA.getBytes(StandardCharsets.UTF_8));
+			return null;
+		}).when(fetcher).fetchHashedData(any(Task.class), anyBoolean(), anyBoolean(), any());
+
+		GenWorker worker = new InProcessGenWorkerImpl(task1, genDirectory.getRoot(), fetcher, true, true);
+		Task resultTask = worker.call();
+
+		assertNotNull(resultTask.getGenEndTime());
+		assertEquals(PLANNED, resultTask.getStatus());
+		Path spool = InProcessGenWorkerImpl.getSpoolDirectory(genDirectory.getRoot(), task1);
+		assertEquals(DATA, Files.readString(spool.resolve(InProcessGenWorkerImpl.HASHED_DATA_FILE)));
+		verify(fetcher).fetchHashedData(eq(task1), eq(true), eq(true), any());
+		try (Stream<Path> files = Files.list(spool)) {
+			assertEquals("Only data file should be left in spool.", 1, files.count());
+		}
+	}
+
+	@Test
+	public void testInProcessGenWorkerFailure() throws Exception {
+		GenDataFetcher fetcher = mock(GenDataFetcher.class);
+		doThrow(new IOException("RPC is down")).when(fetcher).fetchHashedData(any(Task.class), anyBoolean(), anyBoolean(), any());
+
+		GenWorker worker = new InProcessGenWorkerImpl(task2, genDirectory.getRoot(), fetcher, false, false);
+		try {
+			worker.call();
+			fail("TaskExecutionException should be thrown.");
+		} catch (TaskExecutionException e) {
+			assertEquals(task2.getId(), e.getTask().getId());
+			assertEquals(2, e.getReturnCode());
+		}
+		Path spool = InProcessGenWorkerImpl.getSpoolDirectory(genDirectory.getRoot(), task2);
+		assertFalse(Files.exists(spool.resolve(InProcessGenWorkerImpl.HASHED_DATA_FILE)));
+	}
+}
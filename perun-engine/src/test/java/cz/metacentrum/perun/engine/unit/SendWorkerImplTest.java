@@ -2,14 +2,23 @@ package cz.metacentrum.perun.engine.unit;
 
 import cz.metacentrum.perun.engine.AbstractEngineTest;
 import cz.metacentrum.perun.engine.exceptions.TaskExecutionException;
+import cz.metacentrum.perun.engine.scheduling.SendDigestStore;
 import cz.metacentrum.perun.engine.scheduling.SendWorker;
+import cz.metacentrum.perun.engine.scheduling.impl.FileSendDigestStore;
+import cz.metacentrum.perun.engine.scheduling.impl.InProcessGenWorkerImpl;
 import cz.metacentrum.perun.engine.scheduling.impl.SendWorkerImpl;
 import cz.metacentrum.perun.taskslib.model.SendTask;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
 
 import static cz.metacentrum.perun.taskslib.model.SendTask.SendTaskStatus.SENT;
+import static cz.metacentrum.perun.taskslib.model.SendTask.SendTaskStatus.SKIPPED;
 import static org.junit.Assert.*;
 
 public class SendWorkerImplTest extends AbstractEngineTest {
@@ -39,4 +48,36 @@ public class SendWorkerImplTest extends AbstractEngineTest {
 			fail("Unknown exception caught " + e);
 		}
 	}
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testSendWorkerSkipsUnchangedData() throws Exception {
+		Path genDirectory = folder.newFolder("gen").toPath();
+		Path spool = InProcessGenWorkerImpl.getSpoolDirectory(genDirectory.toFile(), sendTask1.getTask());
+		Files.createDirectories(spool);
+		Files.writeString(spool.resolve("data"), "first");
+
+		SendDigestStore store = new FileSendDigestStore(genDirectory.toFile(), folder.getRoot().toPath().resolve("digests"), TimeUnit.HOURS.toMillis(1));
+		String digest = store.computeDigest(sendTask1.getTask());
+		assertNotNull(digest);
+
+		SendTask sent = new SendWorkerImpl(new SendTask(sendTask1.getTask(), sendTask1.getDestination()), null, store, digest).call();
+		assertEquals(SENT, sent.getStatus());
+
+		SendTask skipped = new SendWorkerImpl(new SendTask(sendTask1.getTask(), sendTask1.getDestination()), null, store, digest).call();
+		assertEquals(SKIPPED, skipped.getStatus());
+		assertEquals((long) 0, (long) skipped.getReturnCode());
+
+		// digests are persisted, so they survive restart of the engine
+		SendDigestStore reloadedStore = new FileSendDigestStore(genDirectory.toFile(), folder.getRoot().toPath().resolve("digests"), TimeUnit.HOURS.toMillis(1));
+		assertTrue(reloadedStore.isSent(sendTask1.getTask(), sendTask1.getDestination(), digest));
+
+		Files.writeString(spool.resolve("data"), "second");
+		String changedDigest = store.computeDigest(sendTask1.getTask());
+		assertNotEquals(digest, changedDigest);
+		SendTask changed = new SendWorkerImpl(new SendTask(sendTask1.getTask(), sendTask1.getDestination()), null, store, changedDigest).call();
+		assertEquals(SENT, changed.getStatus());
+	}
 }
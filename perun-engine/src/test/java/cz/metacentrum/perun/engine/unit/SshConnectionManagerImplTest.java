@@ -0,0 +1,72 @@
+package cz.metacentrum.perun.engine.unit;
+
+import cz.metacentrum.perun.core.api.Destination;
+import cz.metacentrum.perun.engine.AbstractEngineTest;
+import cz.metacentrum.perun.engine.scheduling.impl.SshConnectionManagerImpl;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Properties;
+
+import static org.junit.Assert.*;
+
+public class SshConnectionManagerImplTest extends AbstractEngineTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testSendScriptsUseSharedConnection() throws Exception {
+		Path controlDir = folder.getRoot().toPath().resolve("ssh");
+		SshConnectionManagerImpl manager = createManager(controlDir, 1);
+
+		assertTrue(manager.isSshDestination(new Destination(1, "root@host.example.com:22", Destination.DESTINATIONUSERHOSTPORTTYPE)));
+		assertFalse(manager.isSshDestination(new Destination(2, "https://host.example.com/", Destination.DESTINATIONURLTYPE)));
+
+		ProcessBuilder pb = new ProcessBuilder("true");
+		manager.configure(pb);
+
+		Path wrapper = controlDir.resolve("bin").resolve("ssh");
+		assertTrue(Files.isExecutable(wrapper));
+		assertTrue(Files.readString(wrapper).contains("'ControlPath=" + controlDir.toAbsolutePath() + "/%C'"));
+		assertEquals(PosixFilePermissions.fromString("rwx------"), Files.getPosixFilePermissions(controlDir));
+		assertTrue(pb.environment().get("PATH").startsWith(controlDir.resolve("bin").toAbsolutePath() + File.pathSeparator));
+		assertEquals(controlDir.toAbsolutePath().toString(), pb.environment().get("PERUN_SSH_CONTROL_DIR"));
+	}
+
+	@Test
+	public void testPathsInWrapperAreQuoted() throws Exception {
+		Path controlDir = folder.getRoot().toPath().resolve("ssh dir's");
+		SshConnectionManagerImpl manager = createManager(controlDir, 1);
+
+		manager.configure(new ProcessBuilder("true"));
+
+		String wrapper = Files.readString(controlDir.resolve("bin").resolve("ssh"));
+		assertTrue(wrapper.contains("'ControlPath=" + controlDir.toAbsolutePath().toString().replace("'", "'\\''") + "/%C'"));
+	}
+
+	@Test
+	public void testHostOfDestination() throws Exception {
+		SshConnectionManagerImpl manager = createManager(folder.getRoot().toPath().resolve("ssh"), 1);
+
+		assertEquals("host.example.com", manager.getHost(new Destination(1, "host.example.com", Destination.DESTINATIONHOSTTYPE)));
+		assertEquals("host.example.com", manager.getHost(new Destination(2, "root@HOST.example.com", Destination.DESTINATIONUSERHOSTTYPE)));
+		assertEquals("host.example.com", manager.getHost(new Destination(3, "root@host.example.com:2222", Destination.DESTINATIONUSERHOSTPORTTYPE)));
+		assertEquals(1, manager.getMaxSessionsPerHost());
+	}
+
+	private SshConnectionManagerImpl createManager(Path controlDir, int maxSessionsPerHost) {
+		Properties properties = new Properties();
+		properties.setProperty("engine.send.ssh.shareConnections", "true");
+		properties.setProperty("engine.send.ssh.controlDir", controlDir.toString());
+		properties.setProperty("engine.send.ssh.maxSessionsPerHost", String.valueOf(maxSessionsPerHost));
+		SshConnectionManagerImpl manager = new SshConnectionManagerImpl();
+		manager.setPropertiesBean(properties);
+		return manager;
+	}
+}
@@ -4,6 +4,8 @@ import cz.metacentrum.perun.auditparser.AuditParser;
 import cz.metacentrum.perun.core.api.Attribute;
 import cz.metacentrum.perun.core.api.AttributeDefinition;
 import cz.metacentrum.perun.core.api.AuditMessage;
+import cz.metacentrum.perun.core.api.AuditMessagesSubscription;
+import cz.metacentrum.perun.core.api.BeansUtils;
 import cz.metacentrum.perun.core.api.Facility;
 import cz.metacentrum.perun.core.api.Group;
 import cz.metacentrum.perun.core.api.Member;
@@ -16,6 +18,7 @@ import cz.metacentrum.perun.core.api.User;
 import cz.metacentrum.perun.core.api.UserExtSource;
 import cz.metacentrum.perun.core.api.Vo;
 import cz.metacentrum.perun.core.api.exceptions.InternalErrorException;
+import cz.metacentrum.perun.core.bl.PerunBl;
 import cz.metacentrum.perun.ldapc.beans.LdapProperties;
 import cz.metacentrum.perun.ldapc.processor.EventDispatcher;
 import cz.metacentrum.perun.ldapc.processor.EventProcessor;
@@ -43,6 +46,9 @@ public class EventDispatcherImpl implements EventDispatcher, Runnable {
 
 	private final static Logger log = LoggerFactory.getLogger(EventDispatcherImpl.class);
 
+	// max time in ms to wait for notification about new audit messages before polling them anyway
+	private static final long POLL_INTERVAL = 10000;
+
 	private static final DateFormat DATE_FORMAT = new SimpleDateFormat("yyyy/MM/dd HH:mm:ss");
 
 	@Autowired
@@ -210,9 +216,11 @@ public class EventDispatcherImpl implements EventDispatcher, Runnable {
 		AuditMessage message = null;
 		List<AuditMessage> messages;
 
+		AuditMessagesSubscription subscription = null;
 		try {
 			PerunSession perunSession = ldapcManager.getPerunSession();
 			Perun perun = ldapcManager.getPerunBl();
+			subscription = ((PerunBl) perun).getAuditMessagesManagerBl().subscribeToNewMessages(perunSession);
 
 			if (lastProcessedIdNumber == 0) {
 				loadLastProcessedId();
@@ -227,7 +235,7 @@ public class EventDispatcherImpl implements EventDispatcher, Runnable {
 				do {
 					try {
 						//IMPORTANT STEP1: Get new bulk of messages
-						messages = perun.getAuditMessagesManager().pollConsumerMessages(perunSession, ldapProperties.getLdapConsumerName(), lastProcessedIdNumber);
+						messages = perun.getAuditMessagesManager().pollConsumerMessagesBatch(perunSession, ldapProperties.getLdapConsumerName(), lastProcessedIdNumber, BeansUtils.getCoreConfig().getAuditerConsumerBatchSize());
 						// Rpc.AuditMessagesManager.pollConsumerMessages(ldapcManager.getRpcCaller(), ldapProperties.getLdapConsumerName());
 					} catch (InternalErrorException ex) {
 						log.error("Consumer failed due to {}. Sleeping for {} ms.", ex, sleepTime);
@@ -238,6 +246,7 @@ public class EventDispatcherImpl implements EventDispatcher, Runnable {
 					//If there are no messages, sleep for 1 sec and then try it again
 					if (messages == null) Thread.sleep(1000);
 				} while (messages == null);
+				boolean noNewMessages = messages.isEmpty();
 				//If new messages exist, resolve them all
 				Iterator<AuditMessage> messagesIterator = messages.iterator();
 				while (messagesIterator.hasNext()) {
@@ -253,12 +262,12 @@ public class EventDispatcherImpl implements EventDispatcher, Runnable {
 					MessageBeans presentBeans = this.resolveMessage(message.getEvent().getMessage(), message.getId());
 					this.dispatchEvent(message.getEvent().getMessage(), presentBeans);
 				}
-				//After all messages has been resolved, test interrupting of thread and if its ok, wait and go for another bulk of messages
+				//After all messages has been resolved, test interrupting of thread and if its ok, wait for new messages (or timeout) and go for another bulk of messages
 				if (Thread.interrupted()) {
 					running = false;
 				} else {
 					saveLastProcessedId();
-					Thread.sleep(5000);
+					if (noNewMessages) subscription.awaitNewMessages(POLL_INTERVAL);
 				}
 			}
 			//If ldapc is interrupted
@@ -273,6 +282,7 @@ public class EventDispatcherImpl implements EventDispatcher, Runnable {
 			log.error("Last message has ID='" + ((message != null) ? message.getId() : 0) + "' and was bad PARSED or EXECUTE at " + DATE_FORMAT.format(date) + " due to exception " + e.toString());
 			throw new RuntimeException(e);
 		} finally {
+			if (subscription != null) subscription.close();
 			saveLastProcessedId();
 		}
 	}
@@ -368,5 +378,12 @@ public class EventDispatcherImpl implements EventDispatcher, Runnable {
 		} catch (IOException e) {
 			log.error("Error writing last processed message id to file {}", ldapProperties.getLdapStateFile(), e);
 		}
+		// position stored in Perun holds back dropping of old audit log partitions
+		try {
+			((PerunBl) ldapcManager.getPerunBl()).getAuditMessagesManagerBl().storeConsumerPosition(ldapcManager.getPerunSession(),
+					ldapProperties.getLdapConsumerName(), lastProcessedIdNumber);
+		} catch (InternalErrorException e) {
+			log.error("Error storing last processed message id {} to Perun.", lastProcessedIdNumber, e);
+		}
 	}
 }
@@ -1,6 +1,8 @@
 package cz.metacentrum.perun.notif.managers;
 
 import cz.metacentrum.perun.audit.events.AuditEvent;
+import cz.metacentrum.perun.core.api.AuditMessagesSubscription;
+import cz.metacentrum.perun.core.api.BeansUtils;
 import cz.metacentrum.perun.core.api.PerunSession;
 import cz.metacentrum.perun.core.api.exceptions.InternalErrorException;
 import cz.metacentrum.perun.core.bl.PerunBl;
@@ -12,6 +14,7 @@ import java.util.Properties;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.sql.DataSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -20,7 +23,7 @@ import org.springframework.stereotype.Service;
 
 /**
  * Scheduling manager for firing sending emails from db to users. Main method is
- * doNotification.
+ * doNotification. New perun audit messages are loaded as soon as they are stored.
  *
  * @author tomas.tunkl
  *
@@ -57,11 +60,50 @@ public class SchedulingManagerImpl {
 
 	private final String consumerName = "notifications";
 
+	// max time in ms to wait for notification about new audit messages before polling them anyway
+	private static final long AUDIT_MESSAGES_POLL_INTERVAL = 60000;
+
+	private final Object auditMessagesLock = new Object();
+	private Thread auditMessagesListener;
+
 	@PostConstruct
 	public void init() {
 		session = NotifUtils.getPerunSession(perun);
 	}
 
+	@PreDestroy
+	public synchronized void destroy() {
+		if (auditMessagesListener != null) {
+			auditMessagesListener.interrupt();
+			auditMessagesListener = null;
+		}
+	}
+
+	/**
+	 * Starts thread, which loads perun audit messages as soon as they are stored in the auditer log,
+	 * instead of waiting for the next run of doNotification. Started with the first doNotification.
+	 */
+	private synchronized void startAuditMessagesListener() {
+		if (auditMessagesListener != null) return;
+		auditMessagesListener = new Thread(() -> {
+			try (AuditMessagesSubscription subscription = perun.getAuditMessagesManagerBl().subscribeToNewMessages(session)) {
+				while (!Thread.currentThread().isInterrupted()) {
+					if (subscription.awaitNewMessages(AUDIT_MESSAGES_POLL_INTERVAL) && runningAllowed.get()) {
+						try {
+							processPerunAuditMessages();
+						} catch (Exception ex) {
+							logger.error("Error during processing of new perun AuditMessages, they will be processed by next doNotification.", ex);
+						}
+					}
+				}
+			} catch (InterruptedException ex) {
+				logger.debug("Listening for new perun AuditMessages was stopped.");
+			}
+		}, "notif-audit-messages-listener");
+		auditMessagesListener.setDaemon(true);
+		auditMessagesListener.start();
+	}
+
 	/**
 	 * Method starts processing poolMessages from db and starts sending
 	 * notifications to users.
@@ -78,6 +120,7 @@ public class SchedulingManagerImpl {
 		}
 
 		logger.info("Starting doNotification");
+		startAuditMessagesListener();
 
 		try {
 			logger.debug("1: Processing perun AuditMessages");
@@ -120,19 +163,27 @@ public class SchedulingManagerImpl {
 	 * The method loads perun audit messages from the database and saves them as PerunNotifAudiMessages.
 	 */
 	public void processPerunAuditMessages() throws Exception {
-		try {
-			List<AuditEvent> events = perun.getAuditMessagesManagerBl().pollConsumerEvents(session, consumerName);
-			for (AuditEvent event : events) {
-				try {
-					perunNotifAuditMessagesManager.saveMessageToPerunAuditerMessage(event.getMessage(), session);
-				} catch (InternalErrorException ex) {
-					logger.error("Error during saving message to db. Message: " + event.getMessage());
-					throw ex;
-				}
+		// called both by doNotification and by listener of new audit messages
+		synchronized (auditMessagesLock) {
+			try {
+				// load messages in bounded batches, so we don't keep all of them in memory after long outage
+				int batchSize = BeansUtils.getCoreConfig().getAuditerConsumerBatchSize();
+				List<AuditEvent> events;
+				do {
+					events = perun.getAuditMessagesManagerBl().pollConsumerEventsBatch(session, consumerName, batchSize);
+					for (AuditEvent event : events) {
+						try {
+							perunNotifAuditMessagesManager.saveMessageToPerunAuditerMessage(event.getMessage(), session);
+						} catch (InternalErrorException ex) {
+							logger.error("Error during saving message to db. Message: " + event.getMessage());
+							throw ex;
+						}
+					}
+				} while (events.size() == batchSize);
+			} catch (Exception ex) {
+				logger.error("Error during perunNotification process.");
+				throw ex;
 			}
-		} catch (Exception ex) {
-			logger.error("Error during perunNotification process.");
-			throw ex;
 		}
 	}
 
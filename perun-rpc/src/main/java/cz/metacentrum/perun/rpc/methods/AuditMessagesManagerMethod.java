@@ -128,6 +128,19 @@ public enum AuditMessagesManagerMethod implements ManagerMethod {
 		}
 	},
 
+	/*#
+	 * Get approximate count of all messages stored in auditer logs.
+	 * Count is based on database statistics, so it is fast even for huge audit log.
+	 *
+	 * @return Integer Approximate count of all messages.
+	 */
+	getAuditerMessagesCountApproximate {
+		@Override
+		public Integer call(ApiCaller ac, Deserializer parms) throws PerunException {
+			return ac.getAuditMessagesManager().getAuditerMessagesCountApproximate(ac.getSession());
+		}
+	},
+
 	/*#
 	 * Log arbitrary auditer message/event to the audit log.
 	 *